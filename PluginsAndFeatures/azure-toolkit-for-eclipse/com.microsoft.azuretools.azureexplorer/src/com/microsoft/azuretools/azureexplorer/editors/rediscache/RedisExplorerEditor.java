@@ -32,7 +32,9 @@ import com.microsoft.azuretools.core.mvp.ui.rediscache.RedisValueData;
 import com.microsoft.tooling.msservices.serviceexplorer.azure.rediscache.RedisExplorerMvpView;
 import com.microsoft.tooling.msservices.serviceexplorer.azure.rediscache.RedisExplorerPresenter;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.swt.SWT;
@@ -76,12 +78,20 @@ public class RedisExplorerEditor extends EditorPart implements RedisExplorerMvpV
     private String currentCursor;
     private String lastChosenKey;
 
+    // Paging state of the value shown in the table
+    private String valueKey;
+    private RedisKeyType valueType;
+    private String valueCursor;
+    private boolean loadingValuePage;
+
     // Constants
     private static final String[] LIST_TITLE = new String[] { "Index", "Item" };
     private static final String[] SET_TITLE = new String[] { "Member" };
     private static final String[] ZSET_TITLE = new String[] { "Score", "Member" };
     private static final String[] HASH_TITLE = new String[] { "Field", "Value" };
 
+    private static final int VALUE_PREFETCH_ROWS = 50;
+
     private static final String DEFAULT_SCAN_PATTERN = "*";
     private static final String ACTION_GET = "GET";
     private static final String ACTION_SCAN = "SCAN";
@@ -115,6 +125,7 @@ public class RedisExplorerEditor extends EditorPart implements RedisExplorerMvpV
         this.redisExplorerPresenter.onAttachView(this);
         currentCursor = SCAN_POINTER_START;
         lastChosenKey = "";
+        valueCursor = SCAN_POINTER_START;
     }
 
     /**
@@ -220,6 +231,9 @@ public class RedisExplorerEditor extends EditorPart implements RedisExplorerMvpV
         tblInnerValue.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true, 1, 1));
         tblInnerValue.setHeaderVisible(true);
         tblInnerValue.setLinesVisible(true);
+        if (tblInnerValue.getVerticalBar() != null) {
+            tblInnerValue.getVerticalBar().addListener(SWT.Selection, event -> onValueScrolled());
+        }
 
         cmpoStringValue = new Composite(cmpoValue, SWT.NONE);
         cmpoStringValue.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true, 2, 1));
@@ -314,9 +328,9 @@ public class RedisExplorerEditor extends EditorPart implements RedisExplorerMvpV
     }
 
     @Override
-    public void renderDbCombo(int num) {
+    public void renderDbCombo(int num, Map<Integer, Long> keyCounts) {
         for (int i = 0; i < num; i++) {
-            cbDatabase.add(String.valueOf(i));
+            cbDatabase.add(dbLabel(i, keyCounts));
         }
         if (num > 0) {
             cbDatabase.select(0);
@@ -333,10 +347,31 @@ public class RedisExplorerEditor extends EditorPart implements RedisExplorerMvpV
             lstKey.add(key);
         }
         currentCursor = result.getNextCursor();
-        setWidgetEnableStatus(true);
+        if (result.isLast()) {
+            setWidgetEnableStatus(true);
+        }
         clearValueArea();
     }
 
+    @Override
+    public void appendScanResult(RedisScanResult result) {
+        java.util.List<String> keys = result.getKeys();
+        Collections.sort(keys);
+        lstKey.setRedraw(false);
+        for (String key : keys) {
+            lstKey.add(key);
+        }
+        lstKey.setRedraw(true);
+        currentCursor = result.getNextCursor();
+        if (result.isLast()) {
+            // Pages arrive in SCAN order, so the whole list is sorted once after the last page.
+            String[] items = lstKey.getItems();
+            Arrays.sort(items);
+            lstKey.setItems(items);
+            setWidgetEnableStatus(true);
+        }
+    }
+
     @Override
     public void updateKeyList() {
         lstKey.removeAll();
@@ -397,14 +432,53 @@ public class RedisExplorerEditor extends EditorPart implements RedisExplorerMvpV
             }
             tblInnerValue.setRedraw(true);
             setValueCompositeVisiable(true);
+            if (val.getSize() >= 0) {
+                lblTypeValue.setText(String.format("%s (%d)", type, val.getSize()));
+            }
+            valueKey = lblKeyValue.getText();
+            valueType = type;
+            valueCursor = val.getNextCursor();
+            loadingValuePage = false;
+            tblInnerValue.getDisplay().asyncExec(this::onValueScrolled);
         }
         setWidgetEnableStatus(true);
     }
 
+    @Override
+    public void appendContent(String key, RedisValueData val) {
+        // Only the page requested for the value currently in the table is accepted.
+        if (tblInnerValue.isDisposed() || !loadingValuePage || !key.equals(valueKey)) {
+            return;
+        }
+        tblInnerValue.setRedraw(false);
+        for (String[] data : val.getRowData()) {
+            TableItem item = new TableItem(tblInnerValue, SWT.NONE);
+            item.setText(data);
+        }
+        tblInnerValue.setRedraw(true);
+        valueCursor = val.getNextCursor();
+        loadingValuePage = false;
+        tblInnerValue.getDisplay().asyncExec(this::onValueScrolled);
+    }
+
     @Override
     public void onErrorWithException(String message, Exception ex) {
         RedisExplorerMvpView.super.onErrorWithException(message, ex);
         setWidgetEnableStatus(true);
+        loadingValuePage = false;
+    }
+
+    private void onValueScrolled() {
+        if (loadingValuePage || SCAN_POINTER_START.equals(valueCursor) || tblInnerValue.isDisposed()
+                || !cmpoInnerValue.isVisible()) {
+            return;
+        }
+        int visibleRows = tblInnerValue.getClientArea().height / Math.max(1, tblInnerValue.getItemHeight());
+        if (tblInnerValue.getTopIndex() + visibleRows < tblInnerValue.getItemCount() - VALUE_PREFETCH_ROWS) {
+            return;
+        }
+        loadingValuePage = true;
+        redisExplorerPresenter.onValuePage(cbDatabase.getSelectionIndex(), valueKey, valueType, valueCursor);
     }
 
     @Override
@@ -477,6 +551,11 @@ public class RedisExplorerEditor extends EditorPart implements RedisExplorerMvpV
         super.dispose();
     }
 
+    private static String dbLabel(int db, Map<Integer, Long> keyCounts) {
+        Long keys = keyCounts.get(db);
+        return keys == null ? String.valueOf(db) : String.format("%d (%d keys)", db, keys);
+    }
+
     private void onDataBaseSelect() {
         redisExplorerPresenter.onDbSelect(cbDatabase.getSelectionIndex());
     }
@@ -500,6 +579,9 @@ public class RedisExplorerEditor extends EditorPart implements RedisExplorerMvpV
     }
 
     private void clearValueArea() {
+        valueCursor = SCAN_POINTER_START;
+        valueKey = null;
+        loadingValuePage = false;
         lblKeyValue.setText("");
         lblTypeValue.setText("");
         cmpoInnerValue.setVisible(false);
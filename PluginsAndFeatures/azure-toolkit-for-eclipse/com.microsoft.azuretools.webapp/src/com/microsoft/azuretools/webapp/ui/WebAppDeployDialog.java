@@ -122,6 +122,7 @@ import com.microsoft.azuretools.telemetrywrapper.Operation;
 import com.microsoft.azuretools.telemetrywrapper.TelemetryManager;
 import com.microsoft.azuretools.utils.AzureModel;
 import com.microsoft.azuretools.utils.AzureModelController;
+import com.microsoft.azuretools.utils.AzureModelSnapshot;
 import com.microsoft.azuretools.utils.CanceledByUserException;
 import com.microsoft.azuretools.utils.WebAppUtils;
 import com.microsoft.azuretools.utils.WebAppUtils.WebAppDetails;
@@ -558,6 +559,9 @@ public class WebAppDeployDialog extends AppServiceBaseDialog {
         }
         String appServiceName = table.getItems()[selectedRow].getText(0);
         WebAppDetails wad = webAppDetailsMap.get(appServiceName);
+        if (wad == null) {
+            return;
+        }
         FtpCredentialsWindow w = new FtpCredentialsWindow(getShell(), wad.webApp);
         w.open();
     }
@@ -571,10 +575,16 @@ public class WebAppDeployDialog extends AppServiceBaseDialog {
             return;
         }
 
-        btnDelete.setEnabled(true);
         String appServiceName = table.getItems()[selectedRow].getText(0);
 
         WebAppDetails wad = webAppDetailsMap.get(appServiceName);
+        if (wad == null) {
+            // a row of the snapshot, the details come with the background refresh
+            browserAppServiceDetails.setText("");
+            btnDelete.setEnabled(false);
+            return;
+        }
+        btnDelete.setEnabled(true);
         SubscriptionDetail sd = wad.subscriptionDetail;
         AppServicePlan asp = wad.appServicePlan;
 
@@ -838,7 +848,12 @@ public class WebAppDeployDialog extends AppServiceBaseDialog {
         }
         String appServiceName = table.getItems()[selectedRow].getText(0);
         WebAppDetails wad = webAppDetailsMap.get(appServiceName);
-        if (wad != null && wad.webApp != null && !WebAppUtils.isJavaWebApp(wad.webApp)) {
+        if (wad == null) {
+            // a row of the snapshot can't be deployed to until the refresh brings the web app
+            okButton.setEnabled(false);
+            return false;
+        }
+        if (wad.webApp != null && !WebAppUtils.isJavaWebApp(wad.webApp)) {
             setErrorMessage("Select java based App Service");
             okButton.setEnabled(false);
             return false;
@@ -888,12 +903,77 @@ public class WebAppDeployDialog extends AppServiceBaseDialog {
 
     private void fillTable() {
         if (AzureModel.getInstance().getResourceGroupToWebAppMap() == null) {
-            updateAndFillTable();
+            AzureModelSnapshot snapshot = AzureModelController.getSnapshot();
+            if (snapshot == null) {
+                updateAndFillTable();
+            } else {
+                fillTableFromSnapshot(snapshot);
+                revalidateTable();
+            }
         } else {
             doFillTable();
         }
     }
 
+    private void fillTableFromSnapshot(AzureModelSnapshot snapshot) {
+        webAppDetailsMap.clear();
+        table.removeAll();
+        List<String[]> rows = new ArrayList<>();
+        for (AzureModelSnapshot.SubscriptionEntry se : snapshot.getSubscriptions()) {
+            for (AzureModelSnapshot.ResourceGroupEntry rge : se.getResourceGroups()) {
+                if (rge.getWebApps() == null) {
+                    continue;
+                }
+                for (AzureModelSnapshot.WebAppEntry wae : rge.getWebApps()) {
+                    if (wae.isJava()) {
+                        rows.add(new String[]{wae.getName(), StringUtils.isNullOrEmpty(wae.getJavaVersion()) ? ""
+                            : wae.getJavaVersion(), StringUtils.isNullOrEmpty(wae.getJavaRuntime()) ? ""
+                                : wae.getJavaRuntime(), rge.getName()});
+                    }
+                }
+            }
+        }
+        Collections.sort(rows, (o1, o2) -> o1[0].compareTo(o2[0]));
+        for (String[] row : rows) {
+            TableItem item = new TableItem(table, SWT.NULL);
+            item.setText(row);
+        }
+    }
+
+    /**
+     * Refresh the model in the background while the table shows the snapshot, then swap in the live rows.
+     */
+    private void revalidateTable() {
+        Job job = new Job("Update Azure Local Cache") {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                try {
+                    AzureModelController.updateResourceGroupMaps(new UpdateProgressIndicator(monitor));
+                } catch (CanceledByUserException ex) {
+                    return Status.CANCEL_STATUS;
+                } catch (Exception ex) {
+                    LOG.log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "revalidateTable@WebAppDeployDialog", ex));
+                    return Status.OK_STATUS;
+                }
+                Display.getDefault().asyncExec(() -> {
+                    if (table.isDisposed()) {
+                        return;
+                    }
+                    int selectedRow = table.getSelectionIndex();
+                    String selectedName = selectedRow < 0 ? null : table.getItem(selectedRow).getText(0);
+                    doFillTable();
+                    if (selectedName != null) {
+                        selectTableRowWithWebAppName(selectedName);
+                    }
+                    fillAppServiceDetails();
+                    fillSlot();
+                });
+                return Status.OK_STATUS;
+            }
+        };
+        job.schedule();
+    }
+
     private void selectTableRowWithWebAppName(String webAppName) {
         for (int ri = 0; ri < table.getItemCount(); ++ri) {
             String waName = table.getItem(ri).getText(0);
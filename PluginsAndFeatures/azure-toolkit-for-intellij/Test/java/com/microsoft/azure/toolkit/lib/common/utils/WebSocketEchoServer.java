@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.utils;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Just enough of RFC 6455 to echo the data frames of a client, extensions are not negotiated.
+ */
+final class WebSocketEchoServer implements AutoCloseable {
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int OPCODE_CLOSE = 0x8;
+    private static final int OPCODE_PING = 0x9;
+    private static final int OPCODE_PONG = 0xA;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    WebSocketEchoServer() throws IOException {
+        serverSocket = new ServerSocket(0, 64, InetAddress.getByName(null));
+        executor.submit(() -> {
+            while (!serverSocket.isClosed()) {
+                final Socket socket = serverSocket.accept();
+                openConnections.incrementAndGet();
+                executor.submit(() -> serve(socket));
+            }
+            return null;
+        });
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    String getUri() {
+        return "ws://127.0.0.1:" + getPort() + "/";
+    }
+
+    /**
+     * WebSocket connections accepted and not yet closed.
+     */
+    int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    private Void serve(Socket socket) throws IOException, NoSuchAlgorithmException {
+        try (Socket client = socket) {
+            client.setTcpNoDelay(true);
+            final DataInputStream input = new DataInputStream(client.getInputStream());
+            final OutputStream output = client.getOutputStream();
+            handshake(input, output);
+            for (;;) {
+                final int first = input.readUnsignedByte();
+                final int second = input.readUnsignedByte();
+                final int opcode = first & 0x0F;
+                long length = second & 0x7F;
+                if (length == 126) {
+                    length = input.readUnsignedShort();
+                } else if (length == 127) {
+                    length = input.readLong();
+                }
+                final byte[] mask = new byte[4];
+                if ((second & 0x80) != 0) {
+                    input.readFully(mask);
+                }
+                final byte[] payload = new byte[(int) length];
+                input.readFully(payload);
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i & 3];
+                }
+                if (opcode == OPCODE_CLOSE) {
+                    writeFrame(output, OPCODE_CLOSE, payload);
+                    return null;
+                }
+                writeFrame(output, opcode == OPCODE_PING ? OPCODE_PONG : opcode, payload);
+            }
+        } finally {
+            openConnections.decrementAndGet();
+        }
+    }
+
+    private static void handshake(DataInputStream input, OutputStream output)
+            throws IOException, NoSuchAlgorithmException {
+        // read byte by byte, the first frame may follow the request in the same segment
+        final StringBuilder request = new StringBuilder();
+        while (request.length() < 4 || !request.substring(request.length() - 4).equals("\r\n\r\n")) {
+            request.append((char) input.readUnsignedByte());
+        }
+        String key = null;
+        for (String line : request.toString().split("\r\n")) {
+            if (line.toLowerCase().startsWith("sec-websocket-key:")) {
+                key = line.substring(line.indexOf(':') + 1).trim();
+            }
+        }
+        final byte[] digest = MessageDigest.getInstance("SHA-1")
+                                           .digest((key + ACCEPT_GUID).getBytes(StandardCharsets.ISO_8859_1));
+        final String response = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + Base64.getEncoder().encodeToString(digest) + "\r\n\r\n";
+        output.write(response.getBytes(StandardCharsets.ISO_8859_1));
+        output.flush();
+    }
+
+    private static void writeFrame(OutputStream output, int opcode, byte[] payload) throws IOException {
+        final byte[] header;
+        if (payload.length < 126) {
+            header = new byte[]{(byte) (0x80 | opcode), (byte) payload.length};
+        } else if (payload.length < 65536) {
+            header = new byte[]{(byte) (0x80 | opcode), 126, (byte) (payload.length >>> 8), (byte) payload.length};
+        } else {
+            header = new byte[10];
+            header[0] = (byte) (0x80 | opcode);
+            header[1] = 127;
+            for (int i = 0; i < 8; i++) {
+                header[9 - i] = (byte) ((long) payload.length >>> (8 * i));
+            }
+        }
+        output.write(header);
+        output.write(payload);
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+}
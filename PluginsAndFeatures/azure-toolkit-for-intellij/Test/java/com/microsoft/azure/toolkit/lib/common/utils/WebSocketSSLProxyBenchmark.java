@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loopback throughput of {@link WebSocketSSLProxy}: every client pushes {@link #BYTES_PER_CLIENT} bytes through the
+ * proxy to a local WebSocket echo server and reads them back. Run its {@code main} with the test classpath.
+ */
+public class WebSocketSSLProxyBenchmark {
+    private static final int BYTES_PER_CLIENT = 64 * 1024 * 1024;
+    private static final int CHUNK_SIZE = 8192;
+    private static final int[] CLIENTS = {1, 4, 16};
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws Exception {
+        try (WebSocketEchoServer server = new WebSocketEchoServer()) {
+            final WebSocketSSLProxy proxy = new WebSocketSSLProxy(server.getUri(), "id", "password");
+            proxy.start();
+            try {
+                for (int clients : CLIENTS) {
+                    // the first run warms up
+                    run(proxy.getLocalPort(), clients);
+                    long best = Long.MAX_VALUE;
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        best = Math.min(best, run(proxy.getLocalPort(), clients));
+                    }
+                    final double megabytes = (double) BYTES_PER_CLIENT * clients / (1024 * 1024);
+                    System.out.printf("clients=%d best=%dms throughput=%.1fMB/s%n", clients, best / 1_000_000,
+                            megabytes * 1_000_000_000 / best);
+                }
+            } finally {
+                proxy.close();
+            }
+        }
+    }
+
+    private static long run(int port, int clients) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(clients * 2);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            final long start = System.nanoTime();
+            for (int i = 0; i < clients; i++) {
+                final Socket socket = new Socket(InetAddress.getByName(null), port);
+                socket.setTcpNoDelay(true);
+                futures.add(executor.submit(() -> {
+                    final byte[] chunk = new byte[CHUNK_SIZE];
+                    final OutputStream output = socket.getOutputStream();
+                    for (int sent = 0; sent < BYTES_PER_CLIENT; sent += CHUNK_SIZE) {
+                        output.write(chunk);
+                    }
+                    output.flush();
+                    return null;
+                }));
+                futures.add(executor.submit(() -> {
+                    final byte[] buffer = new byte[CHUNK_SIZE];
+                    final InputStream input = socket.getInputStream();
+                    int received = 0;
+                    while (received < BYTES_PER_CLIENT) {
+                        final int read = input.read(buffer);
+                        if (read < 0) {
+                            throw new IOException("Closed after " + received + " bytes");
+                        }
+                        received += read;
+                    }
+                    socket.close();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WebSocketSSLProxyTest {
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private WebSocketEchoServer server;
+    private WebSocketSSLProxy proxy;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new WebSocketEchoServer();
+        proxy = new WebSocketSSLProxy(server.getUri(), "id", "password");
+        proxy.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        proxy.close();
+        server.close();
+    }
+
+    @Test(timeout = TIMEOUT_MILLIS)
+    public void testConcurrentClientsGetTheirOwnBytesBack() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (Socket first = connect(); Socket second = connect()) {
+            final Future<?> firstEcho = executor.submit(() -> assertEcho(first, 1, 512 * 1024));
+            final Future<?> secondEcho = executor.submit(() -> assertEcho(second, 2, 512 * 1024));
+            firstEcho.get();
+            secondEcho.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = TIMEOUT_MILLIS)
+    public void testEndOfInputClosesOnlyItsConnection() throws Exception {
+        try (Socket ending = connect(); Socket other = connect()) {
+            assertEcho(ending, 1, 1024);
+            assertEcho(other, 2, 1024);
+
+            ending.shutdownOutput();
+            assertEquals("closed once the server answers the close frame", -1, ending.getInputStream().read());
+
+            assertEcho(other, 3, 64 * 1024);
+        }
+    }
+
+    @Test(timeout = TIMEOUT_MILLIS)
+    public void testFailedClientClosesOnlyItsConnection() throws Exception {
+        try (Socket other = connect()) {
+            final Socket failing = connect();
+            assertEcho(failing, 1, 1024);
+            assertEcho(other, 2, 1024);
+
+            // resets the connection instead of closing it
+            failing.setSoLinger(true, 0);
+            failing.close();
+            awaitOpenConnections(1);
+
+            assertEcho(other, 3, 64 * 1024);
+        }
+    }
+
+    @Test(timeout = TIMEOUT_MILLIS)
+    public void testCloseTearsDownEverything() throws Exception {
+        final int port = proxy.getLocalPort();
+        try (Socket first = connect(); Socket second = connect()) {
+            assertEcho(first, 1, 1024);
+            assertEcho(second, 2, 1024);
+
+            proxy.close();
+
+            assertEquals(0, proxy.getLocalPort());
+            assertEquals(-1, first.getInputStream().read());
+            assertEquals(-1, second.getInputStream().read());
+            awaitOpenConnections(0);
+        }
+        try (Socket ignored = new Socket(InetAddress.getByName(null), port)) {
+            fail("the proxy still accepts clients");
+        } catch (ConnectException expected) {
+            // the port is closed
+        }
+    }
+
+    @Test(timeout = TIMEOUT_MILLIS)
+    public void testInvalidServerUriOnlyRefusesTheClient() throws Exception {
+        final WebSocketSSLProxy invalid = new WebSocketSSLProxy("ftp://127.0.0.1/", "id", "password");
+        invalid.start();
+        try {
+            for (int i = 0; i < 2; i++) {
+                try (Socket socket = new Socket(InetAddress.getByName(null), invalid.getLocalPort())) {
+                    socket.setSoTimeout(TIMEOUT_MILLIS);
+                    assertEquals(-1, socket.getInputStream().read());
+                }
+            }
+            assertTrue("still accepting", invalid.getLocalPort() > 0);
+        } finally {
+            invalid.close();
+        }
+    }
+
+    private Socket connect() throws IOException {
+        final Socket socket = new Socket(InetAddress.getByName(null), proxy.getLocalPort());
+        socket.setSoTimeout(TIMEOUT_MILLIS);
+        return socket;
+    }
+
+    /**
+     * send {@code length} bytes generated from {@code seed} and read the same bytes back.
+     */
+    private static Void assertEcho(Socket socket, long seed, int length) throws IOException {
+        final byte[] sent = new byte[length];
+        new Random(seed).nextBytes(sent);
+        socket.getOutputStream().write(sent);
+        socket.getOutputStream().flush();
+        final byte[] received = new byte[length];
+        new DataInputStream(socket.getInputStream()).readFully(received);
+        assertArrayEquals(sent, received);
+        return null;
+    }
+
+    private void awaitOpenConnections(int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (server.getOpenConnections() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, server.getOpenConnections());
+    }
+}
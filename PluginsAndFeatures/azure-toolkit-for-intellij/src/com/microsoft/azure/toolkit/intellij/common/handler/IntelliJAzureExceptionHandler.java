@@ -214,7 +214,7 @@ public class IntelliJAzureExceptionHandler extends AzureExceptionHandler {
         return registerAction == null ? actions : ArrayUtils.addAll(actions, registerAction);
     }
 
-    public static List<AzureOperationRef> revise(Deque<? extends IAzureOperation> operations) {
+    public static List<AzureOperationRef> revise(Iterable<? extends IAzureOperation> operations) {
         final LinkedList<AzureOperationRef> result = new LinkedList<>();
         for (final IAzureOperation op : operations) {
             if (op instanceof AzureOperationRef) {
@@ -43,8 +43,10 @@ import javax.swing.table.DefaultTableModel;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Collections;
+import java.util.Map;
 
 
 public class RedisCacheExplorer extends BaseEditor implements RedisExplorerMvpView {
@@ -55,6 +57,12 @@ public class RedisCacheExplorer extends BaseEditor implements RedisExplorerMvpVi
     private String currentCursor;
     private String lastChosenKey;
 
+    // Paging state of the value shown in the table
+    private String valueKey;
+    private RedisKeyType valueType;
+    private String valueCursor = SCAN_POINTER_START;
+    private boolean loadingValuePage;
+
     private final RedisExplorerPresenter<RedisCacheExplorer> redisExplorerPresenter;
 
     private static final String[] LIST_TITLE = new String[]{" Index", " Item"};
@@ -67,6 +75,8 @@ public class RedisCacheExplorer extends BaseEditor implements RedisExplorerMvpVi
     private static final int SPLIT_PANE_DIVIDER_SIZE = 2;
     private static final double SPLIT_PANE_WEIGHT = 0.4;
 
+    private static final int VALUE_PREFETCH_ROWS = 50;
+
     private static final String DEFAULT_SCAN_PATTERN = "*";
     private static final String ACTION_GET = "GET";
     private static final String ACTION_SCAN = "SCAN";
@@ -116,6 +126,8 @@ public class RedisCacheExplorer extends BaseEditor implements RedisExplorerMvpVi
 
         progressBar.setIndeterminate(true);
 
+        pnlInnerValue.getVerticalScrollBar().addAdjustmentListener(event -> onValueScrolled());
+
         cbDatabase.addActionListener(new AzureActionListenerWrapper(INSIGHT_NAME, "cbDatabase", null) {
             @Override
             public void actionPerformedFunc(ActionEvent event) {
@@ -193,9 +205,9 @@ public class RedisCacheExplorer extends BaseEditor implements RedisExplorerMvpVi
     }
 
     @Override
-    public void renderDbCombo(int num) {
+    public void renderDbCombo(int num, Map<Integer, Long> keyCounts) {
         for (int i = 0; i < num; i++) {
-            cbDatabase.addItem(String.valueOf(i));
+            cbDatabase.addItem(dbLabel(i, keyCounts));
         }
         if (num > 0) {
             onDataBaseSelect();
@@ -213,10 +225,27 @@ public class RedisCacheExplorer extends BaseEditor implements RedisExplorerMvpVi
         }
         lstKey.setModel(listModel);
         currentCursor = result.getNextCursor();
-        setWidgetEnableStatus(true);
+        if (result.isLast()) {
+            setWidgetEnableStatus(true);
+        }
         clearValueArea();
     }
 
+    @Override
+    public void appendScanResult(RedisScanResult result) {
+        DefaultListModel listModel = (DefaultListModel) lstKey.getModel();
+        List<String> keys = result.getKeys();
+        Collections.sort(keys);
+        for (String key : keys) {
+            listModel.addElement(key);
+        }
+        currentCursor = result.getNextCursor();
+        if (result.isLast()) {
+            sortKeyList(listModel);
+            setWidgetEnableStatus(true);
+        }
+    }
+
     @Override
     public void showContent(RedisValueData val) {
         RedisKeyType type = val.getKeyType();
@@ -251,10 +280,33 @@ public class RedisCacheExplorer extends BaseEditor implements RedisExplorerMvpVi
             ReadOnlyTableModel tableModel = new ReadOnlyTableModel(data, columnNames);
             setValueCompositeVisible(true);
             tblInnerValue.setModel(tableModel);
+            if (val.getSize() >= 0) {
+                lblTypeValue.setText(String.format("%s (%d)", type, val.getSize()));
+            }
+            valueKey = lblKeyValue.getText();
+            valueType = type;
+            valueCursor = val.getNextCursor();
+            loadingValuePage = false;
+            SwingUtilities.invokeLater(this::onValueScrolled);
         }
         setWidgetEnableStatus(true);
     }
 
+    @Override
+    public void appendContent(String key, RedisValueData val) {
+        // Only the page requested for the value currently in the table is accepted.
+        if (!loadingValuePage || !key.equals(valueKey)) {
+            return;
+        }
+        ReadOnlyTableModel tableModel = (ReadOnlyTableModel) tblInnerValue.getModel();
+        for (String[] row : val.getRowData()) {
+            tableModel.addRow(row);
+        }
+        valueCursor = val.getNextCursor();
+        loadingValuePage = false;
+        SwingUtilities.invokeLater(this::onValueScrolled);
+    }
+
     @Override
     public void updateKeyList() {
         DefaultListModel listModel = (DefaultListModel) lstKey.getModel();
@@ -276,6 +328,39 @@ public class RedisCacheExplorer extends BaseEditor implements RedisExplorerMvpVi
     public void onErrorWithException(String message, Exception ex) {
         DefaultLoader.getUIHelper().showError(ex.getMessage(), message);
         setWidgetEnableStatus(true);
+        loadingValuePage = false;
+    }
+
+    private void onValueScrolled() {
+        if (loadingValuePage || SCAN_POINTER_START.equals(valueCursor) || !pnlInnerValue.isVisible()) {
+            return;
+        }
+        Rectangle visible = tblInnerValue.getVisibleRect();
+        int lastVisibleRow = tblInnerValue.rowAtPoint(new Point(0, visible.y + visible.height - 1));
+        if (lastVisibleRow >= 0 && lastVisibleRow < tblInnerValue.getRowCount() - VALUE_PREFETCH_ROWS) {
+            return;
+        }
+        loadingValuePage = true;
+        redisExplorerPresenter.onValuePage(cbDatabase.getSelectedIndex(), valueKey, valueType, valueCursor);
+    }
+
+    // Pages arrive in SCAN order, so the whole list is sorted once after the last page.
+    private void sortKeyList(DefaultListModel listModel) {
+        List<String> keys = new ArrayList<>(listModel.getSize());
+        for (int i = 0; i < listModel.getSize(); i++) {
+            keys.add((String) listModel.getElementAt(i));
+        }
+        Collections.sort(keys);
+        DefaultListModel sortedModel = new DefaultListModel();
+        for (String key : keys) {
+            sortedModel.addElement(key);
+        }
+        lstKey.setModel(sortedModel);
+    }
+
+    private static String dbLabel(int db, Map<Integer, Long> keyCounts) {
+        Long keys = keyCounts.get(db);
+        return keys == null ? String.valueOf(db) : String.format("%d (%d keys)", db, keys);
     }
 
     private void onDataBaseSelect() {
@@ -294,6 +379,9 @@ public class RedisCacheExplorer extends BaseEditor implements RedisExplorerMvpVi
     }
 
     private void clearValueArea() {
+        valueCursor = SCAN_POINTER_START;
+        valueKey = null;
+        loadingValuePage = false;
         lblKeyValue.setText("");
         lblTypeValue.setText("");
         pnlInnerValue.setVisible(false);
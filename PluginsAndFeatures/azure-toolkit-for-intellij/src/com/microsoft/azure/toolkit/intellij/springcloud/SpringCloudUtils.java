@@ -33,6 +33,7 @@ import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import com.microsoft.azuretools.core.mvp.model.springcloud.SpringCloudIdHelper;
 import com.microsoft.azure.toolkit.intellij.springcloud.runner.SpringCloudConstants;
 import com.microsoft.azure.toolkit.intellij.springcloud.runner.deploy.SpringCloudDeployConfiguration;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskContextExecutorService;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
@@ -197,7 +198,7 @@ public class SpringCloudUtils {
                 deploymentName,
                 tempDeploymentResource);
         // Wait until deployment scaling done
-        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final ExecutorService executor = AzureTaskContextExecutorService.wrap(Executors.newSingleThreadExecutor());
         final Future<DeploymentResourceInner> future = executor.submit(() -> {
             DeploymentResourceInner result = getActiveDeployment(configuration);
             while (!isStableDeploymentResourceProvisioningState(result.properties().provisioningState())) {
@@ -35,6 +35,7 @@ import com.microsoft.azuretools.telemetrywrapper.Operation;
 import com.microsoft.azuretools.telemetrywrapper.TelemetryManager;
 import com.microsoft.azure.toolkit.intellij.springcloud.SpringCloudDependencyManager;
 import com.microsoft.azure.toolkit.intellij.common.AzureRunProfileState;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskContextExecutorService;
 import com.microsoft.intellij.RunProcessHandler;
 import com.microsoft.intellij.ui.components.AzureArtifact;
 import com.microsoft.intellij.ui.components.AzureArtifactManager;
@@ -279,7 +280,7 @@ public class SpringCloudDeploymentState extends AzureRunProfileState<AppResource
     private static <T> T getResourceWithTimeout(SupplierWithIOException<T> consumer, Predicate<T> predicate,
                                          int timeout, TimeUnit timeUnit)
             throws InterruptedException, ExecutionException, TimeoutException {
-        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final ExecutorService executor = AzureTaskContextExecutorService.wrap(Executors.newSingleThreadExecutor());
         final Future<T> future = executor.submit(() -> {
             try {
                 T result = null;
@@ -22,23 +22,59 @@
 
 package com.microsoft.azure.toolkit.lib.common.utils;
 
-import com.neovisionaries.ws.client.*;
+import com.neovisionaries.ws.client.WebSocket;
+import com.neovisionaries.ws.client.WebSocketAdapter;
+import com.neovisionaries.ws.client.WebSocketException;
+import com.neovisionaries.ws.client.WebSocketExtension;
+import com.neovisionaries.ws.client.WebSocketFactory;
+import com.neovisionaries.ws.client.WebSocketFrame;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Objects;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import static com.microsoft.intellij.ui.messages.AzureBundle.message;
 
+/**
+ * Forwards the TCP clients accepted on a loopback port to a WebSocket server, one WebSocket per client.
+ * All clients of a proxy are served by a single selector thread. Reading from a client pauses while its WebSocket
+ * has {@link #MAX_PENDING_FRAMES} frames not yet written, and the reading thread of a WebSocket waits while more than
+ * {@link #MAX_PENDING_WRITE_BYTES} are not yet written to its client, so a slow side is pushed back on instead of
+ * buffered. A client or a WebSocket closing only tears down its own connection.
+ */
 public class WebSocketSSLProxy {
     private static final Logger logger = Logger.getLogger(WebSocketSSLProxy.class.getName());
     private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int ACCEPT_BACKLOG = 16;
+    private static final int MAX_READS_PER_SELECT = 16;
+    private static final int MAX_PENDING_FRAMES = 64;
+    private static final int RESUME_PENDING_FRAMES = 16;
+    private static final long MAX_PENDING_WRITE_BYTES = 1024 * 1024;
+    private static final long RESUME_PENDING_WRITE_BYTES = 256 * 1024;
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
 
     @Setter
     @Getter
@@ -51,9 +87,7 @@ public class WebSocketSSLProxy {
     private String webSocketServerUri;
     private String id;
     private String password;
-    private ServerSocket serverSocket;
-    private Thread thread;
-    private WebSocket webSocket;
+    private Engine engine;
 
     public WebSocketSSLProxy(String webSocketServerUri, String id, String password) {
         this.webSocketServerUri = webSocketServerUri;
@@ -61,85 +95,375 @@ public class WebSocketSSLProxy {
         this.password = password;
     }
 
-    public void start() throws IOException {
+    public synchronized void start() throws IOException {
         close();
-        // InetAddress.getByName(null) points to the loopback address (127.0.0.1)
-        serverSocket = new ServerSocket(0, 1, InetAddress.getByName(null));
-        thread = new Thread(() -> {
+        final Selector selector = Selector.open();
+        ServerSocketChannel serverChannel = null;
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            // InetAddress.getByName(null) points to the loopback address (127.0.0.1)
+            serverChannel.bind(new InetSocketAddress(InetAddress.getByName(null), 0), ACCEPT_BACKLOG);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            closeQuietly(serverChannel);
+            closeQuietly(selector);
+            throw e;
+        }
+        engine = new Engine(selector, serverChannel);
+        engine.thread.start();
+    }
+
+    public synchronized void close() {
+        if (engine != null) {
+            engine.shutdown();
+            engine = null;
+        }
+    }
+
+    public synchronized int getLocalPort() {
+        if (engine == null || !engine.serverChannel.isOpen()) {
+            return 0;
+        }
+        return engine.serverChannel.socket().getLocalPort();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
             try {
-                for (;;) {
-                    Socket clientSocket = serverSocket.accept();
-                    createWebSocketToSocket(clientSocket);
-                    pipeSocketDataToWebSocket(clientSocket);
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Selector loop of one {@link #start()}, everything but the WebSocket callbacks runs on its thread.
+     */
+    private final class Engine implements Runnable {
+        private final Selector selector;
+        private final ServerSocketChannel serverChannel;
+        private final WebSocketFactory factory;
+        private final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+        // clients are read one at a time on the selector thread, every frame gets its own copy for sendBinary()
+        private final ByteBuffer readBuffer = ByteBuffer.wrap(new byte[bufferSize]);
+        private volatile boolean running = true;
+
+        private Engine(Selector selector, ServerSocketChannel serverChannel) {
+            this.selector = selector;
+            this.serverChannel = serverChannel;
+            this.factory = new WebSocketFactory().setConnectionTimeout(connectTimeout);
+            this.thread = new Thread(this);
+            this.thread.setName("WebsocketSSLProxy-" + thread.getId());
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        final SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            ((Connection) key.attachment()).handle(key);
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    logger.warning(message("common.webSocket.error.proxyingWebSocketFailed", e.getMessage()));
+                }
+            } finally {
+                running = false;
+                new ArrayList<>(connections).forEach(Connection::close);
+                closeQuietly(serverChannel);
+                closeQuietly(selector);
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel client;
+            while ((client = serverChannel.accept()) != null) {
+                final Connection connection = new Connection(this, client);
+                try {
+                    connection.open();
+                } catch (IOException | RuntimeException e) {
+                    // e.g. an invalid server URI, only this client is refused
+                    connection.fail(e);
                 }
-            } catch (IOException | WebSocketException e) {
-                handleConnectionBroken(e);
             }
+        }
+
+        private void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
 
-        });
-        thread.setName("WebsocketSSLProxy-" + thread.getId());
-        thread.start();
+        private void shutdown() {
+            running = false;
+            selector.wakeup();
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join(CLOSE_TIMEOUT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
     }
 
-    public void close() {
-        if (this.webSocket != null) {
-            this.webSocket.disconnect();
-            this.webSocket = null;
+    /**
+     * One client and its WebSocket. The {@link WebSocketAdapter} callbacks run on the threads of the WebSocket and
+     * only touch the counters and the outbound queue, the rest runs on the selector thread.
+     */
+    private final class Connection extends WebSocketAdapter {
+        private final Engine engine;
+        private final SocketChannel channel;
+        private final AtomicInteger pendingFrames = new AtomicInteger();
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicLong pendingWriteBytes = new AtomicLong();
+        private final AtomicBoolean writeScheduled = new AtomicBoolean();
+        private SelectionKey key;
+        private WebSocket webSocket;
+        private boolean readPaused;
+        private boolean inputEnded;
+        private volatile boolean readerWaiting;
+        private volatile boolean webSocketClosed;
+        private volatile boolean closed;
+
+        private Connection(Engine engine, SocketChannel channel) {
+            this.engine = engine;
+            this.channel = channel;
+        }
+
+        private void open() throws IOException {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            // nothing is read from the client until its WebSocket is connected
+            key = channel.register(engine.selector, 0, this);
+            engine.connections.add(this);
+            webSocket = engine.factory.createSocket(webSocketServerUri)
+                                      .setUserInfo(id, password)
+                                      .addListener(this)
+                                      .addExtension(WebSocketExtension.PERMESSAGE_DEFLATE);
+            // frames written by one select are flushed together, see readInbound()
+            webSocket.setAutoFlush(false);
+            webSocket.connectAsynchronously();
+        }
+
+        private void handle(SelectionKey selected) {
+            try {
+                if (selected.isWritable()) {
+                    writeOutbound();
+                }
+                if (selected.isValid() && selected.isReadable()) {
+                    readInbound();
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Runs {@code task} on the selector thread, failing only this connection if it throws.
+         */
+        private void execute(Runnable task) {
+            engine.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+            });
+        }
+
+        private void readInbound() throws IOException {
+            final ByteBuffer buffer = engine.readBuffer;
+            try {
+                for (int i = 0; i < MAX_READS_PER_SELECT; i++) {
+                    buffer.clear();
+                    final int read = channel.read(buffer);
+                    if (read < 0) {
+                        endInput();
+                        return;
+                    }
+                    if (read == 0) {
+                        return;
+                    }
+                    // counted before sending so that onFrameSent() never sees it negative
+                    pendingFrames.incrementAndGet();
+                    webSocket.sendBinary(Arrays.copyOf(buffer.array(), read));
+                    if (pendingFrames.get() >= MAX_PENDING_FRAMES) {
+                        readPaused = true;
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                        return;
+                    }
+                }
+            } finally {
+                webSocket.flush();
+            }
         }
-        if (this.serverSocket != null) {
+
+        private void endInput() {
+            inputEnded = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            // queued behind the data frames, the connection closes once the server answers it
+            webSocket.sendClose();
+        }
+
+        private void writeOutbound() throws IOException {
+            writeScheduled.set(false);
+            if (closed) {
+                return;
+            }
+            long written = 0;
+            ByteBuffer head;
+            while ((head = outbound.peek()) != null) {
+                written += channel.write(head);
+                if (head.hasRemaining()) {
+                    break;
+                }
+                outbound.poll();
+            }
+            if (written > 0 && pendingWriteBytes.addAndGet(-written) <= RESUME_PENDING_WRITE_BYTES && readerWaiting) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+            if (head != null) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            } else if (webSocketClosed) {
+                close();
+            } else {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+        }
+
+        private void writeOutboundOrFail() {
             try {
-                serverSocket.close();
+                writeOutbound();
             } catch (IOException e) {
-                // ignore
+                fail(e);
             }
-            serverSocket = null;
         }
 
-        if (thread != null) {
-            this.thread.interrupt();
-            this.thread = null;
+        private void startReading() {
+            if (closed) {
+                webSocket.disconnect();
+                return;
+            }
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
         }
-    }
 
-    public int getLocalPort() {
-        if (Objects.isNull(serverSocket)) {
-            return 0;
+        private void resumeReading() {
+            if (!closed && readPaused && !inputEnded && pendingFrames.get() <= RESUME_PENDING_FRAMES) {
+                readPaused = false;
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            }
         }
-        return serverSocket.getLocalPort();
-    }
 
-    private void handleConnectionBroken(Exception e) {
-        if (Objects.nonNull(serverSocket)) {
-            logger.warning(message("common.webSocket.error.proxyingWebSocketFailed", e.getMessage()));
+        private void closeWhenWritten() {
+            if (outbound.isEmpty()) {
+                close();
+            } else if (!closed) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
         }
-        close();
-    }
 
-    private void pipeSocketDataToWebSocket(Socket socket) throws IOException {
-        byte[] buffer = new byte[bufferSize];
-        while (true) {
-            int bytesRead = socket.getInputStream().read(buffer);
-            if (bytesRead == -1) {
-                break;
+        private void fail(Exception e) {
+            if (!closed && engine.running) {
+                logger.warning(message("common.webSocket.error.proxyingWebSocketFailed", e.getMessage()));
             }
+            close();
+        }
 
-            webSocket.sendBinary(Arrays.copyOfRange(buffer, 0, bytesRead));
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            engine.connections.remove(this);
+            if (key != null) {
+                key.cancel();
+            }
+            closeQuietly(channel);
+            if (webSocket != null) {
+                webSocket.disconnect();
+            }
+            outbound.clear();
+            synchronized (this) {
+                notifyAll();
+            }
         }
-    }
 
-    private void createWebSocketToSocket(Socket client) throws IOException, WebSocketException {
-        this.webSocket = new WebSocketFactory().setConnectionTimeout(connectTimeout).createSocket(webSocketServerUri)
-                                               .setUserInfo(this.id, this.password)
-                                               .addListener(new WebSocketAdapter() {
-                                                   @Override
-                                                   public void onBinaryMessage(WebSocket websocket, byte[] bytes) {
-                                                       try {
-                                                           client.getOutputStream().write(bytes);
-                                                       } catch (IOException e) {
-                                                           handleConnectionBroken(e);
-                                                       }
-                                                   }
-                                               }).addExtension(WebSocketExtension.PERMESSAGE_DEFLATE).connect();
+        @Override
+        public void onConnected(WebSocket websocket, Map<String, List<String>> headers) {
+            execute(this::startReading);
+        }
+
+        @Override
+        public void onConnectError(WebSocket websocket, WebSocketException exception) {
+            execute(() -> fail(exception));
+        }
 
+        @Override
+        public void onDisconnected(WebSocket websocket, WebSocketFrame serverCloseFrame,
+                                   WebSocketFrame clientCloseFrame, boolean closedByServer) {
+            webSocketClosed = true;
+            execute(this::closeWhenWritten);
+        }
+
+        @Override
+        public void onFrameSent(WebSocket websocket, WebSocketFrame frame) {
+            onFrameDone(frame);
+        }
+
+        @Override
+        public void onFrameUnsent(WebSocket websocket, WebSocketFrame frame) {
+            onFrameDone(frame);
+        }
+
+        private void onFrameDone(WebSocketFrame frame) {
+            if (frame.isBinaryFrame() && pendingFrames.decrementAndGet() == RESUME_PENDING_FRAMES) {
+                execute(this::resumeReading);
+            }
+        }
+
+        @Override
+        public void onBinaryMessage(WebSocket websocket, byte[] bytes) throws InterruptedException {
+            if (closed) {
+                return;
+            }
+            outbound.add(ByteBuffer.wrap(bytes));
+            final long pending = pendingWriteBytes.addAndGet(bytes.length);
+            if (writeScheduled.compareAndSet(false, true)) {
+                execute(this::writeOutboundOrFail);
+            }
+            if (pending > MAX_PENDING_WRITE_BYTES) {
+                // holds up the reading thread of this WebSocket only, the server then sees TCP backpressure
+                synchronized (this) {
+                    readerWaiting = true;
+                    while (!closed && pendingWriteBytes.get() > RESUME_PENDING_WRITE_BYTES) {
+                        wait();
+                    }
+                    readerWaiting = false;
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
+import com.microsoft.azure.oidc.filter.impl.SimpleAuthenticationFilter;
+import com.microsoft.azure.oidc.token.Token;
+import com.microsoft.azure.oidc.token.TokenParser;
+import com.microsoft.azure.oidc.token.TokenValidator;
+import com.microsoft.azure.oidc.token.impl.SimpeTokenParser;
+import com.microsoft.azure.oidc.token.impl.SimpleTokenValidator;
+
+/**
+ * Parse, validate and full filter pass (token cache, URI matching, role check) for a B2C token issued by the
+ * {@link LocalIdentityProvider}. Run with {@code gradle :benchmark:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilterBenchmark {
+    private final TokenParser tokenParser = SimpeTokenParser.getInstance();
+
+    private final TokenValidator tokenValidator = SimpleTokenValidator.getInstance();
+
+    private BenchmarkEnvironment environment;
+
+    private SimpleAuthenticationFilter filter;
+
+    private String tokenString;
+
+    private Token token;
+
+    private HttpServletRequest request;
+
+    private FilterChain chain;
+
+    @Setup
+    public void setup() throws IOException, ServletException {
+        environment = BenchmarkEnvironment.start();
+        filter = new SimpleAuthenticationFilter();
+        filter.init(ServletStubs.filterConfig(environment.getFilterInitParameters()));
+        if (SimpleConfigurationCache.getInstance().load() == null) {
+            throw new IllegalStateException("The local identity provider did not serve a configuration");
+        }
+        tokenString = environment.getToken();
+        token = tokenParser.getToken(tokenString);
+        if (!tokenValidator.validateCommon(token)) {
+            throw new IllegalStateException("The minted token does not validate");
+        }
+        request = ServletStubs.request(BenchmarkEnvironment.PROTECTED_URI, BenchmarkEnvironment.TOKEN_NAME,
+                tokenString);
+        chain = ServletStubs.chain();
+    }
+
+    @TearDown
+    public void tearDown() {
+        filter.destroy();
+        environment.close();
+    }
+
+    @Benchmark
+    public Token parse() {
+        return tokenParser.getToken(tokenString);
+    }
+
+    @Benchmark
+    public Boolean validate() {
+        return tokenValidator.validateCommon(token);
+    }
+
+    @Benchmark
+    public int authorize() throws IOException, ServletException {
+        final ServletStubs.StubResponse response = new ServletStubs.StubResponse();
+        filter.doFilter(request, response.get(), chain);
+        return response.getStatus();
+    }
+}
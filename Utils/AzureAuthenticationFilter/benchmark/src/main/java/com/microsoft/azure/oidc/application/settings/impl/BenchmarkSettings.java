@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.application.settings.impl;
+
+import java.util.Map;
+
+/**
+ * Lets the load harness point the filter at its local identity provider. Part of the benchmark source set only, it
+ * reaches the package-private settings injection of {@link SimpleApplicationSettingsLoader}.
+ */
+public final class BenchmarkSettings {
+    private BenchmarkSettings() {
+    }
+
+    /**
+     * Use the given AAD_* settings, and the given base URL as authority and graph host, instead of the environment.
+     */
+    public static void inject(final Map<String, String> settings, final String hostUrl) {
+        SimpleApplicationSettingsLoader.injectSettings(settings, hostUrl);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link LocalIdentityProvider} with the filter settings applied, plus a token for a user in the
+ * "BenchmarkUsers" group. Shared by the JMH benchmarks and the load test.
+ */
+public final class BenchmarkEnvironment implements Closeable {
+    public static final String WEBAPP_ROOT = "/webapp";
+    public static final String APPLICATION_ID = "90c0fe63-bcf2-44d5-8fb7-b8bbc0b29dc6";
+    public static final String USER_ID = "d8a7b5a5-2a6b-4c3e-9d58-6b0d8fb0c7a1";
+    public static final String TOKEN_NAME = "id_token";
+    public static final String PROTECTED_URI = "/protected/resource";
+    public static final String USER_GROUP = "BenchmarkUsers";
+
+    private final LocalIdentityProvider identityProvider;
+    private final String token;
+
+    private BenchmarkEnvironment(final LocalIdentityProvider identityProvider) {
+        this.identityProvider = identityProvider;
+        this.identityProvider.applySettings(APPLICATION_ID);
+        this.token = identityProvider.getTokenMinter(APPLICATION_ID).mint(USER_ID, "jane.doe@contoso.com", 24 * 3600);
+    }
+
+    public static BenchmarkEnvironment start() throws IOException {
+        return new BenchmarkEnvironment(LocalIdentityProvider.start(USER_GROUP));
+    }
+
+    public Map<String, String> getFilterInitParameters() {
+        final Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("authenticationConfiguration", "/WEB-INF/configuration/authentication.json");
+        parameters.put("algorithmConfiguration", "/WEB-INF/configuration/algorithm.json");
+        return parameters;
+    }
+
+    public LocalIdentityProvider getIdentityProvider() {
+        return identityProvider;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    @Override
+    public void close() {
+        identityProvider.close();
+    }
+}
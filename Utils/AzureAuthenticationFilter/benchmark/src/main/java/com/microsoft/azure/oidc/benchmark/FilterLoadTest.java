@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import com.microsoft.azure.oidc.filter.impl.SimpleAuthenticationFilter;
+
+/**
+ * Runs {@link SimpleAuthenticationFilter} in an embedded jetty in front of a trivial servlet, with the
+ * {@link LocalIdentityProvider} standing in for Azure AD B2C and Graph, and drives a protected URI with a growing
+ * number of concurrent keep-alive clients. Prints throughput and p50/p99 latency for each level.
+ *
+ * Arguments: [seconds per level, default 10] [maximum clients, default 256]
+ */
+public final class FilterLoadTest {
+    private static final int WARM_UP_CLIENTS = 4;
+
+    private FilterLoadTest() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final int maxClients = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        // keep one pooled connection per client
+        System.setProperty("http.maxConnections", String.valueOf(maxClients));
+        try (final BenchmarkEnvironment environment = BenchmarkEnvironment.start()) {
+            final Server server = new Server(new QueuedThreadPool(Math.max(200, maxClients + 32)));
+            final ServerConnector connector = new ServerConnector(server);
+            connector.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+            connector.setPort(0);
+            connector.setAcceptQueueSize(maxClients);
+            server.addConnector(connector);
+            server.setHandler(createContext(environment));
+            server.start();
+            try {
+                final URL url = new URL(String.format("http://%s:%d%s", connector.getHost(), connector.getLocalPort(),
+                        BenchmarkEnvironment.PROTECTED_URI));
+                run(url, environment.getToken(), WARM_UP_CLIENTS, seconds);
+                System.out.println(String.format("%8s %10s %8s %12s %10s %10s", "clients", "requests", "errors",
+                        "req/s", "p50 ms", "p99 ms"));
+                for (int clients = 1; clients <= maxClients; clients *= 2) {
+                    System.out.println(run(url, environment.getToken(), clients, seconds));
+                }
+                System.out.println(String.format("identity provider calls: well-known=%d keys=%d isMemberOf=%d",
+                        environment.getIdentityProvider().getRequestCount(LocalIdentityProvider.WELL_KNOWN),
+                        environment.getIdentityProvider().getRequestCount(LocalIdentityProvider.KEYS),
+                        environment.getIdentityProvider().getRequestCount(LocalIdentityProvider.IS_MEMBER_OF)));
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    private static ServletContextHandler createContext(final BenchmarkEnvironment environment) {
+        final ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        context.setBaseResource(Resource.newClassPathResource(BenchmarkEnvironment.WEBAPP_ROOT));
+        final FilterHolder filterHolder = new FilterHolder(SimpleAuthenticationFilter.class);
+        filterHolder.setInitParameters(environment.getFilterInitParameters());
+        context.addFilter(filterHolder, "/*", EnumSet.of(DispatcherType.REQUEST, DispatcherType.FORWARD));
+        context.addServlet(new ServletHolder(new ResourceServlet()), "/*");
+        return context;
+    }
+
+    private static Result run(final URL url, final String token, final int clients, final int seconds)
+            throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Client> workers = new ArrayList<Client>();
+        for (int i = 0; i < clients; i++) {
+            final Client client = new Client(url, token, deadline, start);
+            workers.add(client);
+            client.start();
+        }
+        final long begin = System.nanoTime();
+        start.countDown();
+        for (final Client client : workers) {
+            client.join();
+        }
+        final long elapsed = System.nanoTime() - begin;
+        int count = 0;
+        int errors = 0;
+        for (final Client client : workers) {
+            count += client.count;
+            errors += client.errors;
+        }
+        final long[] latencies = new long[count];
+        int offset = 0;
+        for (final Client client : workers) {
+            System.arraycopy(client.latencies, 0, latencies, offset, client.count);
+            offset += client.count;
+        }
+        Arrays.sort(latencies);
+        return new Result(clients, count, errors, elapsed, latencies);
+    }
+
+    private static final class Client extends Thread {
+        private final URL url;
+        private final String cookie;
+        private final long deadline;
+        private final CountDownLatch start;
+        private final byte[] buffer = new byte[4096];
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+
+        private Client(final URL url, final String token, final long deadline, final CountDownLatch start) {
+            this.url = url;
+            this.cookie = BenchmarkEnvironment.TOKEN_NAME + "=" + token;
+            this.deadline = deadline;
+            this.start = start;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            while (System.nanoTime() < deadline) {
+                final long begin = System.nanoTime();
+                final boolean isSuccess = request();
+                final long latency = System.nanoTime() - begin;
+                if (!isSuccess) {
+                    errors++;
+                    continue;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = latency;
+            }
+        }
+
+        private boolean request() {
+            try {
+                final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.setInstanceFollowRedirects(false);
+                connection.setRequestProperty("Cookie", cookie);
+                final int status = connection.getResponseCode();
+                final InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+                if (in != null) {
+                    try {
+                        while (in.read(buffer) >= 0) {
+                            // drain so the connection is reused
+                        }
+                    } finally {
+                        in.close();
+                    }
+                }
+                return status == HttpServletResponse.SC_OK;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    private static final class Result {
+        private final int clients;
+        private final int requests;
+        private final int errors;
+        private final long elapsed;
+        private final long[] latencies;
+
+        private Result(final int clients, final int requests, final int errors, final long elapsed,
+                final long[] latencies) {
+            this.clients = clients;
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsed = elapsed;
+            this.latencies = latencies;
+        }
+
+        private double percentile(final double percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            final int index = (int) Math.min(latencies.length - 1, Math.ceil(percentile * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%8d %10d %8d %12.1f %10.3f %10.3f", clients, requests, errors,
+                    requests / (elapsed / 1e9), percentile(0.50), percentile(0.99));
+        }
+    }
+
+    private static final class ResourceServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(final HttpServletRequest request, final HttpServletResponse response)
+                throws IOException {
+            response.setContentType("text/plain");
+            response.getWriter().write("ok");
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.oidc.application.settings.impl.BenchmarkSettings;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Stand-in for Azure AD B2C and the Graph API on a loopback port. It serves the well-known configuration, a JWKS
+ * document with a freshly generated RSA key, the client credentials token end-point and the Graph group look-up,
+ * isMemberOf and getMemberGroups calls the filter makes. {@link #applySettings(String)} points the filter at it.
+ * It serves https with a self-signed certificate made by keytool, which this JVM is set to trust, since the filter
+ * refuses to send credentials over plain http.
+ */
+public final class LocalIdentityProvider implements Closeable {
+    public static final String TENANT = "benchmark.onmicrosoft.com";
+    public static final String POLICY = "B2C_1_benchmark";
+    public static final String KEY_ID = "benchmark-key";
+    public static final String WELL_KNOWN = "well-known";
+    public static final String KEYS = "keys";
+    public static final String TOKEN = "token";
+    public static final String GROUPS = "groups";
+    public static final String IS_MEMBER_OF = "isMemberOf";
+    public static final String GET_MEMBER_GROUPS = "getMemberGroups";
+
+    private static final Pattern GROUP_FILTER = Pattern.compile("displayName eq '(.*)'");
+    private static final String GROUP_ID_PREFIX = "group-";
+    private static final char[] KEY_STORE_PASSWORD = "benchmark".toCharArray();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ConcurrentMap<String, AtomicLong> requestCounts = new ConcurrentHashMap<String, AtomicLong>();
+    private final Set<String> memberGroups;
+    private final KeyPair keyPair;
+    private final HttpsServer server;
+    private final ExecutorService executorService;
+    private final String baseUrl;
+
+    private LocalIdentityProvider(final Set<String> memberGroups) throws IOException, GeneralSecurityException {
+        this.memberGroups = memberGroups;
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        this.keyPair = generator.generateKeyPair();
+        final SSLContext sslContext = createSslContext();
+        HttpsURLConnection.setDefaultSSLSocketFactory(sslContext.getSocketFactory());
+        this.server = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 256);
+        this.server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+        this.executorService = Executors.newCachedThreadPool();
+        this.server.setExecutor(executorService);
+        this.server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                try {
+                    dispatch(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        this.server.start();
+        this.baseUrl = String.format("https://%s:%d", server.getAddress().getHostString(),
+                server.getAddress().getPort());
+    }
+
+    /**
+     * Starts a provider on an ephemeral loopback port; the benchmark user is a member of the given groups.
+     */
+    public static LocalIdentityProvider start(final String... memberGroups) throws IOException {
+        try {
+            return new LocalIdentityProvider(new HashSet<String>(Arrays.asList(memberGroups)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Injects the AAD_* settings into the filter, pointing its authority and graph hosts here. Must run before the
+     * filter is initialised.
+     */
+    public void applySettings(final String applicationId) {
+        final Map<String, String> settings = new HashMap<String, String>();
+        settings.put("AAD_TENANT", TENANT);
+        settings.put("AAD_OIDC_POLICY", POLICY);
+        settings.put("AAD_APPLICATION_ID", applicationId);
+        settings.put("AAD_REDIRECT_URL", baseUrl + "/redirect");
+        settings.put("AAD_PRINCIPAL_ID", "benchmark-principal");
+        settings.put("AAD_PRINCIPAL_SECRET", "benchmark-secret");
+        BenchmarkSettings.inject(settings, baseUrl);
+    }
+
+    public TokenMinter getTokenMinter(final String applicationId) {
+        return new TokenMinter(keyPair.getPrivate(), KEY_ID, getIssuer(), applicationId);
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getIssuer() {
+        return String.format("%s/%s/v2.0/", baseUrl, TENANT);
+    }
+
+    public long getRequestCount(final String endPoint) {
+        final AtomicLong count = requestCounts.get(endPoint);
+        return count == null ? 0L : count.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    /**
+     * A key store with a fresh self-signed certificate for the loopback address, used as both key and trust store.
+     */
+    private static SSLContext createSslContext() throws IOException, GeneralSecurityException {
+        final File file = File.createTempFile("local-identity-provider", ".jks");
+        if (!file.delete()) {
+            throw new IOException("Cannot replace " + file);
+        }
+        try {
+            final String keytool = new File(new File(System.getProperty("java.home"), "bin"), "keytool").getPath();
+            final String subjectAlternativeNames = "SAN=dns:localhost,ip:"
+                    + InetAddress.getLoopbackAddress().getHostAddress();
+            final Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "local", "-keyalg", "RSA",
+                    "-keysize", "2048", "-validity", "2", "-dname", "CN=localhost", "-ext", subjectAlternativeNames,
+                    "-keystore", file.getPath(), "-storetype", "JKS", "-storepass", new String(KEY_STORE_PASSWORD),
+                    "-keypass", new String(KEY_STORE_PASSWORD)).redirectErrorStream(true).start();
+            readAll(process.getInputStream());
+            if (process.waitFor() != 0) {
+                throw new IOException("keytool failed with exit code " + process.exitValue());
+            }
+            final KeyStore keyStore = KeyStore.getInstance("JKS");
+            try (final InputStream in = new FileInputStream(file)) {
+                keyStore.load(in, KEY_STORE_PASSWORD);
+            }
+            final KeyManagerFactory keyManagers = KeyManagerFactory
+                    .getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keyStore, KEY_STORE_PASSWORD);
+            final TrustManagerFactory trustManagers = TrustManagerFactory
+                    .getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagers.init(keyStore);
+            final SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+            return context;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private void dispatch(final HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        if (path.endsWith("/.well-known/openid-configuration")) {
+            count(WELL_KNOWN);
+            respond(exchange, wellKnown());
+        } else if (path.endsWith("/discovery/v2.0/keys")) {
+            count(KEYS);
+            respond(exchange, keys());
+        } else if (path.endsWith("/oauth2/token")) {
+            count(TOKEN);
+            respond(exchange, "{\"token_type\":\"Bearer\",\"access_token\":\"benchmark-access-token\"}");
+        } else if (path.endsWith("/groups")) {
+            count(GROUPS);
+            respond(exchange, groups(exchange.getRequestURI().getRawQuery()));
+        } else if (path.endsWith("/isMemberOf")) {
+            count(IS_MEMBER_OF);
+            final JsonNode body = mapper.readTree(readBody(exchange));
+            final String groupId = body.get("groupId").asText();
+            final boolean isMember = groupId.startsWith(GROUP_ID_PREFIX)
+                    && memberGroups.contains(groupId.substring(GROUP_ID_PREFIX.length()));
+            respond(exchange, String.format("{\"value\":%s}", isMember));
+        } else if (path.endsWith("/getMemberGroups")) {
+            count(GET_MEMBER_GROUPS);
+            final StringBuilder builder = new StringBuilder("{\"value\":[");
+            String separator = "";
+            for (final String group : memberGroups) {
+                builder.append(separator).append('"').append(GROUP_ID_PREFIX).append(group).append('"');
+                separator = ",";
+            }
+            respond(exchange, builder.append("]}").toString());
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+        }
+    }
+
+    private String wellKnown() {
+        final String tenantUrl = String.format("%s/%s", baseUrl, TENANT);
+        return String.format("{\"issuer\":\"%s\",\"authorization_endpoint\":\"%s/oauth2/v2.0/authorize?p=%s\","
+                + "\"token_endpoint\":\"%s/oauth2/v2.0/token?p=%s\",\"end_session_endpoint\":\"%s/oauth2/v2.0/logout?p=%s\","
+                + "\"jwks_uri\":\"%s/discovery/v2.0/keys?p=%s\",\"response_types_supported\":[\"code\",\"id_token\"],"
+                + "\"id_token_signing_alg_values_supported\":[\"RS256\"]}", getIssuer(), tenantUrl, POLICY, tenantUrl,
+                POLICY, tenantUrl, POLICY, tenantUrl, POLICY);
+    }
+
+    private String keys() {
+        final RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        return String.format("{\"keys\":[{\"kid\":\"%s\",\"nbf\":0,\"use\":\"sig\",\"kty\":\"RSA\",\"e\":\"%s\",\"n\":\"%s\"}]}",
+                KEY_ID, encodeUnsigned(publicKey.getPublicExponent()), encodeUnsigned(publicKey.getModulus()));
+    }
+
+    private String groups(final String rawQuery) throws IOException {
+        final String query = rawQuery == null ? "" : URLDecoder.decode(rawQuery, "UTF-8");
+        final Matcher matcher = GROUP_FILTER.matcher(query);
+        if (!matcher.find()) {
+            return "{\"value\":[]}";
+        }
+        final String name = matcher.group(1);
+        final int end = name.indexOf('\'');
+        return String.format("{\"value\":[{\"objectId\":\"%s%s\"}]}", GROUP_ID_PREFIX,
+                end < 0 ? name : name.substring(0, end));
+    }
+
+    private void count(final String endPoint) {
+        AtomicLong count = requestCounts.get(endPoint);
+        if (count == null) {
+            requestCounts.putIfAbsent(endPoint, new AtomicLong());
+            count = requestCounts.get(endPoint);
+        }
+        count.incrementAndGet();
+    }
+
+    private static String encodeUnsigned(final BigInteger value) {
+        final byte[] bytes = value.toByteArray();
+        final int offset = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+        return Base64.encodeBase64URLSafeString(Arrays.copyOfRange(bytes, offset, bytes.length));
+    }
+
+    private static byte[] readBody(final HttpExchange exchange) throws IOException {
+        return readAll(exchange.getRequestBody());
+    }
+
+    private static byte[] readAll(final InputStream input) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[1024];
+        try (final InputStream in = input) {
+            for (int read = in.read(chunk); read >= 0; read = in.read(chunk)) {
+                buffer.write(chunk, 0, read);
+            }
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void respond(final HttpExchange exchange, final String json) throws IOException {
+        final byte[] body = json.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
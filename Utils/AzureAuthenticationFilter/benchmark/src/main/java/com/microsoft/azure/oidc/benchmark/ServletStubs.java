@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Minimal servlet API stand-ins so the filter can be driven without a container. Only the calls the filter makes are
+ * answered; everything else returns the type's default value.
+ */
+public final class ServletStubs {
+    private ServletStubs() {
+    }
+
+    public static FilterConfig filterConfig(final Map<String, String> initParameters) {
+        final ServletContext servletContext = proxy(ServletContext.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getResourceAsStream".equals(method.getName())) {
+                    return ServletStubs.class.getResourceAsStream(BenchmarkEnvironment.WEBAPP_ROOT + args[0]);
+                }
+                return defaultValue(method);
+            }
+        });
+        return proxy(FilterConfig.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                switch (method.getName()) {
+                case "getInitParameter":
+                    return initParameters.get(args[0]);
+                case "getInitParameterNames":
+                    return Collections.enumeration(initParameters.keySet());
+                case "getServletContext":
+                    return servletContext;
+                default:
+                    return defaultValue(method);
+                }
+            }
+        });
+    }
+
+    public static HttpServletRequest request(final String requestURI, final String tokenName, final String token) {
+        final Cookie[] cookies = { new Cookie(tokenName, token) };
+        return proxy(HttpServletRequest.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                switch (method.getName()) {
+                case "getRequestURI":
+                    return requestURI;
+                case "getContextPath":
+                    return "";
+                case "getServerName":
+                    return "localhost";
+                case "getCookies":
+                    return cookies;
+                default:
+                    return defaultValue(method);
+                }
+            }
+        });
+    }
+
+    public static FilterChain chain() {
+        return new FilterChain() {
+            @Override
+            public void doFilter(final ServletRequest request, final ServletResponse response) {
+                // the protected resource itself costs nothing
+            }
+        };
+    }
+
+    public static final class StubResponse implements InvocationHandler {
+        private final HttpServletResponse response = proxy(HttpServletResponse.class, this);
+        private volatile int status = HttpServletResponse.SC_OK;
+
+        public HttpServletResponse get() {
+            return response;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            switch (method.getName()) {
+            case "sendError":
+            case "setStatus":
+                status = (Integer) args[0];
+                return null;
+            case "sendRedirect":
+                status = HttpServletResponse.SC_FOUND;
+                return null;
+            case "getStatus":
+                return status;
+            default:
+                return defaultValue(method);
+            }
+        }
+    }
+
+    private static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ServletStubs.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static Object defaultValue(final Method method) {
+        final Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
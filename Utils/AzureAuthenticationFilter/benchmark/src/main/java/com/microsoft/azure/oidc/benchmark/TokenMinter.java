@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.benchmark;
+
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * Mints RS256 id_tokens shaped like the ones Azure AD B2C issues, signed with the {@link LocalIdentityProvider} key.
+ */
+public final class TokenMinter {
+    private final PrivateKey privateKey;
+    private final String keyId;
+    private final String issuer;
+    private final String audience;
+
+    TokenMinter(final PrivateKey privateKey, final String keyId, final String issuer, final String audience) {
+        this.privateKey = privateKey;
+        this.keyId = keyId;
+        this.issuer = issuer;
+        this.audience = audience;
+    }
+
+    public String mint(final String userID, final String email, final long lifetimeSeconds) {
+        final long now = System.currentTimeMillis() / 1000;
+        final String header = String.format("{\"typ\":\"JWT\",\"alg\":\"RS256\",\"kid\":\"%s\"}", keyId);
+        final String body = String.format("{\"exp\":%d,\"nbf\":%d,\"ver\":\"1.0\",\"iss\":\"%s\",\"sub\":\"%s\","
+                + "\"aud\":\"%s\",\"nonce\":\"defaultNonce\",\"iat\":%d,\"auth_time\":%d,\"oid\":\"%s\","
+                + "\"emails\":[\"%s\"],\"tfp\":\"%s\"}", now + lifetimeSeconds, now - 60, issuer, userID, audience,
+                now - 60, now - 60, userID, email, LocalIdentityProvider.POLICY);
+        try {
+            final String payload = encode(header.getBytes("UTF-8")) + "." + encode(body.getBytes("UTF-8"));
+            final Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(privateKey);
+            signature.update(payload.getBytes("UTF-8"));
+            return payload + "." + encode(signature.sign());
+        } catch (GeneralSecurityException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(final byte[] bytes) {
+        return Base64.encodeBase64URLSafeString(bytes);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.filter.configuration.authentication.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfiguration;
+import com.microsoft.azure.oidc.filter.configuration.authentication.UriMatcher;
+
+/**
+ * Compares the linear regex scan over the authorisation patterns with the precompiled {@link UriMatcher} for a
+ * configuration with a few hundred protected paths. Run with {@code gradle jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UriMatcherBenchmark {
+    @Param({ "50", "500" })
+    private int patternCount;
+
+    private List<Pattern> regexPatterns;
+
+    private UriMatcher uriMatcher;
+
+    private String[] uris;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        final List<String> authorisationPatterns = new ArrayList<String>();
+        final Map<String, List<String>> roleMap = new HashMap<String, List<String>>();
+        for (int i = 0; i < patternCount; i++) {
+            final String pattern;
+            switch (i % 3) {
+            case 0:
+                pattern = String.format("/area%d/page.xhtml", i);
+                break;
+            case 1:
+                pattern = String.format("/area%d/*", i);
+                break;
+            default:
+                pattern = String.format("/area%d/report*.xhtml", i);
+            }
+            authorisationPatterns.add(pattern);
+            final List<String> roles = new ArrayList<String>();
+            roles.add("Users");
+            roleMap.put(pattern, roles);
+        }
+        final AuthenticationConfiguration configuration = SimpleAuthenticationConfigurationFactory.getInstance()
+                .createAuthenticationConfiguration(new ArrayList<String>(), authorisationPatterns, roleMap);
+        regexPatterns = configuration.getAuthorisationRegexPatternList();
+        uriMatcher = configuration.getAuthorisationUriMatcher();
+        uris = new String[64];
+        for (int i = 0; i < uris.length; i++) {
+            final int area = i * patternCount / uris.length;
+            uris[i] = i % 4 == 0 ? "/public/index.xhtml" : String.format("/area%d/report%d.xhtml", area, i);
+        }
+    }
+
+    @Benchmark
+    public int linearScan() {
+        final String uri = nextUri();
+        for (int i = 0; i < regexPatterns.size(); i++) {
+            if (regexPatterns.get(i).matcher(uri).matches()) {
+                return i;
+            }
+        }
+        return UriMatcher.NO_MATCH;
+    }
+
+    @Benchmark
+    public int compiledMatcher() {
+        return uriMatcher.match(nextUri());
+    }
+
+    private String nextUri() {
+        next = (next + 1) & (uris.length - 1);
+        return uris[next];
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.token.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.microsoft.azure.oidc.token.Token;
+import com.microsoft.azure.oidc.token.TokenParser;
+
+/**
+ * Measures {@link SimpeTokenParser#getToken(String)} on an id_token shaped like the ones issued by an Azure AD B2C
+ * sign-in policy. Run with {@code gradle jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenParserBenchmark {
+    private static final String HEADER = "{\"typ\":\"JWT\",\"alg\":\"RS256\","
+            + "\"kid\":\"X5eXk4xyojNFum1kl2Ytv8dlNP4-c57dO6QGTVBwaNk\"}";
+    private static final String BODY = "{\"exp\":1600003600,\"nbf\":1600000000,\"ver\":\"1.0\","
+            + "\"iss\":\"https://login.microsoftonline.com/775527ff-9a37-4307-8b3d-cc311f58d925/v2.0/\","
+            + "\"sub\":\"d8a7b5a5-2a6b-4c3e-9d58-6b0d8fb0c7a1\",\"aud\":\"90c0fe63-bcf2-44d5-8fb7-b8bbc0b29dc6\","
+            + "\"nonce\":\"defaultNonce\",\"iat\":1600000000,\"auth_time\":1600000000,"
+            + "\"oid\":\"d8a7b5a5-2a6b-4c3e-9d58-6b0d8fb0c7a1\",\"given_name\":\"Jane\",\"family_name\":\"Doe\","
+            + "\"name\":\"Jane Doe\",\"emails\":[\"jane.doe@contoso.com\"],\"tfp\":\"B2C_1_SignUpOrIn\"}";
+
+    private final TokenParser tokenParser = SimpeTokenParser.getInstance();
+
+    private String tokenString;
+
+    @Setup
+    public void setup() throws UnsupportedEncodingException {
+        final byte[] signature = new byte[256];
+        new Random(42).nextBytes(signature);
+        tokenString = Base64.encodeBase64URLSafeString(HEADER.getBytes("UTF-8")) + "."
+                + Base64.encodeBase64URLSafeString(BODY.getBytes("UTF-8")) + "."
+                + Base64.encodeBase64URLSafeString(signature);
+    }
+
+    @Benchmark
+    public Token parse() {
+        return tokenParser.getToken(tokenString);
+    }
+}
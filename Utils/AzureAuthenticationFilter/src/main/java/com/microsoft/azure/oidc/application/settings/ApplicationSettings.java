@@ -40,6 +40,10 @@ public interface ApplicationSettings {
 
     Policy getOIDCPolicy();
 
+    String getAuthorityHost();
+
+    String getGraphHost();
+
     boolean equals(Object object);
 
     int hashCode();
@@ -22,6 +22,8 @@
 
 package com.microsoft.azure.oidc.application.settings.impl;
 
+import java.util.Map;
+
 import com.microsoft.azure.oidc.application.settings.ApplicationSettings;
 import com.microsoft.azure.oidc.application.settings.Policy;
 import com.microsoft.azure.oidc.application.settings.RedirectURL;
@@ -39,24 +41,42 @@ final class SimpleApplicationSettings implements ApplicationSettings {
     private static final String PRINCIPAL_SECRET = "AAD_PRINCIPAL_SECRET";
     private static final String REDIRECT_URL = "AAD_REDIRECT_URL";
     private static final String OIDC_POLICY = "AAD_OIDC_POLICY";
+    static final String DEFAULT_AUTHORITY_HOST = "https://login.microsoftonline.com";
+    static final String DEFAULT_GRAPH_HOST = "https://graph.windows.net";
 
-    private final Tenant tenant = new SimpleTenant(System.getenv(SimpleApplicationSettings.TENANT));
+    private final Map<String, String> settings;
+    private final Tenant tenant;
     private volatile ID applicationId;
-    private final Secret applicationSecret = new SimpleSecret(
-            System.getenv(SimpleApplicationSettings.APPLICATION_SECRET) == null ? ""
-                    : System.getenv(SimpleApplicationSettings.APPLICATION_SECRET));
+    private final Secret applicationSecret;
     private volatile ID principalId;
-    private final Secret principalSecret = new SimpleSecret(
-            System.getenv(SimpleApplicationSettings.PRINCIPAL_SECRET) == null ? ""
-                    : System.getenv(SimpleApplicationSettings.PRINCIPAL_SECRET));
-    private final RedirectURL redirectURL = new SimpleRedirectURL(
-            System.getenv(SimpleApplicationSettings.REDIRECT_URL));
-    private final Policy oIDCPolicy = new SimplePolicy(System.getenv(SimpleApplicationSettings.OIDC_POLICY));
+    private final Secret principalSecret;
+    private final RedirectURL redirectURL;
+    private final Policy oIDCPolicy;
+    private final String authorityHost;
+    private final String graphHost;
 
     private final Object Lock = new Object();
 
     private final IDFactory iDFactory = SimpleIDFactory.getInstance();
 
+    SimpleApplicationSettings() {
+        this(System.getenv(), DEFAULT_AUTHORITY_HOST, DEFAULT_GRAPH_HOST);
+    }
+
+    SimpleApplicationSettings(final Map<String, String> settings, final String authorityHost,
+            final String graphHost) {
+        this.settings = settings;
+        this.tenant = new SimpleTenant(settings.get(SimpleApplicationSettings.TENANT));
+        this.applicationSecret = new SimpleSecret(settings.get(SimpleApplicationSettings.APPLICATION_SECRET) == null
+                ? "" : settings.get(SimpleApplicationSettings.APPLICATION_SECRET));
+        this.principalSecret = new SimpleSecret(settings.get(SimpleApplicationSettings.PRINCIPAL_SECRET) == null
+                ? "" : settings.get(SimpleApplicationSettings.PRINCIPAL_SECRET));
+        this.redirectURL = new SimpleRedirectURL(settings.get(SimpleApplicationSettings.REDIRECT_URL));
+        this.oIDCPolicy = new SimplePolicy(settings.get(SimpleApplicationSettings.OIDC_POLICY));
+        this.authorityHost = authorityHost;
+        this.graphHost = graphHost;
+    }
+
     @Override
     public Tenant getTenant() {
         return tenant;
@@ -67,7 +87,7 @@ final class SimpleApplicationSettings implements ApplicationSettings {
         if (applicationId == null) {
             synchronized (Lock) {
                 if (applicationId == null) {
-                    applicationId = iDFactory.createID(System.getenv(SimpleApplicationSettings.APPLICATION_ID));
+                    applicationId = iDFactory.createID(settings.get(SimpleApplicationSettings.APPLICATION_ID));
                 }
             }
         }
@@ -84,7 +104,7 @@ final class SimpleApplicationSettings implements ApplicationSettings {
         if (principalId == null) {
             synchronized (Lock) {
                 if (principalId == null) {
-                    principalId = iDFactory.createID(System.getenv(SimpleApplicationSettings.PRINCIPAL_ID));
+                    principalId = iDFactory.createID(settings.get(SimpleApplicationSettings.PRINCIPAL_ID));
                 }
             }
         }
@@ -106,6 +126,16 @@ final class SimpleApplicationSettings implements ApplicationSettings {
         return oIDCPolicy;
     }
 
+    @Override
+    public String getAuthorityHost() {
+        return authorityHost;
+    }
+
+    @Override
+    public String getGraphHost() {
+        return graphHost;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
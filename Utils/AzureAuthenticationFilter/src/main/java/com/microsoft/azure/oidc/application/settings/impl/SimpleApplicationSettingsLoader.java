@@ -22,15 +22,28 @@
 
 package com.microsoft.azure.oidc.application.settings.impl;
 
+import java.util.Map;
+
 import com.microsoft.azure.oidc.application.settings.ApplicationSettings;
 import com.microsoft.azure.oidc.application.settings.ApplicationSettingsLoader;
 
 public final class SimpleApplicationSettingsLoader implements ApplicationSettingsLoader {
     private static final ApplicationSettingsLoader INSTANCE = new SimpleApplicationSettingsLoader();
+    private static volatile ApplicationSettings injectedSettings;
 
     @Override
     public ApplicationSettings load() {
-        return new SimpleApplicationSettings();
+        final ApplicationSettings injected = injectedSettings;
+        return injected == null ? new SimpleApplicationSettings() : injected;
+    }
+
+    /**
+     * Replaces the AAD_* environment variables with the given settings, and the Azure AD authority and graph hosts
+     * with the given base URL. Only reachable from this package, i.e. from the load harness which adds a class to it;
+     * the shipped filter always reads the environment. Pass null settings to go back to the environment.
+     */
+    static void injectSettings(final Map<String, String> settings, final String hostUrl) {
+        injectedSettings = settings == null ? null : new SimpleApplicationSettings(settings, hostUrl, hostUrl);
     }
 
     public static ApplicationSettingsLoader getInstance() {
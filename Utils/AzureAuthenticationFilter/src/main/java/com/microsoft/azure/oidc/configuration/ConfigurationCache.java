@@ -22,8 +22,16 @@
 
 package com.microsoft.azure.oidc.configuration;
 
+import com.microsoft.azure.oidc.common.name.Name;
+
 public interface ConfigurationCache {
 
     Configuration load();
 
+    void initialise(Long refreshInterval, Long gracePeriod, Long minimumRefreshInterval);
+
+    void refreshForUnknownKey(Name keyName);
+
+    void shutdownNow();
+
 }
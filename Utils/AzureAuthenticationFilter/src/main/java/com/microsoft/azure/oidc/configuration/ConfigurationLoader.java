@@ -28,4 +28,6 @@ public interface ConfigurationLoader {
 
     Future<Configuration> loadAsync();
 
+    Configuration load();
+
 }
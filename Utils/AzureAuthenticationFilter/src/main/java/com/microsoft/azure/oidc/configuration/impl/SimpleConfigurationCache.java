@@ -22,36 +22,167 @@
 
 package com.microsoft.azure.oidc.configuration.impl;
 
-import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
-import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.microsoft.azure.oidc.common.name.Name;
 import com.microsoft.azure.oidc.configuration.Configuration;
 import com.microsoft.azure.oidc.configuration.ConfigurationCache;
+import com.microsoft.azure.oidc.configuration.ConfigurationFactory;
 import com.microsoft.azure.oidc.configuration.ConfigurationLoader;
-import com.microsoft.azure.oidc.future.FutureHelper;
-import com.microsoft.azure.oidc.future.impl.SimpleFutureHelper;
+import com.microsoft.azure.oidc.configuration.key.Key;
+import com.microsoft.azure.oidc.exception.PreconditionException;
 
+/**
+ * Holds the current {@link Configuration} and keeps it fresh from a background thread, so request threads only read
+ * an atomic reference. The signing keys are reloaded on a schedule and, rate limited, whenever a token names a key
+ * that is not known yet. Keys dropped from the key store stay usable for a grace period after they disappear.
+ */
 public class SimpleConfigurationCache implements ConfigurationCache {
     private static final ConfigurationCache INSTANCE = new SimpleConfigurationCache();
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimpleConfigurationCache.class);
+    private static final long DEFAULT_REFRESH_INTERVAL = 60L;
+    private static final long DEFAULT_GRACE_PERIOD = 60L;
+    private static final long DEFAULT_MINIMUM_REFRESH_INTERVAL = 30L;
 
     private final ConfigurationLoader configurationLoader = SimpleConfigurationLoader.getInstance();
 
-    private final FutureHelper futureHelper = SimpleFutureHelper.getInstance();
+    private final ConfigurationFactory configurationFactory = SimpleConfigurationFactory.getInstance();
+
+    private final AtomicReference<Configuration> current = new AtomicReference<Configuration>();
+
+    private final Map<Name, Long> retiredKeys = new ConcurrentHashMap<Name, Long>();
+
+    private final AtomicLong lastOnDemandRefresh = new AtomicLong();
+
+    private volatile ScheduledExecutorService scheduledExecutorService;
 
-    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+    private volatile long gracePeriod = TimeUnit.MINUTES.toMillis(DEFAULT_GRACE_PERIOD);
+
+    private volatile long minimumRefreshInterval = TimeUnit.SECONDS.toMillis(DEFAULT_MINIMUM_REFRESH_INTERVAL);
+
+    /**
+     * @param refreshInterval
+     *            minutes between scheduled reloads
+     * @param gracePeriod
+     *            minutes a key removed from the key store is still accepted
+     * @param minimumRefreshInterval
+     *            seconds that must pass between two reloads triggered by an unknown key
+     */
+    @Override
+    public synchronized void initialise(final Long refreshInterval, final Long gracePeriod,
+            final Long minimumRefreshInterval) {
+        final long interval = refreshInterval == null ? DEFAULT_REFRESH_INTERVAL : refreshInterval;
+        this.gracePeriod = TimeUnit.MINUTES
+                .toMillis(gracePeriod == null ? DEFAULT_GRACE_PERIOD : gracePeriod);
+        this.minimumRefreshInterval = TimeUnit.SECONDS
+                .toMillis(minimumRefreshInterval == null ? DEFAULT_MINIMUM_REFRESH_INTERVAL : minimumRefreshInterval);
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
+        }
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+        scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        }, 0, interval, TimeUnit.MINUTES);
+    }
 
     @Override
     public Configuration load() {
-        final String key = "SINGLE";
-        final Configuration entry = concurrentCacheService.getCache(Configuration.class, "configurationCache").get(key);
+        final Configuration entry = current.get();
         if (entry != null) {
             return entry;
         }
-        final Configuration result = futureHelper.getResult(configurationLoader.loadAsync());
-        if (result == null) {
-            return result;
+        // nothing has been loaded yet (first request raced the initial refresh, or the last attempts failed)
+        synchronized (current) {
+            if (current.get() == null) {
+                final Configuration loaded = configurationLoader.load();
+                if (loaded != null) {
+                    current.compareAndSet(null, loaded);
+                }
+            }
+            return current.get();
+        }
+    }
+
+    @Override
+    public void refreshForUnknownKey(final Name keyName) {
+        if (keyName == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final ScheduledExecutorService executorService = scheduledExecutorService;
+        final long now = System.currentTimeMillis();
+        final long last = lastOnDemandRefresh.get();
+        if (executorService == null || now - last < minimumRefreshInterval
+                || !lastOnDemandRefresh.compareAndSet(last, now)) {
+            return;
+        }
+        LOGGER.info("Refreshing signing keys for unknown key {}", keyName);
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        });
+    }
+
+    @Override
+    public synchronized void shutdownNow() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
+            scheduledExecutorService = null;
+        }
+    }
+
+    // only ever runs on the single scheduler thread
+    private void refresh() {
+        try {
+            final Configuration loaded = configurationLoader.load();
+            if (loaded == null) {
+                return;
+            }
+            current.set(mergeRetiredKeys(current.get(), loaded));
+        } catch (RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    private Configuration mergeRetiredKeys(final Configuration previous, final Configuration loaded) {
+        final long now = System.currentTimeMillis();
+        final Map<Name, Key> keys = new HashMap<Name, Key>(loaded.getKeys());
+        if (previous != null) {
+            for (final Entry<Name, Key> entry : previous.getKeys().entrySet()) {
+                if (!keys.containsKey(entry.getKey()) && !retiredKeys.containsKey(entry.getKey())) {
+                    retiredKeys.put(entry.getKey(), now);
+                }
+            }
+        }
+        final Iterator<Entry<Name, Long>> iterator = retiredKeys.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Entry<Name, Long> retired = iterator.next();
+            final Key key = previous == null ? null : previous.getKey(retired.getKey());
+            if (loaded.getKeys().containsKey(retired.getKey()) || key == null
+                    || now - retired.getValue() > gracePeriod) {
+                iterator.remove();
+                continue;
+            }
+            keys.put(retired.getKey(), key);
         }
-        concurrentCacheService.getCache(Configuration.class, "configurationCache").putIfAbsent(key, result);
-        return result;
+        return configurationFactory.createConfiguration(loaded.getAlgorithms(), keys, loaded.getIssuer(),
+                loaded.getAuthenticationEndPoint(), loaded.getLogoutEndPoint());
     }
 
     public static ConfigurationCache getInstance() {
@@ -38,4 +38,8 @@ public interface AuthenticationConfiguration {
 
     Map<String, List<String>> getAuthorisationRoleMap();
 
+    UriMatcher getExclusionUriMatcher();
+
+    UriMatcher getAuthorisationUriMatcher();
+
 }
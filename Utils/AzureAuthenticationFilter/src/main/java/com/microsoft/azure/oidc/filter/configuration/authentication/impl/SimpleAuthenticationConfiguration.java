@@ -28,8 +28,11 @@ import java.util.Map;
 import java.util.regex.Pattern;
 
 import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfiguration;
+import com.microsoft.azure.oidc.filter.configuration.authentication.UriMatcher;
 
 final class SimpleAuthenticationConfiguration implements AuthenticationConfiguration {
+    private static final String FACES_RESOURCE_PATTERN = "/javax.faces.resource/*";
+
     private List<String> exclusionUriPatternList;
     private List<String> authorisationUriPatternList;
     private Map<String, List<String>> authorisationRoleMap;
@@ -37,6 +40,9 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
     private List<Pattern> exclusionRegexPatternList;
     private List<Pattern> authorisationRegexPatternList;
 
+    private UriMatcher exclusionUriMatcher;
+    private UriMatcher authorisationUriMatcher;
+
     public SimpleAuthenticationConfiguration(final List<String> exclusionUriPatternList,
             final List<String> authorisationUriPatternList, final Map<String, List<String>> authorisationRoleMap) {
         setExclusionUriPatternList(exclusionUriPatternList);
@@ -48,7 +54,7 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
         this.exclusionUriPatternList = exclusionUriPatternList;
         exclusionRegexPatternList = new ArrayList<Pattern>();
         exclusionRegexPatternList.add(Pattern.compile(
-                "/javax.faces.resource/*".replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
+                FACES_RESOURCE_PATTERN.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
         if (exclusionRegexPatternList == null) {
             return;
         }
@@ -65,12 +71,17 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
                         .compile(localPattern.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
             }
         }
+        final List<String> exclusionPatterns = new ArrayList<String>();
+        exclusionPatterns.add(FACES_RESOURCE_PATTERN);
+        exclusionPatterns.addAll(exclusionUriPatternList);
+        exclusionUriMatcher = new SimpleUriMatcher(exclusionPatterns, exclusionRegexPatternList);
     }
 
     private void setAuthorisationUriPatternList(List<String> authorisationUriPatternList) {
         this.authorisationUriPatternList = authorisationUriPatternList;
         authorisationRegexPatternList = new ArrayList<Pattern>();
         if (authorisationUriPatternList == null) {
+            authorisationUriMatcher = new SimpleUriMatcher(new ArrayList<String>(), authorisationRegexPatternList);
             return;
         }
         for (final String pattern : authorisationUriPatternList) {
@@ -86,6 +97,7 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
                         .compile(localPattern.replaceAll("([^a-zA-Z0-9\\*])", "\\\\$1").replaceAll("\\*", "(\\.\\*)")));
             }
         }
+        authorisationUriMatcher = new SimpleUriMatcher(authorisationUriPatternList, authorisationRegexPatternList);
     }
 
     private void setAuthorisationRoleMap(Map<String, List<String>> authorisationRoleMap) {
@@ -116,4 +128,14 @@ final class SimpleAuthenticationConfiguration implements AuthenticationConfigura
     public Map<String, List<String>> getAuthorisationRoleMap() {
         return authorisationRoleMap;
     }
+
+    @Override
+    public UriMatcher getExclusionUriMatcher() {
+        return exclusionUriMatcher;
+    }
+
+    @Override
+    public UriMatcher getAuthorisationUriMatcher() {
+        return authorisationUriMatcher;
+    }
 }
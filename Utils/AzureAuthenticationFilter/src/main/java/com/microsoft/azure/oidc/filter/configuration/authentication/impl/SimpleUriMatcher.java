@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.filter.configuration.authentication.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.filter.configuration.authentication.UriMatcher;
+
+/**
+ * Matches a URI against an ordered list of configured URI patterns and returns the index of the first matching one.
+ * Literal patterns are looked up in a map and "prefix*" patterns in a character trie, so only patterns with a
+ * wildcard elsewhere fall back to their regular expression. Results are remembered for recently seen URIs.
+ */
+final class SimpleUriMatcher implements UriMatcher {
+    private static final int RESULT_CACHE_SIZE = 1024;
+
+    private final Map<String, Integer> literals = new HashMap<String, Integer>();
+    private final TrieNode prefixes = new TrieNode();
+    private final List<Integer> regexIndexes = new ArrayList<Integer>();
+    private final List<Pattern> regexPatterns = new ArrayList<Pattern>();
+    private final ConcurrentMap<String, Integer> resultCache = new ConcurrentHashMap<String, Integer>();
+
+    SimpleUriMatcher(final List<String> uriPatterns, final List<Pattern> compiledPatterns) {
+        if (uriPatterns == null || compiledPatterns == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        if (uriPatterns.size() != compiledPatterns.size()) {
+            throw new PreconditionException("Pattern lists differ in size");
+        }
+        for (int index = 0; index < uriPatterns.size(); index++) {
+            final String pattern = uriPatterns.get(index).trim();
+            final int wildcard = pattern.indexOf('*');
+            if (wildcard < 0) {
+                if (!literals.containsKey(pattern)) {
+                    literals.put(pattern, index);
+                }
+            } else if (wildcard == pattern.length() - 1) {
+                prefixes.add(pattern.substring(0, wildcard), index);
+            } else {
+                regexIndexes.add(index);
+                regexPatterns.add(compiledPatterns.get(index));
+            }
+        }
+    }
+
+    @Override
+    public int match(final String uri) {
+        if (uri == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final Integer cached = resultCache.get(uri);
+        if (cached != null) {
+            return cached;
+        }
+        final int result = find(uri);
+        if (resultCache.size() >= RESULT_CACHE_SIZE) {
+            resultCache.clear();
+        }
+        resultCache.put(uri, result);
+        return result;
+    }
+
+    private int find(final String uri) {
+        int best = Integer.MAX_VALUE;
+        final Integer literal = literals.get(uri);
+        if (literal != null) {
+            best = literal;
+        }
+        TrieNode node = prefixes;
+        for (int i = 0; node != null; i++) {
+            if (node.index >= 0 && node.index < best) {
+                best = node.index;
+            }
+            if (i == uri.length()) {
+                break;
+            }
+            node = node.children == null ? null : node.children.get(uri.charAt(i));
+        }
+        for (int i = 0; i < regexIndexes.size() && regexIndexes.get(i) < best; i++) {
+            if (regexPatterns.get(i).matcher(uri).matches()) {
+                best = regexIndexes.get(i);
+            }
+        }
+        return best == Integer.MAX_VALUE ? NO_MATCH : best;
+    }
+
+    private static final class TrieNode {
+        private Map<Character, TrieNode> children;
+        private int index = NO_MATCH;
+
+        private void add(final String prefix, final int patternIndex) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                if (node.children == null) {
+                    node.children = new HashMap<Character, TrieNode>();
+                }
+                TrieNode child = node.children.get(prefix.charAt(i));
+                if (child == null) {
+                    child = new TrieNode();
+                    node.children.put(prefix.charAt(i), child);
+                }
+                node = child;
+            }
+            if (node.index == NO_MATCH) {
+                node.index = patternIndex;
+            }
+        }
+    }
+}
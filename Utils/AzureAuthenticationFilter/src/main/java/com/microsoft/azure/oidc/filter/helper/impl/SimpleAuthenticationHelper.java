@@ -26,8 +26,6 @@ import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -54,7 +52,9 @@ import com.microsoft.azure.oidc.configuration.ConfigurationCache;
 import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfiguration;
 import com.microsoft.azure.oidc.filter.configuration.authentication.AuthenticationConfigurationService;
+import com.microsoft.azure.oidc.filter.configuration.authentication.UriMatcher;
 import com.microsoft.azure.oidc.filter.configuration.authentication.impl.SimpleAuthenticationConfigurationService;
 import com.microsoft.azure.oidc.filter.helper.AuthenticationHelper;
 import com.microsoft.azure.oidc.filter.request.impl.AuthenticationRequestWrapper;
@@ -62,9 +62,11 @@ import com.microsoft.azure.oidc.filter.request.impl.SandboxRequestWrapper;
 import com.microsoft.azure.oidc.graph.GraphCache;
 import com.microsoft.azure.oidc.graph.impl.SimpleGraphCache;
 import com.microsoft.azure.oidc.token.Token;
+import com.microsoft.azure.oidc.token.TokenCache;
 import com.microsoft.azure.oidc.token.TokenParser;
 import com.microsoft.azure.oidc.token.TokenValidator;
 import com.microsoft.azure.oidc.token.impl.SimpeTokenParser;
+import com.microsoft.azure.oidc.token.impl.SimpleTokenCache;
 import com.microsoft.azure.oidc.token.impl.SimpleTokenValidator;
 
 public final class SimpleAuthenticationHelper implements AuthenticationHelper {
@@ -77,6 +79,8 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
 
     private final TokenValidator tokenValidator = SimpleTokenValidator.getInstance();
 
+    private final TokenCache tokenCache = SimpleTokenCache.getInstance();
+
     private final GraphCache graphCache = SimpleGraphCache.getInstance();
 
     private final ApplicationSettingsLoader applicationSettingsLoader = SimpleApplicationSettingsLoader.getInstance();
@@ -126,12 +130,13 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
             doRedirectRequestAction(httpRequest, httpResponse, state);
             return;
         }
-        final Boolean isUnauthorised = !isAuthorised(httpRequest, token);
+        final HttpServletRequest authRequest = getAuthenticationWrapper(httpRequest, token);
+        final Boolean isUnauthorised = !isAuthorised(authRequest);
         if (isUnauthorised) {
             doUnauthorisedAction(httpResponse);
             return;
         }
-        doAuthenticatedAction(chain, httpRequest, httpResponse, token);
+        doAuthenticatedAction(chain, authRequest, httpResponse);
         return;
     }
 
@@ -178,6 +183,11 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
         return tokenValidator.validateCommon(token);
     }
 
+    @Override
+    public Token getValidToken(final String tokenString) {
+        return tokenCache.load(tokenString);
+    }
+
     @Override
     public Boolean isActiveToken(final Token token) {
         return tokenValidator.validateExpiration(token);
@@ -209,9 +219,9 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
         httpResponse.sendRedirect(getStateRedirectURL(httpRequest, state));
     }
 
-    private void doAuthenticatedAction(final FilterChain chain, final HttpServletRequest httpRequest,
-            final HttpServletResponse httpResponse, final Token token) throws IOException, ServletException {
-        chain.doFilter(getAuthenticationWrapper(httpRequest, token), httpResponse);
+    private void doAuthenticatedAction(final FilterChain chain, final HttpServletRequest authRequest,
+            final HttpServletResponse httpResponse) throws IOException, ServletException {
+        chain.doFilter(authRequest, httpResponse);
     }
 
     private void doUnauthorisedAction(final HttpServletResponse httpResponse) throws IOException {
@@ -219,52 +229,36 @@ public final class SimpleAuthenticationHelper implements AuthenticationHelper {
     }
 
     private Boolean isExcluded(final HttpServletRequest httpRequest) {
-        String uriString = null;
-        final Boolean isRootContext = "".equals(httpRequest.getContextPath());
-        if (isRootContext) {
-            uriString = httpRequest.getRequestURI();
-        } else {
-            final int length = httpRequest.getRequestURI().length();
-            uriString = httpRequest.getRequestURI().substring(length);
+        final String uriString = getContextRequestURI(httpRequest);
+        final UriMatcher matcher = authenticationConfigurationService.get().getExclusionUriMatcher();
+        return matcher.match(uriString) != UriMatcher.NO_MATCH;
+    }
+
+    private Boolean isAuthorised(final HttpServletRequest httpRequest) {
+        final String uriString = getContextRequestURI(httpRequest);
+        final AuthenticationConfiguration configuration = authenticationConfigurationService.get();
+        final int index = configuration.getAuthorisationUriMatcher().match(uriString);
+        if (index == UriMatcher.NO_MATCH) {
+            return Boolean.TRUE;
         }
-        for (final Pattern pattern : authenticationConfigurationService.get().getExclusionRegexPatternList()) {
-            final Matcher matcher = pattern.matcher(uriString);
-            final Boolean isMatchFound = matcher.matches();
-            if (isMatchFound) {
+        final String urlPattern = configuration.getAuthorisationUriPatternList().get(index);
+        for (final String roleName : configuration.getAuthorisationRoleMap().get(urlPattern)) {
+            final Boolean isUserInRole = httpRequest.isUserInRole(roleName);
+            if (isUserInRole) {
                 return Boolean.TRUE;
             }
         }
         return Boolean.FALSE;
     }
 
-    private Boolean isAuthorised(final HttpServletRequest httpRequest, final Token token) {
-        String uriString = null;
-        final Boolean isRootContext = "".equals(httpRequest.getContextPath());
-        if (isRootContext) {
-            uriString = httpRequest.getRequestURI();
-        } else {
-            final int length = httpRequest.getRequestURI().length();
-            uriString = httpRequest.getRequestURI().substring(length);
-        }
-        int index = 0;
-        for (final String urlPattern : authenticationConfigurationService.get().getAuthorisationUriPatternList()) {
-            final Pattern pattern = authenticationConfigurationService.get().getAuthorisationRegexPatternList()
-                    .get(index++);
-            final Matcher matcher = pattern.matcher(uriString);
-            final Boolean isMatchFound = matcher.matches();
-            if (isMatchFound) {
-                final HttpServletRequest authRequest = getAuthenticationWrapper(httpRequest, token);
-                for (final String roleName : authenticationConfigurationService.get().getAuthorisationRoleMap()
-                        .get(urlPattern)) {
-                    final Boolean isUserInRole = authRequest.isUserInRole(roleName);
-                    if (isUserInRole) {
-                        return Boolean.TRUE;
-                    }
-                }
-                return Boolean.FALSE;
-            }
+    private String getContextRequestURI(final HttpServletRequest httpRequest) {
+        final String contextPath = httpRequest.getContextPath();
+        final String requestURI = httpRequest.getRequestURI();
+        final Boolean isRootContext = "".equals(contextPath);
+        if (isRootContext || !requestURI.startsWith(contextPath)) {
+            return requestURI;
         }
-        return Boolean.TRUE;
+        return requestURI.substring(contextPath.length());
     }
 
     private String addCookie(final HttpServletRequest httpRequest, final HttpServletResponse httpResponse,
@@ -35,7 +35,8 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
 import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
-import com.microsoft.azure.oidc.configuration.Configuration;
+import com.microsoft.azure.oidc.configuration.ConfigurationCache;
+import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.filter.configuration.algorithm.AlgorithmConfigurationService;
@@ -65,9 +66,12 @@ public final class SimpleAuthenticationFilter implements Filter {
 
     private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
 
+    private final ConfigurationCache configurationCache = SimpleConfigurationCache.getInstance();
+
     @Override
     public void destroy() {
         concurrentCacheService.shutdownNow();
+        configurationCache.shutdownNow();
     }
 
     @Override
@@ -84,8 +88,8 @@ public final class SimpleAuthenticationFilter implements Filter {
                 getHelper().doUnauthenticatedAction(chain, httpRequest, httpResponse, NO_TOKEN, isAuthenticationError);
                 return;
             }
-            final Token token = getHelper().getToken(tokenString);
-            final Boolean isInvalidToken = !getHelper().isValidToken(token);
+            final Token token = getHelper().getValidToken(tokenString);
+            final Boolean isInvalidToken = token == NO_TOKEN;
             if (isInvalidToken) {
                 getHelper().doInvalidTokenAction(httpResponse);
                 return;
@@ -110,11 +114,23 @@ public final class SimpleAuthenticationFilter implements Filter {
             concurrentCacheService.createCache(Boolean.class, "roleCache", 30L,
                     Long.parseLong(securityCacheSizeString));
         }
-        concurrentCacheService.createCache(Configuration.class, "configurationCache", 60L, 1L);
+        final String tokenCacheSizeString = filterConfig.getInitParameter("tokenCacheSize");
+        final String tokenCacheTTLString = filterConfig.getInitParameter("tokenCacheTTL");
+        concurrentCacheService.createCache(Token.class, "tokenCache",
+                tokenCacheTTLString == null ? 5L : Long.parseLong(tokenCacheTTLString),
+                tokenCacheSizeString == null ? 1000L : Long.parseLong(tokenCacheSizeString));
+        configurationCache.initialise(getLongParameter(filterConfig, "keyRefreshInterval"),
+                getLongParameter(filterConfig, "keyGracePeriod"),
+                getLongParameter(filterConfig, "keyRefreshMinimumInterval"));
         authenticationConfigurationService.initialise(filterConfig, AUTHENTICATION_CONFIGURATION);
         algorithmConfigurationService.initialise(filterConfig, ALGORITHM_CONFIGURATION);
     }
 
+    private Long getLongParameter(final FilterConfig filterConfig, final String name) {
+        final String value = filterConfig.getInitParameter(name);
+        return value == null ? null : Long.parseLong(value);
+    }
+
     private AuthenticationHelper getHelper() {
         return authenticationHelper;
     }
@@ -25,7 +25,9 @@ package com.microsoft.azure.oidc.graph.impl;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.net.URLEncoder;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -41,10 +43,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.oidc.application.settings.ApplicationSettings;
 import com.microsoft.azure.oidc.application.settings.ApplicationSettingsLoader;
-import com.microsoft.azure.oidc.application.settings.Secret;
-import com.microsoft.azure.oidc.application.settings.Tenant;
 import com.microsoft.azure.oidc.application.settings.impl.SimpleApplicationSettingsLoader;
-import com.microsoft.azure.oidc.common.id.ID;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.graph.GraphService;
 
@@ -69,13 +68,12 @@ public final class SimpleGraphService implements GraphService {
     private Boolean isUserInRole(final String userID, final String role) {
         try {
             final ApplicationSettings applicationSettings = applicationSettingsLoader.load();
-            final String bearerToken = getBearerToken(applicationSettings.getTenant(),
-                    applicationSettings.getPrincipalId(), applicationSettings.getPrincipalSecret());
-            final String roleID = getGroupID(applicationSettings.getTenant(), role, bearerToken);
+            final String bearerToken = getBearerToken(applicationSettings);
+            final String roleID = getGroupID(applicationSettings, role, bearerToken);
             if (roleID == null) {
                 return Boolean.FALSE;
             }
-            return isUserInGroup(applicationSettings.getTenant(), userID, roleID, bearerToken);
+            return isUserInGroup(applicationSettings, userID, roleID, bearerToken);
         } catch (GeneralException e) {
             LOGGER.error("General Exception", e);
             return Boolean.FALSE;
@@ -85,15 +83,15 @@ public final class SimpleGraphService implements GraphService {
         }
     }
 
-    private Boolean isUserInGroup(final Tenant tenant, final String userID, final String groupID,
-            final String bearerToken) {
+    private Boolean isUserInGroup(final ApplicationSettings applicationSettings, final String userID,
+            final String groupID, final String bearerToken) {
         try {
-            final String urlString = String.format("https://graph.windows.net/%s/isMemberOf?api-version=1.6",
-                    tenant.getName());
+            final String urlString = String.format("%s/%s/isMemberOf?api-version=1.6",
+                    applicationSettings.getGraphHost(), applicationSettings.getTenant().getName());
             final String payload = String.format("{\"groupId\":\"%s\",\"memberId\":\"%s\"}", groupID, userID);
             final URL url = new URL(urlString);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Host", "graph.windows.net");
+            final HttpURLConnection connection = openConnection(url);
+            connection.setRequestProperty("Host", url.getHost());
             connection.setRequestProperty("Content-Type", "application/json");
             connection.setRequestProperty("Accept", "application/json");
             connection.setRequestProperty("Authorization", "Bearer " + bearerToken);
@@ -119,14 +117,16 @@ public final class SimpleGraphService implements GraphService {
         }
     }
 
-    private String getGroupID(final Tenant tenant, final String group, final String bearerToken) {
+    private String getGroupID(final ApplicationSettings applicationSettings, final String group,
+            final String bearerToken) {
         try {
             final String urlString = String.format(
-                    "https://graph.windows.net/%s/groups?$filter=displayName%%20eq%%20'%s'&api-version=1.6",
-                    tenant.getName(), URLEncoder.encode(group, "UTF-8"));
+                    "%s/%s/groups?$filter=displayName%%20eq%%20'%s'&api-version=1.6",
+                    applicationSettings.getGraphHost(), applicationSettings.getTenant().getName(),
+                    URLEncoder.encode(group, "UTF-8"));
             final URL url = new URL(urlString);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Host", "graph.windows.net");
+            final HttpURLConnection connection = openConnection(url);
+            connection.setRequestProperty("Host", url.getHost());
             connection.setRequestProperty("Accept", "application/json");
             connection.setRequestProperty("Authorization", "Bearer " + bearerToken);
             final StringBuilder result = new StringBuilder();
@@ -150,17 +150,18 @@ public final class SimpleGraphService implements GraphService {
         }
     }
 
-    private String getBearerToken(final Tenant tenant, final ID principal, final Secret secret) {
+    private String getBearerToken(final ApplicationSettings applicationSettings) {
         try {
             final String payload = String.format(
-                    "grant_type=client_credentials&client_id=%s&client_secret=%s&resource=%s", principal.getValue(),
-                    URLEncoder.encode(secret.getValue(), "UTF-8"),
-                    URLEncoder.encode("https://graph.windows.net", "UTF-8"));
-            final URL url = new URL(
-                    String.format("https://login.microsoftonline.com/%s/oauth2/token", tenant.getName()));
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
+                    "grant_type=client_credentials&client_id=%s&client_secret=%s&resource=%s",
+                    applicationSettings.getPrincipalId().getValue(),
+                    URLEncoder.encode(applicationSettings.getPrincipalSecret().getValue(), "UTF-8"),
+                    URLEncoder.encode(applicationSettings.getGraphHost(), "UTF-8"));
+            final URL url = new URL(String.format("%s/%s/oauth2/token", applicationSettings.getAuthorityHost(),
+                    applicationSettings.getTenant().getName()));
+            final HttpURLConnection connection = openConnection(url);
             connection.setRequestMethod("POST");
-            connection.setRequestProperty("Host", "login.microsoftonline.com");
+            connection.setRequestProperty("Host", url.getHost());
             connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
             connection.setRequestProperty("Accept", "application/json");
             connection.setDoOutput(true);
@@ -184,6 +185,17 @@ public final class SimpleGraphService implements GraphService {
         }
     }
 
+    /**
+     * Opens an https connection, the bearer token and the principal secret are never sent unencrypted.
+     */
+    private static HttpURLConnection openConnection(final URL url) throws IOException {
+        final URLConnection connection = url.openConnection();
+        if (connection instanceof HttpsURLConnection) {
+            return (HttpURLConnection) connection;
+        }
+        throw new GeneralException("Graph and authority requests require https: " + url.getHost());
+    }
+
     public static GraphService getInstance() {
         return INSTANCE;
     }
@@ -65,8 +65,9 @@ public final class SimpleWellKnownLoader implements WellKnownLoader {
             final ApplicationSettings applicationSettings = applicationSettingsLoader.load();
             final StringBuilder builder = new StringBuilder();
             final URL url = new URL(
-                    String.format("https://login.microsoftonline.com/%s/v2.0/.well-known/openid-configuration?p=%s",
-                            applicationSettings.getTenant(), applicationSettings.getOIDCPolicy()));
+                    String.format("%s/%s/v2.0/.well-known/openid-configuration?p=%s",
+                            applicationSettings.getAuthorityHost(), applicationSettings.getTenant(),
+                            applicationSettings.getOIDCPolicy()));
             final URLConnection connection = url.openConnection();
             try (final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
                 for (String line = in.readLine(); line != null; line = in.readLine()) {
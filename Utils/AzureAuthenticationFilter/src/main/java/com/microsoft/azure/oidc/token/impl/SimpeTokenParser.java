@@ -23,27 +23,20 @@
 package com.microsoft.azure.oidc.token.impl;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.codec.binary.Base64;
-
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.microsoft.azure.oidc.common.algorithm.Algorithm;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.microsoft.azure.oidc.common.algorithm.AlgorithmFactory;
 import com.microsoft.azure.oidc.common.algorithm.impl.SimpleAlgorithmFactory;
-import com.microsoft.azure.oidc.common.id.ID;
 import com.microsoft.azure.oidc.common.id.IDFactory;
 import com.microsoft.azure.oidc.common.id.impl.SimpleIDFactory;
-import com.microsoft.azure.oidc.common.issuer.Issuer;
 import com.microsoft.azure.oidc.common.issuer.IssuerFactory;
 import com.microsoft.azure.oidc.common.issuer.impl.SimpleIssuerFactory;
-import com.microsoft.azure.oidc.common.name.Name;
 import com.microsoft.azure.oidc.common.name.NameFactory;
 import com.microsoft.azure.oidc.common.name.impl.SimpleNameFactory;
-import com.microsoft.azure.oidc.common.timestamp.TimeStamp;
 import com.microsoft.azure.oidc.common.timestamp.TimeStampFactory;
 import com.microsoft.azure.oidc.common.timestamp.impl.SimpleTimeStampFactory;
 import com.microsoft.azure.oidc.exception.GeneralException;
@@ -54,15 +47,43 @@ import com.microsoft.azure.oidc.token.TokenParser;
 import com.microsoft.azure.oidc.token.email.Email;
 import com.microsoft.azure.oidc.token.email.EmailFactory;
 import com.microsoft.azure.oidc.token.email.impl.SimpleEmailFactory;
-import com.microsoft.azure.oidc.token.payload.Payload;
 import com.microsoft.azure.oidc.token.payload.PayloadFactory;
 import com.microsoft.azure.oidc.token.payload.impl.SimplePayloadFactory;
-import com.microsoft.azure.oidc.token.signature.Signature;
 import com.microsoft.azure.oidc.token.signature.SignatureFactory;
 import com.microsoft.azure.oidc.token.signature.impl.SimpleSignatureFactory;
 
+/**
+ * Parses a JWT without building intermediate JSON trees: the dots are located by scanning, each part is
+ * base64url-decoded into a per-thread buffer and only the claims the filter needs are read with a streaming parser.
+ */
 public final class SimpeTokenParser implements TokenParser {
     private static final TokenParser INSTANCE = new SimpeTokenParser();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int[] BASE64_VALUES = new int[128];
+    private static final int INITIAL_BUFFER_SIZE = 2048;
+    private static final long NO_EXPIRATION = 0L;
+
+    static {
+        for (int i = 0; i < BASE64_VALUES.length; i++) {
+            BASE64_VALUES[i] = -1;
+        }
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = i;
+        }
+        // accept both the url-safe and the standard alphabet
+        BASE64_VALUES['-'] = 62;
+        BASE64_VALUES['+'] = 62;
+        BASE64_VALUES['_'] = 63;
+        BASE64_VALUES['/'] = 63;
+    }
+
+    private static final ThreadLocal<byte[]> DECODE_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[INITIAL_BUFFER_SIZE];
+        }
+    };
 
     private final SignatureFactory signatureFactory = SimpleSignatureFactory.getInstance();
 
@@ -84,112 +105,189 @@ public final class SimpeTokenParser implements TokenParser {
 
     @Override
     public Token getToken(String value) {
-        final String[] parts = value.split("\\.");
-        if (parts.length != 3) {
+        if (value == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final int headerEnd = value.indexOf('.');
+        final int bodyEnd = headerEnd < 0 ? -1 : value.indexOf('.', headerEnd + 1);
+        if (bodyEnd < 0 || value.indexOf('.', bodyEnd + 1) >= 0) {
             throw new IllegalStateException(
-                    String.format("Incorrect number of parts: Expected 3 got %s", parts.length));
+                    String.format("Incorrect number of parts: Expected 3 got %s", countParts(value)));
         }
 
-        final JsonNode header = parsePart(decodePart(parts[0]));
-        final JsonNode body = parsePart(decodePart(parts[1]));
-
-        final Name keyName = getKeyName(header);
-        final Algorithm algorithm = getAlgorithm(header);
-
-        final TimeStamp issuedAt = getIssuedAt(body);
-        final TimeStamp notBefore = getNotBefore(body);
-        final TimeStamp expiration = getExpiration(body);
-        final Issuer issuer = getIssuer(body);
-        final ID audience = getAudience(body);
-        final ID userID = getUserID(body);
-        final List<Email> userEmails = getEmails(body);
+        final Header header = parseHeader(value, 0, headerEnd);
+        final Body body = parseBody(value, headerEnd + 1, bodyEnd);
 
-        final Payload payload = getPayload(parts[0], parts[1]);
-
-        final Signature signature = getSignature(parts[2]);
-
-        return tokenFactory.createToken(keyName, algorithm, issuedAt, notBefore, expiration, userID, userEmails, issuer,
-                audience, payload, signature);
+        return tokenFactory.createToken(nameFactory.createKeyName(header.keyName),
+                algorithmFactory.createAlgorithm(header.algorithm), timeStampFactory.createTimeStamp(body.issuedAt),
+                timeStampFactory.createTimeStamp(body.notBefore), timeStampFactory.createTimeStamp(body.expiration),
+                iDFactory.createID(body.userID), body.emails, issuerFactory.createIssuer(body.issuer),
+                iDFactory.createID(body.audience),
+                payloadFactory.createPayload(value.substring(0, headerEnd), value.substring(headerEnd + 1, bodyEnd)),
+                signatureFactory.createSignature(value.substring(bodyEnd + 1)));
     }
 
-    private ID getUserID(final JsonNode node) {
-        final String value = node.has("oid") ? node.get("oid").asText() : null;
-        return iDFactory.createID(value);
-    }
-
-    private List<Email> getEmails(final JsonNode node) {
-        final List<Email> emails = new ArrayList<Email>();
-        for (final JsonNode n : node.get("emails")) {
-            emails.add(emailFactory.createEmail(n.asText()));
+    private Header parseHeader(final String value, final int start, final int end) {
+        final Header header = new Header();
+        final int length = decodePart(value, start, end);
+        try (final JsonParser parser = JSON_FACTORY.createParser(DECODE_BUFFER.get(), 0, length)) {
+            startObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                if ("kid".equals(name)) {
+                    header.keyName = readString(parser, token);
+                } else if ("alg".equals(name)) {
+                    header.algorithm = readString(parser, token);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return header;
+        } catch (IOException e) {
+            throw new GeneralException("IO Exception", e);
         }
-        return emails;
-    }
-
-    private Payload getPayload(final String header, final String body) {
-        return payloadFactory.createPayload(header, body);
-    }
-
-    private Algorithm getAlgorithm(final JsonNode node) {
-        final String value = node.has("alg") ? node.get("alg").asText() : null;
-        return algorithmFactory.createAlgorithm(value);
     }
 
-    private Name getKeyName(final JsonNode node) {
-        final String value = node.has("kid") ? node.get("kid").asText() : null;
-        return nameFactory.createKeyName(value);
-    }
-
-    private ID getAudience(final JsonNode node) {
-        final String value = node.has("aud") ? node.get("aud").asText() : null;
-        return iDFactory.createID(value);
+    private Body parseBody(final String value, final int start, final int end) {
+        final Body body = new Body();
+        final int length = decodePart(value, start, end);
+        try (final JsonParser parser = JSON_FACTORY.createParser(DECODE_BUFFER.get(), 0, length)) {
+            startObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                switch (name) {
+                case "oid":
+                    body.userID = readString(parser, token);
+                    break;
+                case "aud":
+                    body.audience = readString(parser, token);
+                    break;
+                case "iss":
+                    body.issuer = readString(parser, token);
+                    break;
+                case "exp":
+                    body.expiration = readLong(parser, token, NO_EXPIRATION);
+                    break;
+                case "nbf":
+                    body.notBefore = readLong(parser, token, 0L);
+                    break;
+                case "iat":
+                    body.issuedAt = readLong(parser, token, 0L);
+                    break;
+                case "emails":
+                    if (token == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            body.emails.add(emailFactory.createEmail(parser.getValueAsString()));
+                            parser.skipChildren();
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                }
+            }
+            return body;
+        } catch (IOException e) {
+            throw new GeneralException("IO Exception", e);
+        }
     }
 
-    private Issuer getIssuer(final JsonNode node) {
-        final String value = node.has("iss") ? node.get("iss").asText() : null;
-        return issuerFactory.createIssuer(value);
+    /**
+     * Reads a string claim. An array claim, such as a multi-valued "aud", yields its first scalar element; objects
+     * yield null. Either way the parser is left after the value.
+     */
+    private String readString(final JsonParser parser, final JsonToken token) throws IOException {
+        if (token == JsonToken.START_ARRAY) {
+            String first = null;
+            JsonToken element;
+            while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (first == null && element.isScalarValue()) {
+                    first = parser.getValueAsString();
+                }
+                parser.skipChildren();
+            }
+            return first;
+        }
+        if (token.isScalarValue()) {
+            return parser.getValueAsString();
+        }
+        parser.skipChildren();
+        return null;
     }
 
-    private TimeStamp getExpiration(final JsonNode node) {
-        final Long time = node.has("exp") ? node.get("exp").asLong() : Long.MAX_VALUE;
-        return timeStampFactory.createTimeStamp(time);
+    private Long readLong(final JsonParser parser, final JsonToken token, final long defaultValue)
+            throws IOException {
+        if (token.isScalarValue()) {
+            return parser.getValueAsLong(defaultValue);
+        }
+        parser.skipChildren();
+        return defaultValue;
     }
 
-    private TimeStamp getNotBefore(final JsonNode node) {
-        final Long time = node.has("nbf") ? node.get("nbf").asLong() : 0;
-        return timeStampFactory.createTimeStamp(time);
+    private void startObject(final JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new GeneralException("Token part is not a JSON object");
+        }
     }
 
-    private TimeStamp getIssuedAt(final JsonNode node) {
-        final Long time = node.has("iat") ? node.get("iat").asLong() : 0;
-        return timeStampFactory.createTimeStamp(time);
+    /**
+     * Decodes value[start, end) into the calling thread's buffer, growing it when a larger part is seen, and returns the
+     * number of decoded bytes. Padding and characters outside the base64 alphabets are ignored.
+     */
+    private int decodePart(final String value, final int start, final int end) {
+        byte[] buffer = DECODE_BUFFER.get();
+        final int required = (end - start) * 3 / 4 + 3;
+        if (buffer.length < required) {
+            buffer = new byte[Math.max(required, buffer.length * 2)];
+            DECODE_BUFFER.set(buffer);
+        }
+        int bits = 0;
+        int bitCount = 0;
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            final int sextet = c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+            if (sextet < 0) {
+                continue;
+            }
+            bits = ((bits << 6) | sextet) & 0xFFFF;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                buffer[length++] = (byte) (bits >> bitCount);
+            }
+        }
+        return length;
     }
 
-    private Signature getSignature(final String value) {
-        return signatureFactory.createSignature(value);
+    private int countParts(final String value) {
+        int parts = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '.') {
+                parts++;
+            }
+        }
+        return parts;
     }
 
-    private String decodePart(final String part) {
-        if (part == null) {
-            throw new PreconditionException("Required parameter is null");
-        }
-        try {
-            final Base64 decoder = new Base64();
-            return new String(decoder.decode(part), "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new GeneralException("Unsupported Encoding Exception", e);
-        }
+    private static final class Header {
+        private String keyName;
+        private String algorithm;
     }
 
-    private JsonNode parsePart(final String part) {
-        if (part == null) {
-            throw new PreconditionException("Required parameter is null");
-        }
-        try {
-            final ObjectMapper mapper = new ObjectMapper();
-            return mapper.readValue(part, JsonNode.class);
-        } catch (IOException e) {
-            throw new GeneralException("IO Exception", e);
-        }
+    private static final class Body {
+        private String userID;
+        private String audience;
+        private String issuer;
+        // a token without a usable "exp" claim is treated as already expired
+        private Long expiration = NO_EXPIRATION;
+        private Long notBefore = 0L;
+        private Long issuedAt = 0L;
+        private final List<Email> emails = new ArrayList<Email>();
     }
 
     public static TokenParser getInstance() {
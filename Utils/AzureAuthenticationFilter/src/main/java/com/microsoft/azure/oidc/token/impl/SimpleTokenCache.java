@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.token.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCache;
+import com.microsoft.azure.oidc.concurrent.cache.ConcurrentCacheService;
+import com.microsoft.azure.oidc.concurrent.cache.impl.SimpleConcurrentCacheService;
+import com.microsoft.azure.oidc.exception.PreconditionException;
+import com.microsoft.azure.oidc.token.Token;
+import com.microsoft.azure.oidc.token.TokenCache;
+import com.microsoft.azure.oidc.token.TokenParser;
+import com.microsoft.azure.oidc.token.TokenValidator;
+
+/**
+ * Caches validated tokens by the SHA-256 digest of their raw value, so a token presented on every request of a
+ * session is only parsed and signature-checked once. An entry lives for the TTL of the "tokenCache" and is ignored
+ * as soon as the token itself expires, whichever comes first. Tokens failing validation are never cached.
+ */
+public class SimpleTokenCache implements TokenCache {
+    private static final TokenCache INSTANCE = new SimpleTokenCache();
+    private static final String CACHE_NAME = "tokenCache";
+
+    private final TokenParser tokenParser = SimpeTokenParser.getInstance();
+
+    private final TokenValidator tokenValidator = SimpleTokenValidator.getInstance();
+
+    private final ConcurrentCacheService concurrentCacheService = SimpleConcurrentCacheService.getInstance();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong verificationCount = new AtomicLong();
+
+    private final AtomicLong verificationTime = new AtomicLong();
+
+    @Override
+    public Token load(final String tokenString) {
+        if (tokenString == null) {
+            throw new PreconditionException("Required parameter is null");
+        }
+        final String key = DigestUtils.sha256Hex(tokenString);
+        final ConcurrentCache<String, Token> cache = concurrentCacheService.getCache(Token.class, CACHE_NAME);
+        final Token entry = cache == null ? null : cache.get(key);
+        if (entry != null && tokenValidator.validateExpiration(entry)) {
+            hitCount.incrementAndGet();
+            return entry;
+        }
+        missCount.incrementAndGet();
+        final long start = System.nanoTime();
+        final Token token = tokenParser.getToken(tokenString);
+        final Boolean isValid = tokenValidator.validateCommon(token);
+        verificationCount.incrementAndGet();
+        verificationTime.addAndGet(System.nanoTime() - start);
+        if (!isValid) {
+            return null;
+        }
+        if (cache != null && tokenValidator.validateExpiration(token)) {
+            cache.putIfAbsent(key, token);
+        }
+        return token;
+    }
+
+    @Override
+    public Long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public Long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public Double getHitRatio() {
+        final long hits = hitCount.get();
+        final long total = hits + missCount.get();
+        return total == 0 ? 0D : (double) hits / total;
+    }
+
+    /**
+     * @return average time in nanoseconds spent parsing and validating a token on a cache miss.
+     */
+    @Override
+    public Long getAverageVerificationTime() {
+        final long count = verificationCount.get();
+        return count == 0 ? 0L : verificationTime.get() / count;
+    }
+
+    public static TokenCache getInstance() {
+        return INSTANCE;
+    }
+}
@@ -45,6 +45,7 @@ import com.microsoft.azure.oidc.common.timestamp.impl.SimpleTimeStampFactory;
 import com.microsoft.azure.oidc.configuration.Configuration;
 import com.microsoft.azure.oidc.configuration.ConfigurationCache;
 import com.microsoft.azure.oidc.configuration.impl.SimpleConfigurationCache;
+import com.microsoft.azure.oidc.configuration.key.Key;
 import com.microsoft.azure.oidc.exception.GeneralException;
 import com.microsoft.azure.oidc.exception.PreconditionException;
 import com.microsoft.azure.oidc.filter.configuration.algorithm.AlgorithmConfigurationService;
@@ -76,16 +77,20 @@ public class SimpleTokenValidator implements TokenValidator {
         if (configuration == null) {
             throw new GeneralException("Error loading configuration");
         }
+        final Key key = configuration.getKey(token.getKeyName());
+        if (key == null) {
+            LOGGER.warn("Unknown signing key {}", token.getKeyName());
+            configurationCache.refreshForUnknownKey(token.getKeyName());
+            return Boolean.FALSE;
+        }
         try {
             final TimeStamp now = timeStampFactory.createTimeStamp(System.currentTimeMillis() / 1000);
-            if (configuration.getKey(token.getKeyName()).getNotBefore().compareTo(now) > 0) {
+            if (key.getNotBefore().compareTo(now) > 0) {
                 return Boolean.FALSE;
             }
             final Base64 decoder = new Base64();
-            final BigInteger exponent = new BigInteger(1,
-                    decoder.decode(configuration.getKey(token.getKeyName()).getExponent().getValue()));
-            final BigInteger modulus = new BigInteger(1,
-                    decoder.decode(configuration.getKey(token.getKeyName()).getSecret().getValue()));
+            final BigInteger exponent = new BigInteger(1, decoder.decode(key.getExponent().getValue()));
+            final BigInteger modulus = new BigInteger(1, decoder.decode(key.getSecret().getValue()));
             final RSAPublicKeySpec pubKeySpec = new RSAPublicKeySpec(modulus, exponent);
             final KeyFactory keyFactory = KeyFactory
                     .getInstance(algorithmConfigurationService.get().getAlgorithmClassMap().get(token.getAlgorithm().getName()));
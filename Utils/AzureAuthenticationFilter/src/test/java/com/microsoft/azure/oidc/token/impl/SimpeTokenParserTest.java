@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.oidc.token.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+import com.microsoft.azure.oidc.token.Token;
+
+public class SimpeTokenParserTest {
+    private static final String HEADER = "{\"alg\":\"RS256\",\"kid\":\"key-1\",\"x5c\":[\"a\",\"b\"]}";
+
+    @Test
+    public void testArrayAudienceBeforeExpiration() {
+        final Token token = parse(HEADER, "{\"aud\":[\"app-id\",\"other-app\"],"
+                + "\"nested\":{\"roles\":[1,{\"deep\":[true]}]},"
+                + "\"exp\":1900000000,\"nbf\":1500000000,\"iss\":\"https://issuer/\",\"oid\":\"user-1\","
+                + "\"emails\":[\"a@contoso.com\",\"b@contoso.com\"]}");
+
+        assertEquals("app-id", token.getAudience().getValue());
+        assertEquals(Long.valueOf(1900000000L), token.getExpiration().getTime());
+        assertEquals(Long.valueOf(1500000000L), token.getNotBefore().getTime());
+        assertEquals("https://issuer/", token.getIssuer().getName());
+        assertEquals("user-1", token.getUserID().getValue());
+        assertEquals(2, token.getUserEmails().size());
+        assertEquals("key-1", token.getKeyName().getName());
+    }
+
+    @Test
+    public void testObjectClaimsAreSkipped() {
+        final Token token = parse(HEADER, "{\"exp\":{\"not\":\"a number\"},\"groups\":{\"a\":[1]},"
+                + "\"aud\":\"app-id\",\"iss\":\"https://issuer/\",\"oid\":\"user-1\",\"emails\":[\"a@contoso.com\"]}");
+
+        assertEquals("app-id", token.getAudience().getValue());
+        assertEquals("https://issuer/", token.getIssuer().getName());
+        assertEquals(Long.valueOf(0L), token.getExpiration().getTime());
+        assertEquals(1, token.getUserEmails().size());
+    }
+
+    @Test
+    public void testMissingExpirationIsExpired() {
+        final Token token = parse(HEADER, "{\"aud\":\"app-id\",\"iss\":\"https://issuer/\",\"oid\":\"user-1\","
+                + "\"emails\":[\"a@contoso.com\"]}");
+
+        assertTrue(token.getExpiration().getTime() < System.currentTimeMillis() / 1000);
+    }
+
+    private static Token parse(final String header, final String body) {
+        final String value = encode(header) + "." + encode(body) + ".c2lnbmF0dXJl";
+        return SimpeTokenParser.getInstance().getToken(value);
+    }
+
+    private static String encode(final String json) {
+        return Base64.encodeBase64URLSafeString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
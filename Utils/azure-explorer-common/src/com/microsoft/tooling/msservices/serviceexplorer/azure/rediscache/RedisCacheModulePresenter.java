@@ -25,6 +25,7 @@ package com.microsoft.tooling.msservices.serviceexplorer.azure.rediscache;
 import com.microsoft.azure.management.redis.RedisCache;
 import com.microsoft.azure.management.redis.RedisCaches;
 import com.microsoft.azuretools.core.mvp.model.rediscache.AzureRedisMvpModel;
+import com.microsoft.azuretools.core.mvp.model.rediscache.RedisExplorerMvpModel;
 import com.microsoft.azuretools.core.mvp.ui.base.MvpPresenter;
 import com.microsoft.azuretools.core.mvp.ui.base.NodeContent;
 import com.microsoft.tooling.msservices.serviceexplorer.Node;
@@ -41,7 +42,8 @@ public class RedisCacheModulePresenter<V extends RedisCacheModule> extends MvpPr
     private final AzureRedisMvpModel azureRedisMvpModel = AzureRedisMvpModel.getInstance();
 
     /**
-     * Called from view when the view needs refresh.
+     * Called from view when the view needs refresh. The cached database information of every listed Redis Cache is
+     * dropped, so the next Redis Explorer opened reads it again.
      */
     public void onModuleRefresh() {
         final HashMap<String, ArrayList<NodeContent>> nodeMap = new HashMap<>();
@@ -49,6 +51,7 @@ public class RedisCacheModulePresenter<V extends RedisCacheModule> extends MvpPr
         for (final String sid : redisCachesMap.keySet()) {
             final ArrayList<NodeContent> nodeContentList = new ArrayList<>();
             for (final RedisCache redisCache : redisCachesMap.get(sid).list()) {
+                RedisExplorerMvpModel.getInstance().invalidateDatabaseInfo(redisCache.id());
                 nodeContentList
                     .add(new NodeContent(redisCache.id(), redisCache.name(), redisCache.provisioningState()));
             }
@@ -77,6 +80,7 @@ public class RedisCacheModulePresenter<V extends RedisCacheModule> extends MvpPr
             return;
         }
         azureRedisMvpModel.deleteRedisCache(sid, id);
+        RedisExplorerMvpModel.getInstance().invalidateDatabaseInfo(id);
         getMvpView().removeDirectChildNode(node);
     }
 }
@@ -26,14 +26,20 @@ import com.microsoft.azuretools.core.mvp.ui.base.MvpView;
 import com.microsoft.azuretools.core.mvp.ui.rediscache.RedisScanResult;
 import com.microsoft.azuretools.core.mvp.ui.rediscache.RedisValueData;
 
+import java.util.Map;
+
 public interface RedisExplorerMvpView extends MvpView {
 
-    void renderDbCombo(int num);
+    void renderDbCombo(int num, Map<Integer, Long> keyCounts);
 
     void showScanResult(RedisScanResult result);
 
+    void appendScanResult(RedisScanResult result);
+
     void showContent(RedisValueData val);
 
+    void appendContent(String key, RedisValueData val);
+
     void updateKeyList();
 
     void getKeyFail();
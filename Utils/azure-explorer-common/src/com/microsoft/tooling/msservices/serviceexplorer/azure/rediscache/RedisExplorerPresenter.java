@@ -37,13 +37,12 @@ import com.microsoft.azuretools.telemetrywrapper.Operation;
 import com.microsoft.azuretools.telemetrywrapper.TelemetryManager;
 import com.microsoft.tooling.msservices.components.DefaultLoader;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import redis.clients.jedis.ScanResult;
-import redis.clients.jedis.Tuple;
 import rx.Observable;
 
 public class RedisExplorerPresenter<V extends RedisExplorerMvpView> extends MvpPresenter<V> {
@@ -51,7 +50,17 @@ public class RedisExplorerPresenter<V extends RedisExplorerMvpView> extends MvpP
     private String sid;
     private String id;
 
+    // Type of each key listed by the latest scan, so selecting a listed key skips the TYPE round-trip.
+    private final Map<String, String> scannedKeyTypes = new ConcurrentHashMap<>();
+
+    // Incremented by every scan, so pages of a superseded scan are dropped and its SCAN loop stops.
+    private final AtomicInteger scanGeneration = new AtomicInteger();
+
+    // Incremented whenever the shown value is replaced, so values and pages read for an earlier selection are dropped.
+    private final AtomicInteger valueGeneration = new AtomicInteger();
+
     private static final String DEFAULT_SCAN_PATTERN = "*";
+    private static final int SCAN_KEY_LIMIT = 1000;
 
     private static final String CANNOT_GET_REDIS_INFO = "Cannot get Redis Cache's information.";
 
@@ -65,15 +74,15 @@ public class RedisExplorerPresenter<V extends RedisExplorerMvpView> extends MvpP
      */
     public void onReadDbNum() {
         Observable.fromCallable(() -> {
-            return RedisExplorerMvpModel.getInstance().getDbNumber(sid, id);
+            return RedisExplorerMvpModel.getInstance().getDatabaseInfo(sid, id);
         })
         .subscribeOn(getSchedulerProvider().io())
-        .subscribe(number -> {
+        .subscribe(info -> {
             DefaultLoader.getIdeHelper().invokeLater(() -> {
                 if (isViewDetached()) {
                     return;
                 }
-                getMvpView().renderDbCombo(number);
+                getMvpView().renderDbCombo(info.getDbCount(), info.getKeyCounts());
             });
         }, e -> {
             errorHandler(CANNOT_GET_REDIS_INFO, (Exception) e);
@@ -111,18 +120,37 @@ public class RedisExplorerPresenter<V extends RedisExplorerMvpView> extends MvpP
     public void onKeyList(int db, String cursor, String pattern) {
         Operation operation = TelemetryManager.createOperation(TelemetryConstants.REDIS, TelemetryConstants.REDIS_SCAN);
         operation.start();
+        int generation = scanGeneration.incrementAndGet();
+        valueGeneration.incrementAndGet();
+        scannedKeyTypes.clear();
         Observable.fromCallable(() -> {
-            return RedisExplorerMvpModel.getInstance().scanKeys(sid, id, db, cursor, pattern);
+            AtomicBoolean firstPage = new AtomicBoolean(true);
+            return RedisExplorerMvpModel.getInstance().scanKeysWithTypes(sid, id, db, cursor, pattern,
+                    RedisExplorerMvpModel.DEFAULT_SCAN_COUNT, SCAN_KEY_LIMIT, false,
+                    () -> isStaleScan(generation), page -> {
+                        if (isStaleScan(generation)) {
+                            return;
+                        }
+                        for (Entry<String, String> type : page.getKeyTypes().entrySet()) {
+                            scannedKeyTypes.put(typeCacheKey(db, type.getKey()), type.getValue());
+                        }
+                        boolean first = firstPage.getAndSet(false);
+                        RedisScanResult result = new RedisScanResult(page);
+                        DefaultLoader.getIdeHelper().invokeLater(() -> {
+                            if (isStaleScan(generation)) {
+                                return;
+                            }
+                            if (first) {
+                                getMvpView().showScanResult(result);
+                            } else {
+                                getMvpView().appendScanResult(result);
+                            }
+                        });
+                    });
         })
         .subscribeOn(getSchedulerProvider().io())
-        .subscribe(result -> {
-            DefaultLoader.getIdeHelper().invokeLater(() -> {
-                if (isViewDetached()) {
-                    return;
-                }
-                getMvpView().showScanResult(new RedisScanResult(result));
-                operation.complete();
-            });
+        .subscribe(nextCursor -> {
+            operation.complete();
         }, e -> {
             EventUtil.logError(operation, ErrorType.userError, new Exception(e), null, null);
             operation.complete();
@@ -133,6 +161,7 @@ public class RedisExplorerPresenter<V extends RedisExplorerMvpView> extends MvpP
     public void onGetKeyAndValue(int db, String key) {
         Operation operation = TelemetryManager.createOperation(TelemetryConstants.REDIS, TelemetryConstants.REDIS_GET);
         operation.start();
+        int generation = valueGeneration.incrementAndGet();
         Observable.fromCallable(() -> {
             boolean isExist = RedisExplorerMvpModel.getInstance().checkKeyExistance(sid, id, db, key);
             if (!isExist) {
@@ -144,7 +173,8 @@ public class RedisExplorerPresenter<V extends RedisExplorerMvpView> extends MvpP
         .subscribeOn(getSchedulerProvider().io())
         .subscribe(result -> {
             DefaultLoader.getIdeHelper().invokeLater(() -> {
-                if (isViewDetached()) {
+                if (isStaleValue(generation)) {
+                    operation.complete();
                     return;
                 }
                 if (result == null) {
@@ -175,13 +205,14 @@ public class RedisExplorerPresenter<V extends RedisExplorerMvpView> extends MvpP
      *            target key name for Redis Cache
      */
     public void onkeySelect(int db, String key) {
+        int generation = valueGeneration.incrementAndGet();
         Observable.fromCallable(() -> {
             return getValueByKey(db, key);
         })
         .subscribeOn(getSchedulerProvider().io())
         .subscribe(result -> {
             DefaultLoader.getIdeHelper().invokeLater(() -> {
-                if (isViewDetached()) {
+                if (isStaleValue(generation)) {
                     return;
                 }
                 if (result == null) {
@@ -195,6 +226,37 @@ public class RedisExplorerPresenter<V extends RedisExplorerMvpView> extends MvpP
         });
     }
 
+    /**
+     * Called when the value table is scrolled near the end of the rows loaded so far.
+     *
+     * @param db
+     *            index of Redis Cache database
+     * @param key
+     *            target key name for Redis Cache
+     * @param type
+     *            type of the key
+     * @param cursor
+     *            next cursor of the previously shown page
+     */
+    public void onValuePage(int db, String key, RedisKeyType type, String cursor) {
+        int generation = valueGeneration.get();
+        Observable.fromCallable(() -> {
+            return RedisExplorerMvpModel.getInstance().readValuePage(sid, id, db, key, type, cursor,
+                    RedisExplorerMvpModel.DEFAULT_VALUE_PAGE_SIZE);
+        })
+        .subscribeOn(getSchedulerProvider().io())
+        .subscribe(page -> {
+            DefaultLoader.getIdeHelper().invokeLater(() -> {
+                if (isStaleValue(generation)) {
+                    return;
+                }
+                getMvpView().appendContent(key, new RedisValueData(page));
+            });
+        }, e -> {
+            errorHandler(CANNOT_GET_REDIS_INFO, (Exception) e);
+        });
+    }
+
     /**
      * Called when the jedis pool needs to be released.
      *
@@ -211,42 +273,30 @@ public class RedisExplorerPresenter<V extends RedisExplorerMvpView> extends MvpP
     }
 
     private RedisValueData getValueByKey(int db, String key) throws Exception {
-        String type = RedisExplorerMvpModel.getInstance().getKeyType(sid, id, db, key).toUpperCase();
-        ArrayList<String[]> columnData = new ArrayList<String[]>();
-        switch (RedisKeyType.valueOf(type)) {
-            case STRING:
-                String stringVal = RedisExplorerMvpModel.getInstance().getStringValue(sid, id, db, key);
-                columnData.add(new String[] { stringVal });
-                return new RedisValueData(columnData, RedisKeyType.STRING);
-            case LIST:
-                List<String> listVal = RedisExplorerMvpModel.getInstance().getListValue(sid, id, db, key);
-                for (int i = 0; i < listVal.size(); i++) {
-                    columnData.add(new String[] { String.valueOf(i + 1), listVal.get(i) });
-                }
-                return new RedisValueData(columnData, RedisKeyType.LIST);
-            case SET:
-                ScanResult<String> setVal = RedisExplorerMvpModel.getInstance().getSetValue(sid, id, db, key,
-                        SCAN_POINTER_START);
-                for (String row : setVal.getResult()) {
-                    columnData.add(new String[] { row });
-                }
-                return new RedisValueData(columnData, RedisKeyType.SET);
-            case ZSET:
-                Set<Tuple> zsetVal = RedisExplorerMvpModel.getInstance().getZSetValue(sid, id, db, key);
-                for (Tuple tuple : zsetVal) {
-                    columnData.add(new String[] { String.valueOf(tuple.getScore()), tuple.getElement() });
-                }
-                return new RedisValueData(columnData, RedisKeyType.ZSET);
-            case HASH:
-                ScanResult<Entry<String, String>> hashVal = RedisExplorerMvpModel.getInstance().getHashValue(sid,
-                        id, db, key, SCAN_POINTER_START);
-                for (Entry<String, String> hash : hashVal.getResult()) {
-                    columnData.add(new String[] { hash.getKey(), hash.getValue() });
-                }
-                return new RedisValueData(columnData, RedisKeyType.HASH);
-            default:
-                return null;
+        String type = scannedKeyTypes.remove(typeCacheKey(db, key));
+        if (type == null) {
+            type = RedisExplorerMvpModel.getInstance().getKeyType(sid, id, db, key);
+        }
+        RedisKeyType keyType = RedisKeyType.valueOf(type.toUpperCase());
+        if (keyType == RedisKeyType.NONE) {
+            return null;
         }
+        return new RedisValueData(RedisExplorerMvpModel.getInstance().readValuePage(sid, id, db, key, keyType,
+                SCAN_POINTER_START, RedisExplorerMvpModel.DEFAULT_VALUE_PAGE_SIZE));
+    }
+
+    // A newer scan was started, or the view is gone: pages of this scan must not reach the view any more.
+    private boolean isStaleScan(int generation) {
+        return generation != scanGeneration.get() || isViewDetached();
+    }
+
+    // Another key, database or scan was selected since the value was requested.
+    private boolean isStaleValue(int generation) {
+        return generation != valueGeneration.get() || isViewDetached();
+    }
+
+    private static String typeCacheKey(int db, String key) {
+        return db + ":" + key;
     }
 
     private void errorHandler(String msg, Exception e) {
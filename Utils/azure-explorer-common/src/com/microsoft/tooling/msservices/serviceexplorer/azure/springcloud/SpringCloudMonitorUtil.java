@@ -26,6 +26,7 @@ import com.microsoft.azure.common.utils.SneakyThrowUtils;
 import com.microsoft.azure.management.appplatform.v2020_07_01.DeploymentResourceStatus;
 import com.microsoft.azure.management.appplatform.v2020_07_01.implementation.AppResourceInner;
 import com.microsoft.azure.management.appplatform.v2020_07_01.implementation.DeploymentResourceInner;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskContextExecutorService;
 import com.microsoft.azuretools.core.mvp.model.springcloud.AzureSpringCloudMvpModel;
 import com.microsoft.azuretools.core.mvp.model.springcloud.SpringCloudIdHelper;
 import org.apache.commons.lang3.ArrayUtils;
@@ -43,7 +44,8 @@ public class SpringCloudMonitorUtil {
 
     public static void awaitAndMonitoringStatus(String appId, DeploymentResourceStatus originalStatus) {
         String clusterId = getParentSegment(appId);
-        ExecutorService executor = Executors.newSingleThreadExecutor();
+        // polls on its own thread, keep the ARM calls attributed to the operation that started the monitoring
+        ExecutorService executor = AzureTaskContextExecutorService.wrap(Executors.newSingleThreadExecutor());
         Future future = executor.submit(() -> {
             DeploymentResourceStatus status = null;
             do {
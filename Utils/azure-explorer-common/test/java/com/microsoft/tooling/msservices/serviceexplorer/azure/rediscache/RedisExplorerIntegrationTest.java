@@ -137,7 +137,7 @@ public class RedisExplorerIntegrationTest extends IntegrationTestBase {
     public void testOnDbSelect() throws Exception {
         redisExplorerPresenter.onReadDbNum();
         testSchedulerProvider.triggerActions();
-        verify(redisExplorerMvpViewMock).renderDbCombo(Mockito.anyInt());
+        verify(redisExplorerMvpViewMock).renderDbCombo(Mockito.anyInt(), Mockito.anyMap());
     }
 
     @Test
@@ -22,12 +22,20 @@
 
 package com.microsoft.tooling.msservices.serviceexplorer.azure.rediscache;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Map.Entry;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import org.junit.After;
 import org.junit.Before;
@@ -39,8 +47,12 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import com.microsoft.azuretools.azurecommons.helpers.RedisKeyType;
 import com.microsoft.azuretools.core.mvp.model.rediscache.RedisConnectionPools;
+import com.microsoft.azuretools.core.mvp.model.rediscache.RedisDatabaseInfo;
 import com.microsoft.azuretools.core.mvp.model.rediscache.RedisExplorerMvpModel;
+import com.microsoft.azuretools.core.mvp.model.rediscache.RedisKeyPage;
+import com.microsoft.azuretools.core.mvp.model.rediscache.RedisValuePage;
 import com.microsoft.azuretools.core.mvp.ui.base.SchedulerProviderFactory;
 import com.microsoft.azuretools.core.mvp.ui.base.TestSchedulerProvider;
 import com.microsoft.azuretools.core.mvp.ui.rediscache.RedisScanResult;
@@ -48,9 +60,6 @@ import com.microsoft.azuretools.core.mvp.ui.rediscache.RedisValueData;
 import com.microsoft.tooling.msservices.components.DefaultLoader;
 import com.microsoft.tooling.msservices.helpers.IDEHelper;
 
-import redis.clients.jedis.ScanResult;
-import redis.clients.jedis.Tuple;
-
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({
     RedisExplorerMvpModel.class,
@@ -66,21 +75,20 @@ public class RedisExplorerPresenterTest {
     @Mock
     private RedisExplorerMvpModel redisExplorerMvpModelMock;
 
-    @Mock
-    private ScanResult<String> stringScanResultMock;
-
-    @Mock
-    private ScanResult<Entry<String, String>> entryScanResultMock;
-
-    @Mock
-    private RedisScanResult redisScanResultMock;
-
     @Mock
     private RedisConnectionPools redisConnectionPoolsMock;
 
     private RedisExplorerPresenter<RedisExplorerMvpView> redisExplorerPresenter = new RedisExplorerPresenter<RedisExplorerMvpView>();
     private TestSchedulerProvider testSchedulerProvider = new TestSchedulerProvider();
+    private List<Runnable> uiTasks = new ArrayList<>();
     private IDEHelper mockIDEHelper = new MockIDEHelper();
+    private IDEHelper deferringIDEHelper = new MockIDEHelper() {
+        @Override
+        public void invokeLater(Runnable runnable) {
+            uiTasks.add(runnable);
+        }
+    };
+    private List<BooleanSupplier> scanCancellations = new ArrayList<>();
 
     private final static String MOCK_SUBSCRIPTION = "00000000-0000-0000-0000-000000000000";
     private final static String MOCK_ID = "test-id";
@@ -110,18 +118,19 @@ public class RedisExplorerPresenterTest {
 
     @Test
     public void testOnReadDbNum() throws Exception {
-        when(redisExplorerMvpModelMock.getDbNumber(MOCK_SUBSCRIPTION, MOCK_ID)).thenReturn(0);
+        Map<Integer, Long> keyCounts = Collections.singletonMap(MOCK_DB, 3L);
+        when(redisExplorerMvpModelMock.getDatabaseInfo(MOCK_SUBSCRIPTION, MOCK_ID))
+                .thenReturn(new RedisDatabaseInfo(0, keyCounts, 0));
         redisExplorerPresenter.onReadDbNum();
 
         testSchedulerProvider.triggerActions();
-        verify(redisExplorerMvpViewMock).renderDbCombo(MOCK_DB);
+        verify(redisExplorerMvpViewMock).renderDbCombo(MOCK_DB, keyCounts);
     }
 
     @Test
     public void testOnDbSelect() throws Exception {
-        when(redisExplorerMvpModelMock.scanKeys(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_CURSOR, MOCK_PATTERN)).thenReturn(stringScanResultMock);
+        mockScanKeysWithTypes(MOCK_PATTERN, page(true));
         redisExplorerPresenter.onDbSelect(MOCK_DB);
-        PowerMockito.whenNew(RedisScanResult.class).withAnyArguments().thenReturn(redisScanResultMock);
 
         testSchedulerProvider.triggerActions();
         verify(redisExplorerMvpViewMock).showScanResult(Mockito.any(RedisScanResult.class));
@@ -129,18 +138,57 @@ public class RedisExplorerPresenterTest {
 
     @Test
     public void testOnKeyList() throws Exception {
-        when(redisExplorerMvpModelMock.scanKeys(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_CURSOR, MOCK_PATTERN)).thenReturn(stringScanResultMock);
+        mockScanKeysWithTypes(MOCK_PATTERN, page(false), page(true));
         redisExplorerPresenter.onKeyList(MOCK_DB, MOCK_CURSOR, MOCK_PATTERN);
-        PowerMockito.whenNew(RedisScanResult.class).withAnyArguments().thenReturn(redisScanResultMock);
 
         testSchedulerProvider.triggerActions();
         verify(redisExplorerMvpViewMock).showScanResult(Mockito.any(RedisScanResult.class));
+        verify(redisExplorerMvpViewMock).appendScanResult(Mockito.any(RedisScanResult.class));
+    }
+
+    @Test
+    public void testNewScanCancelsPreviousScan() throws Exception {
+        mockScanKeysWithTypes(MOCK_PATTERN, page(true));
+        redisExplorerPresenter.onKeyList(MOCK_DB, MOCK_CURSOR, MOCK_PATTERN);
+        testSchedulerProvider.triggerActions();
+        redisExplorerPresenter.onKeyList(MOCK_DB, MOCK_CURSOR, MOCK_PATTERN);
+        testSchedulerProvider.triggerActions();
+
+        assertEquals(2, scanCancellations.size());
+        assertTrue(scanCancellations.get(0).getAsBoolean());
+        assertFalse(scanCancellations.get(1).getAsBoolean());
+    }
+
+    @Test
+    public void testPagesOfSupersededScanAreDropped() throws Exception {
+        when(DefaultLoader.getIdeHelper()).thenReturn(deferringIDEHelper);
+        mockScanKeysWithTypes(MOCK_PATTERN, page(true));
+        redisExplorerPresenter.onKeyList(MOCK_DB, MOCK_CURSOR, MOCK_PATTERN);
+        testSchedulerProvider.triggerActions();
+        redisExplorerPresenter.onKeyList(MOCK_DB, MOCK_CURSOR, MOCK_PATTERN);
+        testSchedulerProvider.triggerActions();
+
+        assertEquals(2, uiTasks.size());
+        uiTasks.forEach(Runnable::run);
+        verify(redisExplorerMvpViewMock, times(1)).showScanResult(Mockito.any(RedisScanResult.class));
+    }
+
+    @Test
+    public void testOnKeySelectUsesScannedType() throws Exception {
+        mockScanKeysWithTypes(MOCK_PATTERN, page(true));
+        mockValuePage(RedisKeyType.STRING);
+        redisExplorerPresenter.onKeyList(MOCK_DB, MOCK_CURSOR, MOCK_PATTERN);
+        redisExplorerPresenter.onkeySelect(MOCK_DB, MOCK_KEY);
+
+        testSchedulerProvider.triggerActions();
+        verify(redisExplorerMvpModelMock, never()).getKeyType(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY);
+        verify(redisExplorerMvpViewMock).showContent(Mockito.any(RedisValueData.class));
     }
 
     @Test
     public void testOnkeySelectWithStringKey() throws Exception {
         when(redisExplorerMvpModelMock.getKeyType(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn(TYPE_STRING);
-        when(redisExplorerMvpModelMock.getStringValue(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn("");
+        mockValuePage(RedisKeyType.STRING);
 
         redisExplorerPresenter.onkeySelect(MOCK_DB, MOCK_KEY);
         testSchedulerProvider.triggerActions();
@@ -150,7 +198,7 @@ public class RedisExplorerPresenterTest {
     @Test
     public void testOnkeySelectWithListKey() throws Exception {
         when(redisExplorerMvpModelMock.getKeyType(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn(TYPE_LIST);
-        when(redisExplorerMvpModelMock.getListValue(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn(new ArrayList<String>());
+        mockValuePage(RedisKeyType.LIST);
 
         redisExplorerPresenter.onkeySelect(MOCK_DB, MOCK_KEY);
         testSchedulerProvider.triggerActions();
@@ -160,7 +208,7 @@ public class RedisExplorerPresenterTest {
     @Test
     public void testOnkeySelectWithSetKey() throws Exception {
         when(redisExplorerMvpModelMock.getKeyType(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn(TYPE_SET);
-        when(redisExplorerMvpModelMock.getSetValue(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY, MOCK_CURSOR)).thenReturn(stringScanResultMock);
+        mockValuePage(RedisKeyType.SET);
 
         redisExplorerPresenter.onkeySelect(MOCK_DB, MOCK_KEY);
         testSchedulerProvider.triggerActions();
@@ -170,7 +218,7 @@ public class RedisExplorerPresenterTest {
     @Test
     public void testOnkeySelectWithZSetKey() throws Exception {
         when(redisExplorerMvpModelMock.getKeyType(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn(TYPE_ZSET);
-        when(redisExplorerMvpModelMock.getZSetValue(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn(new HashSet<Tuple>());
+        mockValuePage(RedisKeyType.ZSET);
 
         redisExplorerPresenter.onkeySelect(MOCK_DB, MOCK_KEY);
         testSchedulerProvider.triggerActions();
@@ -180,10 +228,38 @@ public class RedisExplorerPresenterTest {
     @Test
     public void testOnkeySelectWithHashKey() throws Exception {
         when(redisExplorerMvpModelMock.getKeyType(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn(TYPE_HASH);
-        when(redisExplorerMvpModelMock.getHashValue(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY, MOCK_CURSOR)).thenReturn(entryScanResultMock);
+        mockValuePage(RedisKeyType.HASH);
+
+        redisExplorerPresenter.onkeySelect(MOCK_DB, MOCK_KEY);
+        testSchedulerProvider.triggerActions();
+        verify(redisExplorerMvpViewMock).showContent(Mockito.any(RedisValueData.class));
+    }
+
+    @Test
+    public void testOnValuePage() throws Exception {
+        mockValuePage(RedisKeyType.LIST);
+
+        redisExplorerPresenter.onValuePage(MOCK_DB, MOCK_KEY, RedisKeyType.LIST, "500");
+        testSchedulerProvider.triggerActions();
+        verify(redisExplorerMvpModelMock).readValuePage(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY,
+                RedisKeyType.LIST, "500", RedisExplorerMvpModel.DEFAULT_VALUE_PAGE_SIZE);
+        verify(redisExplorerMvpViewMock).appendContent(Mockito.eq(MOCK_KEY), Mockito.any(RedisValueData.class));
+    }
 
+    @Test
+    public void testValuePageOfPreviousSelectionIsDropped() throws Exception {
+        when(DefaultLoader.getIdeHelper()).thenReturn(deferringIDEHelper);
+        when(redisExplorerMvpModelMock.getKeyType(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn(TYPE_LIST);
+        mockValuePage(RedisKeyType.LIST);
+
+        redisExplorerPresenter.onValuePage(MOCK_DB, MOCK_KEY, RedisKeyType.LIST, "500");
+        testSchedulerProvider.triggerActions();
         redisExplorerPresenter.onkeySelect(MOCK_DB, MOCK_KEY);
         testSchedulerProvider.triggerActions();
+
+        assertEquals(2, uiTasks.size());
+        uiTasks.forEach(Runnable::run);
+        verify(redisExplorerMvpViewMock, never()).appendContent(Mockito.anyString(), Mockito.any(RedisValueData.class));
         verify(redisExplorerMvpViewMock).showContent(Mockito.any(RedisValueData.class));
     }
 
@@ -191,7 +267,7 @@ public class RedisExplorerPresenterTest {
     public void testOnGetKeyAndValue() throws Exception {
         when(redisExplorerMvpModelMock.checkKeyExistance(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn(true);
         when(redisExplorerMvpModelMock.getKeyType(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn(TYPE_STRING);
-        when(redisExplorerMvpModelMock.getStringValue(MOCK_SUBSCRIPTION, MOCK_ID, MOCK_DB, MOCK_KEY)).thenReturn("");
+        mockValuePage(RedisKeyType.STRING);
 
         redisExplorerPresenter.onGetKeyAndValue(MOCK_DB, MOCK_KEY);
         testSchedulerProvider.triggerActions();
@@ -217,6 +293,31 @@ public class RedisExplorerPresenterTest {
         verify(redisConnectionPoolsMock).releasePool(Mockito.eq(MOCK_ID));
     }
 
+    private void mockValuePage(RedisKeyType type) throws Exception {
+        when(redisExplorerMvpModelMock.readValuePage(Mockito.eq(MOCK_SUBSCRIPTION), Mockito.eq(MOCK_ID),
+                Mockito.eq(MOCK_DB), Mockito.eq(MOCK_KEY), Mockito.eq(type), Mockito.anyString(), Mockito.anyInt()))
+                .thenReturn(new RedisValuePage(type, new ArrayList<String[]>(), MOCK_CURSOR, 0));
+    }
+
+    private RedisKeyPage page(boolean last) {
+        return new RedisKeyPage(Collections.singletonList(MOCK_KEY), Collections.singletonMap(MOCK_KEY, TYPE_STRING),
+                Collections.emptyMap(), last ? MOCK_CURSOR : "5", last);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockScanKeysWithTypes(String pattern, RedisKeyPage... pages) throws Exception {
+        when(redisExplorerMvpModelMock.scanKeysWithTypes(Mockito.eq(MOCK_SUBSCRIPTION), Mockito.eq(MOCK_ID),
+                Mockito.eq(MOCK_DB), Mockito.anyString(), Mockito.eq(pattern), Mockito.anyInt(), Mockito.anyInt(),
+                Mockito.anyBoolean(), Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+                    scanCancellations.add((BooleanSupplier) invocation.getArguments()[8]);
+                    Consumer<RedisKeyPage> consumer = (Consumer<RedisKeyPage>) invocation.getArguments()[9];
+                    for (RedisKeyPage page : pages) {
+                        consumer.accept(page);
+                    }
+                    return MOCK_CURSOR;
+                });
+    }
+
     @After
     public void tearDown() {
         redisExplorerPresenter.onDetachView();
@@ -29,6 +29,7 @@ import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.*;
 import org.aspectj.lang.reflect.MethodSignature;
 
+import java.lang.reflect.Method;
 import java.util.Objects;
 
 @Aspect
@@ -67,8 +68,8 @@ public final class AzureOperationAspect {
 
     private static AzureOperationRef exitOperation(JoinPoint point) {
         final AzureOperationRef current = toOperationRef(point);
+        AzurePerformanceMetricsCollector.afterExit(current);
         final AzureOperationRef operation = (AzureOperationRef) AzureTaskContext.current().popOperation();
-        AzurePerformanceMetricsCollector.afterExit(operation);
         assert Objects.equals(current, operation) : String.format("popped operation[%s] is not the exiting operation[%s]", current, operation);
         return operation;
     }
@@ -77,11 +78,14 @@ public final class AzureOperationAspect {
         final MethodSignature signature = (MethodSignature) point.getSignature();
         final Object[] args = point.getArgs();
         final Object instance = point.getThis();
+        final Method method = signature.getMethod();
+        final String[] paramNames = signature.getParameterNames();
         return AzureOperationRef.builder()
             .instance(instance)
-            .method(signature.getMethod())
-            .paramNames(signature.getParameterNames())
+            .method(method)
+            .paramNames(paramNames)
             .paramValues(args)
+            .metadata(AzureOperationMetadata.of(method, paramNames))
             .build();
     }
 }
@@ -23,11 +23,14 @@
 package com.microsoft.azure.toolkit.lib.common.operation;
 
 import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import lombok.AccessLevel;
 import lombok.Getter;
 
 @Getter
 public class AzureOperationException extends AzureToolkitRuntimeException {
     private final AzureOperationRef operation;
+    @Getter(AccessLevel.NONE)
+    private transient volatile String message;
 
     AzureOperationException(final AzureOperationRef operation, final Throwable cause) {
         this(operation, cause, null);
@@ -42,7 +45,20 @@ public class AzureOperationException extends AzureToolkitRuntimeException {
     }
 
     AzureOperationException(final AzureOperationRef operation, final Throwable cause, final String action, final String actionId) {
-        super(AzureOperationUtils.getOperationTitle(operation), cause, action, actionId);
+        super(null, cause, action, actionId);
         this.operation = operation;
     }
+
+    /**
+     * the operation title is rendered on first access rather than when the exception is thrown.
+     */
+    @Override
+    public String getMessage() {
+        String result = this.message;
+        if (result == null) {
+            result = AzureOperationUtils.getOperationTitle(this.operation);
+            this.message = result;
+        }
+        return result;
+    }
 }
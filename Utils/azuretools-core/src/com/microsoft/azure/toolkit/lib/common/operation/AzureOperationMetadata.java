@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.operation;
+
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import lombok.Getter;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.jtwig.JtwigModel;
+import org.jtwig.JtwigTemplate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Everything about an {@link AzureOperation} method that does not change between invocations: the annotation,
+ * the parsed title parameters with their resolved parameter indexes/fields and their compiled templates.
+ * Resolved once per {@link Method}, so entering an operation costs a map lookup and titles are only rendered
+ * when asked for.
+ */
+@Getter
+public final class AzureOperationMetadata {
+    private static final Map<Method, AzureOperationMetadata> cache = new ConcurrentHashMap<>();
+
+    private final Method method;
+    private final AzureOperation annotation;
+    private final String name;
+    private final String type;
+    private final boolean action;
+    private final ParamExpression[] params;
+
+    private AzureOperationMetadata(final Method method, final String[] paramNames) {
+        this.method = method;
+        this.annotation = method.getAnnotation(AzureOperation.class);
+        this.name = this.annotation.value();
+        this.type = this.annotation.type().name();
+        this.action = this.annotation.type() == AzureOperation.Type.ACTION;
+        this.params = Arrays.stream(this.annotation.params())
+            .map(expression -> new ParamExpression(expression, paramNames))
+            .toArray(ParamExpression[]::new);
+    }
+
+    public static AzureOperationMetadata of(final Method method, final String[] paramNames) {
+        final AzureOperationMetadata metadata = cache.get(method);
+        if (Objects.nonNull(metadata)) {
+            return metadata;
+        }
+        return cache.computeIfAbsent(method, m -> new AzureOperationMetadata(m, paramNames));
+    }
+
+    public String renderTitle(final Object instance, final Object[] paramValues) {
+        final Object[] values = new Object[this.params.length];
+        for (int i = 0; i < this.params.length; i++) {
+            values[i] = this.params[i].render(instance, paramValues);
+        }
+        return String.format(this.name, values);
+    }
+
+    /**
+     * one entry of {@link AzureOperation#params()}: '$param.path' refers to a method parameter,
+     * '@field.path' to a member variable of the target instance, anything else is a literal.
+     */
+    private static final class ParamExpression {
+        private final String expression;
+        private final boolean literal;
+        private final int paramIndex;
+        @Nullable
+        private final String fieldName;
+        private final String variable;
+        private final Map<Class<?>, Optional<Field>> fields = new ConcurrentHashMap<>();
+        private volatile JtwigTemplate template;
+
+        private ParamExpression(final String expression, final String[] paramNames) {
+            this.expression = expression;
+            final boolean isParam = StringUtils.startsWith(expression, "$");
+            final boolean isField = StringUtils.startsWith(expression, "@");
+            this.literal = !isParam && !isField;
+            final String fixedExpression = StringUtils.substring(expression, 1).trim();
+            this.variable = fixedExpression.split("[\\s|.]")[0].trim();
+            this.paramIndex = isParam ? ArrayUtils.indexOf(paramNames, this.variable) : -1;
+            this.fieldName = isField ? this.variable : null;
+        }
+
+        @Nullable
+        private String render(final Object instance, final Object[] paramValues) {
+            if (this.literal) {
+                return this.expression;
+            }
+            final Object object = Objects.nonNull(this.fieldName) ? this.getFieldValue(instance) :
+                (this.paramIndex >= 0 && this.paramIndex < paramValues.length ? paramValues[this.paramIndex] : null);
+            if (Objects.isNull(object)) {
+                return null;
+            }
+            return this.getTemplate().render(JtwigModel.newModel().with(this.variable, object));
+        }
+
+        @Nullable
+        private Object getFieldValue(final Object instance) {
+            if (Objects.isNull(instance)) {
+                return null;
+            }
+            final Optional<Field> field = this.fields.computeIfAbsent(instance.getClass(),
+                c -> Optional.ofNullable(FieldUtils.getField(c, this.fieldName, true)));
+            try {
+                return field.isPresent() ? field.get().get(instance) : null;
+            } catch (IllegalArgumentException | IllegalAccessException e) {
+                // swallow exception while get variables
+                return null;
+            }
+        }
+
+        private JtwigTemplate getTemplate() {
+            JtwigTemplate result = this.template;
+            if (Objects.isNull(result)) {
+                final String fixedExpression = StringUtils.substring(this.expression, 1).trim();
+                result = JtwigTemplate.inlineTemplate(String.format("{{%s}}", fixedExpression), AzureOperationUtils.jgConfig);
+                this.template = result;
+            }
+            return result;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import lombok.Getter;
 
 import java.lang.reflect.Method;
 import java.util.Objects;
+import java.util.Optional;
 
 @Getter
 @Builder
@@ -36,6 +37,7 @@ public class AzureOperationRef implements IAzureOperation {
     private final String[] paramNames;
     private final Object[] paramValues;
     private final Object instance;
+    private final AzureOperationMetadata metadata;
 
     @Override
     public boolean equals(final Object obj) {
@@ -48,18 +50,19 @@ public class AzureOperationRef implements IAzureOperation {
 
     @Override
     public String toString() {
-        final AzureOperation annotation = AzureOperationUtils.getAnnotation(this);
-        return String.format("{title:'%s', method:%s}", annotation.value(), method.getName());
+        return String.format("{title:'%s', method:%s}", this.getName(), method.getName());
+    }
+
+    public AzureOperationMetadata getMetadata() {
+        return Optional.ofNullable(this.metadata).orElseGet(() -> AzureOperationMetadata.of(this.method, this.paramNames));
     }
 
     public String getName() {
-        final AzureOperation annotation = AzureOperationUtils.getAnnotation(this);
-        return annotation.value();
+        return this.getMetadata().getName();
     }
 
     public String getType() {
-        final AzureOperation annotation = AzureOperationUtils.getAnnotation(this);
-        return annotation.type().name();
+        return this.getMetadata().getType();
     }
 
     public String getId() {
@@ -24,75 +24,21 @@ package com.microsoft.azure.toolkit.lib.common.operation;
 
 import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.reflect.FieldUtils;
-import org.jtwig.JtwigModel;
-import org.jtwig.JtwigTemplate;
 import org.jtwig.environment.EnvironmentConfiguration;
 import org.jtwig.environment.EnvironmentConfigurationBuilder;
 import org.jtwig.functions.FunctionRequest;
 import org.jtwig.functions.SimpleJtwigFunction;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Map;
-
 public class AzureOperationUtils {
     private static final Uri2NameFunction toName = new Uri2NameFunction();
     public static final EnvironmentConfiguration jgConfig = EnvironmentConfigurationBuilder.configuration().functions().add(toName).and().build();
 
     public static AzureOperation getAnnotation(@NotNull AzureOperationRef ref) {
-        final Method method = ref.getMethod();
-        return method.getAnnotation(AzureOperation.class);
+        return ref.getMetadata().getAnnotation();
     }
 
     public static String getOperationTitle(@NotNull AzureOperationRef ref) {
-        final AzureOperation annotation = AzureOperationUtils.getAnnotation(ref);
-        final String messageTemplate = annotation.value();
-        final String[] parameters = annotation.params();
-        final String[] params = Arrays.stream(parameters).map(expression -> interpretExpression(expression, ref)).toArray(String[]::new);
-        return String.format(messageTemplate, (Object[]) params);
-    }
-
-    private static String interpretExpression(String expression, AzureOperationRef ref) {
-        final String[] paramNames = ref.getParamNames();
-        final Object[] paramValues = ref.getParamValues();
-        final Object targetInstance = ref.getInstance();
-        final String fixedExpression = StringUtils.substring(expression, 1).trim();
-        final String parameterName = fixedExpression.split("[\\s|.]")[0].trim();
-        Object object = null;
-        if (StringUtils.startsWith(expression, "$")) {
-            // process parameter
-            final int parameterIndex = ArrayUtils.indexOf(paramNames, parameterName);
-            if (parameterIndex >= 0) {
-                object = paramValues[parameterIndex];
-            } else {
-                object = null;
-            }
-        } else if (StringUtils.startsWith(expression, "@")) {
-            // member variables
-            final Field variableField = FieldUtils.getField(targetInstance.getClass(), parameterName, true);
-            try {
-                if (variableField != null) {
-                    object = variableField.get(targetInstance);
-                }
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                // swallow exception while get variables
-            }
-        } else {
-            return expression;
-        }
-        return object != null ? interpretInline(fixedExpression, Collections.singletonMap(parameterName, object)) : null;
-    }
-
-    private static String interpretInline(String expr, Map<String, Object> variableMap) {
-        final JtwigTemplate template = JtwigTemplate.inlineTemplate(String.format("{{%s}}", expr), jgConfig);
-        final JtwigModel model = JtwigModel.newModel();
-        variableMap.forEach(model::with);
-        return template.render(model);
+        return ref.getMetadata().renderTitle(ref.getInstance(), ref.getParamValues());
     }
 
     private static class Uri2NameFunction extends SimpleJtwigFunction {
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.performance;
+
+import com.microsoft.azure.toolkit.lib.common.operation.IAzureOperation;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An open operation: created on enter, recorded into {@link AzureOperationSpanRecorder} on exit.
+ * Composite ids are derived from the parent span instead of walking the operation stack.
+ */
+@Getter
+public final class AzureOperationSpan {
+    private static final String ACTION = "ACTION";
+    private static final int MAX_INTERNED_NAMES = 4096;
+    private static final Map<String, String> names = new ConcurrentHashMap<>();
+
+    private final IAzureOperation operation;
+    @Nullable
+    private final AzureOperationSpan parent;
+    private final String id;
+    private final String compositeId;
+    private final String name;
+    private final String type;
+    private final long startNanos;
+    private final Thread thread; // thread on which the operation was entered
+
+    // watched by AzureOperationWatchdog: set on exit, and linked into its pending stack or timer wheel bucket.
+    @Getter(AccessLevel.NONE)
+    volatile boolean closed;
+    @Getter(AccessLevel.NONE)
+    AzureOperationSpan next;
+    @Getter(AccessLevel.NONE)
+    long rounds;
+
+    AzureOperationSpan(final IAzureOperation operation, @Nullable final AzureOperationSpan parent, final long startNanos) {
+        this.operation = operation;
+        this.parent = parent;
+        this.id = operation.getId();
+        this.name = internName(operation.getName());
+        this.type = operation.getType();
+        this.compositeId = (Objects.isNull(parent) ? "" : parent.getChildPrefix()) + "/" + this.id;
+        this.startNanos = startNanos;
+        this.thread = Thread.currentThread();
+    }
+
+    void close() {
+        this.closed = true;
+    }
+
+    public String getParentId() {
+        return Objects.isNull(this.parent) ? "/" : this.parent.id;
+    }
+
+    /**
+     * composite ids of children start from the nearest ancestor (inclusive) of ACTION type.
+     */
+    private String getChildPrefix() {
+        return ACTION.equals(this.type) ? "/" + this.id : this.compositeId;
+    }
+
+    /**
+     * mask the parameters out of the operation name, e.g. 'deploy web app(***)'.
+     */
+    static String internName(final String raw) {
+        final String name = names.get(raw);
+        if (Objects.nonNull(name)) {
+            return name;
+        }
+        final String masked = raw.replaceAll("\\(.+\\)", "(***)");
+        if (names.size() < MAX_INTERNED_NAMES) {
+            names.putIfAbsent(raw, masked);
+        }
+        return masked;
+    }
+}
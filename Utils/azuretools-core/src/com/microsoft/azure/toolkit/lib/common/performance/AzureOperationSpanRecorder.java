@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.performance;
+
+import com.microsoft.azuretools.telemetry.AppInsightsClient;
+import com.microsoft.azuretools.telemetry.TelemetryPipeline;
+import com.microsoft.azuretools.telemetry.TelemetryPolicy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.java.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+
+/**
+ * Records finished {@link AzureOperationSpan}s into a preallocated ring buffer. The ring is drained periodically
+ * into per-name {@link LatencyHistogram}s, which are emitted as one PERFORMANCE telemetry event per name.
+ * Recording never allocates or blocks; spans are dropped if the ring wraps before it is drained.
+ */
+@Log
+public final class AzureOperationSpanRecorder {
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final long DEFAULT_EMIT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long DRAIN_INTERVAL_MILLIS = 1000;
+    private static final long WRITING = -1;
+
+    private static final String TELEMETRY_OP_NAME = "name";
+    private static final String TELEMETRY_OP_TYPE = "type";
+    private static final String TELEMETRY_DROPPED = "dropped";
+
+    private final int mask;
+    private final String[] ids;
+    private final String[] parentIds;
+    private final String[] compositeIds;
+    private final String[] names;
+    private final String[] types;
+    private final long[] starts;
+    private final long[] ends;
+    // per slot: sequence + 1 of the span stored in it, 0 if empty, WRITING while being written.
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final BiConsumer<Map<String, String>, Map<String, Double>> emitter;
+    private final List<Exporter> exporters = new CopyOnWriteArrayList<>();
+    private final Map<String, LatencyHistogram> histograms = new HashMap<>();
+    private final Map<String, String[]> histogramKeys = new HashMap<>();
+    private final long baseNanos = System.nanoTime();
+    private final long baseMillis = System.currentTimeMillis();
+    private long drained;
+    private long dropped;
+
+    AzureOperationSpanRecorder(final int capacity, final BiConsumer<Map<String, String>, Map<String, Double>> emitter) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        this.mask = size - 1;
+        this.ids = new String[size];
+        this.parentIds = new String[size];
+        this.compositeIds = new String[size];
+        this.names = new String[size];
+        this.types = new String[size];
+        this.starts = new long[size];
+        this.ends = new long[size];
+        this.published = new AtomicLongArray(size);
+        this.emitter = emitter;
+    }
+
+    private static final class RecorderHolder {
+        private static final AzureOperationSpanRecorder INSTANCE = create();
+
+        private static AzureOperationSpanRecorder create() {
+            final AzureOperationSpanRecorder recorder = new AzureOperationSpanRecorder(DEFAULT_CAPACITY,
+                (properties, metrics) -> AppInsightsClient.create(TelemetryPolicy.PERFORMANCE, null, properties, metrics));
+            CsvSpanExporter.fromSystemProperty().ifPresent(recorder::addExporter);
+            // one event per operation name and emit interval, already bounded and not to be dropped by the default limit
+            final TelemetryPolicy policy = TelemetryPipeline.getInstance().getPolicy();
+            if (Objects.nonNull(policy)) {
+                policy.setRateLimit(TelemetryPolicy.PERFORMANCE, 0, 0);
+            }
+            final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "azure-operation-span-recorder");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(recorder::drainQuietly, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            scheduler.scheduleWithFixedDelay(recorder::emitQuietly, DEFAULT_EMIT_INTERVAL_MILLIS, DEFAULT_EMIT_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+            return recorder;
+        }
+    }
+
+    public static AzureOperationSpanRecorder getInstance() {
+        return RecorderHolder.INSTANCE;
+    }
+
+    public void record(final AzureOperationSpan span, final long endNanos) {
+        final long seq = this.claimed.getAndIncrement();
+        final int slot = (int) (seq & this.mask);
+        this.published.set(slot, WRITING);
+        this.ids[slot] = span.getId();
+        this.parentIds[slot] = span.getParentId();
+        this.compositeIds[slot] = span.getCompositeId();
+        this.names[slot] = span.getName();
+        this.types[slot] = span.getType();
+        this.starts[slot] = span.getStartNanos();
+        this.ends[slot] = endNanos;
+        this.published.lazySet(slot, seq + 1);
+    }
+
+    public void addExporter(final Exporter exporter) {
+        this.exporters.add(exporter);
+    }
+
+    public void removeExporter(final Exporter exporter) {
+        this.exporters.remove(exporter);
+    }
+
+    /**
+     * move finished spans from the ring into the histograms and exporters.
+     */
+    public synchronized void drain() {
+        final long end = this.claimed.get();
+        if (end - this.drained > this.mask + 1) {
+            this.dropped += end - this.drained - this.mask - 1;
+            this.drained = end - this.mask - 1;
+        }
+        final List<Record> records = this.exporters.isEmpty() ? null : new ArrayList<>();
+        for (; this.drained < end; this.drained++) {
+            final int slot = (int) (this.drained & this.mask);
+            final long expected = this.drained + 1;
+            final long before = this.published.get(slot);
+            if (before == WRITING || before < expected) {
+                break; // claimed but not yet written, pick it up next time.
+            }
+            final String name = this.names[slot];
+            final String type = this.types[slot];
+            final long start = this.starts[slot];
+            final long duration = this.ends[slot] - start;
+            final Record record = Objects.isNull(records) ? null : new Record(this.compositeIds[slot], this.ids[slot],
+                this.parentIds[slot], name, type, this.baseMillis + TimeUnit.NANOSECONDS.toMillis(start - this.baseNanos), duration);
+            if (before != expected || this.published.get(slot) != expected) {
+                this.dropped++; // overwritten by a later span while (or before) reading.
+                continue;
+            }
+            final String key = type + '|' + name;
+            this.histograms.computeIfAbsent(key, k -> {
+                this.histogramKeys.put(k, new String[]{name, type});
+                return new LatencyHistogram();
+            }).record(duration);
+            if (Objects.nonNull(record)) {
+                records.add(record);
+            }
+        }
+        if (Objects.nonNull(records) && !records.isEmpty()) {
+            for (final Exporter exporter : this.exporters) {
+                exporter.export(records);
+            }
+        }
+    }
+
+    /**
+     * drain and emit one event per operation name with its latency histogram, then reset the histograms.
+     */
+    public synchronized void emit() {
+        this.drain();
+        for (final Map.Entry<String, LatencyHistogram> entry : this.histograms.entrySet()) {
+            final String[] key = this.histogramKeys.get(entry.getKey());
+            final Map<String, String> properties = new HashMap<>();
+            properties.put(TELEMETRY_OP_NAME, key[0]);
+            properties.put(TELEMETRY_OP_TYPE, key[1]);
+            final Map<String, Double> metrics = entry.getValue().toMetrics();
+            metrics.put(TELEMETRY_DROPPED, (double) this.dropped);
+            this.emitter.accept(properties, metrics);
+        }
+        this.histograms.clear();
+        this.histogramKeys.clear();
+        this.dropped = 0;
+    }
+
+    synchronized long getDroppedCount() {
+        return this.dropped;
+    }
+
+    private void drainQuietly() {
+        try {
+            this.drain();
+        } catch (final RuntimeException e) {
+            log.log(Level.WARNING, "failed to drain operation spans", e);
+        }
+    }
+
+    private void emitQuietly() {
+        try {
+            this.emit();
+        } catch (final RuntimeException e) {
+            log.log(Level.WARNING, "failed to emit operation latencies", e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class Record {
+        private final String compositeId;
+        private final String id;
+        private final String parentId;
+        private final String name;
+        private final String type;
+        private final long startMillis;
+        private final long durationNanos;
+    }
+
+    /**
+     * optional per-span sink, invoked from the draining thread with the spans drained in one pass.
+     */
+    public interface Exporter {
+        void export(List<Record> spans);
+    }
+}
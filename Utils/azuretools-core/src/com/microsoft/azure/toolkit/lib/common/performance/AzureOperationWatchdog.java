@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.performance;
+
+import com.microsoft.azuretools.authmanage.CommonSettings;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Reports operations which stay open longer than {@value #THRESHOLD_PROPERTY} milliseconds, 30s by default and 0 to
+ * disable. Entered spans are pushed to a lock-free stack and only flagged on exit, a single thread moves the open
+ * ones into a hashed timer wheel, so an operation finishing within a tick costs one CAS and is never touched again.
+ * A stalled operation is reported once, with its parent operations and the stack of the thread which entered it, to
+ * the log and to a report file ({@value #REPORT_PROPERTY}) rolled over at {@link #DEFAULT_MAX_REPORT_BYTES}.
+ */
+@Log
+public final class AzureOperationWatchdog {
+    public static final String THRESHOLD_PROPERTY = "azure.toolkit.operation.stall.threshold";
+    public static final String REPORT_PROPERTY = "azure.toolkit.operation.stall.report";
+    public static final long DEFAULT_THRESHOLD_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    public static final long DEFAULT_MAX_REPORT_BYTES = 1024 * 1024;
+    static final long TICK_MILLIS = 250;
+    static final int WHEEL_SIZE = 256;
+    private static final int MAX_REPORTS_PER_TICK = 8;
+    private static final int MAX_STACK_FRAMES = 64;
+    private static final String REPORT_FILE_NAME = "operation-stalls.log";
+
+    private final long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+    private final AzureOperationSpan[] wheel = new AzureOperationSpan[WHEEL_SIZE];
+    private final AtomicReference<AzureOperationSpan> pending = new AtomicReference<>();
+    private final AtomicLong stalls = new AtomicLong();
+    private final Supplier<File> reportFile;
+    private final long maxReportBytes;
+    private final long baseNanos;
+    private volatile long thresholdNanos;
+    // only accessed while advancing the wheel
+    private final List<AzureOperationSpan> stalled = new ArrayList<>();
+    private long tick;
+
+    AzureOperationWatchdog(final long thresholdMillis, final Supplier<File> reportFile, final long maxReportBytes, final long baseNanos) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.reportFile = reportFile;
+        this.maxReportBytes = maxReportBytes;
+        this.baseNanos = baseNanos;
+    }
+
+    private static final class WatchdogHolder {
+        private static final AzureOperationWatchdog INSTANCE = create();
+
+        private static AzureOperationWatchdog create() {
+            final long threshold = Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD_MILLIS);
+            final AzureOperationWatchdog watchdog = new AzureOperationWatchdog(threshold, AzureOperationWatchdog::defaultReportFile,
+                DEFAULT_MAX_REPORT_BYTES, System.nanoTime());
+            final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "azure-operation-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(watchdog::advanceQuietly, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+            return watchdog;
+        }
+    }
+
+    public static AzureOperationWatchdog getInstance() {
+        return WatchdogHolder.INSTANCE;
+    }
+
+    /**
+     * Watch an entered span until {@link AzureOperationSpan#close()} is called on exit.
+     */
+    public void watch(final AzureOperationSpan span) {
+        if (this.thresholdNanos <= 0) {
+            return;
+        }
+        AzureOperationSpan head;
+        do {
+            head = this.pending.get();
+            span.next = head;
+        } while (!this.pending.compareAndSet(head, span));
+    }
+
+    /**
+     * Applies to operations entered afterwards, 0 stops watching.
+     */
+    public void setThresholdMillis(final long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    public long getStallCount() {
+        return this.stalls.get();
+    }
+
+    private void advanceQuietly() {
+        try {
+            this.advance(System.nanoTime());
+        } catch (final RuntimeException e) {
+            log.log(Level.WARNING, "failed to check stalled operations", e);
+        }
+    }
+
+    synchronized void advance(final long nowNanos) {
+        final long target = Math.floorDiv(nowNanos - this.baseNanos, this.tickNanos);
+        while (this.tick < target) {
+            this.tick++;
+            this.expire((int) (this.tick & (WHEEL_SIZE - 1)));
+        }
+        this.schedulePending();
+        if (!this.stalled.isEmpty()) {
+            this.report(nowNanos);
+            this.stalled.clear();
+        }
+    }
+
+    private void expire(final int slot) {
+        AzureOperationSpan span = this.wheel[slot];
+        AzureOperationSpan kept = null;
+        while (Objects.nonNull(span)) {
+            final AzureOperationSpan next = span.next;
+            span.next = null;
+            if (!span.closed) {
+                if (span.rounds > 0) {
+                    span.rounds--;
+                    span.next = kept;
+                    kept = span;
+                } else {
+                    this.stalled.add(span);
+                }
+            }
+            span = next;
+        }
+        this.wheel[slot] = kept;
+    }
+
+    private void schedulePending() {
+        AzureOperationSpan span = this.pending.getAndSet(null);
+        final long threshold = this.thresholdNanos;
+        while (Objects.nonNull(span)) {
+            final AzureOperationSpan next = span.next;
+            span.next = null;
+            if (!span.closed) {
+                // first tick at which the span has been open for the threshold.
+                final long due = -Math.floorDiv(this.baseNanos - span.getStartNanos() - threshold, this.tickNanos);
+                if (due <= this.tick) {
+                    this.stalled.add(span);
+                } else {
+                    final int slot = (int) (due & (WHEEL_SIZE - 1));
+                    span.rounds = (due - this.tick - 1) / WHEEL_SIZE;
+                    span.next = this.wheel[slot];
+                    this.wheel[slot] = span;
+                }
+            }
+            span = next;
+        }
+    }
+
+    private void report(final long nowNanos) {
+        this.stalls.addAndGet(this.stalled.size());
+        final StringBuilder reports = new StringBuilder();
+        final int count = Math.min(this.stalled.size(), MAX_REPORTS_PER_TICK);
+        for (int i = 0; i < count; i++) {
+            final AzureOperationSpan span = this.stalled.get(i);
+            final Thread thread = span.getThread();
+            final StackTraceElement[] stack = thread.getStackTrace();
+            if (span.closed) {
+                continue; // finished while we were looking
+            }
+            log.warning(() -> String.format("operation[%s] on thread[%s] is open for %s", span.getName(), thread.getName(),
+                formatDuration(nowNanos - span.getStartNanos())));
+            appendReport(reports, span, thread, stack, nowNanos);
+        }
+        if (this.stalled.size() > count) {
+            reports.append(String.format("... %d more stalled operations not reported%n%n", this.stalled.size() - count));
+        }
+        if (reports.length() > 0) {
+            this.write(reports.toString());
+        }
+    }
+
+    private static void appendReport(final StringBuilder out, final AzureOperationSpan span, final Thread thread,
+                             final StackTraceElement[] stack, final long nowNanos) {
+        out.append(String.format("=== %s operation[%s] open for %s%n", Instant.now(), span.getName(),
+            formatDuration(nowNanos - span.getStartNanos())));
+        out.append("operations (innermost first):").append(System.lineSeparator());
+        for (AzureOperationSpan s = span; Objects.nonNull(s); s = s.getParent()) {
+            out.append(String.format("  %s [%s] id:%s, open for %s%n", s.getName(), s.getType(), s.getId(),
+                formatDuration(nowNanos - s.getStartNanos())));
+        }
+        out.append(String.format("thread[%s] id:%d, state:%s%n", thread.getName(), thread.getId(), thread.getState()));
+        final int frames = Math.min(stack.length, MAX_STACK_FRAMES);
+        for (int i = 0; i < frames; i++) {
+            out.append("    at ").append(stack[i]).append(System.lineSeparator());
+        }
+        if (stack.length > frames) {
+            out.append(String.format("    ... %d more%n", stack.length - frames));
+        }
+        out.append(System.lineSeparator());
+    }
+
+    private void write(final String reports) {
+        final File file = this.reportFile.get();
+        if (Objects.isNull(file)) {
+            return;
+        }
+        final Path path = file.toPath();
+        final byte[] bytes = reports.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (Files.exists(path) && Files.size(path) + bytes.length > this.maxReportBytes) {
+                Files.move(path, path.resolveSibling(path.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.write(path, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (final IOException e) {
+            log.log(Level.WARNING, String.format("failed to write stall report to %s", file), e);
+        }
+    }
+
+    private static String formatDuration(final long nanos) {
+        return String.format(Locale.ROOT, "%.1f s", nanos / 1_000_000_000.0);
+    }
+
+    private static File defaultReportFile() {
+        final String path = System.getProperty(REPORT_PROPERTY);
+        if (Objects.nonNull(path) && !path.isEmpty()) {
+            return new File(path);
+        }
+        final String baseDir = CommonSettings.getSettingsBaseDir();
+        return Objects.isNull(baseDir) ? null : new File(baseDir, REPORT_FILE_NAME);
+    }
+}
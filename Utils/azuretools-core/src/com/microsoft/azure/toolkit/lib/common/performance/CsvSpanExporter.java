@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.performance;
+
+import com.microsoft.applicationinsights.core.dependencies.apachecommons.io.FileUtils;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.logging.Level;
+
+/**
+ * Appends finished spans to a local csv file, enabled by {@value #PROPERTY}: either a file path or 'true' for
+ * '~/performance.csv'.
+ */
+@Log
+final class CsvSpanExporter implements AzureOperationSpanRecorder.Exporter {
+    static final String PROPERTY = "azure.toolkit.performance.csv";
+
+    private final File file;
+
+    CsvSpanExporter(final File file) {
+        this.file = file;
+    }
+
+    static Optional<CsvSpanExporter> fromSystemProperty() {
+        final String value = System.getProperty(PROPERTY);
+        if (value == null || value.isEmpty() || "false".equalsIgnoreCase(value)) {
+            return Optional.empty();
+        }
+        final String path = "true".equalsIgnoreCase(value) ? System.getProperty("user.home") + "/performance.csv" : value;
+        return Optional.of(new CsvSpanExporter(new File(path)));
+    }
+
+    @Override
+    public void export(final List<AzureOperationSpanRecorder.Record> spans) {
+        final StringBuilder lines = new StringBuilder();
+        for (final AzureOperationSpanRecorder.Record span : spans) {
+            lines.append(String.format(Locale.ROOT, "%s, %s, %s, %s, %s, %.3f, %s",
+                span.getCompositeId(),
+                span.getStartMillis(),
+                span.getId(),
+                span.getName(),
+                span.getType(),
+                span.getDurationNanos() / 1_000_000.0,
+                span.getParentId()
+            )).append(System.lineSeparator());
+        }
+        try {
+            FileUtils.writeStringToFile(this.file, lines.toString(), StandardCharsets.UTF_8, true);
+        } catch (final IOException e) {
+            log.log(Level.WARNING, String.format("failed to export spans to %s", this.file), e);
+        }
+    }
+}
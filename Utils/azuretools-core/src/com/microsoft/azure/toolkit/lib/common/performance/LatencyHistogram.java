@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.performance;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histogram with power-of-two microsecond buckets, percentiles are reported as bucket upper bounds.
+ * Not thread safe, only touched by the recorder while draining.
+ */
+final class LatencyHistogram {
+    private static final int BUCKETS = 40;
+
+    private final long[] buckets = new long[BUCKETS];
+    private long count;
+    private long totalNanos;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos;
+
+    void record(final long nanos) {
+        final long duration = Math.max(0, nanos);
+        final long micros = TimeUnit.NANOSECONDS.toMicros(duration);
+        final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        this.buckets[bucket]++;
+        this.count++;
+        this.totalNanos += duration;
+        this.minNanos = Math.min(this.minNanos, duration);
+        this.maxNanos = Math.max(this.maxNanos, duration);
+    }
+
+    long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return upper bound of the bucket holding the given percentile, in milliseconds, capped by the max.
+     */
+    double percentileMillis(final double percentile) {
+        final long rank = (long) Math.ceil(this.count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.buckets[i];
+            if (seen >= rank && seen > 0) {
+                final long upperMicros = (1L << i) - 1;
+                return Math.min(upperMicros / 1000.0, toMillis(this.maxNanos));
+            }
+        }
+        return toMillis(this.maxNanos);
+    }
+
+    Map<String, Double> toMetrics() {
+        final Map<String, Double> metrics = new HashMap<>();
+        metrics.put("count", (double) this.count);
+        metrics.put("total_ms", toMillis(this.totalNanos));
+        metrics.put("min_ms", this.count == 0 ? 0 : toMillis(this.minNanos));
+        metrics.put("max_ms", toMillis(this.maxNanos));
+        metrics.put("p50_ms", this.percentileMillis(50));
+        metrics.put("p90_ms", this.percentileMillis(90));
+        metrics.put("p99_ms", this.percentileMillis(99));
+        return metrics;
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.task;
+
+import com.microsoft.azure.toolkit.lib.common.operation.IAzureOperation;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Immutable operation stack (a cons-list), innermost operation first. Pushing shares the existing frames, so a
+ * context can capture the whole stack of its origin by reference instead of copying it.
+ */
+public final class AzureOperationStack implements Iterable<IAzureOperation> {
+    public static final AzureOperationStack EMPTY = new AzureOperationStack(null, null);
+
+    @Nullable
+    private final IAzureOperation head;
+    @Nullable
+    private final AzureOperationStack tail;
+    private final int depth;
+
+    private AzureOperationStack(@Nullable final IAzureOperation head, @Nullable final AzureOperationStack tail) {
+        this.head = head;
+        this.tail = tail;
+        this.depth = Objects.isNull(tail) ? 0 : tail.depth + 1;
+    }
+
+    public AzureOperationStack push(final IAzureOperation operation) {
+        return new AzureOperationStack(operation, this);
+    }
+
+    public AzureOperationStack pop() {
+        if (this.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return this.tail;
+    }
+
+    @Nullable
+    public IAzureOperation peek() {
+        return this.head;
+    }
+
+    public boolean isEmpty() {
+        return this.depth == 0;
+    }
+
+    public int depth() {
+        return this.depth;
+    }
+
+    @Override
+    public Iterator<IAzureOperation> iterator() {
+        return new Iterator<IAzureOperation>() {
+            private AzureOperationStack current = AzureOperationStack.this;
+
+            @Override
+            public boolean hasNext() {
+                return !this.current.isEmpty();
+            }
+
+            @Override
+            public IAzureOperation next() {
+                if (this.current.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                final IAzureOperation operation = this.current.head;
+                this.current = this.current.tail;
+                return operation;
+            }
+        };
+    }
+}
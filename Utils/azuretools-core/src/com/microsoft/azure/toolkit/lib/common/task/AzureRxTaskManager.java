@@ -25,20 +25,62 @@ package com.microsoft.azure.toolkit.lib.common.task;
 import rx.Completable;
 import rx.Observable;
 import rx.Single;
+import rx.functions.Action0;
 import rx.functions.Func1;
 import rx.plugins.RxJavaHooks;
 
 import java.util.Objects;
 
 public class AzureRxTaskManager {
+    public static final String PROPAGATION_PROPERTY = "azure.toolkit.task.context.propagation";
     private static boolean registered = false;
 
-    @SuppressWarnings("rawtypes")
+    public enum Propagation {
+        /**
+         * wrap every Rx source (including internal operator sources) at creation, the context is captured per operator.
+         */
+        CREATE,
+        /**
+         * wrap only actions scheduled on a {@link rx.Scheduler}, the context is captured at real thread hops.
+         * Work handed to plain executors should go through {@link AzureTaskContextExecutorService}.
+         */
+        SCHEDULE
+    }
+
+    /**
+     * register with the propagation given by system property {@value #PROPAGATION_PROPERTY}, {@link Propagation#CREATE} by default.
+     */
     public static synchronized void register() {
+        final String value = System.getProperty(PROPAGATION_PROPERTY);
+        register(Propagation.SCHEDULE.name().equalsIgnoreCase(value) ? Propagation.SCHEDULE : Propagation.CREATE);
+    }
+
+    public static synchronized void register(final Propagation propagation) {
         if (registered) {
             throw new IllegalStateException("rx task manager has already been registered.");
         }
         registered = true;
+        if (propagation == Propagation.SCHEDULE) {
+            registerScheduleHook();
+        } else {
+            registerCreateHooks();
+        }
+    }
+
+    private static void registerScheduleHook() {
+        final Func1<Action0, Action0> oldScheduleHook = RxJavaHooks.getOnScheduleAction();
+        RxJavaHooks.setOnScheduleAction(action -> {
+            final AzureTaskContext.Node context = AzureTaskContext.current().derive();
+            final Action0 withClosure = () -> AzureTaskContext.run(action::call, context);
+            if (Objects.isNull(oldScheduleHook)) {
+                return withClosure;
+            }
+            return oldScheduleHook.call(withClosure);
+        });
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static void registerCreateHooks() {
         final Func1<Observable.OnSubscribe, Observable.OnSubscribe> oldObservableCreateHooks = RxJavaHooks.getOnObservableCreate();
         final Func1<Single.OnSubscribe, Single.OnSubscribe> oldSingleCreateHooks = RxJavaHooks.getOnSingleCreate();
         final Func1<Completable.OnSubscribe, Completable.OnSubscribe> oldCompletableCreateHooks = RxJavaHooks.getOnCompletableCreate();
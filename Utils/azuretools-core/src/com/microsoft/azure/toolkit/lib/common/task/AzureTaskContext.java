@@ -24,6 +24,7 @@ package com.microsoft.azure.toolkit.lib.common.task;
 
 import com.microsoft.azure.toolkit.lib.common.handler.AzureExceptionHandler;
 import com.microsoft.azure.toolkit.lib.common.operation.IAzureOperation;
+import com.microsoft.azure.toolkit.lib.common.performance.AzureOperationSpan;
 import com.microsoft.azure.toolkit.lib.common.performance.AzurePerformanceMetricsCollector;
 import com.microsoft.azure.toolkit.lib.common.utils.Utils;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
@@ -33,8 +34,6 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.java.Log;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -43,36 +42,34 @@ public abstract class AzureTaskContext {
     private static final ThreadLocal<AzureTaskContext.Node> context = new ThreadLocal<>();
 
     protected long threadId = -1;
-    protected final Deque<IAzureOperation> operations;
+    // whole operation stack of this context, including the frames inherited from its parent/origin.
+    protected AzureOperationStack operations;
+    protected AzureOperationSpan span; // innermost span opened in this context or inherited from its parent/origin
 
     private AzureTaskContext() {
-        this.operations = new ArrayDeque<>();
+        this.operations = AzureOperationStack.EMPTY;
     }
 
-    private AzureTaskContext(final long threadId, final Deque<IAzureOperation> operations) {
+    private AzureTaskContext(final long threadId, final AzureOperationStack operations, @Nullable final AzureOperationSpan span) {
         this.operations = operations;
+        this.span = span;
         this.threadId = threadId;
     }
 
-    public Deque<IAzureOperation> getOperations() {
-        return new ArrayDeque<>(this.operations);
+    public AzureOperationStack getOperations() {
+        return this.operations;
     }
 
-    public static Deque<IAzureOperation> getContextOperations(AzureTaskContext.Node node) {
-        final Deque<IAzureOperation> ops = new ArrayDeque<>(node.operations);
-        AzureTaskContext parent = node.parent;
-        while (Objects.nonNull(parent)) {
-            ops.addAll(parent.operations);
-            if (parent instanceof AzureTaskContext.Node) {
-                parent = ((Node) parent).parent;
-            } else {
-                break;
-            }
-        }
-        return ops;
+    public static AzureOperationStack getContextOperations(AzureTaskContext.Node node) {
+        return node.operations;
+    }
+
+    @Nullable
+    public static AzureOperationSpan getContextSpan(AzureTaskContext.Node node) {
+        return node.span;
     }
 
-    public static Deque<IAzureOperation> getContextOperations() {
+    public static AzureOperationStack getContextOperations() {
         return getContextOperations(AzureTaskContext.current());
     }
 
@@ -97,8 +94,8 @@ public abstract class AzureTaskContext {
             AzureExceptionHandler.onRxException(throwable);
         } finally {
             Optional.ofNullable(context.getTask()).ifPresent(task -> {
-                final IAzureOperation popped = AzureTaskContext.current().popOperation();
                 AzurePerformanceMetricsCollector.afterExit(task);
+                final IAzureOperation popped = AzureTaskContext.current().popOperation();
                 assert Objects.equals(task, popped) : String.format("popped op[%s] is not the exiting async task[%s]", popped, task);
             });
             context.dispose();
@@ -124,25 +121,34 @@ public abstract class AzureTaskContext {
         private Node(final AzureTaskContext parent) {
             super();
             this.parent = parent;
+            if (Objects.nonNull(parent)) {
+                this.operations = parent.operations;
+                this.span = parent.span;
+            }
         }
 
         public boolean isOrphan() {
             return Objects.isNull(this.parent);
         }
 
+        public void setSpan(@Nullable final AzureOperationSpan span) {
+            this.span = span;
+        }
+
         public void pushOperation(final IAzureOperation operation) {
             if (this.isOrphan()) {
-                log.warning(String.format("orphan context[%s] is setup", this));
+                log.warning(() -> String.format("orphan context[%s] is setup", this));
             }
-            this.operations.push(operation);
+            this.operations = this.operations.push(operation);
         }
 
         @Nullable
         public IAzureOperation popOperation() {
-            final IAzureOperation popped = this.operations.pop();
+            final IAzureOperation popped = this.operations.peek();
+            this.operations = this.operations.pop();
             if (this.isOrphan() && this.operations.isEmpty()) {
                 AzureTaskContext.context.remove();
-                log.warning(String.format("orphan context[%s] is disposed", this));
+                log.warning(() -> String.format("orphan context[%s] is disposed", this));
             }
             return popped;
         }
@@ -170,6 +176,8 @@ public abstract class AzureTaskContext {
             this.async = threadId != current.threadId;
             if (threadId == current.threadId) { // this task runs in the same thread as parent.
                 this.parent = current;
+                this.operations = current.operations;
+                this.span = current.span;
             }
             AzureTaskContext.context.set(this);
         }
@@ -212,7 +220,7 @@ public abstract class AzureTaskContext {
         private final AzureTaskContext.Node origin; // snapshot refers original context
 
         private Snapshot(@NotNull final AzureTaskContext.Node origin) {
-            super(origin.threadId, AzureTaskContext.getContextOperations(origin));
+            super(origin.threadId, origin.operations, origin.span);
             this.origin = origin;
         }
 
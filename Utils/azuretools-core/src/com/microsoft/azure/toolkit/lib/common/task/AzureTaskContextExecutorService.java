@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.task;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates an {@link ExecutorService} so that submitted work runs in a context derived from the submitting
+ * thread's {@link AzureTaskContext}, i.e. the operation stack is carried across the thread hop.
+ * A failure of the work is rethrown once its context is disposed, so it reaches the delegate as usual, e.g. the
+ * uncaught exception handler of the worker thread, instead of {@link AzureTaskContext#run}'s exception handler.
+ */
+public final class AzureTaskContextExecutorService extends AbstractExecutorService {
+    private final ExecutorService delegate;
+
+    private AzureTaskContextExecutorService(final ExecutorService delegate) {
+        this.delegate = delegate;
+    }
+
+    public static ExecutorService wrap(final ExecutorService executor) {
+        if (executor instanceof AzureTaskContextExecutorService) {
+            return executor;
+        }
+        return new AzureTaskContextExecutorService(executor);
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        final AzureTaskContext.Node context = AzureTaskContext.current().derive();
+        this.delegate.execute(() -> {
+            final Throwable[] failure = new Throwable[1];
+            AzureTaskContext.run(() -> {
+                try {
+                    command.run();
+                } catch (final Throwable throwable) {
+                    failure[0] = throwable;
+                }
+            }, context);
+            if (failure[0] instanceof RuntimeException) {
+                throw (RuntimeException) failure[0];
+            } else if (failure[0] instanceof Error) {
+                throw (Error) failure[0];
+            } else if (failure[0] != null) {
+                throw new UndeclaredThrowableException(failure[0]);
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        this.delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return this.delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return this.delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return this.delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return this.delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -22,7 +22,6 @@
 
 package com.microsoft.azure.toolkit.lib.common.task;
 
-import com.microsoft.azure.toolkit.lib.common.performance.AzurePerformanceMetricsCollector;
 import lombok.extern.java.Log;
 import rx.Emitter;
 import rx.Observable;
@@ -258,7 +257,6 @@ public abstract class AzureTaskManager {
             final AzureTaskContext.Node context = AzureTaskContext.current().derive();
             task.setContext(context);
             context.setTask(task);
-            AzurePerformanceMetricsCollector.afterCreate(task);
             final Runnable t = () -> AzureTaskContext.run(() -> {
                 try {
                     emitter.onNext(task.getSupplier().get());
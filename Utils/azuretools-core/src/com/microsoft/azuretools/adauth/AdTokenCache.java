@@ -25,12 +25,17 @@ package com.microsoft.azuretools.adauth;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 final class AdTokenCache {
     private final Map<TokenCacheKey, AdTokenCacheEntry> tokenCacheDictionary;
+    // secondary indexes keyed by the (clientId, userId) part of the key
+    private final Map<TokenCacheKey, Map<TokenCacheKey, AdTokenCacheEntry>> userClientIndex;
+    private final Map<TokenCacheKey, Map<TokenCacheKey, AdTokenCacheEntry>> mrrtIndex;
 
     static AdTokenCache getInstance() {
         return SingletonHandler.INSTANCE;
@@ -40,10 +45,14 @@ final class AdTokenCache {
      * add an entry to cache.
      * @param entry AdTokenCacheEntry.
      */
-    void add(@NotNull AdTokenCacheEntry entry) {
+    synchronized void add(@NotNull AdTokenCacheEntry entry) {
         TokenCacheKey key = createKeyFromEntry(entry);
         if (key != null) {
-            tokenCacheDictionary.put(key, entry);
+            AdTokenCacheEntry previous = tokenCacheDictionary.put(key, entry);
+            if (previous != null) {
+                unindex(key);
+            }
+            index(key, entry);
         }
     }
 
@@ -77,19 +86,24 @@ final class AdTokenCache {
      * remove the entry from cache.
      * @param entry AdTokenCacheEntry to be removed.
      */
-    void remove(@NotNull final AdTokenCacheEntry entry) {
+    synchronized void remove(@NotNull final AdTokenCacheEntry entry) {
         TokenCacheKey key = createKeyFromEntry(entry);
         if (null == key) {
             return;
         }
-        tokenCacheDictionary.remove(key);
+        AdTokenCacheEntry removed = tokenCacheDictionary.remove(key);
+        if (removed != null) {
+            unindex(key);
+        }
     }
 
     /**
      * clear the cache.
      */
-    void clear() {
+    synchronized void clear() {
         this.tokenCacheDictionary.clear();
+        this.userClientIndex.clear();
+        this.mrrtIndex.clear();
     }
 
     /**
@@ -104,29 +118,95 @@ final class AdTokenCache {
         }
     }
 
+    /**
+     * look up the entry stored under exactly this key.
+     * @param key TokenCacheKey.
+     * @return AdTokenCacheEntry or null.
+     */
+    AdTokenCacheEntry get(@NotNull final TokenCacheKey key) {
+        return tokenCacheDictionary.get(key);
+    }
+
     /**
      * query the cache.
+     * Queries naming both a client and a user are answered from the secondary indexes,
+     * anything else falls back to a scan of the whole cache.
      * @param key TokenCacheKey.
      * @param isMrrt Boolean.
      * @return List of AdTokenCacheEntry.
      */
     List<AdTokenCacheEntry> query(@NotNull final TokenCacheKey key, final Boolean isMrrt) {
         List<AdTokenCacheEntry> entryList = new ArrayList<AdTokenCacheEntry>();
-        tokenCacheDictionary.forEach((k, v) -> {
+        if (key.getClientId().isEmpty() || key.getUserId().isEmpty()) {
+            collect(tokenCacheDictionary, key, isMrrt, entryList);
+            return entryList;
+        }
+
+        Map<TokenCacheKey, Map<TokenCacheKey, AdTokenCacheEntry>> index =
+                Boolean.TRUE.equals(isMrrt) ? mrrtIndex : userClientIndex;
+        Map<TokenCacheKey, AdTokenCacheEntry> bucket = index.get(key.getUserClientKey());
+        if (bucket != null) {
+            collect(bucket, key, isMrrt, entryList);
+        }
+        return entryList;
+    }
+
+    private AdTokenCache() {
+        tokenCacheDictionary = new ConcurrentHashMap<TokenCacheKey, AdTokenCacheEntry>();
+        userClientIndex = new ConcurrentHashMap<TokenCacheKey, Map<TokenCacheKey, AdTokenCacheEntry>>();
+        mrrtIndex = new ConcurrentHashMap<TokenCacheKey, Map<TokenCacheKey, AdTokenCacheEntry>>();
+    }
+
+    private static void collect(@NotNull final Map<TokenCacheKey, AdTokenCacheEntry> entries,
+                                @NotNull final TokenCacheKey key, final Boolean isMrrt,
+                                @NotNull final Collection<AdTokenCacheEntry> entryList) {
+        for (Map.Entry<TokenCacheKey, AdTokenCacheEntry> e : entries.entrySet()) {
+            TokenCacheKey k = e.getKey();
+            AdTokenCacheEntry v = e.getValue();
             if (null != v && v.getAuthResult() != null) {
                 if ((null == isMrrt || v.getAuthResult().isMultipleResourceRefreshToken() == isMrrt.booleanValue())
-                        && (key.getClientId().isEmpty() || k.getClientId().equalsIgnoreCase(key.getClientId()))
-                        && (key.getUserId().isEmpty() || k.getUserId().equalsIgnoreCase(key.getUserId()))
-                        && (key.getAuthority().isEmpty() || k.getAuthority().equalsIgnoreCase(key.getAuthority()))) {
+                        && (key.getClientId().isEmpty() || k.normalizedClientId.equals(key.normalizedClientId))
+                        && (key.getUserId().isEmpty() || k.normalizedUserId.equals(key.normalizedUserId))
+                        && (key.getAuthority().isEmpty() || k.normalizedAuthority.equals(key.normalizedAuthority))) {
                     entryList.add(v);
                 }
             }
-        });
-        return entryList;
+        }
     }
 
-    private AdTokenCache() {
-        tokenCacheDictionary = new ConcurrentHashMap<TokenCacheKey, AdTokenCacheEntry>();
+    private void index(@NotNull final TokenCacheKey key, @NotNull final AdTokenCacheEntry entry) {
+        addToIndex(userClientIndex, key, entry);
+        if (entry.getAuthResult().isMultipleResourceRefreshToken()) {
+            addToIndex(mrrtIndex, key, entry);
+        }
+    }
+
+    private void unindex(@NotNull final TokenCacheKey key) {
+        removeFromIndex(userClientIndex, key);
+        removeFromIndex(mrrtIndex, key);
+    }
+
+    private static void addToIndex(@NotNull final Map<TokenCacheKey, Map<TokenCacheKey, AdTokenCacheEntry>> index,
+                                   @NotNull final TokenCacheKey key, @NotNull final AdTokenCacheEntry entry) {
+        TokenCacheKey userClientKey = key.getUserClientKey();
+        Map<TokenCacheKey, AdTokenCacheEntry> bucket = index.get(userClientKey);
+        if (bucket == null) {
+            bucket = new ConcurrentHashMap<TokenCacheKey, AdTokenCacheEntry>();
+            index.put(userClientKey, bucket);
+        }
+        bucket.put(key, entry);
+    }
+
+    private static void removeFromIndex(@NotNull final Map<TokenCacheKey, Map<TokenCacheKey, AdTokenCacheEntry>> index,
+                                        @NotNull final TokenCacheKey key) {
+        TokenCacheKey userClientKey = key.getUserClientKey();
+        Map<TokenCacheKey, AdTokenCacheEntry> bucket = index.get(userClientKey);
+        if (bucket != null) {
+            bucket.remove(key);
+            if (bucket.isEmpty()) {
+                index.remove(userClientKey);
+            }
+        }
     }
 
     private TokenCacheKey createKeyFromEntry(@NotNull final AdTokenCacheEntry entry) {
@@ -147,6 +227,13 @@ final class AdTokenCache {
         private final String clientId;
         private final String userId;
 
+        // lower-cased copies used for equality, computed once per key
+        private final String normalizedAuthority;
+        private final String normalizedResource;
+        private final String normalizedClientId;
+        private final String normalizedUserId;
+        private final int hash;
+
         /**
          * TokenCacheKey.
          * @param authority String.
@@ -160,6 +247,17 @@ final class AdTokenCache {
             this.resource = resource != null ? resource : "";
             this.clientId = clientId != null ? clientId : "";
             this.userId = userId != null ? userId : "";
+
+            this.normalizedAuthority = this.authority.toLowerCase(Locale.ROOT);
+            this.normalizedResource = this.resource.toLowerCase(Locale.ROOT);
+            this.normalizedClientId = this.clientId.toLowerCase(Locale.ROOT);
+            this.normalizedUserId = this.userId.toLowerCase(Locale.ROOT);
+
+            int hc = normalizedAuthority.hashCode();
+            hc = 31 * hc + normalizedResource.hashCode();
+            hc = 31 * hc + normalizedClientId.hashCode();
+            hc = 31 * hc + normalizedUserId.hashCode();
+            this.hash = hc;
         }
 
         public String getAuthority() {
@@ -178,6 +276,17 @@ final class AdTokenCache {
             return userId;
         }
 
+        /**
+         * the key of the (clientId, userId) bucket this key belongs to.
+         * @return TokenCacheKey without authority and resource.
+         */
+        TokenCacheKey getUserClientKey() {
+            if (authority.isEmpty() && resource.isEmpty()) {
+                return this;
+            }
+            return new TokenCacheKey(null, clientId, userId, null);
+        }
+
         @Override
         public boolean equals(Object obj) {
             if (obj == this) {
@@ -186,22 +295,18 @@ final class AdTokenCache {
 
             if (obj instanceof TokenCacheKey) {
                 TokenCacheKey other = (TokenCacheKey) obj;
-                return (other.hashCode() == this.hashCode());
+                return other.hash == this.hash
+                        && other.normalizedAuthority.equals(this.normalizedAuthority)
+                        && other.normalizedResource.equals(this.normalizedResource)
+                        && other.normalizedClientId.equals(this.normalizedClientId)
+                        && other.normalizedUserId.equals(this.normalizedUserId);
             }
             return false;
         }
 
         @Override
         public int hashCode() {
-            final String Delimiter = ":::";
-            String key = (this.authority.toLowerCase() + Delimiter
-                    + this.resource.toLowerCase() + Delimiter
-                    + this.clientId.toLowerCase() + Delimiter
-                    + this.userId.toLowerCase());
-            //                 + ((this.uniqueId != null) ? this.uniqueId.toLowerCase() : null) + Delimiter
-            //                 + ((this.displayableId != null) ? this.displayableId.toLowerCase() : null));
-            int hc = key.hashCode();
-            return hc;
+            return hash;
         }
     }
 }
@@ -166,6 +166,16 @@ abstract class CacheDriver {
     }
 
     private SingleEntryResult loadSingleEntry(@NotNull final TokenCacheKey key) throws AuthException {
+        if (!key.getUserId().isEmpty()) {
+            // a fully specified key identifies at most one entry, so no ambiguity check is needed
+            AdTokenCacheEntry entry = AdTokenCache.getInstance().get(key);
+            if (entry != null && entry.getAuthResult() != null) {
+                return new SingleEntryResult(entry, true);
+            }
+            List<AdTokenCacheEntry> mrrtEntries = getMrrtEntriesForUser(key.getUserId());
+            return mrrtEntries.isEmpty() ? null : new SingleEntryResult(mrrtEntries.get(0), false);
+        }
+
         List<AdTokenCacheEntry> entries = getPotentialEntries(key);
         List<AdTokenCacheEntry> resSpecificEntries = new ArrayList<AdTokenCacheEntry>();
         AdTokenCacheEntry mrrtToken = null;
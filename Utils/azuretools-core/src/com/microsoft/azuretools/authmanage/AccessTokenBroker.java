@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.authmanage;
+
+import com.microsoft.azuretools.adauth.AuthResult;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches access tokens per (tenant, resource) in front of the AD token cache.
+ * Tokens are served without locking while they are fresh; once a token enters its refresh window a single
+ * background refresh is started and the current token keeps being served until it is about to expire.
+ * Concurrent callers that need a token at the same time share one in-flight request.
+ * {@link #invalidateAll()} starts a new generation; refreshes of an older generation that finish afterwards are
+ * discarded and their callers retry against the new one.
+ */
+public final class AccessTokenBroker {
+    private static final Logger LOGGER = Logger.getLogger(AccessTokenBroker.class.getName());
+    // same buffer CacheDriver uses before it refreshes a token, earlier refreshes would just hit its cache
+    static final long REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long EXPIRY_SAFETY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    interface TokenSource {
+        AuthResult acquire(String tid, String resource) throws IOException;
+    }
+
+    private final TokenSource source;
+    private final Executor refreshExecutor;
+    private final ConcurrentMap<Key, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong backgroundRefreshCount = new AtomicLong();
+    private final AtomicLong failedRefreshCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong refreshNanos = new AtomicLong();
+
+    AccessTokenBroker(@NotNull final TokenSource source) {
+        this(source, Executors.newCachedThreadPool(r -> {
+            final Thread thread = new Thread(r, "azure-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    AccessTokenBroker(@NotNull final TokenSource source, @NotNull final Executor refreshExecutor) {
+        this.source = source;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * Get access token.
+     * @param tid String, tenant id.
+     * @param resource String, resource url.
+     * @return String access token.
+     * @throws IOException thrown when fail to get access token.
+     */
+    public String getAccessToken(@NotNull final String tid, @NotNull final String resource) throws IOException {
+        final Key key = new Key(tid, resource);
+        while (true) {
+            final Slot slot = slots.computeIfAbsent(key, Slot::new);
+            final CachedToken token = slot.token;
+            final long now = System.currentTimeMillis();
+            if (token != null && now < token.expiresAt - EXPIRY_SAFETY_MILLIS && slot.isCurrent()) {
+                hitCount.incrementAndGet();
+                if (now >= token.expiresAt - REFRESH_AHEAD_MILLIS) {
+                    slot.refresh(true);
+                }
+                return token.accessToken;
+            }
+            final CachedToken fresh = await(slot.refresh(false));
+            // null when the slot was invalidated during the refresh
+            if (fresh != null) {
+                return fresh.accessToken;
+            }
+        }
+    }
+
+    /**
+     * Drop all cached tokens, used when the signed in account changes.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        slots.clear();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    public long getBackgroundRefreshCount() {
+        return backgroundRefreshCount.get();
+    }
+
+    public long getFailedRefreshCount() {
+        return failedRefreshCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Average latency of the refreshes done so far.
+     * @return average refresh time in milliseconds.
+     */
+    public double getAverageRefreshMillis() {
+        final long count = refreshCount.get();
+        return count == 0 ? 0 : refreshNanos.get() / (count * 1e6);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "AccessTokenBroker{hits=%d, refreshes=%d, background=%d, failed=%d, coalesced=%d, avgRefresh=%.1fms}",
+                getHitCount(), getRefreshCount(), getBackgroundRefreshCount(), getFailedRefreshCount(),
+                getCoalescedCount(), getAverageRefreshMillis());
+    }
+
+    private static CachedToken await(@NotNull final CompletableFuture<CachedToken> refresh) throws IOException {
+        try {
+            return refresh.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for access token", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private final class Slot {
+        private final Key key;
+        private final int slotGeneration = generation.get();
+        private final AtomicReference<CompletableFuture<CachedToken>> inFlight = new AtomicReference<>();
+        private volatile CachedToken token;
+
+        Slot(@NotNull final Key key) {
+            this.key = key;
+        }
+
+        boolean isCurrent() {
+            return slotGeneration == generation.get();
+        }
+
+        CompletableFuture<CachedToken> refresh(final boolean background) {
+            final CompletableFuture<CachedToken> refresh = new CompletableFuture<>();
+            while (true) {
+                final CompletableFuture<CachedToken> current = inFlight.get();
+                if (current != null) {
+                    if (!background) {
+                        coalescedCount.incrementAndGet();
+                    }
+                    return current;
+                }
+                if (inFlight.compareAndSet(null, refresh)) {
+                    break;
+                }
+            }
+
+            if (background) {
+                backgroundRefreshCount.incrementAndGet();
+                refresh.whenComplete((t, e) -> {
+                    if (e != null) {
+                        LOGGER.log(Level.WARNING, "Background token refresh failed for tenant " + key.tid, e);
+                    }
+                });
+                try {
+                    refreshExecutor.execute(() -> run(refresh));
+                } catch (RuntimeException e) {
+                    inFlight.set(null);
+                    refresh.completeExceptionally(e);
+                }
+            } else {
+                run(refresh);
+            }
+            return refresh;
+        }
+
+        private void run(@NotNull final CompletableFuture<CachedToken> refresh) {
+            final long start = System.nanoTime();
+            CachedToken fresh = null;
+            Throwable failure = null;
+            try {
+                final AuthResult result = source.acquire(key.tid, key.resource);
+                final Date expiresOn = result.getExpiresOnDate();
+                fresh = new CachedToken(result.getAccessToken(), expiresOn == null ? 0 : expiresOn.getTime());
+                if (isCurrent()) {
+                    token = fresh;
+                } else {
+                    // signed out meanwhile, the token belongs to the previous account
+                    fresh = null;
+                }
+            } catch (Throwable e) {
+                failedRefreshCount.incrementAndGet();
+                failure = e;
+            }
+            refreshCount.incrementAndGet();
+            refreshNanos.addAndGet(System.nanoTime() - start);
+            inFlight.set(null);
+            if (failure == null) {
+                refresh.complete(fresh);
+            } else {
+                refresh.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static final class CachedToken {
+        private final String accessToken;
+        private final long expiresAt;
+
+        CachedToken(final String accessToken, final long expiresAt) {
+            this.accessToken = accessToken;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Key {
+        private final String tid;
+        private final String resource;
+
+        Key(@NotNull final String tid, @NotNull final String resource) {
+            this.tid = tid;
+            this.resource = resource;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return tid.equals(other.tid) && resource.equals(other.resource);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tid.hashCode() + resource.hashCode();
+        }
+    }
+}
@@ -54,19 +54,11 @@ class AdAuthManager extends BaseADAuthManager {
         return LazyLoader.INSTANCE;
     }
 
-    /**
-     * Get access token.
-     * @param tid String, tenant id.
-     * @param resource String, resource url.
-     * @param promptBehavior PromptBehavior, prompt enum.
-     * @return String access token.
-     * @throws IOException thrown when fail to get access token.
-     */
-    public String getAccessToken(String tid, String resource, PromptBehavior promptBehavior) throws IOException {
+    @Override
+    protected AuthResult acquireAccessToken(String tid, String resource) throws IOException {
         AuthContext ac = createContext(tid, null);
-        AuthResult result = null;
         try {
-            result = ac.acquireToken(resource, false, adAuthDetails.getAccountEmail(), false,
+            return ac.acquireToken(resource, false, adAuthDetails.getAccountEmail(), false,
                 this.webUi, Constants.redirectUri);
         } catch (AuthException e) {
             if (AuthError.InvalidGrant.equalsIgnoreCase(e.getError())
@@ -76,7 +68,6 @@ class AdAuthManager extends BaseADAuthManager {
                 throw e;
             }
         }
-        return result.getAccessToken();
     }
 
     /**
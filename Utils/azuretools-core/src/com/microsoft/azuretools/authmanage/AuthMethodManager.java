@@ -36,6 +36,7 @@ import com.microsoft.azuretools.sdkmanage.ServicePrincipalAzureManager;
 import com.microsoft.azuretools.telemetrywrapper.ErrorType;
 import com.microsoft.azuretools.telemetrywrapper.EventType;
 import com.microsoft.azuretools.telemetrywrapper.EventUtil;
+import com.microsoft.azuretools.utils.AzureModelController;
 import com.microsoft.azuretools.utils.AzureUIRefreshCore;
 import com.microsoft.azuretools.utils.AzureUIRefreshEvent;
 
@@ -149,6 +150,10 @@ public class AuthMethodManager {
     }
 
     public void signOut() {
+        final AzureManager signedIn = azureManager;
+        if (signedIn != null) {
+            AzureModelController.deleteSnapshot(signedIn);
+        }
         cleanAll();
         notifySignOutEventListener();
     }
@@ -59,6 +59,8 @@ public abstract class BaseADAuthManager {
     protected String commonTenantId = COMMON_TID;
     @Nullable
     final protected SecureStore secureStore;
+    @NotNull
+    protected final AccessTokenBroker tokenBroker = new AccessTokenBroker(this::acquireAccessToken);
 
     protected BaseADAuthManager() {
         adAuthDetails = new AdAuthDetails();
@@ -89,11 +91,29 @@ public abstract class BaseADAuthManager {
      * @return String access token.
      * @throws IOException thrown when fail to get access token.
      */
-    abstract public String getAccessToken(String tid, String resource, PromptBehavior promptBehavior) throws IOException;
+    public String getAccessToken(String tid, String resource, PromptBehavior promptBehavior) throws IOException {
+        return tokenBroker.getAccessToken(tid, resource);
+    }
+
+    @NotNull
+    public AccessTokenBroker getTokenBroker() {
+        return tokenBroker;
+    }
+
+    /**
+     * Acquire a token from the AD token cache, refreshing it there if it is about to expire.
+     * Calls are coalesced per (tenant, resource) by the token broker.
+     * @param tid String, tenant id.
+     * @param resource String, resource url.
+     * @return AuthResult auth result with the access token.
+     * @throws IOException thrown when fail to get access token.
+     */
+    protected abstract AuthResult acquireAccessToken(String tid, String resource) throws IOException;
 
     // logout
     protected void cleanCache() {
         AuthContext.cleanTokenCache();
+        tokenBroker.invalidateAll();
         adAuthDetails = new AdAuthDetails();
 
         // clear saved auth result
@@ -28,7 +28,6 @@ import com.microsoft.azuretools.adauth.AuthContext;
 import com.microsoft.azuretools.adauth.AuthError;
 import com.microsoft.azuretools.adauth.AuthException;
 import com.microsoft.azuretools.adauth.AuthResult;
-import com.microsoft.azuretools.adauth.PromptBehavior;
 import com.microsoft.azuretools.adauth.StringUtils;
 import com.microsoft.azuretools.authmanage.models.AdAuthDetails;
 import com.microsoft.azuretools.authmanage.models.AuthMethodDetails;
@@ -86,12 +85,10 @@ class DCAuthManager extends BaseADAuthManager {
     }
 
     @Override
-    public String getAccessToken(String tid, String resource, PromptBehavior promptBehavior) throws IOException {
+    protected AuthResult acquireAccessToken(String tid, String resource) throws IOException {
         AuthContext ac = createContext(tid, null);
         try {
-            AuthResult result = ac.acquireToken(resource, false, adAuthDetails.getAccountEmail(), null);
-
-            return result.getAccessToken();
+            return ac.acquireToken(resource, false, adAuthDetails.getAccountEmail(), null);
         } catch (AuthException err) {
             if (equalsAnyIgnoreCase(err.getError(), AuthError.InvalidGrant, AuthError.InteractionRequired)) {
                 throw new IOException(AUTHORIZATION_REQUIRED_MESSAGE, err);
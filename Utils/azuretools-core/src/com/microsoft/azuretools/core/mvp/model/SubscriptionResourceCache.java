@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.core.mvp.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Per subscription cache of resource lists.
+ * <ul>
+ * <li>entries expire after a TTL, a forced read reloads right away</li>
+ * <li>concurrent reads of a subscription which needs loading share one load</li>
+ * <li>{@link #put} and {@link #remove} patch the cached list after our own changes, so they don't need a reload</li>
+ * </ul>
+ * A list loaded while it was being patched is returned but not cached, the next read loads again.
+ */
+public class SubscriptionResourceCache<T> {
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Function<T, String> idFunction;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<List<T>>> loading = new ConcurrentHashMap<>();
+    private final Set<String> patchedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    public SubscriptionResourceCache(Function<T, String> idFunction) {
+        this(idFunction, DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+    }
+
+    SubscriptionResourceCache(Function<T, String> idFunction, long ttlMillis, LongSupplier clock) {
+        this.idFunction = idFunction;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @param force  reload even if the cached list is still fresh
+     * @param loader lists the resources of a subscription, runs on the calling thread
+     * @return a new list, changes to it don't affect the cache
+     */
+    public List<T> get(String sid, boolean force, Function<String, List<T>> loader) {
+        if (!force) {
+            final Entry<T> entry = entries.get(sid);
+            if (entry != null && clock.getAsLong() - entry.loadedAt < ttlMillis) {
+                return new ArrayList<>(entry.resources);
+            }
+        }
+        final CompletableFuture<List<T>> load = new CompletableFuture<>();
+        final CompletableFuture<List<T>> running = loading.putIfAbsent(sid, load);
+        if (running != null) {
+            // whoever started it loads for us as well, their result is as fresh as ours would be
+            return new ArrayList<>(join(running));
+        }
+        // patches made before the listing starts are part of what it returns
+        patchedWhileLoading.remove(sid);
+        try {
+            final List<T> resources = Collections.unmodifiableList(new ArrayList<>(loader.apply(sid)));
+            // atomic with the patches of the same subscription, which go through the map as well
+            entries.compute(sid, (key, previous) ->
+                    patchedWhileLoading.remove(sid) ? null : new Entry<>(resources, clock.getAsLong()));
+            load.complete(resources);
+            return new ArrayList<>(resources);
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(sid, load);
+        }
+    }
+
+    /**
+     * Add the resource to the cached list of the subscription or replace the one with the same id.
+     * Nothing is cached for subscriptions which were not loaded.
+     */
+    public void put(String sid, T resource) {
+        final String id = idFunction.apply(resource);
+        update(sid, resources -> {
+            final List<T> updated = new ArrayList<>(resources.size() + 1);
+            boolean replaced = false;
+            for (T item : resources) {
+                if (id.equalsIgnoreCase(idFunction.apply(item))) {
+                    updated.add(resource);
+                    replaced = true;
+                } else {
+                    updated.add(item);
+                }
+            }
+            if (!replaced) {
+                updated.add(resource);
+            }
+            return updated;
+        });
+    }
+
+    public void remove(String sid, String resourceId) {
+        update(sid, resources -> {
+            final List<T> updated = new ArrayList<>(resources);
+            updated.removeIf(item -> resourceId.equalsIgnoreCase(idFunction.apply(item)));
+            return updated;
+        });
+    }
+
+    public void invalidate(String sid) {
+        markPatched(sid);
+        entries.remove(sid);
+    }
+
+    public void clear() {
+        patchedWhileLoading.addAll(loading.keySet());
+        entries.clear();
+    }
+
+    private void update(String sid, Function<List<T>, List<T>> patch) {
+        markPatched(sid);
+        entries.computeIfPresent(sid, (key, entry) ->
+                new Entry<>(Collections.unmodifiableList(patch.apply(entry.resources)), entry.loadedAt));
+    }
+
+    private void markPatched(String sid) {
+        if (loading.containsKey(sid)) {
+            patchedWhileLoading.add(sid);
+        }
+    }
+
+    private static <T> List<T> join(CompletableFuture<List<T>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<T> {
+        private final List<T> resources;
+        private final long loadedAt;
+
+        private Entry(List<T> resources, long loadedAt) {
+            this.resources = resources;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -25,22 +25,59 @@ package com.microsoft.azuretools.core.mvp.model.rediscache;
 import com.microsoft.azure.management.redis.RedisCache;
 
 import java.io.IOException;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
 
+/**
+ * Connection pools of the Redis Caches opened in the explorer, one pool per cache.
+ * The most recently used {@link #setMaxPools(int) maxPools} pools are kept, pools which stay idle for
+ * {@link #IDLE_POOL_TIMEOUT_MILLIS} are closed by a timer. Pools with connections in use are never closed, when all
+ * of them are busy one more pool is opened over the limit. Host, port and access key of a cache are asked from ARM
+ * once and reused when its pool has to be rebuilt.
+ */
 public class RedisConnectionPools {
 
+    private static final Logger LOGGER = Logger.getLogger(RedisConnectionPools.class.getName());
     private static final int TIMEOUT = 500;
-    private static final int MAX_CONNECTIONS = 1;
+    private static final int DEFAULT_MAX_POOLS = 8;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_POOL = 4;
+    private static final long MAX_WAIT_MILLIS = 5000;
+    static final long IDLE_POOL_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long EVICTION_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
     private static final String GANNOT_GET_RESID = "Cannot get Redis Cache from Azure.";
 
-    private LinkedHashMap<String, JedisPool> pools;
+    private final Map<String, PoolEntry> pools = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionSettings> settings = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile int maxPools = DEFAULT_MAX_POOLS;
+    private volatile int maxConnectionsPerPool = DEFAULT_MAX_CONNECTIONS_PER_POOL;
+    private volatile LongSupplier clock = System::currentTimeMillis;
 
     private RedisConnectionPools() {
-        this.pools = new LinkedHashMap<String, JedisPool>(MAX_CONNECTIONS);
+        final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "redis-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdlePools, EVICTION_INTERVAL_MILLIS, EVICTION_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
     }
 
     private static final class RedisConnectionFactoryHolder {
@@ -61,14 +98,31 @@ public class RedisConnectionPools {
      * @return jedis connection
      * @throws IOException Error getting the Redis Cache
      */
-    public synchronized Jedis getJedis(String sid, String id) throws Exception  {
-        if (pools.get(id) == null) {
-            if (pools.size() == MAX_CONNECTIONS) {
-                releasePool(pools.keySet().iterator().next());
+    public Jedis getJedis(String sid, String id) throws Exception  {
+        PoolEntry entry = pools.get(id);
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            entry = createPool(sid, id);
+        }
+        entry.lastUsed = clock.getAsLong();
+        try {
+            return entry.pool.getResource();
+        } catch (JedisException e) {
+            final boolean authenticationFailure = isAuthenticationFailure(e);
+            // a pool closed under us was evicted, anything else is not ours to retry
+            if (!authenticationFailure && !entry.pool.isClosed()) {
+                throw e;
+            }
+            if (authenticationFailure) {
+                // the access key was regenerated since we read it, read it again
+                releasePool(id);
             }
-            connect(sid, id);
+            final PoolEntry fresh = createPool(sid, id);
+            fresh.lastUsed = clock.getAsLong();
+            return fresh.pool.getResource();
         }
-        return pools.get(id).getResource();
     }
 
     /**
@@ -77,17 +131,129 @@ public class RedisConnectionPools {
      * @param id
      *            id of the jedisPool which needs to be destroyed
      */
-    public synchronized void releasePool(String id) {
-        if (pools.containsKey(id)) {
-            JedisPool jedisPool = pools.get(id);
-            if (jedisPool != null) {
-                jedisPool.destroy();
+    public void releasePool(String id) {
+        settings.remove(id);
+        final PoolEntry entry = pools.remove(id);
+        if (entry != null) {
+            entry.pool.destroy();
+        }
+    }
+
+    /**
+     * Number of pools kept open, the least recently used pool is closed to open one more.
+     */
+    public void setMaxPools(int maxPools) {
+        if (maxPools < 1) {
+            throw new IllegalArgumentException("maxPools must be positive");
+        }
+        this.maxPools = maxPools;
+    }
+
+    /**
+     * Connections per Redis Cache, applies to pools created afterwards.
+     */
+    public void setMaxConnectionsPerPool(int maxConnectionsPerPool) {
+        if (maxConnectionsPerPool < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerPool must be positive");
+        }
+        this.maxConnectionsPerPool = maxConnectionsPerPool;
+    }
+
+    public Map<String, PoolStats> getPoolStats() {
+        final Map<String, PoolStats> stats = new HashMap<>();
+        pools.forEach((id, entry) -> stats.put(id, new PoolStats(entry.pool.getNumActive(), entry.pool.getNumIdle(),
+                entry.pool.getNumWaiters(), entry.lastUsed)));
+        return Collections.unmodifiableMap(stats);
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Close the pools which have no connection in use and were not used for {@link #IDLE_POOL_TIMEOUT_MILLIS}.
+     */
+    void evictIdlePools() {
+        evictIdlePools(clock.getAsLong());
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    void evictIdlePools(long now) {
+        pools.forEach((id, entry) -> {
+            if (now - entry.lastUsed > IDLE_POOL_TIMEOUT_MILLIS && entry.pool.getNumActive() == 0) {
+                evict(id, entry);
+            }
+        });
+    }
+
+    private synchronized PoolEntry createPool(String sid, String id) throws Exception {
+        final PoolEntry existing = pools.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        ConnectionSettings connection = settings.get(id);
+        if (connection == null) {
+            connection = readSettings(sid, id);
+            settings.put(id, connection);
+        }
+        while (pools.size() >= maxPools && evictLeastRecentlyUsed()) {
+            // evict until there is room or only pools in use are left
+        }
+
+        // create connection pool according to redis setting
+        final JedisPoolConfig config = new JedisPoolConfig();
+        config.setMaxTotal(maxConnectionsPerPool);
+        config.setMaxIdle(maxConnectionsPerPool);
+        config.setMaxWaitMillis(MAX_WAIT_MILLIS);
+        final JedisPool pool = new JedisPool(config, connection.hostName, connection.port, TIMEOUT,
+                connection.password, true);
+        final PoolEntry entry = new PoolEntry(pool, clock.getAsLong());
+        pools.put(id, entry);
+        return entry;
+    }
+
+    private boolean evictLeastRecentlyUsed() {
+        Map.Entry<String, PoolEntry> oldest = null;
+        for (Map.Entry<String, PoolEntry> candidate : pools.entrySet()) {
+            // closing a pool with connections in use would break its callers
+            if (candidate.getValue().pool.getNumActive() > 0) {
+                continue;
+            }
+            if (oldest == null || candidate.getValue().lastUsed < oldest.getValue().lastUsed) {
+                oldest = candidate;
+            }
+        }
+        if (oldest == null) {
+            return false;
+        }
+        evict(oldest.getKey(), oldest.getValue());
+        return true;
+    }
+
+    private void evict(String id, PoolEntry entry) {
+        // connection settings are kept, a pool rebuilt later doesn't need ARM
+        if (pools.remove(id, entry)) {
+            evictions.incrementAndGet();
+            try {
+                entry.pool.destroy();
+            } catch (JedisException e) {
+                LOGGER.log(Level.FINE, "Failed to close the connection pool of " + id, e);
             }
-            pools.remove(id);
         }
     }
 
-    private void connect(String sid, String id) throws Exception {
+    private static ConnectionSettings readSettings(String sid, String id) throws Exception {
         RedisCache redisCache = AzureRedisMvpModel.getInstance().getRedisCache(sid, id);
 
         if (redisCache == null) {
@@ -95,12 +261,72 @@ public class RedisConnectionPools {
         }
 
         // get redis setting
-        String hostName = redisCache.hostName();
-        String password = redisCache.keys().primaryKey();
-        int port = redisCache.sslPort();
+        return new ConnectionSettings(redisCache.hostName(), redisCache.sslPort(), redisCache.keys().primaryKey());
+    }
 
-        // create connection pool according to redis setting
-        JedisPool pool = new JedisPool(new JedisPoolConfig(), hostName, port, TIMEOUT, password, true);
-        pools.put(id, pool);
+    private static boolean isAuthenticationFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JedisDataException) {
+                final String message = String.valueOf(cause.getMessage());
+                return message.contains("NOAUTH") || message.contains("WRONGPASS")
+                        || message.contains("invalid password");
+            }
+        }
+        return false;
+    }
+
+    private static final class PoolEntry {
+        private final JedisPool pool;
+        private volatile long lastUsed;
+
+        private PoolEntry(JedisPool pool, long lastUsed) {
+            this.pool = pool;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private static final class ConnectionSettings {
+        private final String hostName;
+        private final int port;
+        private final String password;
+
+        private ConnectionSettings(String hostName, int port, String password) {
+            this.hostName = hostName;
+            this.port = port;
+            this.password = password;
+        }
+    }
+
+    /**
+     * Snapshot of the connection counts of one pool.
+     */
+    public static final class PoolStats {
+        private final int active;
+        private final int idle;
+        private final int waiters;
+        private final long lastUsed;
+
+        PoolStats(int active, int idle, int waiters, long lastUsed) {
+            this.active = active;
+            this.idle = idle;
+            this.waiters = waiters;
+            this.lastUsed = lastUsed;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getWaiters() {
+            return waiters;
+        }
+
+        public long getLastUsed() {
+            return lastUsed;
+        }
     }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.core.mvp.model.rediscache;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Number of databases of a Redis Cache together with the key count of each non-empty database.
+ */
+public class RedisDatabaseInfo {
+
+    private final int dbCount;
+    private final Map<Integer, Long> keyCounts;
+    private final long fetchedAt;
+
+    public RedisDatabaseInfo(int dbCount, Map<Integer, Long> keyCounts, long fetchedAt) {
+        this.dbCount = dbCount;
+        this.keyCounts = Collections.unmodifiableMap(keyCounts);
+        this.fetchedAt = fetchedAt;
+    }
+
+    public int getDbCount() {
+        return dbCount;
+    }
+
+    /**
+     * @return key count of each database reported by INFO keyspace, empty databases are absent
+     */
+    public Map<Integer, Long> getKeyCounts() {
+        return keyCounts;
+    }
+
+    public long getKeyCount(int db) {
+        Long count = keyCounts.get(db);
+        return count == null ? 0 : count;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+}
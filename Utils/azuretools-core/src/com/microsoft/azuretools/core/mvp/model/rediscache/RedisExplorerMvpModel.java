@@ -22,11 +22,22 @@
 
 package com.microsoft.azuretools.core.mvp.model.rediscache;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import com.microsoft.azuretools.azurecommons.helpers.RedisKeyType;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.Tuple;
@@ -36,9 +47,18 @@ public class RedisExplorerMvpModel {
 
     private static final int DEFAULT_REDIS_DB_NUMBER = 16;
     private static final int MAX_DATABASE_NUMBER = 64;
-    private static final int DEFAULT_KEY_COUNT = 50;
-    private static final long DEFAULT_RANGE_START = 0;
     private static final int DEFAULT_VAL_COUNT = 500;
+    public static final int DEFAULT_VALUE_PAGE_SIZE = DEFAULT_VAL_COUNT;
+    public static final int DEFAULT_SCAN_COUNT = 200;
+    private static final int MAX_SCAN_COUNT = 5000;
+    // A page holding less than 1/SPARSE_PAGE_RATIO of the requested COUNT means the pattern is sparse.
+    private static final int SPARSE_PAGE_RATIO = 4;
+
+    private static final long DATABASE_INFO_TTL_MILLIS = 5 * 60 * 1000L;
+    private static final String KEYSPACE_DB_PREFIX = "db";
+    private static final String KEYSPACE_KEYS_FIELD = "keys=";
+
+    private final Map<String, RedisDatabaseInfo> databaseInfos = new ConcurrentHashMap<>();
 
     private RedisExplorerMvpModel() {
     }
@@ -63,38 +83,78 @@ public class RedisExplorerMvpModel {
      *             Error getting the Redis Cache
      */
     public int getDbNumber(String sid, String id) throws Exception {
+        return getDatabaseInfo(sid, id).getDbCount();
+    }
+
+    /**
+     * Get the number of databases and the key count of each database. CONFIG GET databases, INFO keyspace and a
+     * SELECT of every candidate database are sent in a single pipeline, since CONFIG is disabled on Azure Cache the
+     * number of databases is usually the number of leading SELECTs that succeed. The result is cached per Redis
+     * Cache for DATABASE_INFO_TTL_MILLIS, or until {@link #invalidateDatabaseInfo(String)} is called.
+     *
+     * @param sid
+     *            subscription id of Redis Cache
+     * @param id
+     *            resource id of Redis Cache
+     * @return the database information of the Redis Cache
+     * @throws Exception
+     *             Error getting the Redis Cache
+     */
+    public RedisDatabaseInfo getDatabaseInfo(String sid, String id) throws Exception {
+        RedisDatabaseInfo cached = databaseInfos.get(id);
+        if (cached != null
+                && System.currentTimeMillis() - cached.getFetchedAt() < DATABASE_INFO_TTL_MILLIS) {
+            return cached;
+        }
+        RedisDatabaseInfo info;
         try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            try {
-                List<String> dbs = jedis.configGet("databases");
-                if (dbs.size() > 0) {
-                    return Integer.parseInt(dbs.get(1));
-                }
-                return DEFAULT_REDIS_DB_NUMBER;
-            } catch (JedisException e) {
-                // Use binary search to determine the number of database the Redis has.
-                int start = 0, end = MAX_DATABASE_NUMBER, mid;
-                while (start < end) {
-                    mid = start + (end - start) / 2;
-                    if (canConnect(jedis, mid)) {
-                        start = mid + 1;
-                    } else {
-                        end = mid;
-                    }
+            Long currentDb = jedis.getDB();
+            Pipeline pipeline = jedis.pipelined();
+            Response<List<String>> config = pipeline.configGet("databases");
+            Response<String> keyspace = pipeline.info("keyspace");
+            List<Response<String>> selects = new ArrayList<>(MAX_DATABASE_NUMBER);
+            for (int i = 0; i < MAX_DATABASE_NUMBER; i++) {
+                selects.add(pipeline.select(i));
+            }
+            // Put the connection back on the database its client believes it is on.
+            pipeline.select(currentDb == null ? 0 : currentDb.intValue());
+            pipeline.sync();
+
+            Integer dbCount = readConfiguredDbCount(config);
+            if (dbCount == null) {
+                dbCount = 0;
+                while (dbCount < selects.size() && succeeded(selects.get(dbCount))) {
+                    dbCount++;
                 }
-                return start;
             }
+            info = new RedisDatabaseInfo(dbCount, parseKeyspace(keyspace.get()), System.currentTimeMillis());
         }
+        databaseInfos.put(id, info);
+        return info;
+    }
+
+    /**
+     * Drop the cached database information of the Redis Cache.
+     *
+     * @param id
+     *            resource id of Redis Cache
+     */
+    public void invalidateDatabaseInfo(String id) {
+        databaseInfos.remove(id);
     }
 
     public boolean checkKeyExistance(String sid, String id, int db, String key) throws Exception {
         try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
+            selectDb(jedis, db);
             return jedis.exists(key);
         }
     }
 
     /**
-     * Scan the keys with count defined in DEFAULT_KEY_COUNT
+     * Scan keys page by page on a single connection and resolve the type of every key of a page with one pipelined
+     * round-trip. Pages are handed to the consumer as soon as they arrive. When a page holds much fewer keys than
+     * requested (sparse pattern), COUNT is doubled for the next page, up to MAX_SCAN_COUNT. The scan stops before the
+     * next page once cancelled returns true.
      *
      * @param sid
      *            subscription id of Redis Cache
@@ -106,14 +166,41 @@ public class RedisExplorerMvpModel {
      *            cursor for Redis Scan command
      * @param pattern
      *            pattern for Redis Scan Param
-     * @return Scan Result returned from Jedis
+     * @param count
+     *            initial COUNT hint for each Scan command
+     * @param limit
+     *            stop once at least this many keys were delivered
+     * @param withTtl
+     *            also pipeline TTL for each key
+     * @param cancelled
+     *            checked before every page, stops the scan when it returns true
+     * @param pageConsumer
+     *            receives every page, the last one is flagged with {@link RedisKeyPage#isLast()}
+     * @return cursor to resume the scan from, SCAN_POINTER_START when the key space is exhausted
      * @throws Exception
-     *
      */
-    public ScanResult<String> scanKeys(String sid, String id, int db, String cursor, String pattern) throws Exception {
+    public String scanKeysWithTypes(String sid, String id, int db, String cursor, String pattern, int count,
+            int limit, boolean withTtl, BooleanSupplier cancelled, Consumer<RedisKeyPage> pageConsumer)
+            throws Exception {
         try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
-            return jedis.scan(cursor, new ScanParams().match(pattern).count(DEFAULT_KEY_COUNT));
+            selectDb(jedis, db);
+            String nextCursor = cursor;
+            int pageCount = Math.max(1, Math.min(count, MAX_SCAN_COUNT));
+            int delivered = 0;
+            boolean last;
+            do {
+                ScanResult<String> scanResult = jedis.scan(nextCursor,
+                        new ScanParams().match(pattern).count(pageCount));
+                List<String> keys = new ArrayList<>(scanResult.getResult());
+                nextCursor = scanResult.getStringCursor();
+                delivered += keys.size();
+                last = ScanParams.SCAN_POINTER_START.equals(nextCursor) || delivered >= limit;
+                pageConsumer.accept(resolveKeyPage(jedis, keys, withTtl, nextCursor, last));
+                if (keys.size() * SPARSE_PAGE_RATIO < pageCount) {
+                    pageCount = Math.min(pageCount * 2, MAX_SCAN_COUNT);
+                }
+            } while (!last && !cancelled.getAsBoolean());
+            return nextCursor;
         }
     }
 
@@ -133,13 +220,15 @@ public class RedisExplorerMvpModel {
      */
     public String getKeyType(String sid, String id, int db, String key) throws Exception {
         try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
+            selectDb(jedis, db);
             return jedis.type(key);
         }
     }
 
     /**
-     * Get the value of a string type key.
+     * Read one window of a key's value. Lists and sorted sets are read by index range together with their size in a
+     * single pipelined round-trip, sets and hashes are read by SSCAN/HSCAN continuation and their size is probed on
+     * the first page only.
      *
      * @param sid
      *            subscription id of Redis Cache
@@ -149,115 +238,156 @@ public class RedisExplorerMvpModel {
      *            index of Redis Cache database
      * @param key
      *            name of the key
-     * @return the value of a string type key
+     * @param type
+     *            type of the key
+     * @param cursor
+     *            SCAN_POINTER_START for the first page, then the next cursor of the previous page
+     * @param count
+     *            number of elements to read (a hint for sets and hashes)
+     * @return the window of the value
      * @throws Exception
      */
-    public String getStringValue(String sid, String id, int db, String key) throws Exception {
+    public RedisValuePage readValuePage(String sid, String id, int db, String key, RedisKeyType type, String cursor,
+            int count) throws Exception {
         try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
-            return jedis.get(key);
+            selectDb(jedis, db);
+            boolean firstPage = ScanParams.SCAN_POINTER_START.equals(cursor);
+            List<String[]> rows = new ArrayList<>();
+            switch (type) {
+                case STRING:
+                    rows.add(new String[] { jedis.get(key) });
+                    return new RedisValuePage(type, rows, ScanParams.SCAN_POINTER_START, 1);
+                case LIST: {
+                    long start = Long.parseLong(cursor);
+                    Pipeline pipeline = jedis.pipelined();
+                    Response<Long> size = pipeline.llen(key);
+                    Response<List<String>> items = pipeline.lrange(key, start, start + count - 1);
+                    pipeline.sync();
+                    long index = start;
+                    for (String item : items.get()) {
+                        rows.add(new String[] { String.valueOf(++index), item });
+                    }
+                    return new RedisValuePage(type, rows, nextOffset(start, rows.size(), size.get()), size.get());
+                }
+                case ZSET: {
+                    long start = Long.parseLong(cursor);
+                    Pipeline pipeline = jedis.pipelined();
+                    Response<Long> size = pipeline.zcard(key);
+                    Response<Set<Tuple>> tuples = pipeline.zrangeWithScores(key, start, start + count - 1);
+                    pipeline.sync();
+                    for (Tuple tuple : tuples.get()) {
+                        rows.add(new String[] { String.valueOf(tuple.getScore()), tuple.getElement() });
+                    }
+                    return new RedisValuePage(type, rows, nextOffset(start, rows.size(), size.get()), size.get());
+                }
+                case SET: {
+                    long size = firstPage ? jedis.scard(key) : RedisValuePage.UNKNOWN_SIZE;
+                    ScanResult<String> members = jedis.sscan(key, cursor, new ScanParams().count(count));
+                    for (String member : members.getResult()) {
+                        rows.add(new String[] { member });
+                    }
+                    return new RedisValuePage(type, rows, members.getStringCursor(), size);
+                }
+                case HASH: {
+                    long size = firstPage ? jedis.hlen(key) : RedisValuePage.UNKNOWN_SIZE;
+                    ScanResult<Entry<String, String>> fields = jedis.hscan(key, cursor, new ScanParams().count(count));
+                    for (Entry<String, String> field : fields.getResult()) {
+                        rows.add(new String[] { field.getKey(), field.getValue() });
+                    }
+                    return new RedisValuePage(type, rows, fields.getStringCursor(), size);
+                }
+                default:
+                    throw new IllegalArgumentException("Unsupported key type: " + type);
+            }
         }
     }
 
-    /**
-     * Get the value of a list type key.
-     *
-     * @param sid
-     *            subscription id of Redis Cache
-     * @param id
-     *            resource id of Redis Cache
-     * @param db
-     *            index of Redis Cache database
-     * @param key
-     *            name of the key
-     * @return the value of a list type key
-     * @throws Exception
-     */
-    public List<String> getListValue(String sid, String id, int db, String key) throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
-            long listLength = jedis.llen(key);
-            return jedis.lrange(key, DEFAULT_RANGE_START,
-                    listLength < DEFAULT_VAL_COUNT ? listLength : DEFAULT_VAL_COUNT);
-        }
+    private static String nextOffset(long start, int read, long size) {
+        long next = start + read;
+        return read == 0 || next >= size ? ScanParams.SCAN_POINTER_START : String.valueOf(next);
     }
 
-    /**
-     * Get the value of a set type key.
-     *
-     * @param sid
-     *            subscription id of Redis Cache
-     * @param id
-     *            resource id of Redis Cache
-     * @param db
-     *            index of Redis Cache database
-     * @param key
-     *            name of the key
-     * @param cursor
-     *            cursor for Redis Scan command
-     * @return the value of a set type key
-     * @throws Exception
-     */
-    public ScanResult<String> getSetValue(String sid, String id, int db, String key, String cursor) throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
-            return jedis.sscan(key, cursor, new ScanParams().count(DEFAULT_VAL_COUNT));
+    private RedisKeyPage resolveKeyPage(Jedis jedis, List<String> keys, boolean withTtl, String nextCursor,
+            boolean last) {
+        Map<String, String> types = new LinkedHashMap<>();
+        Map<String, Long> ttls = new LinkedHashMap<>();
+        if (!keys.isEmpty()) {
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<String>> typeResponses = new ArrayList<>(keys.size());
+            List<Response<Long>> ttlResponses = new ArrayList<>(withTtl ? keys.size() : 0);
+            for (String key : keys) {
+                typeResponses.add(pipeline.type(key));
+                if (withTtl) {
+                    ttlResponses.add(pipeline.ttl(key));
+                }
+            }
+            pipeline.sync();
+            for (int i = 0; i < keys.size(); i++) {
+                types.put(keys.get(i), typeResponses.get(i).get());
+                if (withTtl) {
+                    ttls.put(keys.get(i), ttlResponses.get(i).get());
+                }
+            }
         }
+        return new RedisKeyPage(keys, types, ttls, nextCursor, last);
     }
 
     /**
-     * Get the value of a zset type key.
-     *
-     * @param sid
-     *            subscription id of Redis Cache
-     * @param id
-     *            resource id of Redis Cache
-     * @param db
-     *            index of Redis Cache database
-     * @param key
-     *            name of the key
-     * @return the value of a zset type key
-     * @throws Exception
+     * Issue SELECT only when the borrowed connection is not already on the given database, the pool hands out
+     * connections reset to the default database so this saves a round-trip for database 0.
      */
-    public Set<Tuple> getZSetValue(String sid, String id, int db, String key) throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
+    private void selectDb(Jedis jedis, int db) {
+        Long current = jedis.getDB();
+        if (current == null || current != db) {
             jedis.select(db);
-            long zsetLength = jedis.zcard(key);
-            return jedis.zrangeWithScores(key, DEFAULT_RANGE_START,
-                    zsetLength < DEFAULT_VAL_COUNT ? zsetLength : DEFAULT_VAL_COUNT);
         }
     }
 
-    /**
-     * Get the value of a hash type key.
-     *
-     * @param sid
-     *            subscription id of Redis Cache
-     * @param id
-     *            resource id of Redis Cache
-     * @param db
-     *            index of Redis Cache database
-     * @param key
-     *            name of the key
-     * @param cursor
-     *            cursor for Redis Scan command
-     * @return the value of a hash type key
-     * @throws Exception
-     */
-    public ScanResult<Entry<String, String>> getHashValue(String sid, String id, int db, String key, String cursor)
-            throws Exception {
-        try (Jedis jedis = RedisConnectionPools.getInstance().getJedis(sid, id)) {
-            jedis.select(db);
-            return jedis.hscan(key, cursor, new ScanParams().count(DEFAULT_VAL_COUNT));
+    private static Integer readConfiguredDbCount(Response<List<String>> config) {
+        try {
+            List<String> dbs = config.get();
+            if (dbs.size() > 1) {
+                return Integer.parseInt(dbs.get(1));
+            }
+            return DEFAULT_REDIS_DB_NUMBER;
+        } catch (JedisException | NumberFormatException e) {
+            return null;
         }
     }
 
-    private boolean canConnect(Jedis jedis, int index) {
+    private static boolean succeeded(Response<String> response) {
         try {
-            jedis.select(index);
+            response.get();
             return true;
-        } catch (JedisException ex) {
+        } catch (JedisException e) {
             return false;
         }
     }
+
+    /**
+     * Parse the key count of every database from INFO keyspace lines such as "db0:keys=12,expires=0,avg_ttl=0".
+     */
+    static Map<Integer, Long> parseKeyspace(String keyspace) {
+        Map<Integer, Long> keyCounts = new HashMap<>();
+        if (keyspace == null) {
+            return keyCounts;
+        }
+        for (String line : keyspace.split("\\r?\\n")) {
+            int colon = line.indexOf(':');
+            if (!line.startsWith(KEYSPACE_DB_PREFIX) || colon < 0) {
+                continue;
+            }
+            try {
+                int db = Integer.parseInt(line.substring(KEYSPACE_DB_PREFIX.length(), colon));
+                for (String field : line.substring(colon + 1).split(",")) {
+                    if (field.startsWith(KEYSPACE_KEYS_FIELD)) {
+                        keyCounts.put(db, Long.parseLong(field.substring(KEYSPACE_KEYS_FIELD.length()).trim()));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                // Not a database line, ignore it.
+            }
+        }
+        return keyCounts;
+    }
 }
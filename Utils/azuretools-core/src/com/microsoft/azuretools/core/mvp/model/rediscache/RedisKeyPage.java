@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.core.mvp.model.rediscache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.jedis.ScanParams;
+
+/**
+ * One page of a key scan, with the type (and optionally the TTL) of every key resolved in the same pipeline.
+ */
+public class RedisKeyPage {
+
+    private final List<String> keys;
+    private final Map<String, String> keyTypes;
+    private final Map<String, Long> keyTtls;
+    private final String nextCursor;
+    private final boolean last;
+
+    public RedisKeyPage(List<String> keys, Map<String, String> keyTypes, Map<String, Long> keyTtls,
+            String nextCursor, boolean last) {
+        this.keys = keys;
+        this.keyTypes = Collections.unmodifiableMap(keyTypes);
+        this.keyTtls = Collections.unmodifiableMap(keyTtls);
+        this.nextCursor = nextCursor;
+        this.last = last;
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return type of each key in this page, as returned by the Redis TYPE command
+     */
+    public Map<String, String> getKeyTypes() {
+        return keyTypes;
+    }
+
+    /**
+     * @return TTL in seconds of each key in this page, empty when TTLs were not requested
+     */
+    public Map<String, Long> getKeyTtls() {
+        return keyTtls;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return whether this is the last page delivered for the current scan request
+     */
+    public boolean isLast() {
+        return last;
+    }
+
+    /**
+     * @return whether the whole key space has been iterated
+     */
+    public boolean isFinished() {
+        return ScanParams.SCAN_POINTER_START.equals(nextCursor);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.core.mvp.model.rediscache;
+
+import java.util.List;
+
+import com.microsoft.azuretools.azurecommons.helpers.RedisKeyType;
+
+import redis.clients.jedis.ScanParams;
+
+/**
+ * One window of a key's value. The cursor is an element offset for lists and sorted sets and a Redis scan cursor for
+ * sets and hashes, in both cases SCAN_POINTER_START marks the first and the exhausted position.
+ */
+public class RedisValuePage {
+
+    public static final long UNKNOWN_SIZE = -1;
+
+    private final RedisKeyType keyType;
+    private final List<String[]> rows;
+    private final String nextCursor;
+    private final long size;
+
+    public RedisValuePage(RedisKeyType keyType, List<String[]> rows, String nextCursor, long size) {
+        this.keyType = keyType;
+        this.rows = rows;
+        this.nextCursor = nextCursor;
+        this.size = size;
+    }
+
+    public RedisKeyType getKeyType() {
+        return keyType;
+    }
+
+    /**
+     * @return rows laid out like the editors' value table: index and item for lists, member for sets, score and
+     *         member for sorted sets, field and value for hashes, value for strings
+     */
+    public List<String[]> getRows() {
+        return rows;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return number of elements of the key, UNKNOWN_SIZE when it was not probed for this page
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public boolean hasMore() {
+        return !ScanParams.SCAN_POINTER_START.equals(nextCursor);
+    }
+}
@@ -36,6 +36,7 @@ import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import com.microsoft.azuretools.core.mvp.model.AzureMvpModel;
 import com.microsoft.azuretools.core.mvp.model.ResourceEx;
+import com.microsoft.azuretools.core.mvp.model.SubscriptionResourceCache;
 import com.microsoft.azuretools.sdkmanage.AzureManager;
 import com.microsoft.azuretools.utils.WebAppUtils;
 import lombok.extern.java.Log;
@@ -48,7 +49,6 @@ import java.io.*;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -60,7 +60,8 @@ public class AzureWebAppMvpModel {
     private static final Logger logger = Logger.getLogger(AzureWebAppMvpModel.class.getName());
 
     public static final String CANNOT_GET_WEB_APP_WITH_ID = "Cannot get Web App with ID: ";
-    private final Map<String, List<ResourceEx<WebApp>>> subscriptionIdToWebApps;
+    private static final int MAX_CONCURRENT_SUBSCRIPTION_REQUESTS = 4;
+    private final SubscriptionResourceCache<ResourceEx<WebApp>> webAppsCache;
 
     private static final List<WebAppUtils.WebContainerMod> JAVA_8_JAR_CONTAINERS =
         Collections.singletonList(WebAppUtils.WebContainerMod.Java_SE_8);
@@ -68,7 +69,7 @@ public class AzureWebAppMvpModel {
         WebAppUtils.WebContainerMod.Java_SE_11);
 
     private AzureWebAppMvpModel() {
-        subscriptionIdToWebApps = new ConcurrentHashMap<>();
+        webAppsCache = new SubscriptionResourceCache<>(app -> app.getResource().id());
     }
 
     public static AzureWebAppMvpModel getInstance() {
@@ -180,10 +181,12 @@ public class AzureWebAppMvpModel {
             withCreate = withExistingWindowsServicePlan(azure, model);
         }
         withCreate = applyDiagnosticConfig(withCreate, model);
-        return withCreate
+        final WebApp app = withCreate
             .withJavaVersion(model.getJdkVersion())
             .withWebContainer(WebContainer.fromString(model.getWebContainer()))
             .create();
+        cacheWebApp(model.getSubscriptionId(), app);
+        return app;
     }
 
     /**
@@ -200,7 +203,9 @@ public class AzureWebAppMvpModel {
         }
         final WebApp.DefinitionStages.WithCreate withCreate =
             withDockerContainerImage.withBuiltInImage(model.getLinuxRuntime());
-        return applyDiagnosticConfig(withCreate, model).create();
+        final WebApp app = applyDiagnosticConfig(withCreate, model).create();
+        cacheWebApp(model.getSubscriptionId(), app);
+        return app;
     }
 
     private WebApp.DefinitionStages.WithCreate applyDiagnosticConfig(WebApp.DefinitionStages.WithCreate withCreate,
@@ -312,7 +317,7 @@ public class AzureWebAppMvpModel {
 
     public void deleteWebApp(String sid, String appId) {
         AuthMethodManager.getInstance().getAzureClient(sid).webApps().deleteById(appId);
-        subscriptionIdToWebApps.remove(sid);
+        webAppsCache.remove(sid, appId);
     }
 
     /**
@@ -394,8 +399,8 @@ public class AzureWebAppMvpModel {
                     .withStartUpCommand(pr.getStartupFile()).create();
             }
         }
+        cacheWebApp(model.getSubscriptionId(), app);
         return app;
-        // TODO: update cache
     }
 
     /**
@@ -425,6 +430,7 @@ public class AzureWebAppMvpModel {
         // status-free restart.
         stopWebApp(sid, webAppId);
         startWebApp(sid, webAppId);
+        cacheWebApp(sid, app);
         return app;
     }
 
@@ -601,12 +607,10 @@ public class AzureWebAppMvpModel {
      * List all the Web Apps on Windows in selected subscriptions.
      */
     public List<ResourceEx<WebApp>> listAllWebAppsOnWindows(final boolean force) {
-        final List<ResourceEx<WebApp>> webApps = new ArrayList<>();
-        for (final Subscription sub : AzureMvpModel.getInstance().getSelectedSubscriptions()) {
-            final String sid = sub.subscriptionId();
-            webApps.addAll(listWebAppsOnWindows(sid, force));
-        }
-        return webApps;
+        return listAllWebApps(force)
+            .stream()
+            .filter(resourceEx -> OperatingSystem.WINDOWS == resourceEx.getResource().operatingSystem())
+            .collect(Collectors.toList());
     }
 
     /**
@@ -646,7 +650,7 @@ public class AzureWebAppMvpModel {
                                        webApps.addAll(webAppList);
                                    }
                                    subscriber.onCompleted();
-                               }).subscribeOn(Schedulers.io()), subs.size())
+                               }).subscribeOn(Schedulers.io()), MAX_CONCURRENT_SUBSCRIPTION_REQUESTS)
                   .subscribeOn(Schedulers.io())
                   .toBlocking()
                   .subscribe();
@@ -683,9 +687,10 @@ public class AzureWebAppMvpModel {
         type = AzureOperation.Type.SERVICE
     )
     public List<ResourceEx<WebApp>> listWebApps(final String subscriptionId, final boolean force) {
-        if (!force && subscriptionIdToWebApps.get(subscriptionId) != null) {
-            return subscriptionIdToWebApps.get(subscriptionId);
-        }
+        return webAppsCache.get(subscriptionId, force, this::loadWebApps);
+    }
+
+    private List<ResourceEx<WebApp>> loadWebApps(final String subscriptionId) {
         final Azure azure = AuthMethodManager.getInstance().getAzureClient(subscriptionId);
         final Predicate<SiteInner> filter = inner -> inner.kind() == null || !Arrays.asList(inner.kind().split(","))
                                                                                     .contains("functionapp");
@@ -694,7 +699,6 @@ public class AzureWebAppMvpModel {
                                                       .map(inner -> new WebAppWrapper(subscriptionId, inner))
                                                       .map(app -> new ResourceEx<WebApp>(app, subscriptionId))
                                                       .collect(Collectors.toList());
-        subscriptionIdToWebApps.put(subscriptionId, webapps);
         return webapps;
     }
 
@@ -771,12 +775,10 @@ public class AzureWebAppMvpModel {
      * @return list of Web App on Linux
      */
     public List<ResourceEx<WebApp>> listAllWebAppsOnLinux(final boolean force) {
-        final List<ResourceEx<WebApp>> webApps = new ArrayList<>();
-        for (final Subscription sub : AzureMvpModel.getInstance().getSelectedSubscriptions()) {
-            final String sid = sub.subscriptionId();
-            webApps.addAll(listWebAppsOnLinux(sid, force));
-        }
-        return webApps;
+        return listAllWebApps(force)
+            .stream()
+            .filter(resourceEx -> OperatingSystem.LINUX == resourceEx.getResource().operatingSystem())
+            .collect(Collectors.toList());
     }
 
     /**
@@ -853,7 +855,16 @@ public class AzureWebAppMvpModel {
         type = AzureOperation.Type.TASK
     )
     public void clearWebAppsCache() {
-        subscriptionIdToWebApps.clear();
+        webAppsCache.clear();
+    }
+
+    /**
+     * Patch the cached list of the subscription with a web app we just created or changed.
+     */
+    private void cacheWebApp(final String sid, @Nullable final WebApp app) {
+        if (app != null) {
+            webAppsCache.put(sid, new ResourceEx<>(app, sid));
+        }
     }
 
     @AzureOperation(
@@ -22,7 +22,11 @@
 
 package com.microsoft.azuretools.core.mvp.ui.rediscache;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+
+import com.microsoft.azuretools.core.mvp.model.rediscache.RedisKeyPage;
 
 import redis.clients.jedis.ScanResult;
 
@@ -30,11 +34,22 @@ public class RedisScanResult {
 
     private List<String> keys;
     private String nextCursor;
+    private Map<String, String> keyTypes;
+    private boolean last;
 
 
     public RedisScanResult(ScanResult<String> result) {
         this.keys = result.getResult();
         this.nextCursor = result.getStringCursor();
+        this.keyTypes = Collections.emptyMap();
+        this.last = true;
+    }
+
+    public RedisScanResult(RedisKeyPage page) {
+        this.keys = page.getKeys();
+        this.nextCursor = page.getNextCursor();
+        this.keyTypes = page.getKeyTypes();
+        this.last = page.isLast();
     }
 
     public String getNextCursor() {
@@ -44,4 +59,18 @@ public class RedisScanResult {
     public List<String> getKeys() {
         return keys;
     }
+
+    /**
+     * @return type of the key if it was resolved during the scan, otherwise null
+     */
+    public String getKeyType(String key) {
+        return keyTypes.get(key);
+    }
+
+    /**
+     * @return whether no more pages will follow for the current scan request
+     */
+    public boolean isLast() {
+        return last;
+    }
 }
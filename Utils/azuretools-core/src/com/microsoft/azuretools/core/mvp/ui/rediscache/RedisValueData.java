@@ -25,11 +25,16 @@ package com.microsoft.azuretools.core.mvp.ui.rediscache;
 import java.util.ArrayList;
 
 import com.microsoft.azuretools.azurecommons.helpers.RedisKeyType;
+import com.microsoft.azuretools.core.mvp.model.rediscache.RedisValuePage;
+
+import redis.clients.jedis.ScanParams;
 
 public class RedisValueData {
 
     private ArrayList<String[]> rowData;
     private RedisKeyType keyType;
+    private String nextCursor;
+    private long size;
 
     /**
      * Constructor for RedisValueData class.
@@ -44,6 +49,21 @@ public class RedisValueData {
     public RedisValueData(ArrayList<String[]> rowData, RedisKeyType keyType) {
         this.rowData = rowData;
         this.keyType = keyType;
+        this.nextCursor = ScanParams.SCAN_POINTER_START;
+        this.size = rowData.size();
+    }
+
+    /**
+     * Constructor for one page of a value that may be continued.
+     *
+     * @param page
+     *            the window read from the Redis Cache
+     */
+    public RedisValueData(RedisValuePage page) {
+        this.rowData = new ArrayList<String[]>(page.getRows());
+        this.keyType = page.getKeyType();
+        this.nextCursor = page.getNextCursor();
+        this.size = page.getSize();
     }
 
     public ArrayList<String[]> getRowData() {
@@ -53,4 +73,22 @@ public class RedisValueData {
     public RedisKeyType getKeyType() {
         return keyType;
     }
+
+    /**
+     * @return cursor to pass back to read the next page of the value
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return number of elements of the key, RedisValuePage.UNKNOWN_SIZE when not probed for this page
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public boolean hasMore() {
+        return !ScanParams.SCAN_POINTER_START.equals(nextCursor);
+    }
 }
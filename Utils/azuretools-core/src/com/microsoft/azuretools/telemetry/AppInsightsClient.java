@@ -28,11 +28,30 @@ import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import com.microsoft.azuretools.telemetrywrapper.TelemetryManager;
 
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class AppInsightsClient {
+    private static final Logger LOGGER = Logger.getLogger(AppInsightsClient.class.getName());
+    /**
+     * Whether the telemetry client is built on a background thread, {@value #CLIENT_DELAY_PROPERTY} milliseconds
+     * (5s by default) after the configuration is set, instead of on the caller's thread. True by default. Events
+     * raised meanwhile wait in the {@link TelemetryPipeline} and are sent in batches once the client is attached.
+     */
+    public static final String DEFERRED_CLIENT_PROPERTY = "azure.toolkit.telemetry.client.deferred";
+    public static final String CLIENT_DELAY_PROPERTY = "azure.toolkit.telemetry.client.delay";
+    public static final long DEFAULT_CLIENT_DELAY_MILLIS = 5_000;
+
     static AppInsightsConfiguration configuration;
+    private static volatile CompletableFuture<TelemetryClient> clientReady = new CompletableFuture<>();
+    private static Future<?> pendingBootstrap;
 
     public enum EventType {
         Action,
@@ -56,7 +75,19 @@ public class AppInsightsClient {
         if (appInsightsConfiguration == null)
             throw new NullPointerException("AppInsights configuration cannot be null.");
         configuration = appInsightsConfiguration;
-        initTelemetryManager();
+        initTelemetryManager(TelemetryClientSingleton::getTelemetry);
+    }
+
+    /**
+     * Same as {@link #setAppInsightsConfiguration(AppInsightsConfiguration)}, with the telemetry client created by the
+     * given factory, for benchmarks which must not reach the telemetry endpoint.
+     */
+    static void setAppInsightsConfiguration(AppInsightsConfiguration appInsightsConfiguration,
+                                            Supplier<TelemetryClient> clientFactory) {
+        if (appInsightsConfiguration == null)
+            throw new NullPointerException("AppInsights configuration cannot be null.");
+        configuration = appInsightsConfiguration;
+        initTelemetryManager(clientFactory);
     }
 
     @Nullable
@@ -88,7 +119,7 @@ public class AppInsightsClient {
         if (!StringUtils.isNullOrEmpty(objectName))
             stringBuilder.append(".").append(objectName.replaceAll("[\\s+.]", ""));
         if (!StringUtils.isNullOrEmpty(action)) stringBuilder.append(".").append(action.replaceAll("[\\s+.]", ""));
-        create(stringBuilder.toString(), null, properties, force);
+        create(eventType, stringBuilder.toString(), null, properties, null, force);
     }
 
     public static void create(String eventName, String version) {
@@ -106,36 +137,43 @@ public class AppInsightsClient {
     }
 
     public static void create(String eventName, String version, @Nullable Map<String, String> myProperties, boolean force) {
-        create(eventName, version, myProperties, null, force);
+        create(null, eventName, version, myProperties, null, force);
+    }
+
+    public static void create(String eventName, String version, @Nullable Map<String, String> myProperties,
+                              @Nullable Map<String, Double> metrics) {
+        create(null, eventName, version, myProperties, metrics, false);
     }
 
-    private static void create(String eventName, String version, @Nullable Map<String, String> myProperties,
-                               Map<String, Double> metrics, boolean force) {
+    private static void create(@Nullable EventType eventType, String eventName, String version,
+                               @Nullable Map<String, String> myProperties, Map<String, Double> metrics, boolean force) {
         if (isAppInsightsClientAvailable() && configuration.validated()) {
-            String prefValue = configuration.preferenceVal();
-            if (prefValue == null || prefValue.isEmpty() || prefValue.equalsIgnoreCase("true") || force) {
-                TelemetryClient telemetry = TelemetryClientSingleton.getTelemetry();
+            if (isTelemetryAllowed() || force) {
                 Map<String, String> properties = buildProperties(version, myProperties);
-                synchronized (TelemetryClientSingleton.class) {
-                    telemetry.trackEvent(eventName, properties, metrics);
-                    telemetry.flush();
-                }
+                TelemetryPipeline.getInstance().enqueue(eventType == null
+                        ? TelemetryEvent.of(eventName, properties, metrics)
+                        : TelemetryEvent.ofType(eventType, eventName, properties, metrics));
             }
         }
     }
 
-    private static Map<String, String> buildProperties(String version, Map<String, String> myProperties) {
-        Map<String, String> properties = myProperties == null ? new HashMap<>() : new HashMap<>(myProperties);
-        properties.put("SessionId", configuration.sessionId());
-        properties.put("IDE", configuration.ide());
+    private static boolean isTelemetryAllowed() {
+        String prefValue = configuration.preferenceVal();
+        return prefValue == null || prefValue.isEmpty() || prefValue.equalsIgnoreCase("true");
+    }
 
+    private static Map<String, String> buildProperties(String version, Map<String, String> myProperties) {
+        CompactTelemetryProperties properties = new CompactTelemetryProperties();
         // Telemetry client doesn't accept null value for ConcurrentHashMap doesn't accept null as key or value..
-        for (Iterator<Map.Entry<String, String>> iter = properties.entrySet().iterator(); iter.hasNext();) {
-            Map.Entry<String, String> entry = iter.next();
-            if (StringUtils.isNullOrEmpty(entry.getKey()) || StringUtils.isNullOrEmpty(entry.getValue())) {
-                iter.remove();
+        if (myProperties != null) {
+            for (Map.Entry<String, String> entry : myProperties.entrySet()) {
+                if (!StringUtils.isNullOrEmpty(entry.getKey()) && !StringUtils.isNullOrEmpty(entry.getValue())) {
+                    properties.put(entry.getKey(), entry.getValue());
+                }
             }
         }
+        properties.put("SessionId", emptyToNull(configuration.sessionId()));
+        properties.put("IDE", emptyToNull(configuration.ide()));
         if (version != null && !version.isEmpty()) {
             properties.put("Library Version", version);
         }
@@ -151,12 +189,14 @@ public class AppInsightsClient {
         return properties;
     }
 
+    private static String emptyToNull(String value) {
+        return StringUtils.isNullOrEmpty(value) ? null : value;
+    }
+
     public static void createFTPEvent(String eventName, String uri, String appName, String subId) {
         if (!isAppInsightsClientAvailable())
             return;
 
-        TelemetryClient telemetry = TelemetryClientSingleton.getTelemetry();
-
         Map<String, String> properties = new HashMap<String, String>();
         properties.put("SessionId", configuration.sessionId());
         if (uri != null && !uri.isEmpty()) {
@@ -179,23 +219,65 @@ public class AppInsightsClient {
                 properties.put("Installation ID", instID);
             }
         }
-        synchronized (TelemetryClientSingleton.class) {
-            telemetry.trackEvent(eventName, properties, null);
-            telemetry.flush();
-        }
+        TelemetryPipeline.getInstance().enqueue(TelemetryEvent.of(eventName, properties, null));
     }
 
     private static boolean isAppInsightsClientAvailable() {
         return configuration != null;
     }
 
-    private static void initTelemetryManager() {
+    /**
+     * Completes once the telemetry client is attached to the {@link TelemetryPipeline}.
+     */
+    public static CompletableFuture<TelemetryClient> getClientReady() {
+        return clientReady;
+    }
+
+    private static final class BootstrapHolder {
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "Telemetry-Client-Bootstrap");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    private static synchronized void initTelemetryManager(Supplier<TelemetryClient> clientFactory) {
         try {
             TelemetryManager.getInstance().setCommonProperties(buildProperties("", new HashMap<>()));
-            TelemetryManager.getInstance().setTelemetryClient(TelemetryClientSingleton.getTelemetry());
+            // The prefix must be known before the client starts sending events raised ahead of configuration.
             TelemetryManager.getInstance().setEventNamePrefix(configuration.eventName());
-            TelemetryManager.getInstance().sendCachedTelemetries();
+            // Unsent events only go to disk once the user is known not to have opted out.
+            TelemetryPipeline.getInstance().setSpoolEnabled(configuration.validated() && isTelemetryAllowed());
         } catch (Exception ignore) {
+            return;
+        }
+        final CompletableFuture<TelemetryClient> ready = clientReady.isDone() ? new CompletableFuture<>() : clientReady;
+        clientReady = ready;
+        // a configuration set again before the client is attached replaces the pending attachment
+        if (pendingBootstrap != null) {
+            pendingBootstrap.cancel(false);
+            pendingBootstrap = null;
+        }
+        if (!Boolean.parseBoolean(System.getProperty(DEFERRED_CLIENT_PROPERTY, "true"))) {
+            attachTelemetryClient(ready, clientFactory);
+            return;
+        }
+        final long delayMillis = Long.getLong(CLIENT_DELAY_PROPERTY, DEFAULT_CLIENT_DELAY_MILLIS);
+        pendingBootstrap = BootstrapHolder.EXECUTOR.schedule(() -> attachTelemetryClient(ready, clientFactory), delayMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private static void attachTelemetryClient(CompletableFuture<TelemetryClient> ready,
+                                              Supplier<TelemetryClient> clientFactory) {
+        try {
+            final TelemetryClient client = clientFactory.get();
+            TelemetryManager.getInstance().setTelemetryClient(client);
+            TelemetryManager.getInstance().sendCachedTelemetries();
+            ready.complete(client);
+        } catch (Exception | LinkageError e) {
+            LOGGER.log(Level.WARNING, "Failed to create the telemetry client", e);
+            ready.completeExceptionally(e);
         }
     }
 
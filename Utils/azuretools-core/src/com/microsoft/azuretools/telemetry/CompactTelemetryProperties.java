@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import org.joda.time.Instant;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Properties of one telemetry event: a shared immutable layer of common properties, referenced and never copied,
+ * overlaid with the properties of the event kept in a small array map. A property of the event hides the common one
+ * of the same key, a {@code null} value hides it without being sent. The timestamp is kept as a number and only
+ * formatted when the properties are read, which normally happens once, on the sender thread.
+ */
+public final class CompactTelemetryProperties extends AbstractMap<String, String> {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final Map<String, String> common;
+    private String[] keys;
+    private String[] values;
+    private int size;
+    // number of visible entries, i.e. non-null values after overlaying
+    private int entryCount;
+    private String timestampKey;
+    private long timestampMillis;
+    private String timestamp;
+
+    /**
+     * @param common shared properties, must not be modified afterwards
+     */
+    public CompactTelemetryProperties(Map<String, String> common) {
+        this.common = common == null ? Collections.emptyMap() : common;
+        this.keys = new String[INITIAL_CAPACITY];
+        this.values = new String[INITIAL_CAPACITY];
+        for (final Entry<String, String> entry : this.common.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                entryCount++;
+            }
+        }
+    }
+
+    public CompactTelemetryProperties() {
+        this(null);
+    }
+
+    /**
+     * Set {@code key} to the ISO-8601 UTC time of {@code millis}, formatted when it is read.
+     */
+    public void putTimestamp(String key, long millis) {
+        final String previousKey = timestampKey;
+        final boolean visible = get(key) != null;
+        final int index = indexOf(key);
+        if (index >= 0) {
+            values[index] = null;
+        }
+        this.timestampKey = key;
+        this.timestampMillis = millis;
+        this.timestamp = null;
+        if (!visible) {
+            entryCount++;
+        }
+        if (previousKey != null && !previousKey.equals(key) && get(previousKey) == null) {
+            entryCount--;
+        }
+    }
+
+    @Override
+    public String put(String key, String value) {
+        if (key == null) {
+            return null;
+        }
+        final String previous = get(key);
+        if (key.equals(timestampKey)) {
+            timestampKey = null;
+            timestamp = null;
+        }
+        if (previous != null) {
+            entryCount--;
+        }
+        if (value != null) {
+            entryCount++;
+        }
+        final int index = indexOf(key);
+        if (index >= 0) {
+            values[index] = value;
+            return previous;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        return previous;
+    }
+
+    @Override
+    public String remove(Object key) {
+        return key instanceof String ? put((String) key, null) : null;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        if (key.equals(timestampKey)) {
+            return getTimestamp();
+        }
+        final int index = indexOf(key);
+        return index >= 0 ? values[index] : common.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return entryCount;
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String getTimestamp() {
+        if (timestamp == null) {
+            timestamp = new Instant(timestampMillis).toString();
+        }
+        return timestamp;
+    }
+
+    private boolean isOverlaid(String key) {
+        return key.equals(timestampKey) || indexOf(key) >= 0;
+    }
+
+    /**
+     * Visits the timestamp, the event properties, then the common properties which are not overlaid, skipping
+     * {@code null} values which the telemetry client doesn't accept.
+     */
+    private final class EntryIterator implements Iterator<Entry<String, String>> {
+        private final Iterator<Entry<String, String>> commonEntries = common.entrySet().iterator();
+        private boolean timestampVisited = timestampKey == null;
+        private int index;
+        private Entry<String, String> next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Entry<String, String> result = next;
+            next = null;
+            return result;
+        }
+
+        private Entry<String, String> advance() {
+            if (!timestampVisited) {
+                timestampVisited = true;
+                return new SimpleImmutableEntry<>(timestampKey, getTimestamp());
+            }
+            while (index < size) {
+                final int i = index++;
+                if (values[i] != null) {
+                    return new SimpleImmutableEntry<>(keys[i], values[i]);
+                }
+            }
+            while (commonEntries.hasNext()) {
+                final Entry<String, String> entry = commonEntries.next();
+                if (entry.getKey() != null && entry.getValue() != null && !isOverlaid(entry.getKey())) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -52,6 +52,7 @@ public class TelemetryConstants {
     // operation value
     public static final String SURVEY = "survey";
     public static final String FEEDBACK = "feedback";
+    public static final String DUMP_METRICS = "dump-metrics";
     public static final String AZURECODE_SAMPLES = "azure-code-samples";
     public static final String LIB_CONFIGURATION = "libraries-configuration";
     public static final String PLUGIN_INSTALL = "install-plugin";
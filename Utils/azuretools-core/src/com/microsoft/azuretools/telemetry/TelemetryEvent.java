@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.Map;
+
+/**
+ * A telemetry event waiting in the {@link TelemetryPipeline} or its disk spool.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TelemetryEvent {
+
+    @JsonProperty
+    private String name;
+
+    @JsonProperty
+    private String type;
+
+    @JsonProperty
+    private boolean prefixPending;
+
+    @JsonProperty
+    private Map<String, String> properties;
+
+    @JsonProperty
+    private Map<String, Double> metrics;
+
+    // For the JSON mapper.
+    private TelemetryEvent() {
+    }
+
+    private TelemetryEvent(String name, String type, boolean prefixPending, Map<String, String> properties,
+                           Map<String, Double> metrics) {
+        this.name = name;
+        this.type = type;
+        this.prefixPending = prefixPending;
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    public static TelemetryEvent of(String name, Map<String, String> properties, Map<String, Double> metrics) {
+        return new TelemetryEvent(name, null, false, properties, metrics);
+    }
+
+    /**
+     * Create an event of one of the {@link AppInsightsClient.EventType}s, whose name is qualified with its object
+     * and action.
+     */
+    public static TelemetryEvent ofType(AppInsightsClient.EventType type, String name, Map<String, String> properties,
+                                        Map<String, Double> metrics) {
+        return new TelemetryEvent(name, type.name(), false, properties, metrics);
+    }
+
+    /**
+     * Create an event whose name still has to be qualified with the event name prefix when it is sent, for events
+     * raised before the telemetry configuration is known.
+     */
+    public static TelemetryEvent withPendingPrefix(String name, Map<String, String> properties,
+                                                   Map<String, Double> metrics) {
+        return new TelemetryEvent(name, null, true, properties, metrics);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the event type the event was created with, null for events created by name only
+     */
+    public String getType() {
+        return type;
+    }
+
+    public boolean isPrefixPending() {
+        return prefixPending;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public Map<String, Double> getMetrics() {
+        return metrics;
+    }
+}
@@ -22,13 +22,17 @@
 
 package com.microsoft.azuretools.telemetry;
 
+import com.microsoft.azuretools.telemetry.metrics.HttpMetrics;
 import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class TelemetryInterceptor implements Interceptor {
@@ -39,15 +43,84 @@ public class TelemetryInterceptor implements Interceptor {
     static final String RESOURCE_PATH = "resource-path";
     static final String RESPONSE_CODE = "httpCode";
     static final String RESPONSE_MESSAGE = "httpMessage";
+    static final String CONTENT_LENGTH = "Content-Length";
+    // ARM responses are sent as <prefix>Azure.<provider>.<method>, the policy recognizes them by their event type
+    static final AppInsightsClient.EventType ARM_RESPONSE = AppInsightsClient.EventType.Azure;
 
     @Override
     public Response intercept(final Chain chain) throws IOException {
         final Request request = chain.request();
-        final Response response = chain.proceed(request);
+        final HttpMetrics.RequestTimer timer = HttpMetrics.getInstance().start();
+        final Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            recordMetrics(timer, request, null);
+            throw e;
+        }
+        recordMetrics(timer, request, response);
         sendTelemetry(response);
         return response;
     }
 
+    /**
+     * ARM retries happen in the rest client's retry handler, below this interceptor and invisible to it, so the
+     * recorded latency covers all attempts of the call and no retry count is kept.
+     */
+    static void recordMetrics(final HttpMetrics.RequestTimer timer, final Request request, final Response response) {
+        final HttpUrl url = request.url();
+        final List<String> segments = url.pathSegments();
+        final int index = segments.indexOf(PROVIDERS);
+        final String provider;
+        final String resourceType;
+        if (index >= 0 && index + 1 < segments.size()) {
+            provider = segments.get(index + 1);
+            resourceType = parseResourceType(segments, index + 2);
+        } else {
+            provider = url.host();
+            resourceType = segments.isEmpty() ? null : segments.get(0);
+        }
+        final int statusCode = response == null ? 0 : response.code();
+        final long responseBytes = response == null ? 0 : getContentLength(response);
+        timer.stop(provider, resourceType, request.method(), url.encodedPath(), statusCode,
+                getContentLength(request.body()), responseBytes);
+    }
+
+    /**
+     * resource type segments alternate with resource names after the provider, e.g. 'sites/{name}/config/web'.
+     */
+    private static String parseResourceType(final List<String> segments, final int from) {
+        if (from >= segments.size()) {
+            return null;
+        }
+        final StringBuilder type = new StringBuilder(segments.get(from));
+        for (int i = from + 2; i < segments.size(); i += 2) {
+            type.append('/').append(segments.get(i));
+        }
+        return type.toString();
+    }
+
+    private static long getContentLength(final RequestBody body) {
+        try {
+            return body == null ? 0 : body.contentLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long getContentLength(final Response response) {
+        final ResponseBody body = response.body();
+        final long length = body == null ? -1 : body.contentLength();
+        if (length >= 0) {
+            return length;
+        }
+        try {
+            return Long.parseLong(response.header(CONTENT_LENGTH, "-1"));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     private void sendTelemetry(final Response response) {
         final Map<String, String> properties = new HashMap<>();
         final HttpUrl httpUrl = response.request().url();
@@ -61,7 +134,7 @@ public class TelemetryInterceptor implements Interceptor {
         properties.put(RESPONSE_MESSAGE, response.message());
         parseRequestId(response, properties);
         parseSubscriptionId(httpUrl, properties);
-        AppInsightsClient.createByType(AppInsightsClient.EventType.Azure, objectName, response.request().method(), properties);
+        AppInsightsClient.createByType(ARM_RESPONSE, objectName, response.request().method(), properties);
     }
 
     private String parseProvider(final HttpUrl httpUrl, final Map<String, String> properties) {
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import com.microsoft.azuretools.authmanage.CommonSettings;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Sends telemetry off the caller's thread. Callers append to a lock-free queue; a single daemon thread drains it in
+ * batches of {@link #DEFAULT_BATCH_SIZE} events or every {@link #DEFAULT_MAX_BATCH_DELAY_MILLIS}, whichever comes
+ * first. The queue is bounded and drops its oldest events when full.
+ *
+ * Events that cannot be delivered, because the sink failed or the session ended before they were sent, go to a
+ * bounded JSON-lines spool in the settings directory, which is replayed once a sink is available again. Nothing is
+ * spooled until {@link #setSpoolEnabled(boolean)} says the user allows telemetry.
+ *
+ * A {@link TelemetryPolicy}, if set, decides which events are queued and hands over its aggregated events to the
+ * sender thread.
+ */
+public final class TelemetryPipeline {
+
+    private static final Logger LOGGER = Logger.getLogger(TelemetryPipeline.class.getName());
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_MAX_BATCH_DELAY_MILLIS = 5_000;
+    static final int MAX_SPOOLED_EVENTS = 5_000;
+    // Trimming leaves room, so the next failed batches are appended again instead of rewriting the spool each time.
+    static final int TRIMMED_SPOOLED_EVENTS = MAX_SPOOLED_EVENTS * 3 / 4;
+    private static final String SPOOL_FILE_NAME = "TelemetrySpool.jsonl";
+    private static final long CLOSE_TIMEOUT_MILLIS = 2_000;
+
+    private final ConcurrentLinkedQueue<TelemetryEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final int capacity;
+    private final int batchSize;
+    private final long maxBatchDelayNanos;
+    private final Supplier<Path> spoolFile;
+    private final Thread sender;
+    private volatile TelemetrySink sink;
+    private volatile TelemetryPolicy policy;
+    private volatile boolean closed;
+    private volatile boolean flushRequested;
+    // Whether the spool may hold events, checked once a sink is attached.
+    private volatile boolean spoolPending = true;
+    private volatile boolean spoolEnabled;
+    // Lines in the spool file, counted on first use, -1 until then.
+    private int spooledCount = -1;
+
+    private static final class SingletonHolder {
+        private static final TelemetryPipeline INSTANCE = createDefault();
+    }
+
+    public static TelemetryPipeline getInstance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    private static TelemetryPipeline createDefault() {
+        final TelemetryPipeline pipeline = new TelemetryPipeline(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE,
+                DEFAULT_MAX_BATCH_DELAY_MILLIS, TelemetryPipeline::defaultSpoolFile);
+        pipeline.setPolicy(TelemetryPolicy.createDefault());
+        pipeline.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(pipeline::close, "Telemetry-Pipeline-Shutdown"));
+        return pipeline;
+    }
+
+    TelemetryPipeline(int capacity, int batchSize, long maxBatchDelayMillis, Supplier<Path> spoolFile) {
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMillis);
+        this.spoolFile = spoolFile;
+        this.sender = new Thread(this::runSender, "Telemetry-Pipeline-Sender");
+        this.sender.setDaemon(true);
+    }
+
+    void start() {
+        sender.start();
+    }
+
+    /**
+     * Queue an event without blocking. When the queue is full the oldest queued event is dropped.
+     */
+    public void enqueue(TelemetryEvent event) {
+        if (event == null || closed) {
+            return;
+        }
+        final TelemetryPolicy current = policy;
+        if (current != null && !current.admit(event)) {
+            return;
+        }
+        offer(event);
+    }
+
+    private void offer(TelemetryEvent event) {
+        queue.offer(event);
+        int size = queued.incrementAndGet();
+        while (size > capacity && queue.poll() != null) {
+            size = queued.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+        if (size == batchSize) {
+            LockSupport.unpark(sender);
+        }
+    }
+
+    public TelemetryPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Filter the events queued from now on, {@code null} queues all of them.
+     */
+    public void setPolicy(TelemetryPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Attach the destination of the batches. Events queued or spooled while there was no sink are sent to it.
+     */
+    public void setSink(TelemetrySink sink) {
+        this.sink = sink;
+        wakeUp();
+    }
+
+    /**
+     * Allow unsent events to be written to the spool once telemetry is known to be allowed. Disabling it deletes the
+     * spool, so events of an opted-out user are neither kept nor replayed.
+     */
+    public void setSpoolEnabled(boolean enabled) {
+        spoolEnabled = enabled;
+        if (enabled) {
+            wakeUp();
+        } else {
+            deleteSpool();
+            spoolPending = false;
+        }
+    }
+
+    /**
+     * Ask the sender to send what is queued now instead of waiting for a full batch.
+     */
+    public void wakeUp() {
+        flushRequested = true;
+        LockSupport.unpark(sender);
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    /**
+     * Stop the sender and spool whatever it has not sent.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(sender);
+        try {
+            sender.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final TelemetryPolicy current = policy;
+        if (current != null) {
+            current.flush(this::offer);
+        }
+        final List<TelemetryEvent> rest = drain(Integer.MAX_VALUE);
+        if (!rest.isEmpty()) {
+            spool(rest);
+        }
+    }
+
+    private void runSender() {
+        long deadline = System.nanoTime() + maxBatchDelayNanos;
+        while (!closed) {
+            final TelemetryPolicy current = policy;
+            if (current != null) {
+                current.flushIfDue(this::offer);
+            }
+            final long now = System.nanoTime();
+            final boolean due = flushRequested || now - deadline >= 0 || queued.get() >= batchSize;
+            if (!due || sink == null) {
+                if (now - deadline >= 0) {
+                    deadline = now + maxBatchDelayNanos;
+                }
+                LockSupport.parkNanos(this, deadline - now);
+                continue;
+            }
+            flushRequested = false;
+            deadline = now + maxBatchDelayNanos;
+            try {
+                sendQueued();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Telemetry sender failed", e);
+            }
+        }
+    }
+
+    private void sendQueued() {
+        final TelemetrySink current = sink;
+        if (current == null) {
+            // Keep the events queued until a sink is attached.
+            return;
+        }
+        // A spool from an earlier session is only replayed once the user is known not to have opted out.
+        if (spoolPending && spoolEnabled && !replaySpool(current)) {
+            return;
+        }
+        List<TelemetryEvent> batch = drain(batchSize);
+        while (!batch.isEmpty()) {
+            if (!send(current, batch)) {
+                return;
+            }
+            batch = drain(batchSize);
+        }
+    }
+
+    private boolean send(TelemetrySink current, List<TelemetryEvent> batch) {
+        if (trySend(current, batch)) {
+            return true;
+        }
+        spool(batch);
+        return false;
+    }
+
+    private boolean trySend(TelemetrySink current, List<TelemetryEvent> batch) {
+        try {
+            current.send(batch);
+            sent.addAndGet(batch.size());
+            return true;
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Failed to send " + batch.size() + " telemetry events", e);
+            return false;
+        }
+    }
+
+    private List<TelemetryEvent> drain(int max) {
+        final List<TelemetryEvent> batch = new ArrayList<>(Math.min(max, Math.max(queued.get(), 0)));
+        TelemetryEvent event;
+        while (batch.size() < max && (event = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(event);
+        }
+        return batch;
+    }
+
+    /**
+     * Send the spool batch by batch. A batch leaves the file only once it was sent, so a failure or a crash during
+     * the replay keeps the unsent events.
+     */
+    private boolean replaySpool(TelemetrySink current) {
+        final List<String> lines = readSpool();
+        spoolPending = false;
+        for (int from = 0; from < lines.size(); from += batchSize) {
+            final int to = Math.min(from + batchSize, lines.size());
+            final List<TelemetryEvent> batch = parseSpooled(lines.subList(from, to));
+            if (!batch.isEmpty() && !trySend(current, batch)) {
+                spoolPending = true;
+                return false;
+            }
+            consumeSpool(to - from);
+        }
+        return true;
+    }
+
+    private synchronized void spool(List<TelemetryEvent> events) {
+        final Path file = spoolEnabled ? spoolFile.get() : null;
+        if (file == null) {
+            dropped.addAndGet(events.size());
+            return;
+        }
+        try {
+            final List<String> lines = new ArrayList<>(events.size());
+            for (TelemetryEvent event : events) {
+                lines.add(MAPPER.writeValueAsString(event));
+            }
+            if (spooledCount < 0) {
+                spooledCount = countLines(file);
+            }
+            if (spooledCount + lines.size() > MAX_SPOOLED_EVENTS) {
+                rewriteSpool(file, lines);
+            } else {
+                Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                spooledCount += lines.size();
+            }
+            spoolPending = true;
+        } catch (IOException e) {
+            dropped.addAndGet(events.size());
+            spooledCount = -1;
+            LOGGER.log(Level.WARNING, "Failed to spool telemetry", e);
+        }
+    }
+
+    private void rewriteSpool(Path file, List<String> appended) throws IOException {
+        final List<String> lines = Files.exists(file)
+                ? new ArrayList<>(Files.readAllLines(file, StandardCharsets.UTF_8)) : new ArrayList<>();
+        lines.addAll(appended);
+        final int overflow = lines.size() - TRIMMED_SPOOLED_EVENTS;
+        if (overflow > 0) {
+            dropped.addAndGet(overflow);
+            lines.subList(0, overflow).clear();
+        }
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        spooledCount = lines.size();
+    }
+
+    private static int countLines(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return (int) lines.count();
+        }
+    }
+
+    private synchronized List<String> readSpool() {
+        final Path file = spoolFile.get();
+        if (file == null || !Files.exists(file)) {
+            return Collections.emptyList();
+        }
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the telemetry spool", e);
+            return Collections.emptyList();
+        }
+    }
+
+    private static List<TelemetryEvent> parseSpooled(List<String> lines) {
+        final List<TelemetryEvent> events = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            try {
+                final TelemetryEvent event = MAPPER.readValue(line, TelemetryEvent.class);
+                if (event != null) {
+                    events.add(event);
+                }
+            } catch (IOException e) {
+                // Skip a line torn by a crash while spooling.
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Remove the first lines of the spool once they were sent, keeping whatever was appended since it was read.
+     */
+    private synchronized void consumeSpool(int count) {
+        final Path file = spoolFile.get();
+        if (file == null) {
+            return;
+        }
+        try {
+            final List<String> lines = Files.exists(file)
+                    ? Files.readAllLines(file, StandardCharsets.UTF_8) : Collections.emptyList();
+            if (lines.size() <= count) {
+                Files.deleteIfExists(file);
+                spooledCount = 0;
+                return;
+            }
+            final List<String> rest = lines.subList(count, lines.size());
+            final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, rest, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            spooledCount = rest.size();
+        } catch (IOException e) {
+            spooledCount = -1;
+            LOGGER.log(Level.WARNING, "Failed to update the telemetry spool", e);
+        }
+    }
+
+    private synchronized void deleteSpool() {
+        final Path file = spoolFile.get();
+        try {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            spooledCount = 0;
+        } catch (IOException e) {
+            spooledCount = -1;
+            LOGGER.log(Level.WARNING, "Failed to delete the telemetry spool", e);
+        }
+    }
+
+    private static Path defaultSpoolFile() {
+        final String baseDir = CommonSettings.getSettingsBaseDir();
+        return baseDir == null ? null : Paths.get(baseDir, SPOOL_FILE_NAME);
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import com.microsoft.azuretools.telemetrywrapper.CommonUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which events the {@link TelemetryPipeline} sends, so that bursts such as a bulk explorer refresh don't
+ * flood telemetry:
+ * <ul>
+ * <li>events of an operation are head sampled by its operation id, so an operation is kept or dropped as a whole,
+ * at the rate of {@value #SAMPLE_RATE_PROPERTY} (1 by default); a kept operation is sent in full, the sample rate is
+ * what bounds them;</li>
+ * <li>the high volume events, i.e. ARM responses and {@value #PERFORMANCE} histograms, are governed: those without
+ * metrics are aggregated, the first of identical events (same name and properties, ignoring timestamps and request
+ * ids) is sent, its repeats are counted and sent once per flush interval as one event with a {@value #COUNT} metric;
+ * the rest is rate limited by a token bucket per event name, see {@link #setRateLimit} for names which need their
+ * own limit;</li>
+ * <li>every other event is sent as is.</li>
+ * </ul>
+ */
+public final class TelemetryPolicy {
+    public static final String SAMPLE_RATE_PROPERTY = "azure.toolkit.telemetry.sample.rate";
+    public static final String COUNT = "count";
+    public static final String AGGREGATED = "aggregated";
+    public static final String PERFORMANCE = "PERFORMANCE";
+    public static final double DEFAULT_EVENTS_PER_SECOND = 5;
+    public static final int DEFAULT_BURST = 100;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    static final int MAX_BUCKETS = 1024;
+    static final int MAX_AGGREGATES = 1024;
+    private static final Set<String> VOLATILE_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList(CommonUtil.TIMESTAMP, TelemetryInterceptor.MS_REQUEST_ID)));
+    // event types or names of the governed events
+    private static final Set<String> GOVERNED_EVENTS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList(TelemetryInterceptor.ARM_RESPONSE.name(), PERFORMANCE)));
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, double[]> rateLimits = new ConcurrentHashMap<>();
+    private final Map<AggregateKey, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong aggregated = new AtomicLong();
+    private final double eventsPerSecond;
+    private final int burst;
+    private final long flushIntervalNanos;
+    private final LongSupplier clock;
+    private final TokenBucket overflow;
+    private volatile double sampleRate;
+    private volatile long lastFlushNanos;
+
+    TelemetryPolicy(double sampleRate, double eventsPerSecond, int burst, long flushIntervalMillis,
+                    LongSupplier clock) {
+        this.sampleRate = sampleRate;
+        this.eventsPerSecond = eventsPerSecond;
+        this.burst = burst;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.clock = clock;
+        this.lastFlushNanos = clock.getAsLong();
+        this.overflow = new TokenBucket(eventsPerSecond, burst, lastFlushNanos);
+    }
+
+    static TelemetryPolicy createDefault() {
+        double sampleRate = 1;
+        try {
+            sampleRate = Double.parseDouble(System.getProperty(SAMPLE_RATE_PROPERTY, "1"));
+        } catch (NumberFormatException ignore) {
+        }
+        return new TelemetryPolicy(sampleRate, DEFAULT_EVENTS_PER_SECOND, DEFAULT_BURST,
+                DEFAULT_FLUSH_INTERVAL_MILLIS, System::nanoTime);
+    }
+
+    /**
+     * @return whether the event is to be sent now, otherwise it was sampled out, counted or rate limited
+     */
+    public boolean admit(TelemetryEvent event) {
+        final Map<String, String> properties = event.getProperties();
+        final String operationId = properties == null ? null : properties.get(CommonUtil.OPERATION_ID);
+        if (operationId != null) {
+            if (!isSampled(operationId, sampleRate)) {
+                sampledOut.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+        if (!isGoverned(event)) {
+            return true;
+        }
+        // metrics of events such as latency histograms differ on every event and must not be merged into a count
+        final boolean measured = event.getMetrics() != null && !event.getMetrics().isEmpty();
+        if (!measured && isRepeated(event)) {
+            aggregated.incrementAndGet();
+            return false;
+        }
+        if (!getBucket(event.getName()).tryAcquire(clock.getAsLong())) {
+            rateLimited.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fraction of operations whose events are sent, between 0 and 1.
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Limit the governed events named {@code eventName}, a rate of 0 or less lifts the limit.
+     */
+    public void setRateLimit(String eventName, double eventsPerSecond, int burst) {
+        rateLimits.put(eventName, new double[]{eventsPerSecond, burst});
+        buckets.remove(eventName);
+    }
+
+    public long getSampledOutCount() {
+        return sampledOut.get();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    public long getAggregatedCount() {
+        return aggregated.get();
+    }
+
+    /**
+     * Send the counts of repeated events if the flush interval has passed.
+     */
+    void flushIfDue(Consumer<TelemetryEvent> out) {
+        final long now = clock.getAsLong();
+        if (now - lastFlushNanos >= flushIntervalNanos) {
+            lastFlushNanos = now;
+            flush(out);
+        }
+    }
+
+    /**
+     * Send the counts of repeated events and forget events seen without repeats.
+     */
+    void flush(Consumer<TelemetryEvent> out) {
+        for (Map.Entry<AggregateKey, Aggregate> entry : aggregates.entrySet()) {
+            final Aggregate aggregate = entry.getValue();
+            final long repeats = aggregate.repeats.sumThenReset();
+            if (repeats == 0) {
+                aggregates.remove(entry.getKey(), aggregate);
+                continue;
+            }
+            final AggregateKey key = entry.getKey();
+            final Map<String, String> properties = new HashMap<>(key.properties);
+            properties.put(AGGREGATED, "true");
+            final Map<String, Double> metrics = Collections.singletonMap(COUNT, (double) repeats);
+            out.accept(aggregate.prefixPending ? TelemetryEvent.withPendingPrefix(key.name, properties, metrics)
+                    : TelemetryEvent.of(key.name, properties, metrics));
+        }
+    }
+
+    /**
+     * Same decision for the same operation id in every session, from the id's hash.
+     */
+    static boolean isSampled(String operationId, double rate) {
+        if (rate >= 1) {
+            return true;
+        }
+        if (rate <= 0) {
+            return false;
+        }
+        int hash = operationId.hashCode();
+        // murmur3 finalizer, spreads the bits of close ids
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return (hash & 0xffffffffL) < rate * 0x1p32;
+    }
+
+    private static boolean isGoverned(TelemetryEvent event) {
+        final String type = event.getType();
+        return GOVERNED_EVENTS.contains(type == null ? event.getName() : type);
+    }
+
+    private boolean isRepeated(TelemetryEvent event) {
+        final Map<String, String> properties = event.getProperties() == null
+                ? Collections.emptyMap() : event.getProperties();
+        // looked up by the event's own properties, they are only copied for a new aggregate
+        final AggregateKey probe = new AggregateKey(event.getName(), properties);
+        final Aggregate aggregate = aggregates.get(probe);
+        if (aggregate != null) {
+            aggregate.repeats.increment();
+            return true;
+        }
+        if (aggregates.size() < MAX_AGGREGATES) {
+            final AggregateKey key = new AggregateKey(event.getName(), stableProperties(properties));
+            final Aggregate raced = aggregates.putIfAbsent(key, new Aggregate(event.isPrefixPending()));
+            if (raced != null) {
+                raced.repeats.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> stableProperties(Map<String, String> properties) {
+        final Map<String, String> stable = new HashMap<>();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            if (!VOLATILE_PROPERTIES.contains(entry.getKey())) {
+                stable.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return stable;
+    }
+
+    private TokenBucket getBucket(String name) {
+        if (name == null) {
+            return overflow;
+        }
+        final TokenBucket bucket = buckets.get(name);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= MAX_BUCKETS) {
+            return overflow;
+        }
+        final double[] limit = rateLimits.get(name);
+        final TokenBucket created = limit == null ? new TokenBucket(eventsPerSecond, burst, clock.getAsLong())
+                : new TokenBucket(limit[0], (int) limit[1], clock.getAsLong());
+        final TokenBucket raced = buckets.putIfAbsent(name, created);
+        return raced == null ? created : raced;
+    }
+
+    static final class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastNanos;
+
+        TokenBucket(double tokensPerSecond, int capacity, long nowNanos) {
+            this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastNanos = nowNanos;
+        }
+
+        synchronized boolean tryAcquire(long nowNanos) {
+            if (tokensPerNano <= 0) {
+                return true;
+            }
+            tokens = Math.min(capacity, tokens + Math.max(0, nowNanos - lastNanos) * tokensPerNano);
+            lastNanos = nowNanos;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+
+    /**
+     * Name and properties of an event, the {@link #VOLATILE_PROPERTIES} are left out of its hash and equality.
+     */
+    private static final class AggregateKey {
+        private final String name;
+        private final Map<String, String> properties;
+        private final int size;
+        private final int hash;
+
+        private AggregateKey(String name, Map<String, String> properties) {
+            this.name = name;
+            this.properties = properties;
+            int stableSize = 0;
+            int propertiesHash = 0;
+            for (Map.Entry<String, String> entry : properties.entrySet()) {
+                if (!VOLATILE_PROPERTIES.contains(entry.getKey())) {
+                    stableSize++;
+                    // same as Map.hashCode, independent of the iteration order
+                    propertiesHash += Objects.hashCode(entry.getKey()) ^ Objects.hashCode(entry.getValue());
+                }
+            }
+            this.size = stableSize;
+            this.hash = 31 * Objects.hashCode(name) + propertiesHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof AggregateKey)) {
+                return false;
+            }
+            final AggregateKey other = (AggregateKey) o;
+            if (hash != other.hash || size != other.size || !Objects.equals(name, other.name)) {
+                return false;
+            }
+            for (Map.Entry<String, String> entry : properties.entrySet()) {
+                final String key = entry.getKey();
+                if (VOLATILE_PROPERTIES.contains(key)) {
+                    continue;
+                }
+                final String value = entry.getValue();
+                if (!Objects.equals(value, other.properties.get(key))
+                        || (value == null && !other.properties.containsKey(key))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Aggregate {
+        private final boolean prefixPending;
+        private final LongAdder repeats = new LongAdder();
+
+        private Aggregate(boolean prefixPending) {
+            this.prefixPending = prefixPending;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe latency histogram in the style of HdrHistogram: values (in microseconds) below 64 are counted
+ * exactly, larger values in 32 linear sub-buckets per power of two, i.e. within ~3% of the recorded value.
+ * Recording is a couple of shifts and one atomic increment.
+ */
+public final class ConcurrentLatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT = SUB_BUCKETS << 1;
+    private static final int MAX_MAGNITUDE = 40; // ~12 days in microseconds, larger values are clamped.
+    private static final int BUCKETS = EXACT + (MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public void record(final long durationNanos) {
+        final long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos));
+        this.counts.incrementAndGet(indexOf(micros));
+        this.count.increment();
+        this.totalMicros.add(micros);
+        this.maxMicros.accumulate(micros);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getTotalMicros() {
+        return this.totalMicros.sum();
+    }
+
+    public long getMaxMicros() {
+        return this.maxMicros.get();
+    }
+
+    /**
+     * @return the highest value equivalent to the bucket holding the given percentile, in microseconds.
+     */
+    public long getPercentileMicros(final double percentile) {
+        final long total = this.getCount();
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), this.getMaxMicros());
+            }
+        }
+        return this.getMaxMicros();
+    }
+
+    static int indexOf(final long micros) {
+        if (micros < EXACT) {
+            return (int) micros;
+        }
+        final int magnitude = Math.min(MAX_MAGNITUDE, 63 - Long.numberOfLeadingZeros(micros));
+        if (magnitude == MAX_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        final int shift = magnitude - SUB_BUCKET_BITS;
+        final int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;
+        return EXACT + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(final int index) {
+        if (index < EXACT) {
+            return index;
+        }
+        final int magnitude = (index - EXACT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        final long subBucket = (index - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        final int shift = magnitude - SUB_BUCKET_BITS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
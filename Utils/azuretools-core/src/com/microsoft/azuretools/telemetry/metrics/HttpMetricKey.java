@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry.metrics;
+
+import java.util.Objects;
+
+/**
+ * Aggregation key of {@link HttpMetrics}: provider (e.g. 'Microsoft.Web', or the host for non-ARM calls),
+ * resource type (e.g. 'sites/config'), http method and status class (e.g. '2xx', or 'error' if no response).
+ */
+public final class HttpMetricKey implements Comparable<HttpMetricKey> {
+    static final String STATUS_ERROR = "error";
+
+    private final String provider;
+    private final String resourceType;
+    private final String method;
+    private final String statusClass;
+
+    public HttpMetricKey(final String provider, final String resourceType, final String method, final String statusClass) {
+        this.provider = provider;
+        this.resourceType = resourceType;
+        this.method = method;
+        this.statusClass = statusClass;
+    }
+
+    /**
+     * @param statusCode http status code, or a value <= 0 if no response was received.
+     */
+    public static String toStatusClass(final int statusCode) {
+        return statusCode <= 0 ? STATUS_ERROR : (statusCode / 100) + "xx";
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getStatusClass() {
+        return statusClass;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof HttpMetricKey)) {
+            return false;
+        }
+        final HttpMetricKey key = (HttpMetricKey) obj;
+        return Objects.equals(provider, key.provider) && Objects.equals(resourceType, key.resourceType)
+                && Objects.equals(method, key.method) && Objects.equals(statusClass, key.statusClass);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(provider, resourceType, method, statusClass);
+    }
+
+    @Override
+    public int compareTo(final HttpMetricKey other) {
+        return this.toString().compareTo(other.toString());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s/%s %s", method, provider, resourceType, statusClass);
+    }
+}
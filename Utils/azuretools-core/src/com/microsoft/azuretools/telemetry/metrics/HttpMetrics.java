@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry.metrics;
+
+import com.microsoft.azuretools.authmanage.CommonSettings;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local, in-process metrics of the toolkit's HTTP traffic (ARM calls through {@code TelemetryInterceptor} and
+ * HDInsight/Spark calls through {@code HttpObservable}). Requests are aggregated per {@link HttpMetricKey} and
+ * reported as JFR events when the JVM supports JFR. Nothing leaves the machine: {@link #dumpSnapshot()} writes the
+ * aggregates to a local file so that slowness can be diagnosed offline.
+ */
+public final class HttpMetrics {
+    static final int TOO_MANY_REQUESTS = 429;
+    private static final String SNAPSHOT_DIR = "metrics";
+    private static final String UNKNOWN = "-";
+
+    private static final String JFR_RECORDER = "com.microsoft.azuretools.telemetry.metrics.HttpRequestEvent$Recorder";
+
+    @Nullable
+    private static final HttpRequestRecorder RECORDER = loadRecorder();
+    private static final boolean JFR_AVAILABLE = RECORDER != null;
+    private static final HttpMetrics INSTANCE = new HttpMetrics();
+
+    private final Map<HttpMetricKey, HttpRequestStats> stats = new ConcurrentHashMap<>();
+    private volatile long since = System.currentTimeMillis();
+
+    HttpMetrics() {
+    }
+
+    public static HttpMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isJfrAvailable() {
+        return JFR_AVAILABLE;
+    }
+
+    /**
+     * start timing one request, call {@link RequestTimer#stop} once its response (or failure) is known.
+     */
+    public RequestTimer start() {
+        return new RequestTimer(this, System.nanoTime(), RECORDER != null ? RECORDER.begin() : null);
+    }
+
+    public void record(final HttpMetricKey key, final long durationNanos, final int statusCode,
+                       final long requestBytes, final long responseBytes) {
+        this.stats.computeIfAbsent(key, k -> new HttpRequestStats())
+                .record(statusCode, durationNanos, requestBytes, responseBytes);
+    }
+
+    public Map<HttpMetricKey, HttpRequestStats> getStats() {
+        return new TreeMap<>(this.stats);
+    }
+
+    public void reset() {
+        this.stats.clear();
+        this.since = System.currentTimeMillis();
+    }
+
+    /**
+     * write the current aggregates to a new file under the toolkit settings directory (or the temp directory).
+     *
+     * @return the written file
+     */
+    public Path dumpSnapshot() throws IOException {
+        final String baseDir = CommonSettings.getSettingsBaseDir();
+        final Path dir = Paths.get(baseDir == null ? System.getProperty("java.io.tmpdir") : baseDir, SNAPSHOT_DIR);
+        Files.createDirectories(dir);
+        final String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        final Path file = dir.resolve(String.format("http-metrics-%s.txt", timestamp));
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            this.writeSnapshot(writer);
+        }
+        return file;
+    }
+
+    public void writeSnapshot(final Writer writer) {
+        final PrintWriter out = new PrintWriter(writer);
+        out.printf("# Azure Toolkit HTTP metrics, %s - %s, uptime %ds, jfr events %s%n",
+                new Date(this.since), new Date(), TimeUnit.MILLISECONDS.toSeconds(ManagementFactory.getRuntimeMXBean().getUptime()),
+                JFR_AVAILABLE ? "on" : "unavailable");
+        out.println("# latencies in milliseconds, percentiles within ~3%");
+        out.printf("%-7s %-60s %-6s %8s %9s %9s %9s %9s %9s %11s %12s %12s%n", "method", "provider/resourceType",
+                "status", "count", "throttled", "p50", "p90", "p99", "max", "total", "bytesSent", "bytesRecv");
+        for (final Map.Entry<HttpMetricKey, HttpRequestStats> entry : this.getStats().entrySet()) {
+            final HttpMetricKey key = entry.getKey();
+            final HttpRequestStats stat = entry.getValue();
+            final ConcurrentLatencyHistogram latency = stat.getLatency();
+            out.printf("%-7s %-60s %-6s %8d %9d %9.1f %9.1f %9.1f %9.1f %11.1f %12d %12d%n", key.getMethod(),
+                    key.getProvider() + "/" + key.getResourceType(), key.getStatusClass(), latency.getCount(),
+                    stat.getThrottled(), toMillis(latency.getPercentileMicros(50)),
+                    toMillis(latency.getPercentileMicros(90)), toMillis(latency.getPercentileMicros(99)),
+                    toMillis(latency.getMaxMicros()), toMillis(latency.getTotalMicros()), stat.getBytesSent(),
+                    stat.getBytesReceived());
+        }
+        out.flush();
+    }
+
+    private static double toMillis(final long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * the JFR event is compiled separately from this class (and left out by the 'no-jfr' build profile), so it is only
+     * referenced by name here and never loaded on JVMs without JFR.
+     */
+    @Nullable
+    private static HttpRequestRecorder loadRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (HttpRequestRecorder) Class.forName(JFR_RECORDER).newInstance();
+        } catch (final ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+
+    public static final class RequestTimer {
+        private final HttpMetrics metrics;
+        private final long startNanos;
+        @Nullable
+        private final Object event;
+
+        private RequestTimer(final HttpMetrics metrics, final long startNanos, @Nullable final Object event) {
+            this.metrics = metrics;
+            this.startNanos = startNanos;
+            this.event = event;
+        }
+
+        /**
+         * @param provider      e.g. 'Microsoft.Web', or the host for non-ARM requests
+         * @param resourceType  e.g. 'sites/config'
+         * @param statusCode    http status code, or a value <= 0 if the request failed without a response
+         * @param requestBytes  request body size, negative if unknown
+         * @param responseBytes response body size, negative if unknown
+         */
+        public void stop(@Nullable final String provider, @Nullable final String resourceType, final String method,
+                         @Nullable final String path, final int statusCode, final long requestBytes,
+                         final long responseBytes) {
+            final long durationNanos = System.nanoTime() - this.startNanos;
+            final HttpMetricKey key = new HttpMetricKey(provider == null ? UNKNOWN : provider,
+                    resourceType == null ? UNKNOWN : resourceType, method, HttpMetricKey.toStatusClass(statusCode));
+            this.metrics.record(key, durationNanos, statusCode, requestBytes, responseBytes);
+            if (this.event != null) {
+                RECORDER.end(this.event, key, path, statusCode, requestBytes, responseBytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event committed for every request recorded by {@link HttpMetrics}. Only loaded by name through its
+ * {@link Recorder} when the running JVM supports JFR, see {@link HttpMetrics#isJfrAvailable()}.
+ */
+@Name("com.microsoft.azuretools.HttpRequest")
+@Label("Azure HTTP Request")
+@Category({"Azure Toolkit", "HTTP"})
+@Description("HTTP request sent by the Azure Toolkit")
+@StackTrace(false)
+final class HttpRequestEvent extends Event {
+    @Label("Provider")
+    String provider;
+
+    @Label("Resource Type")
+    String resourceType;
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status Code")
+    int statusCode;
+
+    @Label("Bytes Sent")
+    @DataAmount
+    long bytesSent;
+
+    @Label("Bytes Received")
+    @DataAmount
+    long bytesReceived;
+
+    static final class Recorder implements HttpRequestRecorder {
+        @Override
+        public Object begin() {
+            final HttpRequestEvent event = new HttpRequestEvent();
+            if (!event.isEnabled()) {
+                return null;
+            }
+            event.begin();
+            return event;
+        }
+
+        @Override
+        public void end(final Object begun, final HttpMetricKey key, final String path, final int statusCode,
+                        final long requestBytes, final long responseBytes) {
+            final HttpRequestEvent event = (HttpRequestEvent) begun;
+            event.end();
+            if (event.shouldCommit()) {
+                event.provider = key.getProvider();
+                event.resourceType = key.getResourceType();
+                event.method = key.getMethod();
+                event.path = path;
+                event.statusCode = statusCode;
+                event.bytesSent = requestBytes;
+                event.bytesReceived = responseBytes;
+                event.commit();
+            }
+        }
+    }
+}
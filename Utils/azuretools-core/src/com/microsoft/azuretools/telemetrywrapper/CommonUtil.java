@@ -24,12 +24,10 @@ package com.microsoft.azuretools.telemetrywrapper;
 
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.azuretools.adauth.StringUtils;
-import org.apache.commons.lang3.tuple.MutableTriple;
-import org.joda.time.Instant;
+import com.microsoft.azuretools.telemetry.TelemetryEvent;
+import com.microsoft.azuretools.telemetry.TelemetryPipeline;
+import com.microsoft.azuretools.telemetry.CompactTelemetryProperties;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 public class CommonUtil {
@@ -45,48 +43,59 @@ public class CommonUtil {
     public static final String SERVICE_NAME = "serviceName";
     public static final String TIMESTAMP = "timestamp";
     public static TelemetryClient client;
-    private static List<MutableTriple<EventType, Map, Map>> cachedEvents = new ArrayList<>();
 
+    /**
+     * Overlay {@code properties} on the common properties, which are referenced rather than copied. The result can
+     * still be changed before it is passed to {@link #sendTelemetry}.
+     */
     public static Map<String, String> mergeProperties(Map<String, String> properties) {
-        Map<String, String> commonProperties = TelemetryManager.getInstance().getCommonProperties();
-        Map<String, String> merged = new HashMap<>(commonProperties);
+        Map<String, String> common = TelemetryManager.getInstance().getCommonProperties();
+        CompactTelemetryProperties merged = new CompactTelemetryProperties(common);
         if (properties != null) {
             merged.putAll(properties);
         }
         return merged;
     }
 
-    public static synchronized void sendTelemetry(EventType eventType, String serviceName, Map<String, String> properties,
+    /**
+     * Queue an event. Properties returned by {@link #mergeProperties} are taken over as they are and must not be
+     * changed afterwards, other maps are copied.
+     */
+    public static void sendTelemetry(EventType eventType, String serviceName, Map<String, String> properties,
         Map<String, Double> metrics) {
-        Map<String, String> mutableProps = properties == null ? new HashMap<>() : new HashMap<>(properties);
+        TelemetryEvent event = createEvent(eventType, serviceName, properties, metrics);
+        TelemetryPipeline.getInstance().enqueue(event);
+    }
+
+    static TelemetryEvent createEvent(EventType eventType, String serviceName, Map<String, String> properties,
+        Map<String, Double> metrics) {
+        CompactTelemetryProperties eventProps;
+        if (properties instanceof CompactTelemetryProperties) {
+            eventProps = (CompactTelemetryProperties) properties;
+        } else {
+            eventProps = new CompactTelemetryProperties();
+            if (properties != null) {
+                eventProps.putAll(properties);
+            }
+        }
         // Tag UTC time as timestamp
-        mutableProps.put(TIMESTAMP, Instant.now().toString());
+        eventProps.putTimestamp(TIMESTAMP, System.currentTimeMillis());
         if (!StringUtils.isNullOrEmpty(serviceName)) {
-            mutableProps.put(SERVICE_NAME, serviceName);
-        }
-        if (client != null) {
-            final String eventName = getFullEventName(eventType);
-            client.trackEvent(eventName, mutableProps, metrics);
-            client.flush();
-        } else {
-            cacheEvents(eventType, mutableProps, metrics);
+            eventProps.put(SERVICE_NAME, serviceName);
         }
+        // Named when sent, events raised before the telemetry client is configured wait in the pipeline or its spool.
+        return TelemetryEvent.withPendingPrefix(eventType.name(), eventProps, metrics);
     }
 
     public static void clearCachedEvents() {
-        if (client != null) {
-            cachedEvents.forEach(triple -> client.trackEvent(getFullEventName(triple.left), triple.middle, triple.right));
-            client.flush();
-            cachedEvents.clear();
-        }
+        TelemetryPipeline.getInstance().wakeUp();
     }
 
-    private static void cacheEvents(EventType eventType, Map<String, String> mutableProps, Map<String, Double> metrics) {
-        cachedEvents.add(MutableTriple.of(eventType, mutableProps, metrics));
-    }
-
-    private static String getFullEventName(EventType eventType) {
-        return TelemetryManager.getInstance().getEventNamePrefix() + "/" + eventType.name();
+    static String getFullEventName(TelemetryEvent event) {
+        if (!event.isPrefixPending()) {
+            return event.getName();
+        }
+        return TelemetryManager.getInstance().getEventNamePrefix() + "/" + event.getName();
     }
 
 }
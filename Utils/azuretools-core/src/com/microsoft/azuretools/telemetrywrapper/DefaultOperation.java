@@ -67,15 +67,15 @@ public class DefaultOperation implements Operation {
             if (eventType == EventType.opStart || eventType == EventType.opEnd) {
                 return;
             }
-            Map<String, String> mutableProps = properties == null ? new HashMap<>() : new HashMap<>(properties);
-            mutableProps.put(OPERATION_ID, operationId);
-            mutableProps.put(OPERATION_NAME, operationName);
+            Map<String, String> mergedProps = mergeProperties(properties);
+            mergedProps.put(OPERATION_ID, operationId);
+            mergedProps.put(OPERATION_NAME, operationName);
 
             Map<String, Double> mutableMetrics = metrics == null ? new HashMap<>() : new HashMap<>(metrics);
             if (eventType == EventType.step) {
                 mutableMetrics.put(DURATION, Double.valueOf(System.currentTimeMillis() - timeStart));
             }
-            sendTelemetry(eventType, serviceName, mergeProperties(mutableProps), mutableMetrics);
+            sendTelemetry(eventType, serviceName, mergedProps, mutableMetrics);
         } catch (Exception ignore) {
         }
     }
@@ -144,20 +144,20 @@ public class DefaultOperation implements Operation {
             error.className = e == null ? "" : e.getClass().getName();
             error.stackTrace = ExceptionUtils.getStackTrace(e);
 
-            Map<String, String> mutableProps = properties == null ? new HashMap<>() : new HashMap<>(properties);
-            mutableProps.put(ERROR_CODE, "1");
-            mutableProps.put(ERROR_TYPE, error.errorType.name());
-            mutableProps.put(ERROR_CLASSNAME, error.className);
+            Map<String, String> mergedProps = mergeProperties(properties);
+            mergedProps.put(ERROR_CODE, "1");
+            mergedProps.put(ERROR_TYPE, error.errorType.name());
+            mergedProps.put(ERROR_CLASSNAME, error.className);
             if (logErrorTraces && isAbleToCollectErrorStacks()) {
-                mutableProps.put(ERROR_MSG, error.errMsg);
-                mutableProps.put(ERROR_STACKTRACE, error.stackTrace);
+                mergedProps.put(ERROR_MSG, error.errMsg);
+                mergedProps.put(ERROR_STACKTRACE, error.stackTrace);
             }
-            mutableProps.put(OPERATION_ID, operationId);
-            mutableProps.put(OPERATION_NAME, operationName);
+            mergedProps.put(OPERATION_ID, operationId);
+            mergedProps.put(OPERATION_NAME, operationName);
 
             Map<String, Double> mutableMetrics = metrics == null ? new HashMap<>() : new HashMap<>(metrics);
             mutableMetrics.put(DURATION, Double.valueOf(System.currentTimeMillis() - timeStart));
-            sendTelemetry(EventType.error, serviceName, mergeProperties(mutableProps), mutableMetrics);
+            sendTelemetry(EventType.error, serviceName, mergedProps, mutableMetrics);
         } catch (Exception ignore) {
         }
     }
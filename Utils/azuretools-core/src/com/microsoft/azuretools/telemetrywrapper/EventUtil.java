@@ -28,7 +28,6 @@ import com.microsoft.azuretools.sdkmanage.AzureManager;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.function.Consumer;
@@ -41,11 +40,11 @@ public class EventUtil {
     public static void logEvent(EventType eventType, String serviceName, String operName, Map<String, String> properties,
         Map<String, Double> metrics) {
         try {
-            // Parameter properties might be a ImmutableMap, which means calling properties.put will lead to UnsupportedOperationException
-            Map<String, String> mutableProps = properties == null ? new HashMap<>() : new HashMap<>(properties);
-            mutableProps.put(CommonUtil.OPERATION_NAME, operName);
-            mutableProps.put(CommonUtil.OPERATION_ID, UUID.randomUUID().toString());
-            sendTelemetry(eventType, serviceName, mergeProperties(mutableProps), metrics);
+            // Parameter properties might be a ImmutableMap, the merged copy is the one to change
+            Map<String, String> mergedProps = mergeProperties(properties);
+            mergedProps.put(CommonUtil.OPERATION_NAME, operName);
+            mergedProps.put(CommonUtil.OPERATION_ID, UUID.randomUUID().toString());
+            sendTelemetry(eventType, serviceName, mergedProps, metrics);
         } catch (Exception ignore) {
         }
     }
@@ -220,17 +219,17 @@ public class EventUtil {
     private static void logError(String serviceName, String operName, ErrorType errorType, Throwable e,
                                 Map<String, String> properties, Map<String, Double> metrics, boolean logErrorTraces) {
         try {
-            Map<String, String> mutableProps = properties == null ? new HashMap<>() : new HashMap<>(properties);
-            mutableProps.put(CommonUtil.OPERATION_NAME, operName);
-            mutableProps.put(CommonUtil.OPERATION_ID, UUID.randomUUID().toString());
-            mutableProps.put(CommonUtil.ERROR_CODE, "1");
-            mutableProps.put(CommonUtil.ERROR_CLASSNAME, e != null ? e.getClass().getName() : "");
-            mutableProps.put(CommonUtil.ERROR_TYPE, errorType.name());
+            Map<String, String> mergedProps = mergeProperties(properties);
+            mergedProps.put(CommonUtil.OPERATION_NAME, operName);
+            mergedProps.put(CommonUtil.OPERATION_ID, UUID.randomUUID().toString());
+            mergedProps.put(CommonUtil.ERROR_CODE, "1");
+            mergedProps.put(CommonUtil.ERROR_CLASSNAME, e != null ? e.getClass().getName() : "");
+            mergedProps.put(CommonUtil.ERROR_TYPE, errorType.name());
             if (logErrorTraces && isAbleToCollectErrorStacks()) {
-                mutableProps.put(CommonUtil.ERROR_MSG, e != null ? e.getMessage() : "");
-                mutableProps.put(CommonUtil.ERROR_STACKTRACE, ExceptionUtils.getStackTrace(e));
+                mergedProps.put(CommonUtil.ERROR_MSG, e != null ? e.getMessage() : "");
+                mergedProps.put(CommonUtil.ERROR_STACKTRACE, ExceptionUtils.getStackTrace(e));
             }
-            sendTelemetry(EventType.error, serviceName, mergeProperties(mutableProps), metrics);
+            sendTelemetry(EventType.error, serviceName, mergedProps, metrics);
         } catch (Exception ignore) {
         }
     }
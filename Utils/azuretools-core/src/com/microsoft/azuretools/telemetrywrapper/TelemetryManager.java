@@ -24,6 +24,8 @@ package com.microsoft.azuretools.telemetrywrapper;
 
 import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.azuretools.ActionConstants;
+import com.microsoft.azuretools.telemetry.TelemetryEvent;
+import com.microsoft.azuretools.telemetry.TelemetryPipeline;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -32,7 +34,7 @@ import java.util.Map;
 public class TelemetryManager {
 
     private String eventNamePrefix = "";
-    private Map<String, String> commonProperties = Collections.unmodifiableMap(new HashMap<>());
+    private volatile Map<String, String> commonProperties = Collections.emptyMap();
 
     private static final class SingletonHolder {
         private static final TelemetryManager INSTANCE = new TelemetryManager();
@@ -47,6 +49,13 @@ public class TelemetryManager {
 
     public void setTelemetryClient(TelemetryClient telemetryClient) {
         CommonUtil.client = telemetryClient;
+        TelemetryPipeline.getInstance().setSink(telemetryClient == null ? null : batch -> {
+            for (TelemetryEvent event : batch) {
+                telemetryClient.trackEvent(CommonUtil.getFullEventName(event), event.getProperties(),
+                    event.getMetrics());
+            }
+            telemetryClient.flush();
+        });
     }
 
     public String getEventNamePrefix() {
@@ -65,9 +74,12 @@ public class TelemetryManager {
         return commonProperties;
     }
 
+    /**
+     * The properties are copied once here, events share the copy instead of copying them again.
+     */
     public synchronized void setCommonProperties(Map<String, String> commonProperties) {
         if (commonProperties != null) {
-            this.commonProperties = Collections.unmodifiableMap(commonProperties);
+            this.commonProperties = Collections.unmodifiableMap(new HashMap<>(commonProperties));
         }
     }
 
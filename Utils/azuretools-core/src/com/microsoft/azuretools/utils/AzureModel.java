@@ -43,6 +43,8 @@ public class AzureModel {
     private Map<ResourceGroup, List<WebApp>> resourceGroupToWebAppMap = null;
     private Map<ResourceGroup, List<AppServicePlan>> resourceGroupToAppServicePlanMap = null;
     private Map<String, Subscription> sidToSubscriptionMap = null;
+    private AzureModelSnapshot snapshot = null;
+    private String snapshotKey = null;
 
 
     private static AzureModel instance = null;
@@ -124,4 +126,22 @@ public class AzureModel {
         return new ConcurrentHashMap<ResourceGroup, List<AppServicePlan>>();
     }
 
+    // == snapshot
+
+    /**
+     * The snapshot saved for the given key, it is read from disk on first use.
+     */
+    public synchronized AzureModelSnapshot getSnapshot(String key) {
+        if (!key.equals(snapshotKey)) {
+            snapshot = AzureModelSnapshot.load(key);
+            snapshotKey = key;
+        }
+        return snapshot;
+    }
+
+    public synchronized void setSnapshot(AzureModelSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.snapshotKey = snapshot == null ? null : snapshot.getKey();
+    }
+
 }
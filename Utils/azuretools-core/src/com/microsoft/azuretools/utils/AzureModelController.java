@@ -22,7 +22,6 @@
 
 package com.microsoft.azuretools.utils;
 
-import com.microsoft.azure.management.Azure;
 import com.microsoft.azure.management.appservice.AppServicePlan;
 import com.microsoft.azure.management.appservice.WebApp;
 import com.microsoft.azure.management.resources.Location;
@@ -35,20 +34,12 @@ import com.microsoft.azuretools.authmanage.SubscriptionManager;
 import com.microsoft.azuretools.authmanage.models.SubscriptionDetail;
 import com.microsoft.azuretools.sdkmanage.AzureManager;
 import com.microsoft.azuretools.utils.WebAppUtils.WebAppDetails;
-import rx.Observable;
-import rx.Subscriber;
-import rx.exceptions.Exceptions;
-import rx.functions.Action1;
-import rx.functions.Func1;
-import rx.schedulers.Schedulers;
-
-import java.util.Collections;
-import java.util.Comparator;
+
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -92,6 +83,7 @@ public class AzureModelController {
         azureModel.setSubscriptionToResourceGroupMap(null);
         azureModel.setResourceGroupToWebAppMap(null);
         azureModel.setResourceGroupToAppServicePlanMap(null);
+        azureModel.setSnapshot(null);
 
         // TODO: notify subscribers
 
@@ -131,42 +123,12 @@ public class AzureModelController {
             return;
         }
 
+        List<SubscriptionDetail> added = new LinkedList<>();
         for (SubscriptionDetail sd : sdl) {
             if (!srgMap.containsKey(sd)) {
-                if (!sd.isSelected()) {
-                    continue;
-                }
-
-                if (progressIndicator != null && progressIndicator.isCanceled()) {
-                    progressIndicator.setText("Cancelling...");
-                    clearAll();
-                    return;
-                    // TODO: throw exception?
+                if (sd.isSelected()) {
+                    added.add(sd);
                 }
-
-                // subscription locations
-                List<Subscription> sl = azureManager.getSubscriptions();
-                System.out.println("Updating subscription locations");
-                Subscription subscription = sidToSubscriptionMap.get(sd.getSubscriptionId());
-                if (progressIndicator != null) {
-                    progressIndicator.setText(String.format("Updating subscription '%s' locations...", subscription.displayName()));
-                }
-                List<Location> locl = subscription.listLocations();
-                Collections.sort(locl, new Comparator<Location>() {
-                    @Override
-                    public int compare(Location lhs, Location rhs) {
-                        return lhs.displayName().compareTo(rhs.displayName());
-                    }
-                });
-
-                Map<SubscriptionDetail, List<Location>> sdlocMap = azureModel.getSubscriptionToLocationMap();
-                sdlocMap.put(sd, locl);
-
-                // resource group maps
-                Azure azure = azureManager.getAzure(sd.getSubscriptionId());
-                List<ResourceGroup> rgList = azure.resourceGroups().list();
-                srgMap.put(sd, rgList);
-                updateResGrDependency(azure, rgList, progressIndicator, rgwaMap, rgspMap);
             } else {
                 // find and modify the key
                 for (SubscriptionDetail sdk : srgMap.keySet()) {
@@ -176,61 +138,28 @@ public class AzureModelController {
                 }
             }
         }
-    }
-
-    static class RgDepParams {
-        ResourceGroup rg;
-        List<WebApp> wal;
-        List<AppServicePlan> aspl;
-
-        public RgDepParams(ResourceGroup rg, List<WebApp> wal, List<AppServicePlan> aspl) {
-            this.rg = rg;
-            this.wal = wal;
-            this.aspl = aspl;
-        }
-    }
-
-    private static void updateResGrDependency(Azure azure,
-                                              List<ResourceGroup> rgList,
-                                              IProgressIndicator progressIndicator,
-                                              Map<ResourceGroup, List<WebApp>> rgwaMap,
-                                              Map<ResourceGroup, List<AppServicePlan>> rgspMap) {
-
-        if (progressIndicator != null) {
-            progressIndicator.setText("Reading App Services...");
-        }
-        int tasksSize = rgList.size();
-        if (tasksSize == 0) {
+        if (added.isEmpty()) {
             return;
         }
-        Observable.from(rgList).flatMap(new Func1<ResourceGroup, Observable<? extends RgDepParams>>() {
-            @Override
-            public Observable<? extends RgDepParams> call(ResourceGroup rg) {
-                return Observable.create(new Observable.OnSubscribe<RgDepParams>() {
-                    @Override
-                    public void call(Subscriber<? super RgDepParams> subscriber) {
-                        List<WebApp> wal = azure.webApps().listByResourceGroup(rg.name());
-                        List<AppServicePlan> aspl = azure.appServices().appServicePlans().listByResourceGroup(rg.name())
-                                .stream().collect(Collectors.toList());
-                        subscriber.onNext(new RgDepParams(rg, wal, aspl));
-                        subscriber.onCompleted();
-                    }
-                }).subscribeOn(Schedulers.io());
+
+        // only the newly selected subscriptions are loaded, the maps of the others are left untouched
+        Map<SubscriptionDetail, List<ResourceGroup>> addedRgMap = new ConcurrentHashMap<>();
+        Map<SubscriptionDetail, List<Location>> addedLocMap = new ConcurrentHashMap<>();
+        AzureModelRefresher refresher = new AzureModelRefresher(azureManager, progressIndicator);
+        try {
+            refresher.refreshSubscriptions(added, sidToSubscriptionMap, addedRgMap, addedLocMap);
+            if (rgwaMap != null && rgspMap != null) {
+                refresher.refreshResourceGroups(addedRgMap, rgwaMap, rgspMap);
             }
-        }, tasksSize)
-                .subscribeOn(Schedulers.newThread())
-                .toBlocking()
-                .subscribe(new Action1<RgDepParams>() {
-                    @Override
-                    public void call(RgDepParams params) {
-                        synchronized (rgwaMap) {
-                            synchronized (rgspMap) {
-                                rgwaMap.put(params.rg, params.wal);
-                                rgspMap.put(params.rg, params.aspl);
-                            }
-                        }
-                    }
-                });
+        } catch (CanceledByUserException e) {
+            LOGGER.info("AzureModelController.subscriptionSelectionChanged: canceled");
+        } finally {
+            srgMap.putAll(addedRgMap);
+            Map<SubscriptionDetail, List<Location>> sdlocMap = azureModel.getSubscriptionToLocationMap();
+            if (sdlocMap != null) {
+                sdlocMap.putAll(addedLocMap);
+            }
+        }
     }
 
     public static synchronized void updateSubscriptionMaps(IProgressIndicator progressIndicator) throws CanceledByUserException {
@@ -240,8 +169,13 @@ public class AzureModelController {
             return;
         }
 
+        refreshSubscriptionMaps(azureManager, progressIndicator);
+        saveSnapshot(azureManager);
+    }
+
+    private static void refreshSubscriptionMaps(AzureManager azureManager, IProgressIndicator progressIndicator)
+            throws CanceledByUserException {
         if (progressIndicator != null && progressIndicator.isCanceled()) {
-            clearAll();
             throw new CanceledByUserException();
         }
         AzureModel azureModel = AzureModel.getInstance();
@@ -257,44 +191,31 @@ public class AzureModelController {
             sidToSubscriptionMap.put(s.subscriptionId(), s);
         }
         azureModel.setSidToSubscriptionMap(sidToSubscriptionMap);
-        Map<SubscriptionDetail, List<Location>> sdlocMap = azureModel.createSubscriptionToRegionMap();
-        Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = azureModel.createSubscriptionToResourceGroupMap();
+        Map<SubscriptionDetail, List<Location>> sdlocMap = azureModel.getSubscriptionToLocationMap();
+        if (sdlocMap == null) {
+            sdlocMap = azureModel.createSubscriptionToRegionMap();
+        }
+        Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = azureModel.getSubscriptionToResourceGroupMap();
+        if (sdrgMap == null) {
+            sdrgMap = azureModel.createSubscriptionToResourceGroupMap();
+        }
 
         SubscriptionManager subscriptionManager = azureManager.getSubscriptionManager();
         subscriptionManager.addListener(subscriptionSelectionListener);
 
         List<SubscriptionDetail> sdl = subscriptionManager.getSubscriptionDetails();
-        if (sdl.size() > 0) {
-            Observable.from(sdl).flatMap((sd) ->
-                    Observable.create((subscriber) -> {
-                        try {
-                            if (progressIndicator != null && progressIndicator.isCanceled()) {
-                                clearAll();
-                                throw new CanceledByUserException();
-                            }
-                            if (sd.isSelected()) {
-                                if (progressIndicator != null) {
-                                    progressIndicator.setText("Reading subscription");
-                                }
-                                Azure azure = azureManager.getAzure(sd.getSubscriptionId());
-
-                                List<ResourceGroup> rgList = azure.resourceGroups().list();
-                                sdrgMap.put(sd, rgList);
-
-                                if (sidToSubscriptionMap.containsKey(sd.getSubscriptionId())) {
-                                    final List<Location> locations = sidToSubscriptionMap.get(sd.getSubscriptionId()).listLocations();
-                                    Collections.sort(locations, Comparator.comparing(Location::displayName));
-                                    sdlocMap.put(sd, locations);
-                                }
-                            }
-                            subscriber.onCompleted();
-                        } catch (Exception e) {
-                            Exceptions.propagate(e);
-                        }
-                    }).subscribeOn(Schedulers.io()), sdl.size()).subscribeOn(Schedulers.io()).toBlocking().subscribe();
+        // drop subscriptions which are gone or no longer selected
+        List<SubscriptionDetail> selected = sdl.stream().filter(SubscriptionDetail::isSelected).collect(Collectors.toList());
+        sdrgMap.keySet().retainAll(selected);
+        sdlocMap.keySet().retainAll(selected);
+        try {
+            new AzureModelRefresher(azureManager, progressIndicator)
+                    .refreshSubscriptions(sdl, sidToSubscriptionMap, sdrgMap, sdlocMap);
+        } finally {
+            // a canceled refresh keeps what was loaded so far
+            azureModel.setSubscriptionToResourceGroupMap(sdrgMap);
+            azureModel.setSubscriptionToLocationMap(sdlocMap);
         }
-        azureModel.setSubscriptionToResourceGroupMap(sdrgMap);
-        azureModel.setSubscriptionToLocationMap(sdlocMap);
     }
 
     public static synchronized void updateResourceGroupMaps(IProgressIndicator progressIndicator) throws CanceledByUserException {
@@ -304,67 +225,69 @@ public class AzureModelController {
             return;
         }
 
-        updateSubscriptionMaps(progressIndicator);
+        refreshSubscriptionMaps(azureManager, progressIndicator);
         AzureModel azureModel = AzureModel.getInstance();
-        Map<ResourceGroup, List<WebApp>> rgwaMap = azureModel.createResourceGroupToWebAppMap();
-        Map<ResourceGroup, List<AppServicePlan>> rgspMap = azureModel.createResourceGroupToAppServicePlanMap();
-        Set<SubscriptionDetail> sdSet = azureModel.getSubscriptionToResourceGroupMap().keySet();
-        if (sdSet.size() == 0) {
+        Map<ResourceGroup, List<WebApp>> rgwaMap = azureModel.getResourceGroupToWebAppMap();
+        if (rgwaMap == null) {
+            rgwaMap = azureModel.createResourceGroupToWebAppMap();
+        }
+        Map<ResourceGroup, List<AppServicePlan>> rgspMap = azureModel.getResourceGroupToAppServicePlanMap();
+        if (rgspMap == null) {
+            rgspMap = azureModel.createResourceGroupToAppServicePlanMap();
+        }
+
+        Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = azureModel.getSubscriptionToResourceGroupMap();
+        AzureModelRefresher refresher = new AzureModelRefresher(azureManager, progressIndicator);
+        try {
+            refresher.refreshResourceGroups(sdrgMap, rgwaMap, rgspMap);
+            // only a completed refresh knows which resource groups are gone
+            refresher.removeStaleResourceGroups(sdrgMap, rgwaMap, rgspMap);
+        } finally {
             azureModel.setResourceGroupToWebAppMap(rgwaMap);
             azureModel.setResourceGroupToAppServicePlanMap(rgspMap);
-            return;
         }
+        saveSnapshot(azureManager);
+    }
 
-        CountDownLatch countDownLatch = new CountDownLatch(sdSet.size());
-        Observable.from(sdSet).flatMap((sd) ->
-                Observable.create((subscriber) -> {
-                    try {
-                        List<ResourceGroup> rgList = azureModel.getSubscriptionToResourceGroupMap().get(sd);
-                        if (rgList.size() > 0) {
-                            Azure azure = azureManager.getAzure(sd.getSubscriptionId());
-                            updateResGrDependency(azure, rgList, progressIndicator, rgwaMap, rgspMap);
-                        }
-                        subscriber.onCompleted();
-                    } catch (Exception e) {
-                        Exceptions.propagate(e);
-                    } finally {
-                        countDownLatch.countDown();
-                    }
-                }).subscribeOn(Schedulers.io()), sdSet.size()).subscribeOn(Schedulers.io()).subscribe();
-
-        Thread cancelCheckThread = new Thread(() -> {
-            try {
-                while (true) {
-                    if (progressIndicator != null && progressIndicator.isCanceled()) {
-                        long count = countDownLatch.getCount();
-                        for (long i = 0; i < count; i++) {
-                            countDownLatch.countDown();
-                        }
-                        clearAll();
-                        break;
-                    }
-                    if (countDownLatch.getCount() <= 0) {
-                        break;
-                    }
-                    Thread.sleep(1000);
-                }
-            } catch (Exception ex) {
-            }
-        });
-        cancelCheckThread.setDaemon(true);
-        cancelCheckThread.start();
+    /**
+     * The model as it was after the last completed refresh of the signed in account, possibly from a previous
+     * session. Dialogs can render it right away and then call {@link #updateResourceGroupMaps} to revalidate.
+     *
+     * @return null if not signed in or nothing was saved yet
+     */
+    public static AzureModelSnapshot getSnapshot() {
+        AzureManager azureManager = AuthMethodManager.getInstance().getAzureManager();
+        if (azureManager == null) {
+            return null;
+        }
+        return AzureModel.getInstance().getSnapshot(getSnapshotKey(azureManager));
+    }
+
+    private static String getSnapshotKey(AzureManager azureManager) {
+        return AzureModelSnapshot.createKey(azureManager.getCurrentUserId(), azureManager.getEnvironment().getName());
+    }
 
+    /**
+     * Forget the snapshot of the given account, nothing of it is kept on disk after sign out.
+     */
+    public static void deleteSnapshot(AzureManager azureManager) {
+        AzureModel.getInstance().setSnapshot(null);
         try {
-            countDownLatch.await();
-        } catch (Exception ignore) {
+            AzureModelSnapshot.delete(getSnapshotKey(azureManager));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "AzureModelController.deleteSnapshot: failed to delete the snapshot", e);
         }
+    }
 
-        if (progressIndicator != null && progressIndicator.isCanceled()) {
-            throw new CanceledByUserException();
+    private static void saveSnapshot(AzureManager azureManager) {
+        AzureModel azureModel = AzureModel.getInstance();
+        AzureModelSnapshot snapshot = AzureModelSnapshot.capture(getSnapshotKey(azureManager), azureModel);
+        azureModel.setSnapshot(snapshot);
+        try {
+            snapshot.save();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "AzureModelController.saveSnapshot: failed to write the snapshot", e);
         }
-
-        azureModel.setResourceGroupToWebAppMap(rgwaMap);
-        azureModel.setResourceGroupToAppServicePlanMap(rgspMap);
     }
 
     public static void addNewResourceGroup(SubscriptionDetail sd, ResourceGroup rg) {
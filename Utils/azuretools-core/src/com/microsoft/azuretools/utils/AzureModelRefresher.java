@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azure.management.Azure;
+import com.microsoft.azure.management.appservice.AppServicePlan;
+import com.microsoft.azure.management.appservice.WebApp;
+import com.microsoft.azure.management.resources.Location;
+import com.microsoft.azure.management.resources.ResourceGroup;
+import com.microsoft.azure.management.resources.Subscription;
+import com.microsoft.azuretools.authmanage.models.SubscriptionDetail;
+import com.microsoft.azuretools.sdkmanage.AzureManager;
+import com.microsoft.azuretools.utils.WebAppUtils.WebAppDetails;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Incremental refresh of the {@link AzureModel} maps.
+ * ARM requests run on a bounded scheduler, which caps them globally. Web apps and app service plans are listed
+ * once per subscription and bucketed by resource group with a {@link ResourceGroupIndex}, so the number of
+ * requests doesn't grow with the number of resource groups. Fresh results are merged into the existing maps instead of replacing them, resource
+ * groups keep their identity so they stay usable as map keys, and only web app changes to already loaded resource
+ * groups are published through {@link AzureUIRefreshCore}. A cancelled refresh stops issuing requests and leaves
+ * the model with everything merged so far.
+ */
+final class AzureModelRefresher {
+    private static final Logger LOGGER = Logger.getLogger(AzureModelRefresher.class.getName());
+    static final int MAX_CONCURRENT_REQUESTS = 8;
+    private static final long CANCEL_CHECK_INTERVAL_MILLIS = 200;
+    private static final Scheduler ARM_SCHEDULER = Schedulers.from(
+            Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS, r -> {
+                final Thread thread = new Thread(r, "azure-model-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }));
+
+    private final AzureManager azureManager;
+    private final IProgressIndicator progressIndicator;
+    private final AtomicBoolean canceled = new AtomicBoolean();
+    private final List<AzureUIRefreshEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+    AzureModelRefresher(AzureManager azureManager, IProgressIndicator progressIndicator) {
+        this.azureManager = azureManager;
+        this.progressIndicator = progressIndicator;
+    }
+
+    /**
+     * Refresh resource groups and locations of the selected subscriptions.
+     */
+    void refreshSubscriptions(List<SubscriptionDetail> sdl,
+                              Map<String, Subscription> sidToSubscriptionMap,
+                              Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap,
+                              Map<SubscriptionDetail, List<Location>> sdlocMap) throws CanceledByUserException {
+        final List<SubscriptionDetail> selected = sdl.stream()
+                .filter(SubscriptionDetail::isSelected)
+                .collect(Collectors.toList());
+        if (progressIndicator != null) {
+            progressIndicator.setText("Reading subscription");
+        }
+
+        await(Observable.from(selected).flatMap(sd -> request("list resource groups of " + sd.getSubscriptionId(), () -> {
+            final Azure azure = azureManager.getAzure(sd.getSubscriptionId());
+            final List<ResourceGroup> rgList = mergeById(sdrgMap.get(sd), azure.resourceGroups().list(), ResourceGroup::id);
+            final Subscription subscription = sidToSubscriptionMap.get(sd.getSubscriptionId());
+            // locations hardly ever change, keep the ones we have
+            final List<Location> locations = sdlocMap.containsKey(sd) || subscription == null
+                    ? null : sortedLocations(subscription);
+            if (!canceled.get()) {
+                sdrgMap.put(sd, rgList);
+                if (locations != null) {
+                    sdlocMap.put(sd, locations);
+                }
+            }
+        }), MAX_CONCURRENT_REQUESTS));
+    }
+
+    /**
+     * Refresh web apps and app service plans of the resource groups of the given subscriptions.
+     */
+    void refreshResourceGroups(Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap,
+                               Map<ResourceGroup, List<WebApp>> rgwaMap,
+                               Map<ResourceGroup, List<AppServicePlan>> rgspMap) throws CanceledByUserException {
+        if (progressIndicator != null) {
+            progressIndicator.setText("Reading App Services...");
+        }
+        try {
+            await(Observable.from(new ArrayList<>(sdrgMap.entrySet())).flatMap(entry ->
+                    refreshResourceGroups(entry.getKey(), new ArrayList<>(entry.getValue()), rgwaMap, rgspMap),
+                    MAX_CONCURRENT_REQUESTS));
+        } finally {
+            publishEvents();
+        }
+    }
+
+    /**
+     * Drop web apps and app service plans of resource groups which are no longer listed for any subscription.
+     */
+    void removeStaleResourceGroups(Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap,
+                                   Map<ResourceGroup, List<WebApp>> rgwaMap,
+                                   Map<ResourceGroup, List<AppServicePlan>> rgspMap) {
+        final Set<ResourceGroup> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        sdrgMap.values().forEach(live::addAll);
+        for (ResourceGroup rg : new ArrayList<>(rgwaMap.keySet())) {
+            if (!live.contains(rg)) {
+                final List<WebApp> removed = rgwaMap.remove(rg);
+                if (removed != null) {
+                    removed.forEach(app -> publish(AzureUIRefreshEvent.EventType.REMOVE, rg, app, null));
+                }
+            }
+        }
+        rgspMap.keySet().removeIf(rg -> !live.contains(rg));
+        publishEvents();
+    }
+
+    private Observable<Void> refreshResourceGroups(SubscriptionDetail sd, List<ResourceGroup> rgList,
+                                                   Map<ResourceGroup, List<WebApp>> rgwaMap,
+                                                   Map<ResourceGroup, List<AppServicePlan>> rgspMap) {
+        final String sid = sd.getSubscriptionId();
+        // a failed listing leaves all the resource groups of the subscription as they were
+        return Observable.merge(
+                request("list web apps of " + sid, () -> {
+                    final ResourceGroupIndex<WebApp> index = ResourceGroupIndex.of(
+                            azureManager.getAzure(sid).webApps().list(), WebApp::id);
+                    if (canceled.get()) {
+                        return;
+                    }
+                    for (ResourceGroup rg : rgList) {
+                        final List<WebApp> wal = index.list(rg.name());
+                        final List<WebApp> previous = rgwaMap.put(rg, wal);
+                        if (previous != null) {
+                            diffWebApps(sd, rg, previous, wal);
+                        }
+                    }
+                }),
+                request("list app service plans of " + sid, () -> {
+                    final ResourceGroupIndex<AppServicePlan> index = ResourceGroupIndex.of(
+                            azureManager.getAzure(sid).appServices().appServicePlans().list(), AppServicePlan::id);
+                    if (canceled.get()) {
+                        return;
+                    }
+                    for (ResourceGroup rg : rgList) {
+                        rgspMap.put(rg, index.list(rg.name()));
+                    }
+                }));
+    }
+
+    private void diffWebApps(SubscriptionDetail sd, ResourceGroup rg, List<WebApp> previous, List<WebApp> current) {
+        final Map<String, WebApp> before = new HashMap<>();
+        previous.forEach(app -> before.put(app.id().toLowerCase(), app));
+        for (WebApp app : current) {
+            final WebApp old = before.remove(app.id().toLowerCase());
+            if (old == null) {
+                publish(AzureUIRefreshEvent.EventType.ADD, rg, app, sd);
+            } else if (!Objects.equals(old.state(), app.state())) {
+                publish(AzureUIRefreshEvent.EventType.UPDATE, rg, app, sd);
+            }
+        }
+        before.values().forEach(app -> publish(AzureUIRefreshEvent.EventType.REMOVE, rg, app, sd));
+    }
+
+    private void publish(AzureUIRefreshEvent.EventType type, ResourceGroup rg, WebApp app, SubscriptionDetail sd) {
+        events.add(new AzureUIRefreshEvent(type, new WebAppDetails(rg, app, null, null, sd)));
+    }
+
+    private void publishEvents() {
+        final List<AzureUIRefreshEvent> pending;
+        synchronized (events) {
+            pending = new ArrayList<>(events);
+            events.clear();
+        }
+        if (AzureUIRefreshCore.listeners != null) {
+            pending.forEach(AzureUIRefreshCore::execute);
+        }
+    }
+
+    private Observable<Void> request(String name, Request request) {
+        return Observable.<Void>fromCallable(() -> {
+            if (!canceled.get()) {
+                request.run();
+            }
+            return null;
+        }).subscribeOn(ARM_SCHEDULER).onErrorResumeNext(e -> {
+            // keep what we had for this part of the model
+            LOGGER.log(Level.WARNING, "Failed to " + name, e);
+            return Observable.empty();
+        });
+    }
+
+    private void await(Observable<Void> work) throws CanceledByUserException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final rx.Subscription subscription = work.subscribe(ignore -> {
+        }, e -> {
+            LOGGER.log(Level.WARNING, "Azure model refresh failed", e);
+            done.countDown();
+        }, done::countDown);
+        try {
+            while (!done.await(CANCEL_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (progressIndicator != null && progressIndicator.isCanceled()) {
+                    cancel(subscription);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(subscription);
+        }
+        if (progressIndicator != null && progressIndicator.isCanceled()) {
+            cancel(subscription);
+        }
+    }
+
+    private void cancel(rx.Subscription subscription) throws CanceledByUserException {
+        canceled.set(true);
+        subscription.unsubscribe();
+        if (progressIndicator != null) {
+            progressIndicator.setText("Cancelling...");
+        }
+        throw new CanceledByUserException();
+    }
+
+    private static List<Location> sortedLocations(Subscription subscription) {
+        final List<Location> locations = new ArrayList<>(subscription.listLocations());
+        locations.sort(Comparator.comparing(Location::displayName));
+        return locations;
+    }
+
+    /**
+     * Items of {@code fresh} which were already known are replaced by the previous instance, so the
+     * maps keyed by them stay valid.
+     */
+    private static <T> List<T> mergeById(List<T> previous, List<T> fresh, Function<T, String> id) {
+        final Map<String, T> known = new HashMap<>();
+        if (previous != null) {
+            previous.forEach(item -> known.put(id.apply(item).toLowerCase(), item));
+        }
+        final List<T> merged = new ArrayList<>(fresh.size());
+        for (T item : fresh) {
+            merged.add(known.getOrDefault(id.apply(item).toLowerCase(), item));
+        }
+        return merged;
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void run() throws Exception;
+    }
+}
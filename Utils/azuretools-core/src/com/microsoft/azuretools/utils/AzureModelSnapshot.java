@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azure.management.appservice.AppServicePlan;
+import com.microsoft.azure.management.appservice.JavaVersion;
+import com.microsoft.azure.management.appservice.WebApp;
+import com.microsoft.azure.management.resources.Location;
+import com.microsoft.azure.management.resources.ResourceGroup;
+import com.microsoft.azuretools.adauth.JsonHelper;
+import com.microsoft.azuretools.authmanage.CommonSettings;
+import com.microsoft.azuretools.authmanage.FileStorage;
+import com.microsoft.azuretools.authmanage.models.SubscriptionDetail;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * On-disk copy of the {@link AzureModel} maps, reduced to the ids and the few fields the dialogs display.
+ * It lets the UI render right after startup while the live model is refreshed in the background.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+public class AzureModelSnapshot {
+    private static final Logger LOGGER = Logger.getLogger(AzureModelSnapshot.class.getName());
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_NAME_PREFIX = "AzureModelSnapshot-";
+
+    @JsonProperty
+    private int version = FORMAT_VERSION;
+    @JsonProperty
+    private String key;
+    @JsonProperty
+    private long savedAt;
+    @JsonProperty
+    private List<SubscriptionEntry> subscriptions = new ArrayList<>();
+
+    // for json mapper
+    @SuppressWarnings("unused")
+    private AzureModelSnapshot() {}
+
+    private AzureModelSnapshot(String key, long savedAt) {
+        this.key = key;
+        this.savedAt = savedAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    public List<SubscriptionEntry> getSubscriptions() {
+        return Collections.unmodifiableList(subscriptions);
+    }
+
+    /**
+     * Capture the current content of the model, subscriptions which are not selected are left out.
+     */
+    public static AzureModelSnapshot capture(String key, AzureModel azureModel) {
+        final AzureModelSnapshot snapshot = new AzureModelSnapshot(key, System.currentTimeMillis());
+        final Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = azureModel.getSubscriptionToResourceGroupMap();
+        if (sdrgMap == null) {
+            return snapshot;
+        }
+        final Map<SubscriptionDetail, List<Location>> sdlocMap = azureModel.getSubscriptionToLocationMap();
+        final Map<ResourceGroup, List<WebApp>> rgwaMap = azureModel.getResourceGroupToWebAppMap();
+        final Map<ResourceGroup, List<AppServicePlan>> rgspMap = azureModel.getResourceGroupToAppServicePlanMap();
+        for (Map.Entry<SubscriptionDetail, List<ResourceGroup>> entry : sdrgMap.entrySet()) {
+            final SubscriptionDetail sd = entry.getKey();
+            if (!sd.isSelected()) {
+                continue;
+            }
+            final SubscriptionEntry se = new SubscriptionEntry(sd.getSubscriptionId(), sd.getSubscriptionName());
+            final List<Location> locations = sdlocMap == null ? null : sdlocMap.get(sd);
+            if (locations != null) {
+                se.locations = new ArrayList<>(locations.size());
+                for (Location location : locations) {
+                    se.locations.add(new LocationEntry(location.name(), location.displayName()));
+                }
+            }
+            for (ResourceGroup rg : entry.getValue()) {
+                final ResourceGroupEntry rge = new ResourceGroupEntry(rg.id(), rg.name(), rg.regionName());
+                final List<WebApp> webApps = rgwaMap == null ? null : rgwaMap.get(rg);
+                if (webApps != null) {
+                    rge.webApps = new ArrayList<>(webApps.size());
+                    for (WebApp webApp : webApps) {
+                        rge.webApps.add(WebAppEntry.of(webApp));
+                    }
+                }
+                final List<AppServicePlan> plans = rgspMap == null ? null : rgspMap.get(rg);
+                if (plans != null) {
+                    rge.appServicePlans = new ArrayList<>(plans.size());
+                    for (AppServicePlan plan : plans) {
+                        rge.appServicePlans.add(new AppServicePlanEntry(plan.id(), plan.name(),
+                                String.valueOf(plan.pricingTier()), String.valueOf(plan.operatingSystem())));
+                    }
+                }
+                se.resourceGroups.add(rge);
+            }
+            snapshot.subscriptions.add(se);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Load the snapshot saved for the given key, null if there is none or it can not be read.
+     */
+    public static AzureModelSnapshot load(String key) {
+        try {
+            // FileStorage creates the file, don't leave an empty one behind for an account without snapshot
+            if (!Files.exists(Paths.get(CommonSettings.getSettingsBaseDir(), getFileName(key)))) {
+                return null;
+            }
+            final FileStorage fs = new FileStorage(getFileName(key), CommonSettings.getSettingsBaseDir());
+            final String json = new String(fs.read(), StandardCharsets.UTF_8);
+            if (json.isEmpty()) {
+                return null;
+            }
+            final AzureModelSnapshot snapshot = JsonHelper.deserialize(AzureModelSnapshot.class, json);
+            // a snapshot written by another format or hashed from another key is as good as none
+            return snapshot.version == FORMAT_VERSION && key.equals(snapshot.key) ? snapshot : null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "AzureModelSnapshot.load: failed to read the snapshot", e);
+            return null;
+        }
+    }
+
+    public void save() throws IOException {
+        final FileStorage fs = new FileStorage(getFileName(key), CommonSettings.getSettingsBaseDir());
+        fs.write(JsonHelper.serialize(this).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void delete(String key) throws IOException {
+        Files.deleteIfExists(Paths.get(CommonSettings.getSettingsBaseDir(), getFileName(key)));
+    }
+
+    /**
+     * Build the key of the snapshot, one snapshot is kept per account and Azure environment.
+     */
+    public static String createKey(String account, String environment) {
+        return account + "@" + environment;
+    }
+
+    static String getFileName(String key) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder sb = new StringBuilder(FILE_NAME_PREFIX);
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.append(".json").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public static class SubscriptionEntry {
+        @JsonProperty
+        private String subscriptionId;
+        @JsonProperty
+        private String subscriptionName;
+        @JsonProperty
+        private List<LocationEntry> locations;
+        @JsonProperty
+        private List<ResourceGroupEntry> resourceGroups = new ArrayList<>();
+
+        @SuppressWarnings("unused")
+        private SubscriptionEntry() {}
+
+        SubscriptionEntry(String subscriptionId, String subscriptionName) {
+            this.subscriptionId = subscriptionId;
+            this.subscriptionName = subscriptionName;
+        }
+
+        public String getSubscriptionId() {
+            return subscriptionId;
+        }
+
+        public String getSubscriptionName() {
+            return subscriptionName;
+        }
+
+        /**
+         * Null when the locations of the subscription were not loaded yet.
+         */
+        public List<LocationEntry> getLocations() {
+            return locations;
+        }
+
+        public List<ResourceGroupEntry> getResourceGroups() {
+            return resourceGroups;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class LocationEntry {
+        @JsonProperty
+        private String name;
+        @JsonProperty
+        private String displayName;
+
+        @SuppressWarnings("unused")
+        private LocationEntry() {}
+
+        LocationEntry(String name, String displayName) {
+            this.name = name;
+            this.displayName = displayName;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public static class ResourceGroupEntry {
+        @JsonProperty
+        private String id;
+        @JsonProperty
+        private String name;
+        @JsonProperty
+        private String region;
+        @JsonProperty
+        private List<WebAppEntry> webApps;
+        @JsonProperty
+        private List<AppServicePlanEntry> appServicePlans;
+
+        @SuppressWarnings("unused")
+        private ResourceGroupEntry() {}
+
+        ResourceGroupEntry(String id, String name, String region) {
+            this.id = id;
+            this.name = name;
+            this.region = region;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getRegion() {
+            return region;
+        }
+
+        /**
+         * Null when the web apps of the resource group were not loaded yet.
+         */
+        public List<WebAppEntry> getWebApps() {
+            return webApps;
+        }
+
+        /**
+         * Null when the app service plans of the resource group were not loaded yet.
+         */
+        public List<AppServicePlanEntry> getAppServicePlans() {
+            return appServicePlans;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public static class WebAppEntry {
+        @JsonProperty
+        private String id;
+        @JsonProperty
+        private String name;
+        @JsonProperty
+        private String state;
+        @JsonProperty
+        private String appServicePlanId;
+        @JsonProperty
+        private String defaultHostName;
+        @JsonProperty
+        private boolean java;
+        @JsonProperty
+        private String javaVersion;
+        @JsonProperty
+        private String javaRuntime;
+
+        @SuppressWarnings("unused")
+        private WebAppEntry() {}
+
+        static WebAppEntry of(WebApp webApp) {
+            final WebAppEntry entry = new WebAppEntry();
+            entry.id = webApp.id();
+            entry.name = webApp.name();
+            entry.state = webApp.state();
+            entry.appServicePlanId = webApp.appServicePlanId();
+            entry.defaultHostName = webApp.defaultHostName();
+            try {
+                entry.java = WebAppUtils.isJavaWebApp(webApp);
+                if (entry.java) {
+                    entry.javaRuntime = WebAppUtils.getJavaRuntime(webApp);
+                    entry.javaVersion = webApp.javaVersion() != JavaVersion.OFF
+                            ? webApp.javaVersion().toString() : entry.javaRuntime;
+                }
+            } catch (RuntimeException e) {
+                // runtime details are only for display, the app is kept without them
+                LOGGER.log(Level.FINE, "AzureModelSnapshot: no runtime details for " + entry.id, e);
+            }
+            return entry;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public String getAppServicePlanId() {
+            return appServicePlanId;
+        }
+
+        public String getDefaultHostName() {
+            return defaultHostName;
+        }
+
+        public boolean isJava() {
+            return java;
+        }
+
+        public String getJavaVersion() {
+            return javaVersion;
+        }
+
+        public String getJavaRuntime() {
+            return javaRuntime;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class AppServicePlanEntry {
+        @JsonProperty
+        private String id;
+        @JsonProperty
+        private String name;
+        @JsonProperty
+        private String pricingTier;
+        @JsonProperty
+        private String operatingSystem;
+
+        @SuppressWarnings("unused")
+        private AppServicePlanEntry() {}
+
+        AppServicePlanEntry(String id, String name, String pricingTier, String operatingSystem) {
+            this.id = id;
+            this.name = name;
+            this.pricingTier = pricingTier;
+            this.operatingSystem = operatingSystem;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPricingTier() {
+            return pricingTier;
+        }
+
+        public String getOperatingSystem() {
+            return operatingSystem;
+        }
+    }
+}
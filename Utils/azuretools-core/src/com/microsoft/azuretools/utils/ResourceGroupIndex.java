@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azure.management.resources.fluentcore.arm.ResourceUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Resources of a subscription-wide listing grouped by the resource group in their ARM ids. One paged
+ * {@code list()} per resource type and subscription then replaces a {@code listByResourceGroup} per group.
+ * Resource group names are matched case-insensitively, as ARM does.
+ */
+public final class ResourceGroupIndex<T> {
+    private final Map<String, List<T>> groups;
+    private final int size;
+
+    private ResourceGroupIndex(Map<String, List<T>> groups, int size) {
+        this.groups = groups;
+        this.size = size;
+    }
+
+    /**
+     * Index the resources by the resource group of their id, resources without a parsable id are left out.
+     */
+    public static <T> ResourceGroupIndex<T> of(Iterable<T> resources, Function<T, String> id) {
+        final Map<String, List<T>> groups = new HashMap<>();
+        int size = 0;
+        for (T resource : resources) {
+            final String group = groupOf(id.apply(resource));
+            if (group != null) {
+                groups.computeIfAbsent(group, k -> new ArrayList<>()).add(resource);
+                size++;
+            }
+        }
+        return new ResourceGroupIndex<>(groups, size);
+    }
+
+    /**
+     * @return a new modifiable list of the resources in the resource group, empty when there are none
+     */
+    public List<T> list(String resourceGroupName) {
+        final List<T> resources = groups.get(resourceGroupName.toLowerCase(Locale.ROOT));
+        return resources == null ? new ArrayList<>() : new ArrayList<>(resources);
+    }
+
+    /**
+     * @return lower case names of the resource groups with at least one resource
+     */
+    public Set<String> resourceGroupNames() {
+        return Collections.unmodifiableSet(groups.keySet());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static String groupOf(String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            final String group = ResourceUtils.groupFromResourceId(id);
+            return group == null ? null : group.toLowerCase(Locale.ROOT);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.operation;
+
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskContext;
+import org.jtwig.JtwigModel;
+import org.jtwig.JtwigTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Microbenchmark of the per-call cost of an {@link AzureOperation} method woven by {@link AzureOperationAspect},
+ * and of rendering its title with the cached {@link AzureOperationMetadata} versus compiling templates per call.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.microsoft.azure.toolkit.lib.common.operation.AzureOperationBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AzureOperationBenchmark {
+    private static final String WEBAPP_ID = "/subscriptions/sub/resourceGroups/rg/providers/Microsoft.Web/sites/app";
+
+    private final WebAppService service = new WebAppService();
+    private AzureOperationRef ref;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        // operations invoked outside of any task run in an orphan context, which is logged on every push.
+        Logger.getLogger(AzureTaskContext.class.getName()).setLevel(Level.SEVERE);
+        final Method method = WebAppService.class.getDeclaredMethod("deploy", String.class, String.class);
+        final String[] paramNames = {"appId", "artifact"};
+        final Object[] paramValues = {WEBAPP_ID, "app.war"};
+        ref = AzureOperationRef.builder()
+            .instance(service)
+            .method(method)
+            .paramNames(paramNames)
+            .paramValues(paramValues)
+            .metadata(AzureOperationMetadata.of(method, paramNames))
+            .build();
+    }
+
+    @Benchmark
+    public String invokeOperation() {
+        return service.deploy(WEBAPP_ID, "app.war");
+    }
+
+    @Benchmark
+    public String invokePlain() {
+        return service.deployPlain(WEBAPP_ID, "app.war");
+    }
+
+    @Benchmark
+    public String renderTitle() {
+        return AzureOperationUtils.getOperationTitle(ref);
+    }
+
+    @Benchmark
+    public String renderTitleUncached() {
+        final AzureOperation annotation = ref.getMethod().getAnnotation(AzureOperation.class);
+        final JtwigTemplate appId = JtwigTemplate.inlineTemplate("{{appId|uri_to_name}}", AzureOperationUtils.jgConfig);
+        final JtwigTemplate region = JtwigTemplate.inlineTemplate("{{region}}", AzureOperationUtils.jgConfig);
+        return String.format(annotation.value(),
+            appId.render(JtwigModel.newModel().with("appId", WEBAPP_ID)),
+            region.render(JtwigModel.newModel().with("region", service.region)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AzureOperationBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    public static class WebAppService {
+        private final String region = "westus";
+
+        @AzureOperation(value = "deploy artifact to web app(%s) in %s", params = {"$appId|uri_to_name", "@region"},
+            type = AzureOperation.Type.SERVICE)
+        public String deploy(String appId, String artifact) {
+            return artifact;
+        }
+
+        public String deployPlain(String appId, String artifact) {
+            return artifact;
+        }
+    }
+}
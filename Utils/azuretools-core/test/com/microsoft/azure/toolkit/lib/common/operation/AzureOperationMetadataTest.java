@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.operation;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AzureOperationMetadataTest {
+
+    @Test
+    public void testRenderTitle() throws Exception {
+        final AzureOperationRef ref = ref(new AzureOperationBenchmark.WebAppService(),
+            "/subscriptions/sub/resourceGroups/rg/providers/Microsoft.Web/sites/app", "app.war");
+
+        assertEquals("deploy artifact to web app(app) in westus", AzureOperationUtils.getOperationTitle(ref));
+        assertEquals("deploy artifact to web app(app) in westus", AzureOperationUtils.getOperationTitle(ref));
+        assertEquals("SERVICE", ref.getType());
+        assertEquals("deploy artifact to web app(%s) in %s", ref.getName());
+    }
+
+    @Test
+    public void testRenderTitleWithoutValues() throws Exception {
+        final AzureOperationRef ref = ref(null, null, "app.war");
+
+        assertEquals("deploy artifact to web app(null) in null", AzureOperationUtils.getOperationTitle(ref));
+    }
+
+    @Test
+    public void testMetadataIsCachedPerMethod() throws Exception {
+        final Method method = AzureOperationBenchmark.WebAppService.class.getDeclaredMethod("deploy", String.class, String.class);
+        final String[] paramNames = {"appId", "artifact"};
+
+        assertSame(AzureOperationMetadata.of(method, paramNames), AzureOperationMetadata.of(method, paramNames));
+        assertSame(method.getAnnotation(AzureOperation.class), AzureOperationMetadata.of(method, paramNames).getAnnotation());
+    }
+
+    private static AzureOperationRef ref(Object instance, Object... paramValues) throws NoSuchMethodException {
+        final Method method = AzureOperationBenchmark.WebAppService.class.getDeclaredMethod("deploy", String.class, String.class);
+        return AzureOperationRef.builder()
+            .instance(instance)
+            .method(method)
+            .paramNames(new String[]{"appId", "artifact"})
+            .paramValues(paramValues)
+            .build();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.performance;
+
+import com.microsoft.azure.toolkit.lib.common.operation.IAzureOperation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AzureOperationSpanRecorderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Map<String, String>> emittedProperties = new ArrayList<>();
+    private final List<Map<String, Double>> emittedMetrics = new ArrayList<>();
+
+    @Test
+    public void testCompositeIdsStartFromNearestAction() {
+        final AzureOperationSpan root = new AzureOperationSpan(op("a", "create app(foo)", "ACTION"), null, 0);
+        final AzureOperationSpan task = new AzureOperationSpan(op("b", "load", "TASK"), root, 0);
+        final AzureOperationSpan service = new AzureOperationSpan(op("c", "call", "SERVICE"), task, 0);
+        final AzureOperationSpan action = new AzureOperationSpan(op("d", "deploy", "ACTION"), service, 0);
+        final AzureOperationSpan nested = new AzureOperationSpan(op("e", "upload", "SERVICE"), action, 0);
+
+        assertEquals("/a", root.getCompositeId());
+        assertEquals("/", root.getParentId());
+        assertEquals("/a/b/c", service.getCompositeId());
+        assertEquals("/a/b/c/d", action.getCompositeId());
+        assertEquals("/d/e", nested.getCompositeId());
+        assertEquals("d", nested.getParentId());
+        assertEquals("create app(***)", root.getName());
+    }
+
+    @Test
+    public void testEmitOneEventPerName() {
+        final AzureOperationSpanRecorder recorder = new AzureOperationSpanRecorder(16, this::emit);
+        for (int i = 1; i <= 10; i++) {
+            recorder.record(new AzureOperationSpan(op("x" + i, "list apps(sub" + i + ")", "SERVICE"), null, 0), i * 1_000_000L);
+        }
+        recorder.record(new AzureOperationSpan(op("y", "deploy", "ACTION"), null, 0), 5_000_000L);
+        recorder.emit();
+
+        assertEquals(2, emittedProperties.size());
+        final int index = "list apps(***)".equals(emittedProperties.get(0).get("name")) ? 0 : 1;
+        assertEquals("SERVICE", emittedProperties.get(index).get("type"));
+        final Map<String, Double> metrics = emittedMetrics.get(index);
+        assertEquals(10, metrics.get("count"), 0);
+        assertEquals(1, metrics.get("min_ms"), 0);
+        assertEquals(10, metrics.get("max_ms"), 0);
+        assertEquals(55, metrics.get("total_ms"), 0);
+        assertTrue(metrics.get("p50_ms") >= 5 && metrics.get("p50_ms") <= 10);
+
+        recorder.emit();
+        assertEquals("histograms are reset after emitting", 2, emittedProperties.size());
+    }
+
+    @Test
+    public void testDropSpansOverwrittenBeforeDrain() {
+        final AzureOperationSpanRecorder recorder = new AzureOperationSpanRecorder(8, this::emit);
+        for (int i = 0; i < 20; i++) {
+            recorder.record(new AzureOperationSpan(op("x" + i, "refresh", "TASK"), null, 0), 1_000L);
+        }
+        recorder.drain();
+
+        assertEquals(12, recorder.getDroppedCount());
+        recorder.emit();
+        assertEquals(8, emittedMetrics.get(0).get("count"), 0);
+        assertEquals(12, emittedMetrics.get(0).get("dropped"), 0);
+    }
+
+    @Test
+    public void testCsvExporter() throws Exception {
+        final File file = new File(folder.getRoot(), "performance.csv");
+        final AzureOperationSpanRecorder recorder = new AzureOperationSpanRecorder(16, this::emit);
+        recorder.addExporter(new CsvSpanExporter(file));
+        final AzureOperationSpan parent = new AzureOperationSpan(op("a", "deploy", "ACTION"), null, 0);
+        recorder.record(new AzureOperationSpan(op("b", "upload(file)", "SERVICE"), parent, 0), 2_500_000L);
+        recorder.record(parent, 3_000_000L);
+        recorder.drain();
+
+        final List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0), lines.get(0).startsWith("/a/b, "));
+        assertTrue(lines.get(0), lines.get(0).endsWith(", b, upload(***), SERVICE, 2.500, a"));
+        assertTrue(lines.get(1), lines.get(1).endsWith(", a, deploy, ACTION, 3.000, /"));
+    }
+
+    private void emit(Map<String, String> properties, Map<String, Double> metrics) {
+        emittedProperties.add(properties);
+        emittedMetrics.add(metrics);
+    }
+
+    private static IAzureOperation op(final String id, final String name, final String type) {
+        return new IAzureOperation() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getType() {
+                return type;
+            }
+        };
+    }
+}
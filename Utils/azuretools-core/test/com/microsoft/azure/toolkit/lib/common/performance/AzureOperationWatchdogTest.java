@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.performance;
+
+import com.microsoft.azure.toolkit.lib.common.operation.IAzureOperation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AzureOperationWatchdogTest {
+    private static final long THRESHOLD_MILLIS = 1000;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(AzureOperationWatchdog.TICK_MILLIS);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReportStalledOperationOnce() throws Exception {
+        final File report = new File(folder.getRoot(), "stalls.log");
+        final AzureOperationWatchdog watchdog = new AzureOperationWatchdog(THRESHOLD_MILLIS, () -> report, 1024 * 1024, 0);
+        final AzureOperationSpan action = new AzureOperationSpan(op("a", "deploy web app(foo)", "ACTION"), null, 0);
+        final AzureOperationSpan service = new AzureOperationSpan(op("b", "list apps(sub)", "SERVICE"), action, 0);
+        watchdog.watch(service);
+
+        watchdog.advance(millis(THRESHOLD_MILLIS) - 1);
+        assertEquals(0, watchdog.getStallCount());
+        assertFalse(report.exists());
+
+        watchdog.advance(millis(THRESHOLD_MILLIS));
+        assertEquals(1, watchdog.getStallCount());
+        final String content = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content, content.contains("list apps(***) [SERVICE] id:b"));
+        assertTrue(content, content.contains("deploy web app(***) [ACTION] id:a"));
+        assertTrue(content, content.contains(Thread.currentThread().getName()));
+        assertTrue(content, content.contains("testReportStalledOperationOnce"));
+
+        watchdog.advance(millis(10 * THRESHOLD_MILLIS));
+        assertEquals(1, watchdog.getStallCount());
+    }
+
+    @Test
+    public void testIgnoreClosedOperations() {
+        final File report = new File(folder.getRoot(), "stalls.log");
+        final AzureOperationWatchdog watchdog = new AzureOperationWatchdog(THRESHOLD_MILLIS, () -> report, 1024 * 1024, 0);
+        final AzureOperationSpan before = new AzureOperationSpan(op("a", "list apps", "SERVICE"), null, 0);
+        final AzureOperationSpan after = new AzureOperationSpan(op("b", "list apps", "SERVICE"), null, 0);
+        watchdog.watch(before);
+        before.close();
+        watchdog.watch(after);
+        watchdog.advance(millis(THRESHOLD_MILLIS / 2)); // moves it into the wheel
+        after.close();
+
+        watchdog.advance(millis(10 * THRESHOLD_MILLIS));
+        assertEquals(0, watchdog.getStallCount());
+        assertFalse(report.exists());
+    }
+
+    @Test
+    public void testThresholdLongerThanWheel() {
+        final long threshold = 3 * AzureOperationWatchdog.WHEEL_SIZE * AzureOperationWatchdog.TICK_MILLIS + 100;
+        final AzureOperationWatchdog watchdog = new AzureOperationWatchdog(threshold, () -> null, 1024 * 1024, 0);
+        watchdog.watch(new AzureOperationSpan(op("a", "poll livy batch", "TASK"), null, 0));
+        watchdog.advance(0);
+
+        for (long now = 0; now < millis(threshold) - TICK_NANOS; now += TICK_NANOS) {
+            watchdog.advance(now);
+        }
+        assertEquals(0, watchdog.getStallCount());
+        watchdog.advance(millis(threshold) + TICK_NANOS);
+        assertEquals(1, watchdog.getStallCount());
+    }
+
+    @Test
+    public void testBoundReportFile() throws Exception {
+        final File report = new File(folder.getRoot(), "stalls.log");
+        final long maxBytes = 4096;
+        final AzureOperationWatchdog watchdog = new AzureOperationWatchdog(THRESHOLD_MILLIS, () -> report, maxBytes, 0);
+        for (int i = 0; i < 100; i++) {
+            watchdog.watch(new AzureOperationSpan(op("x" + i, "list apps", "SERVICE"), null, millis(i * THRESHOLD_MILLIS)));
+        }
+        for (int i = 1; i <= 101; i++) {
+            watchdog.advance(millis(i * THRESHOLD_MILLIS));
+        }
+
+        assertEquals(100, watchdog.getStallCount());
+        assertTrue(report.length() <= maxBytes);
+        final File rolled = new File(folder.getRoot(), "stalls.log.1");
+        assertTrue(rolled.exists());
+        assertTrue(rolled.length() <= maxBytes);
+    }
+
+    private static long millis(final long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static IAzureOperation op(final String id, final String name, final String type) {
+        return new IAzureOperation() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getType() {
+                return type;
+            }
+        };
+    }
+}
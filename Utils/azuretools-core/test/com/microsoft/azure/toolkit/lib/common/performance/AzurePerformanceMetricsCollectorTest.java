@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.performance;
+
+import com.microsoft.azure.toolkit.lib.common.operation.IAzureOperation;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskContext;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AzurePerformanceMetricsCollectorTest {
+
+    @Test
+    public void testCloseSpansOfMissedExits() {
+        final IAzureOperation action = op("a", "deploy web app(foo)", "ACTION");
+        final IAzureOperation service = op("b", "list apps(sub)", "SERVICE");
+        final AzureTaskContext.Node context = AzureTaskContext.current();
+        final AzureOperationSpan outer = AzureTaskContext.getContextSpan(context);
+
+        AzurePerformanceMetricsCollector.beforeEnter(action);
+        final AzureOperationSpan actionSpan = AzureTaskContext.getContextSpan(context);
+        AzurePerformanceMetricsCollector.beforeEnter(service);
+        final AzureOperationSpan serviceSpan = AzureTaskContext.getContextSpan(context);
+        assertFalse(serviceSpan.closed);
+
+        AzurePerformanceMetricsCollector.afterExit(action); // exit of 'service' was missed
+        assertTrue(serviceSpan.closed);
+        assertTrue(actionSpan.closed);
+        assertSame(outer, AzureTaskContext.getContextSpan(context));
+    }
+
+    @Test
+    public void testIgnoreExitOfUnknownOperation() {
+        final IAzureOperation action = op("a", "deploy web app(foo)", "ACTION");
+        final AzureTaskContext.Node context = AzureTaskContext.current();
+        final AzureOperationSpan outer = AzureTaskContext.getContextSpan(context);
+        AzurePerformanceMetricsCollector.beforeEnter(action);
+        final AzureOperationSpan actionSpan = AzureTaskContext.getContextSpan(context);
+
+        AzurePerformanceMetricsCollector.afterExit(op("x", "entered before the collector", "TASK"));
+        assertFalse(actionSpan.closed);
+        assertSame(actionSpan, AzureTaskContext.getContextSpan(context));
+
+        AzurePerformanceMetricsCollector.afterExit(action);
+        assertTrue(actionSpan.closed);
+        assertSame(outer, AzureTaskContext.getContextSpan(context));
+    }
+
+    private static IAzureOperation op(final String id, final String name, final String type) {
+        return new IAzureOperation() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getType() {
+                return type;
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.task;
+
+import com.microsoft.azure.toolkit.lib.common.operation.IAzureOperation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AzureOperationStackTest {
+
+    @Test
+    public void testPushSharesFrames() {
+        final AzureOperationStack base = AzureOperationStack.EMPTY.push(op("a", "ACTION")).push(op("b", "SERVICE"));
+        final AzureOperationStack left = base.push(op("c", "TASK"));
+        final AzureOperationStack right = base.push(op("d", "TASK"));
+
+        assertEquals(2, base.depth());
+        assertEquals(3, left.depth());
+        assertSame(base, left.pop());
+        assertSame(base, right.pop());
+        assertEquals("c", left.peek().getId());
+        assertEquals("d", right.peek().getId());
+        assertEquals("[c, b, a]", ids(left).toString());
+        assertEquals("[b, a]", ids(base).toString());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testPopEmpty() {
+        assertTrue(AzureOperationStack.EMPTY.isEmpty());
+        assertNull(AzureOperationStack.EMPTY.peek());
+        AzureOperationStack.EMPTY.pop();
+    }
+
+    private static List<String> ids(AzureOperationStack stack) {
+        final List<String> result = new ArrayList<>();
+        for (final IAzureOperation operation : stack) {
+            result.add(operation.getId());
+        }
+        return result;
+    }
+
+    private static IAzureOperation op(final String id, final String type) {
+        return new IAzureOperation() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return id;
+            }
+
+            @Override
+            public String getType() {
+                return type;
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.task;
+
+import com.microsoft.azure.toolkit.lib.common.operation.IAzureOperation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Microbenchmark of the overhead added by {@link AzureRxTaskManager} in each {@link AzureRxTaskManager.Propagation}
+ * mode ('NONE' for no hooks), with the subscribing thread {@code depth} operations deep: per subscribe of a short
+ * chain, and per item emitted through a 10-operator chain with one thread hop. Run with {@code -prof gc} to compare
+ * allocations ('gc.alloc.rate.norm'), e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.microsoft.azure.toolkit.lib.common.task.AzureRxTaskManagerBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AzureRxTaskManagerBenchmark {
+
+    private static final int ITEMS = 1000;
+
+    @Param({"NONE", "CREATE", "SCHEDULE"})
+    public String propagation;
+
+    @Param({"1", "32"})
+    public int depth;
+
+    @Setup
+    public void setUp() {
+        // operations pushed outside of any task run in an orphan context, which is logged on every push.
+        Logger.getLogger(AzureTaskContext.class.getName()).setLevel(Level.SEVERE);
+        if (!"NONE".equals(propagation)) {
+            // every parameter combination runs in its own fork.
+            AzureRxTaskManager.register(AzureRxTaskManager.Propagation.valueOf(propagation));
+        }
+        final AzureTaskContext.Node context = AzureTaskContext.current();
+        for (int i = 0; i < depth; i++) {
+            context.pushOperation(new Operation(i));
+        }
+    }
+
+    @Benchmark
+    public Integer subscribe() {
+        return Observable.just(1)
+            .map(i -> i + 1)
+            .filter(i -> i > 0)
+            .map(i -> i * 2)
+            .toBlocking()
+            .single();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public Integer emit() {
+        return Observable.range(0, ITEMS)
+            .map(i -> i + 1)
+            .filter(i -> i % 7 != 0)
+            .map(i -> i * 2)
+            .doOnNext(i -> {
+            })
+            .observeOn(Schedulers.computation())
+            .map(i -> i - 1)
+            .filter(i -> i > 0)
+            .scan(0, (sum, i) -> sum + (i & 1))
+            .skip(1)
+            .takeLast(1)
+            .toBlocking()
+            .single();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AzureRxTaskManagerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static class Operation implements IAzureOperation {
+        private final int index;
+
+        private Operation(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getId() {
+            return String.valueOf(index);
+        }
+
+        @Override
+        public String getName() {
+            return "operation " + index;
+        }
+
+        @Override
+        public String getType() {
+            return "SERVICE";
+        }
+    }
+}
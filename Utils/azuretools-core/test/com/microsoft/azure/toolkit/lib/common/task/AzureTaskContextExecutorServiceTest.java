@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azure.toolkit.lib.common.task;
+
+import com.microsoft.azure.toolkit.lib.common.operation.IAzureOperation;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AzureTaskContextExecutorServiceTest {
+    private final ExecutorService executor = AzureTaskContextExecutorService.wrap(Executors.newSingleThreadExecutor());
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPropagateOperationsToWorkerThread() throws Exception {
+        final IAzureOperation operation = new Operation();
+        final AzureTaskContext.Node context = AzureTaskContext.current();
+        context.pushOperation(operation);
+        try {
+            final long caller = Thread.currentThread().getId();
+            final Object[] seen = executor.submit(() -> new Object[]{
+                Thread.currentThread().getId(),
+                AzureTaskContext.getContextOperations().peek(),
+                AzureTaskContext.getContextOperations().depth()
+            }).get(5, TimeUnit.SECONDS);
+
+            assertNotEquals(caller, seen[0]);
+            assertSame(operation, seen[1]);
+            assertEquals(1, seen[2]);
+        } finally {
+            context.popOperation();
+        }
+        // nothing is left behind on the worker thread by the previous task.
+        assertEquals(0, (int) executor.submit(() -> AzureTaskContext.getContextOperations().depth()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailuresReachTheUncaughtExceptionHandler() throws Exception {
+        final CompletableFuture<Throwable> uncaught = new CompletableFuture<>();
+        final ExecutorService failing = AzureTaskContextExecutorService.wrap(Executors.newSingleThreadExecutor(r -> {
+            final Thread thread = new Thread(r);
+            thread.setUncaughtExceptionHandler((t, e) -> uncaught.complete(e));
+            return thread;
+        }));
+        try {
+            final IllegalStateException failure = new IllegalStateException("failed");
+            failing.execute(() -> {
+                throw failure;
+            });
+            assertSame(failure, uncaught.get(5, TimeUnit.SECONDS));
+            // the context of the failed task is disposed before the failure leaves it.
+            assertEquals(0, (int) failing.submit(() -> AzureTaskContext.getContextOperations().depth()).get(5, TimeUnit.SECONDS));
+        } finally {
+            failing.shutdown();
+        }
+    }
+
+    @Test
+    public void testWrapOnlyOnce() {
+        assertSame(executor, AzureTaskContextExecutorService.wrap(executor));
+    }
+
+    private static class Operation implements IAzureOperation {
+        @Override
+        public String getId() {
+            return "op";
+        }
+
+        @Override
+        public String getName() {
+            return "operation";
+        }
+
+        @Override
+        public String getType() {
+            return "SERVICE";
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.adauth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark of the token cache lookups done by {@link CacheDriver#find}.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.microsoft.azuretools.adauth.AdTokenCacheBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AdTokenCacheBenchmark {
+    private static final String AUTHORITY = "https://login.microsoftonline.com/common";
+    private static final String CLIENT_ID = "61d65f5a-6e3b-468b-af73-a033f5098c5c";
+
+    @Param({"10", "1000"})
+    public int users;
+
+    private AdTokenCache.TokenCacheKey exactKey;
+    private AdTokenCache.TokenCacheKey userClientKey;
+
+    @Setup
+    public void setUp() {
+        AdTokenCache cache = AdTokenCache.getInstance();
+        cache.clear();
+        for (int i = 0; i < users; i++) {
+            IdToken idToken = new IdToken();
+            idToken.upn = "user" + i + "@contoso.com";
+            UserInfo info = UserInfo.createFromIdTokens(idToken);
+            cache.add(new AdTokenCacheEntry(new AuthResult("Bearer", "accessToken", "refreshToken",
+                    3600, info, "https://management.core.windows.net/"), AUTHORITY, CLIENT_ID));
+            cache.add(new AdTokenCacheEntry(new AuthResult("Bearer", "accessToken", "refreshToken",
+                    3600, info, null), AUTHORITY, CLIENT_ID));
+        }
+        String userId = "USER" + (users / 2) + "@contoso.com";
+        exactKey = new AdTokenCache.TokenCacheKey(AUTHORITY, CLIENT_ID, userId, "https://management.core.windows.net/");
+        userClientKey = new AdTokenCache.TokenCacheKey(null, CLIENT_ID, userId, null);
+    }
+
+    @Benchmark
+    public AdTokenCacheEntry get() {
+        return AdTokenCache.getInstance().get(exactKey);
+    }
+
+    @Benchmark
+    public List<AdTokenCacheEntry> queryUserClient() {
+        return AdTokenCache.getInstance().query(userClientKey, null);
+    }
+
+    @Benchmark
+    public List<AdTokenCacheEntry> queryMrrt() {
+        return AdTokenCache.getInstance().query(userClientKey, true);
+    }
+
+    @Benchmark
+    public int keyHashCode() {
+        return new AdTokenCache.TokenCacheKey(AUTHORITY, CLIENT_ID, "user@contoso.com", "resource").hashCode();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AdTokenCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -143,4 +143,55 @@ public class AdTokenCacheTest {
         qResult = AdTokenCache.getInstance().query(q2, true);
         Assert.assertEquals(1, qResult.size());
     }
+
+    @Test
+    public void testKeyEquality() {
+        AdTokenCache.TokenCacheKey k1 = new AdTokenCache.TokenCacheKey("Authority", "ClientId", "User@M.com", "Resource");
+        AdTokenCache.TokenCacheKey k2 = new AdTokenCache.TokenCacheKey("authority", "clientid", "user@m.com", "resource");
+        Assert.assertEquals(k1, k2);
+        Assert.assertEquals(k1.hashCode(), k2.hashCode());
+        Assert.assertEquals("Resource", k1.getResource());
+
+        AdTokenCache.TokenCacheKey k3 = new AdTokenCache.TokenCacheKey("a:::b", "c", null, null);
+        AdTokenCache.TokenCacheKey k4 = new AdTokenCache.TokenCacheKey("a", "b:::c", null, null);
+        Assert.assertNotEquals(k3, k4);
+    }
+
+    @Test
+    public void testIndexedQuery() {
+        String authority = "testEndpoint";
+        String clientId = "clientId";
+        IdToken idToken = new IdToken();
+        idToken.upn = "a@m.com";
+        UserInfo user = UserInfo.createFromIdTokens(idToken);
+        idToken = new IdToken();
+        idToken.upn = "b@m.com";
+        UserInfo other = UserInfo.createFromIdTokens(idToken);
+
+        AuthResult mrrt = new AuthResult("tokenType", "accessToken", "refreshToken", 100, user, "resource");
+        AuthResult plain = new AuthResult("tokenType", "accessToken", "refreshToken", 100, user, null);
+        AuthResult otherMrrt = new AuthResult("tokenType", "accessToken", "refreshToken", 100, other, "resource");
+        AdTokenCacheEntry mrrtEntry = new AdTokenCacheEntry(mrrt, authority, clientId);
+        AdTokenCache.getInstance().add(mrrtEntry);
+        AdTokenCache.getInstance().add(new AdTokenCacheEntry(plain, authority, clientId));
+        AdTokenCache.getInstance().add(new AdTokenCacheEntry(otherMrrt, authority, clientId));
+
+        AdTokenCache.TokenCacheKey q = new AdTokenCache.TokenCacheKey(null, "CLIENTID", "A@M.COM", null);
+        Assert.assertEquals(2, AdTokenCache.getInstance().query(q, null).size());
+        Assert.assertEquals(1, AdTokenCache.getInstance().query(q, false).size());
+        List<AdTokenCacheEntry> qResult = AdTokenCache.getInstance().query(q, true);
+        Assert.assertEquals(1, qResult.size());
+        Assert.assertSame(mrrtEntry, qResult.get(0));
+
+        AdTokenCache.TokenCacheKey exact = new AdTokenCache.TokenCacheKey(authority, clientId, "a@m.com", "RESOURCE");
+        Assert.assertSame(mrrtEntry, AdTokenCache.getInstance().get(exact));
+
+        AdTokenCache.getInstance().remove(mrrtEntry);
+        Assert.assertEquals(0, AdTokenCache.getInstance().query(q, true).size());
+        Assert.assertEquals(1, AdTokenCache.getInstance().query(q, null).size());
+        Assert.assertNull(AdTokenCache.getInstance().get(exact));
+
+        AdTokenCache.getInstance().clear();
+        Assert.assertEquals(0, AdTokenCache.getInstance().query(q, null).size());
+    }
 }
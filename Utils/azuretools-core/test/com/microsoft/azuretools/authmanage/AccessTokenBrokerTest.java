@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.authmanage;
+
+import com.microsoft.azuretools.adauth.AuthResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AccessTokenBrokerTest {
+    private static final long ONE_HOUR = 3600;
+
+    @Test
+    public void testCachedToken() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        AccessTokenBroker broker = new AccessTokenBroker((tid, resource) ->
+                new AuthResult("Bearer", tid + resource + calls.incrementAndGet(), null, ONE_HOUR, null, resource),
+                Runnable::run);
+
+        Assert.assertEquals("t1r1", broker.getAccessToken("t1", "r"));
+        Assert.assertEquals("t1r1", broker.getAccessToken("t1", "r"));
+        Assert.assertEquals("t2r2", broker.getAccessToken("t2", "r"));
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(2, broker.getRefreshCount());
+        Assert.assertEquals(1, broker.getHitCount());
+
+        broker.invalidateAll();
+        Assert.assertEquals("t1r3", broker.getAccessToken("t1", "r"));
+    }
+
+    @Test
+    public void testConcurrentRefreshIsCoalesced() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        AccessTokenBroker broker = new AccessTokenBroker((tid, resource) -> {
+            calls.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return new AuthResult("Bearer", "token", null, ONE_HOUR, null, resource);
+        }, Runnable::run);
+
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> broker.getAccessToken("tid", "resource")));
+            }
+            while (broker.getCoalescedCount() < threads - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                Assert.assertEquals("token", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(1, broker.getRefreshCount());
+    }
+
+    @Test
+    public void testSignOutDuringRefresh() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch acquiring = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AccessTokenBroker broker = new AccessTokenBroker((tid, resource) -> {
+            int n = calls.incrementAndGet();
+            if (n == 1) {
+                acquiring.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return new AuthResult("Bearer", "token" + n, null, ONE_HOUR, null, resource);
+        }, Runnable::run);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> result = pool.submit(() -> broker.getAccessToken("tid", "resource"));
+            Assert.assertTrue(acquiring.await(10, TimeUnit.SECONDS));
+            broker.invalidateAll();
+            release.countDown();
+            // the token of the previous account is dropped, the caller retries for the current one
+            Assert.assertEquals("token2", result.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        Assert.assertEquals("token2", broker.getAccessToken("tid", "resource"));
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(1, broker.getHitCount());
+    }
+
+    @Test
+    public void testRefreshAheadOfExpiry() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        List<Runnable> scheduled = new ArrayList<>();
+        // expires within the refresh window but outside the safety margin
+        long expiresIn = TimeUnit.MILLISECONDS.toSeconds(AccessTokenBroker.REFRESH_AHEAD_MILLIS) - 60;
+        AccessTokenBroker broker = new AccessTokenBroker((tid, resource) -> {
+            int n = calls.incrementAndGet();
+            return new AuthResult("Bearer", "token" + n, null, n == 1 ? expiresIn : ONE_HOUR, null, resource);
+        }, scheduled::add);
+
+        Assert.assertEquals("token1", broker.getAccessToken("tid", "resource"));
+        Assert.assertEquals("token1", broker.getAccessToken("tid", "resource"));
+        Assert.assertEquals("token1", broker.getAccessToken("tid", "resource"));
+        Assert.assertEquals(1, scheduled.size());
+        Assert.assertEquals(1, broker.getBackgroundRefreshCount());
+
+        scheduled.get(0).run();
+        Assert.assertEquals("token2", broker.getAccessToken("tid", "resource"));
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testFailedRefresh() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        AccessTokenBroker broker = new AccessTokenBroker((tid, resource) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IOException("failed");
+            }
+            return new AuthResult("Bearer", "token", null, ONE_HOUR, null, resource);
+        }, Runnable::run);
+
+        try {
+            broker.getAccessToken("tid", "resource");
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("failed", e.getMessage());
+        }
+        Assert.assertEquals(1, broker.getFailedRefreshCount());
+        Assert.assertEquals("token", broker.getAccessToken("tid", "resource"));
+    }
+}
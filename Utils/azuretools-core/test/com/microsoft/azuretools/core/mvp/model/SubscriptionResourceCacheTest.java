@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.core.mvp.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class SubscriptionResourceCacheTest {
+    private static final String SID = "00000000-0000-0000-0000-000000000000";
+    private static final long TTL = 1000;
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final List<String> remote = Collections.synchronizedList(new ArrayList<>(Arrays.asList("/a", "/b")));
+    private final SubscriptionResourceCache<String> cache =
+            new SubscriptionResourceCache<>(Function.identity(), TTL, now::get);
+
+    private List<String> load(String sid) {
+        loads.incrementAndGet();
+        return new ArrayList<>(remote);
+    }
+
+    @Test
+    public void testEntriesExpire() {
+        assertEquals(Arrays.asList("/a", "/b"), cache.get(SID, false, this::load));
+        remote.add("/c");
+        now.addAndGet(TTL - 1);
+        assertEquals(2, cache.get(SID, false, this::load).size());
+        assertEquals(1, loads.get());
+
+        now.addAndGet(1);
+        assertEquals(3, cache.get(SID, false, this::load).size());
+        assertEquals(2, loads.get());
+
+        assertEquals(3, cache.get(SID, true, this::load).size());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testWriteThrough() {
+        cache.get(SID, false, this::load);
+        cache.put(SID, "/C");
+        cache.put(SID, "/A");
+        cache.remove(SID, "/B");
+        assertEquals(Arrays.asList("/A", "/C"), cache.get(SID, false, this::load));
+        assertEquals(1, loads.get());
+
+        // nothing is cached for a subscription which was never listed
+        cache.put("other", "/x");
+        assertEquals(2, cache.get("other", false, this::load).size());
+    }
+
+    @Test
+    public void testReturnedListIsACopy() {
+        cache.get(SID, false, this::load).clear();
+        assertEquals(2, cache.get(SID, false, this::load).size());
+    }
+
+    @Test
+    public void testConcurrentReadsShareOneLoad() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Function<String, List<String>> slowLoad = sid -> {
+            started.countDown();
+            await(release);
+            return load(sid);
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<List<String>> first = executor.submit(() -> cache.get(SID, true, slowLoad));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            final Future<List<String>> second = executor.submit(() -> cache.get(SID, true, slowLoad));
+            // give the second reader time to join the running load
+            Thread.sleep(100);
+            release.countDown();
+            assertEquals(2, first.get(5, TimeUnit.SECONDS).size());
+            assertEquals(2, second.get(5, TimeUnit.SECONDS).size());
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testListPatchedWhileLoadingIsNotCached() {
+        cache.get(SID, false, sid -> {
+            final List<String> listed = load(sid);
+            // our own create finishes after the listing was taken
+            remote.add("/c");
+            cache.put(SID, "/c");
+            return listed;
+        });
+        assertEquals(3, cache.get(SID, false, this::load).size());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        try {
+            cache.get(SID, false, sid -> {
+                throw new IllegalStateException("throttled");
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(2, cache.get(SID, false, this::load).size());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
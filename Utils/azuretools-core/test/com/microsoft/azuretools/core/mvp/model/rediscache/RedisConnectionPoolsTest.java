@@ -22,11 +22,18 @@
 
 package com.microsoft.azuretools.core.mvp.model.rediscache;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -69,6 +76,9 @@ public class RedisConnectionPoolsTest {
     private static final String MOCK_RETURN_STRING = "RedisTest";
     private static final int MOCK_PORT = 6380;
 
+    private final List<JedisPool> createdPools = new ArrayList<>();
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
     @Before
     public void setUp() throws Exception {
         PowerMockito.mockStatic(AzureRedisMvpModel.class);
@@ -81,10 +91,16 @@ public class RedisConnectionPoolsTest {
         when(redisCacheMock.sslPort()).thenReturn(MOCK_PORT);
         when(jedisPoolMock.getResource()).thenReturn(jedisMock);
         PowerMockito.whenNew(JedisPool.class).withAnyArguments().thenReturn(jedisPoolMock);
+        RedisConnectionPools.getInstance().setClock(now::get);
     }
 
     @After
     public void tearDown() {
+        for (String id : RedisConnectionPools.getInstance().getPoolStats().keySet()) {
+            RedisConnectionPools.getInstance().releasePool(id);
+        }
+        RedisConnectionPools.getInstance().setMaxPools(8);
+        RedisConnectionPools.getInstance().setClock(System::currentTimeMillis);
         jedisMock = null;
         jedisPoolMock = null;
         azureRedisMvpModelMock = null;
@@ -107,4 +123,111 @@ public class RedisConnectionPoolsTest {
         RedisConnectionPools.getInstance().releasePool(MOCK_REDIS_ID);
         verify(jedisPoolMock, times(0)).destroy();
     }
+
+    @Test
+    public void testPoolPerCache() throws Exception {
+        mockDistinctPools();
+        final RedisConnectionPools pools = RedisConnectionPools.getInstance();
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache1");
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache2");
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache1");
+
+        assertEquals(2, pools.getPoolStats().size());
+        verify(createdPools.get(1), times(1)).getResource();
+        // opening a second cache keeps the first one open
+        verify(createdPools.get(0), times(0)).destroy();
+        verify(createdPools.get(0), times(2)).getResource();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPoolIsEvicted() throws Exception {
+        mockDistinctPools();
+        final RedisConnectionPools pools = RedisConnectionPools.getInstance();
+        pools.setMaxPools(2);
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache1");
+        now.incrementAndGet();
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache2");
+        now.incrementAndGet();
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache1");
+        now.incrementAndGet();
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache3");
+
+        verify(createdPools.get(1), times(1)).destroy();
+        verify(createdPools.get(0), times(0)).destroy();
+        assertEquals(2, pools.getPoolStats().size());
+
+        // the settings of the evicted cache are reused to rebuild its pool
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache2");
+        verify(azureRedisMvpModelMock, times(3)).getRedisCache(anyString(), anyString());
+    }
+
+    @Test
+    public void testPoolInUseIsNotEvictedForRoom() throws Exception {
+        mockDistinctPools();
+        final RedisConnectionPools pools = RedisConnectionPools.getInstance();
+        pools.setMaxPools(2);
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache1");
+        now.incrementAndGet();
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache2");
+        now.incrementAndGet();
+        // the least recently used pool still has a connection out
+        when(createdPools.get(0).getNumActive()).thenReturn(1);
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache3");
+
+        verify(createdPools.get(0), times(0)).destroy();
+        verify(createdPools.get(1), times(1)).destroy();
+        assertEquals(2, pools.getPoolStats().size());
+    }
+
+    @Test
+    public void testPoolsInUseAllowOneMorePool() throws Exception {
+        mockDistinctPools();
+        final RedisConnectionPools pools = RedisConnectionPools.getInstance();
+        pools.setMaxPools(1);
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache1");
+        when(createdPools.get(0).getNumActive()).thenReturn(1);
+        now.incrementAndGet();
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache2");
+
+        verify(createdPools.get(0), times(0)).destroy();
+        assertEquals(2, pools.getPoolStats().size());
+    }
+
+    @Test
+    public void testIdlePoolsAreEvicted() throws Exception {
+        mockDistinctPools();
+        final RedisConnectionPools pools = RedisConnectionPools.getInstance();
+        pools.getJedis(MOCK_SUBSCRIPTION, "cache1");
+        when(createdPools.get(0).getNumActive()).thenReturn(0);
+
+        pools.evictIdlePools(now.get());
+        assertEquals(1, pools.getPoolStats().size());
+
+        pools.evictIdlePools(now.get() + RedisConnectionPools.IDLE_POOL_TIMEOUT_MILLIS + 1);
+        assertEquals(0, pools.getPoolStats().size());
+        verify(createdPools.get(0), times(1)).destroy();
+    }
+
+    @Test
+    public void testPoolInUseIsNotEvictedWhenIdle() throws Exception {
+        mockDistinctPools();
+        final RedisConnectionPools pools = RedisConnectionPools.getInstance();
+        final Jedis jedis = pools.getJedis(MOCK_SUBSCRIPTION, "cache1");
+        assertSame(jedisMock, jedis);
+        when(createdPools.get(0).getNumActive()).thenReturn(1);
+
+        pools.evictIdlePools(now.get() + RedisConnectionPools.IDLE_POOL_TIMEOUT_MILLIS + 1);
+        assertEquals(1, pools.getPoolStats().size());
+        assertEquals(1, pools.getPoolStats().get("cache1").getActive());
+    }
+
+    private void mockDistinctPools() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            final JedisPool pool = mock(JedisPool.class);
+            when(pool.getResource()).thenReturn(jedisMock);
+            createdPools.add(pool);
+        }
+        PowerMockito.whenNew(JedisPool.class).withAnyArguments().thenReturn(createdPools.get(0),
+                createdPools.subList(1, createdPools.size()).toArray(new JedisPool[0]));
+    }
 }
@@ -22,11 +22,21 @@
 
 package com.microsoft.azuretools.core.mvp.model.rediscache;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -37,8 +47,14 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import com.microsoft.azuretools.azurecommons.helpers.RedisKeyType;
+
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({
@@ -52,9 +68,21 @@ public class RedisExplorerMvpModelTest {
     @Mock
     private Jedis jedisMock;
 
+    @Mock
+    private Pipeline pipelineMock;
+
+    @Mock
+    private Response<String> typeResponseMock;
+
+    @Mock
+    private Response<Long> sizeResponseMock;
+
+    @Mock
+    private Response<List<String>> listResponseMock;
+
     private static final String MOCK_SUBSCRIPTION = "00000000-0000-0000-0000-000000000000";
     private static final String MOCK_REDIS_ID = "test-id";
-    private static final int MOCK_DB = 0;
+    private static final int MOCK_DB = 1;
     private static final String MOCK_CURSOR = "0";
     private static final String MOCK_PATTERN = "*";
     private static final String MOCK_KEY = "key";
@@ -67,6 +95,7 @@ public class RedisExplorerMvpModelTest {
         PowerMockito.mockStatic(RedisConnectionPools.class);
         when(RedisConnectionPools.getInstance()).thenReturn(redisConnectionPoolsMock);
         when(redisConnectionPoolsMock.getJedis(anyString(), anyString())).thenReturn(jedisMock);
+        RedisExplorerMvpModel.getInstance().invalidateDatabaseInfo(MOCK_REDIS_ID);
     }
 
     @After
@@ -77,15 +106,105 @@ public class RedisExplorerMvpModelTest {
 
     @Test
     public void testGetDbNumber() throws Exception {
+        mockDatabaseProbe(true, 16);
+
+        assertEquals(16, RedisExplorerMvpModel.getInstance().getDbNumber(MOCK_SUBSCRIPTION, MOCK_REDIS_ID));
+        verify(pipelineMock, times(1)).configGet(Mockito.eq(DATABASE_COMMAND));
+        verify(pipelineMock, times(1)).sync();
+        verify(jedisMock, never()).select(Mockito.anyInt());
+    }
+
+    @Test
+    public void testGetDatabaseInfoProbesSelectWhenConfigDisabled() throws Exception {
+        mockDatabaseProbe(false, 10);
+
+        RedisDatabaseInfo info = RedisExplorerMvpModel.getInstance().getDatabaseInfo(MOCK_SUBSCRIPTION,
+                MOCK_REDIS_ID);
+        assertEquals(10, info.getDbCount());
+        assertEquals(12L, info.getKeyCount(0));
+        assertEquals(3L, info.getKeyCount(2));
+        assertEquals(0L, info.getKeyCount(1));
+        verify(pipelineMock, times(1)).sync();
+    }
+
+    @Test
+    public void testGetDatabaseInfoIsCached() throws Exception {
+        mockDatabaseProbe(false, 10);
+
+        RedisExplorerMvpModel.getInstance().getDatabaseInfo(MOCK_SUBSCRIPTION, MOCK_REDIS_ID);
         RedisExplorerMvpModel.getInstance().getDbNumber(MOCK_SUBSCRIPTION, MOCK_REDIS_ID);
-        verify(jedisMock, times(1)).configGet(Mockito.eq(DATABASE_COMMAND));
+        verify(pipelineMock, times(1)).sync();
+
+        RedisExplorerMvpModel.getInstance().invalidateDatabaseInfo(MOCK_REDIS_ID);
+        RedisExplorerMvpModel.getInstance().getDatabaseInfo(MOCK_SUBSCRIPTION, MOCK_REDIS_ID);
+        verify(pipelineMock, times(2)).sync();
     }
 
     @Test
-    public void testScanKeys() throws Exception {
-        RedisExplorerMvpModel.getInstance().scanKeys(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_CURSOR, MOCK_PATTERN);
+    public void testParseKeyspace() {
+        Map<Integer, Long> keyCounts = RedisExplorerMvpModel
+                .parseKeyspace("# Keyspace\r\ndb0:keys=12,expires=0,avg_ttl=0\r\ndb15:keys=7,expires=1,avg_ttl=9\r\n");
+        assertEquals(2, keyCounts.size());
+        assertEquals(Long.valueOf(12), keyCounts.get(0));
+        assertEquals(Long.valueOf(7), keyCounts.get(15));
+    }
+
+    @Test
+    public void testScanKeysWithTypes() throws Exception {
+        mockScanPages();
+        List<RedisKeyPage> pages = new ArrayList<>();
+
+        String cursor = RedisExplorerMvpModel.getInstance().scanKeysWithTypes(MOCK_SUBSCRIPTION, MOCK_REDIS_ID,
+                MOCK_DB, MOCK_CURSOR, MOCK_PATTERN, 10, 100, false, () -> false, pages::add);
+
+        assertEquals(MOCK_CURSOR, cursor);
+        assertEquals(2, pages.size());
+        assertFalse(pages.get(0).isLast());
+        assertTrue(pages.get(1).isLast());
+        assertEquals("string", pages.get(0).getKeyTypes().get("a"));
+        assertEquals("string", pages.get(1).getKeyTypes().get("c"));
         verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
-        verify(jedisMock, times(1)).scan(Mockito.eq(MOCK_CURSOR), Mockito.any(ScanParams.class));
+        verify(jedisMock, times(2)).scan(anyString(), Mockito.any(ScanParams.class));
+        verify(pipelineMock, times(3)).type(anyString());
+        verify(pipelineMock, times(2)).sync();
+        verify(jedisMock, never()).type(anyString());
+    }
+
+    @Test
+    public void testScanKeysWithTypesStopsAtLimit() throws Exception {
+        mockScanPages();
+        List<RedisKeyPage> pages = new ArrayList<>();
+
+        String cursor = RedisExplorerMvpModel.getInstance().scanKeysWithTypes(MOCK_SUBSCRIPTION, MOCK_REDIS_ID,
+                MOCK_DB, MOCK_CURSOR, MOCK_PATTERN, 10, 2, false, () -> false, pages::add);
+
+        assertEquals("5", cursor);
+        assertEquals(1, pages.size());
+        assertTrue(pages.get(0).isLast());
+        assertFalse(pages.get(0).isFinished());
+        verify(jedisMock, times(1)).scan(anyString(), Mockito.any(ScanParams.class));
+    }
+
+    @Test
+    public void testScanKeysWithTypesStopsWhenCancelled() throws Exception {
+        mockScanPages();
+        List<RedisKeyPage> pages = new ArrayList<>();
+
+        String cursor = RedisExplorerMvpModel.getInstance().scanKeysWithTypes(MOCK_SUBSCRIPTION, MOCK_REDIS_ID,
+                MOCK_DB, MOCK_CURSOR, MOCK_PATTERN, 10, 100, false, () -> !pages.isEmpty(), pages::add);
+
+        assertEquals("5", cursor);
+        assertEquals(1, pages.size());
+        verify(jedisMock, times(1)).scan(anyString(), Mockito.any(ScanParams.class));
+    }
+
+    @Test
+    public void testSelectSkippedForCurrentDb() throws Exception {
+        when(jedisMock.getDB()).thenReturn(0L);
+
+        RedisExplorerMvpModel.getInstance().getKeyType(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, 0, MOCK_KEY);
+        verify(jedisMock, never()).select(Mockito.anyInt());
+        verify(jedisMock, times(1)).type(Mockito.eq(MOCK_KEY));
     }
 
     @Test
@@ -96,42 +215,78 @@ public class RedisExplorerMvpModelTest {
     }
 
     @Test
-    public void testGetStringValue() throws Exception {
-        RedisExplorerMvpModel.getInstance().getStringValue(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY);
+    public void testReadStringValuePage() throws Exception {
+        when(jedisMock.get(MOCK_KEY)).thenReturn("v");
+
+        RedisValuePage page = RedisExplorerMvpModel.getInstance().readValuePage(MOCK_SUBSCRIPTION, MOCK_REDIS_ID,
+                MOCK_DB, MOCK_KEY, RedisKeyType.STRING, MOCK_CURSOR, 100);
+        assertFalse(page.hasMore());
+        assertEquals("v", page.getRows().get(0)[0]);
         verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
-        verify(jedisMock, times(1)).get(Mockito.eq(MOCK_KEY));
     }
 
     @Test
-    public void testGetListValue() throws Exception {
-        when(jedisMock.llen(anyString())).thenReturn(MOCK_LEN);
+    public void testReadSetValuePage() throws Exception {
+        when(jedisMock.scard(MOCK_KEY)).thenReturn(MOCK_LEN);
+        when(jedisMock.sscan(Mockito.eq(MOCK_KEY), Mockito.eq(MOCK_CURSOR), Mockito.any(ScanParams.class)))
+                .thenReturn(new ScanResult<>("3", Collections.singletonList("m")));
 
-        RedisExplorerMvpModel.getInstance().getListValue(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
-        verify(jedisMock, times(1)).lrange(Mockito.eq(MOCK_KEY), Mockito.eq(0L), Mockito.eq(MOCK_LEN));
+        RedisValuePage page = RedisExplorerMvpModel.getInstance().readValuePage(MOCK_SUBSCRIPTION, MOCK_REDIS_ID,
+                MOCK_DB, MOCK_KEY, RedisKeyType.SET, MOCK_CURSOR, 100);
+        assertEquals(MOCK_LEN, page.getSize());
+        assertEquals("3", page.getNextCursor());
+        assertEquals("m", page.getRows().get(0)[0]);
     }
 
     @Test
-    public void testGetSetValue() throws Exception {
-        RedisExplorerMvpModel.getInstance().getSetValue(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY, MOCK_CURSOR);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
-        verify(jedisMock, times(1)).sscan(Mockito.eq(MOCK_KEY), Mockito.eq(MOCK_CURSOR), Mockito.any(ScanParams.class));
+    public void testReadListValuePage() throws Exception {
+        when(jedisMock.pipelined()).thenReturn(pipelineMock);
+        when(pipelineMock.llen(MOCK_KEY)).thenReturn(sizeResponseMock);
+        when(pipelineMock.lrange(MOCK_KEY, 2L, 3L)).thenReturn(listResponseMock);
+        when(sizeResponseMock.get()).thenReturn(MOCK_LEN);
+        when(listResponseMock.get()).thenReturn(Arrays.asList("c", "d"));
+
+        RedisValuePage page = RedisExplorerMvpModel.getInstance().readValuePage(MOCK_SUBSCRIPTION, MOCK_REDIS_ID,
+                MOCK_DB, MOCK_KEY, RedisKeyType.LIST, "2", 2);
+        assertEquals(MOCK_LEN, page.getSize());
+        assertEquals("4", page.getNextCursor());
+        assertTrue(page.hasMore());
+        assertEquals("3", page.getRows().get(0)[0]);
+        assertEquals("d", page.getRows().get(1)[1]);
+        verify(pipelineMock, times(1)).sync();
+        verify(jedisMock, never()).llen(anyString());
     }
 
     @Test
-    public void testGetZSetValue() throws Exception {
-        when(jedisMock.zcard(anyString())).thenReturn(MOCK_LEN);
+    public void testReadListValueLastPage() throws Exception {
+        when(jedisMock.pipelined()).thenReturn(pipelineMock);
+        when(pipelineMock.llen(MOCK_KEY)).thenReturn(sizeResponseMock);
+        when(pipelineMock.lrange(MOCK_KEY, 8L, 12L)).thenReturn(listResponseMock);
+        when(sizeResponseMock.get()).thenReturn(MOCK_LEN);
+        when(listResponseMock.get()).thenReturn(Arrays.asList("i", "j"));
 
-        RedisExplorerMvpModel.getInstance().getZSetValue(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
-        verify(jedisMock, times(1)).zrangeWithScores(Mockito.eq(MOCK_KEY), Mockito.eq(0L), Mockito.eq(MOCK_LEN));
+        RedisValuePage page = RedisExplorerMvpModel.getInstance().readValuePage(MOCK_SUBSCRIPTION, MOCK_REDIS_ID,
+                MOCK_DB, MOCK_KEY, RedisKeyType.LIST, "8", 5);
+        assertFalse(page.hasMore());
+        assertEquals(2, page.getRows().size());
     }
 
     @Test
-    public void testGetHashValue() throws Exception {
-        RedisExplorerMvpModel.getInstance().getHashValue(MOCK_SUBSCRIPTION, MOCK_REDIS_ID, MOCK_DB, MOCK_KEY, MOCK_CURSOR);
-        verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
-        verify(jedisMock, times(1)).hscan(Mockito.eq(MOCK_KEY), Mockito.eq(MOCK_CURSOR), Mockito.any(ScanParams.class));
+    public void testReadHashValuePages() throws Exception {
+        Map<String, String> field = Collections.singletonMap("f", "v");
+        when(jedisMock.hlen(MOCK_KEY)).thenReturn(MOCK_LEN);
+        when(jedisMock.hscan(Mockito.eq(MOCK_KEY), Mockito.anyString(), Mockito.any(ScanParams.class)))
+                .thenReturn(new ScanResult<>("7", new ArrayList<>(field.entrySet())));
+
+        RedisValuePage first = RedisExplorerMvpModel.getInstance().readValuePage(MOCK_SUBSCRIPTION, MOCK_REDIS_ID,
+                MOCK_DB, MOCK_KEY, RedisKeyType.HASH, MOCK_CURSOR, 100);
+        RedisValuePage next = RedisExplorerMvpModel.getInstance().readValuePage(MOCK_SUBSCRIPTION, MOCK_REDIS_ID,
+                MOCK_DB, MOCK_KEY, RedisKeyType.HASH, first.getNextCursor(), 100);
+        assertEquals(MOCK_LEN, first.getSize());
+        assertEquals(RedisValuePage.UNKNOWN_SIZE, next.getSize());
+        assertEquals("v", first.getRows().get(0)[1]);
+        verify(jedisMock, times(1)).hlen(MOCK_KEY);
+        verify(jedisMock, times(1)).hscan(Mockito.eq(MOCK_KEY), Mockito.eq("7"), Mockito.any(ScanParams.class));
     }
 
     @Test
@@ -140,4 +295,34 @@ public class RedisExplorerMvpModelTest {
         verify(jedisMock, times(1)).select(Mockito.eq(MOCK_DB));
         verify(jedisMock, times(1)).exists(Mockito.eq(MOCK_KEY));
     }
+
+    @SuppressWarnings("unchecked")
+    private void mockDatabaseProbe(boolean configEnabled, int dbCount) {
+        Response<List<String>> configResponse = Mockito.mock(Response.class);
+        Response<String> keyspaceResponse = Mockito.mock(Response.class);
+        Response<String> okResponse = Mockito.mock(Response.class);
+        Response<String> errorResponse = Mockito.mock(Response.class);
+        if (configEnabled) {
+            when(configResponse.get()).thenReturn(Arrays.asList(DATABASE_COMMAND, String.valueOf(dbCount)));
+        } else {
+            when(configResponse.get()).thenThrow(new JedisDataException("ERR unknown command 'CONFIG'"));
+        }
+        when(keyspaceResponse.get()).thenReturn("# Keyspace\r\ndb0:keys=12,expires=0,avg_ttl=0\r\ndb2:keys=3\r\n");
+        when(errorResponse.get()).thenThrow(new JedisDataException("ERR DB index is out of range"));
+        when(jedisMock.pipelined()).thenReturn(pipelineMock);
+        when(pipelineMock.configGet(DATABASE_COMMAND)).thenReturn(configResponse);
+        when(pipelineMock.info("keyspace")).thenReturn(keyspaceResponse);
+        when(pipelineMock.select(Mockito.anyInt())).thenAnswer(
+            invocation -> (Integer) invocation.getArguments()[0] < dbCount ? okResponse : errorResponse);
+    }
+
+    private void mockScanPages() {
+        when(jedisMock.scan(Mockito.eq(MOCK_CURSOR), Mockito.any(ScanParams.class)))
+                .thenReturn(new ScanResult<>("5", Arrays.asList("a", "b")));
+        when(jedisMock.scan(Mockito.eq("5"), Mockito.any(ScanParams.class)))
+                .thenReturn(new ScanResult<>(MOCK_CURSOR, Arrays.asList("c")));
+        when(jedisMock.pipelined()).thenReturn(pipelineMock);
+        when(pipelineMock.type(anyString())).thenReturn(typeResponseMock);
+        when(typeResponseMock.get()).thenReturn("string");
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.TelemetryConfiguration;
+import com.microsoft.applicationinsights.channel.TelemetryChannel;
+import com.microsoft.applicationinsights.channel.TelemetrySampler;
+import com.microsoft.applicationinsights.telemetry.Telemetry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cold start of the telemetry set up by the IDE plugins, headless and with a channel that sends nothing: how long
+ * {@link AppInsightsClient#setAppInsightsConfiguration} blocks its caller, and how long until the events raised
+ * during start are delivered, with the telemetry client built eagerly or deferred.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.microsoft.azuretools.telemetry.AppInsightsClientStartupBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(5)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class AppInsightsClientStartupBenchmark {
+    private static final int STARTUP_EVENTS = 100;
+    private static final long DELIVERY_TIMEOUT_MILLIS = 60_000;
+
+    @Param({"false", "true"})
+    public boolean deferred;
+
+    private Supplier<TelemetryClient> clientFactory;
+
+    @Setup
+    public void setUp() {
+        System.setProperty(AppInsightsClient.DEFERRED_CLIENT_PROPERTY, String.valueOf(deferred));
+        System.setProperty(AppInsightsClient.CLIENT_DELAY_PROPERTY, "0");
+        clientFactory = () -> {
+            final TelemetryConfiguration configuration = TelemetryConfiguration.getActive();
+            configuration.setChannel(new NoopChannel());
+            return new TelemetryClient(configuration);
+        };
+    }
+
+    @Benchmark
+    public void configure() {
+        start(clientFactory);
+    }
+
+    @Benchmark
+    public void configureAndDeliver() throws Exception {
+        start(clientFactory);
+        AppInsightsClient.getClientReady().get(DELIVERY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DELIVERY_TIMEOUT_MILLIS);
+        while (TelemetryPipeline.getInstance().getSentCount() < STARTUP_EVENTS) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("startup events were not delivered");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void start(Supplier<TelemetryClient> clientFactory) {
+        AppInsightsClient.setAppInsightsConfiguration(new HeadlessConfiguration(), clientFactory);
+        for (int i = 0; i < STARTUP_EVENTS; i++) {
+            AppInsightsClient.create("Startup", null, Collections.singletonMap("index", String.valueOf(i)));
+        }
+    }
+
+    private static final class HeadlessConfiguration implements AppInsightsConfiguration {
+        private final String sessionId = UUID.randomUUID().toString();
+
+        @Override
+        public String sessionId() {
+            return sessionId;
+        }
+
+        @Override
+        public String pluginVersion() {
+            return "0.0.0";
+        }
+
+        @Override
+        public String installationId() {
+            return "benchmark";
+        }
+
+        @Override
+        public String preferenceVal() {
+            return "true";
+        }
+
+        @Override
+        public boolean validated() {
+            return true;
+        }
+
+        @Override
+        public String eventNamePrefix() {
+            return "Benchmark.";
+        }
+
+        @Override
+        public String eventName() {
+            return "Benchmark";
+        }
+    }
+
+    private static final class NoopChannel implements TelemetryChannel {
+        @Override
+        public boolean isDeveloperMode() {
+            return false;
+        }
+
+        @Override
+        public void setDeveloperMode(boolean developerMode) {
+        }
+
+        @Override
+        public void send(Telemetry item) {
+        }
+
+        @Override
+        public void stop(long timeout, TimeUnit timeUnit) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void setSampler(TelemetrySampler telemetrySampler) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AppInsightsClientStartupBenchmark.class.getSimpleName()).build()).run();
+    }
+}
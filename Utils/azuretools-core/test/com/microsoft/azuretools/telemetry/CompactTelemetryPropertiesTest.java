@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompactTelemetryPropertiesTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static Map<String, String> common() {
+        final Map<String, String> common = new HashMap<>();
+        common.put("SessionId", "session");
+        common.put("IDE", "IntelliJ");
+        return Collections.unmodifiableMap(common);
+    }
+
+    @Test
+    public void testOverlaysCommonProperties() {
+        final CompactTelemetryProperties properties = new CompactTelemetryProperties(common());
+        properties.put("IDE", "Eclipse");
+        properties.put("operationName", "deploy");
+
+        final Map<String, String> expected = new HashMap<>();
+        expected.put("SessionId", "session");
+        expected.put("IDE", "Eclipse");
+        expected.put("operationName", "deploy");
+        assertEquals(expected, new HashMap<>(properties));
+        assertEquals(3, properties.size());
+        assertEquals("Eclipse", properties.get("IDE"));
+    }
+
+    @Test
+    public void testNullValueHidesCommonProperty() {
+        final CompactTelemetryProperties properties = new CompactTelemetryProperties(common());
+        properties.put("SessionId", null);
+        properties.put("message", null);
+
+        assertNull(properties.get("SessionId"));
+        assertFalse(properties.containsKey("message"));
+        assertEquals(Collections.singletonMap("IDE", "IntelliJ"), new HashMap<>(properties));
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() {
+        final CompactTelemetryProperties properties = new CompactTelemetryProperties();
+        for (int i = 0; i < 20; i++) {
+            properties.put("key" + i, "value" + i);
+        }
+        properties.put("key3", "changed");
+
+        assertEquals(20, properties.size());
+        assertEquals("changed", properties.get("key3"));
+        assertEquals("value19", properties.get("key19"));
+    }
+
+    @Test
+    public void testTimestampIsFormattedWhenRead() {
+        final CompactTelemetryProperties properties = new CompactTelemetryProperties(common());
+        properties.put("timestamp", "overwritten");
+        properties.putTimestamp("timestamp", 0L);
+
+        assertEquals("1970-01-01T00:00:00.000Z", properties.get("timestamp"));
+        assertEquals(3, properties.size());
+
+        properties.put("timestamp", "explicit");
+        assertEquals("explicit", properties.get("timestamp"));
+        assertEquals(3, properties.size());
+    }
+
+    @Test
+    public void testSizeFollowsOverlays() {
+        final CompactTelemetryProperties properties = new CompactTelemetryProperties(common());
+        assertEquals(2, properties.size());
+        properties.putTimestamp("SessionId", 0L);
+        assertEquals(2, properties.size());
+        properties.putTimestamp("timestamp", 0L);
+        assertEquals(3, properties.size());
+        properties.put("IDE", null);
+        properties.put("IDE", null);
+        assertEquals(2, properties.size());
+        properties.remove("timestamp");
+        assertEquals(1, properties.size());
+        properties.put("IDE", "Eclipse");
+        assertEquals(2, properties.size());
+        assertEquals(properties.size(), new HashMap<>(properties).size());
+    }
+
+    @Test
+    public void testSpoolsAsPlainMap() throws Exception {
+        final CompactTelemetryProperties properties = new CompactTelemetryProperties(common());
+        properties.put("operationName", "deploy");
+        properties.putTimestamp("timestamp", 0L);
+        final TelemetryEvent event = TelemetryEvent.of("event", properties, null);
+
+        final TelemetryEvent read = MAPPER.readValue(MAPPER.writeValueAsString(event), TelemetryEvent.class);
+        assertEquals(new HashMap<>(properties), read.getProperties());
+        final Map<String, String> direct = MAPPER.readValue(MAPPER.writeValueAsString(properties),
+                new TypeReference<Map<String, String>>() { });
+        assertEquals(4, direct.size());
+    }
+}
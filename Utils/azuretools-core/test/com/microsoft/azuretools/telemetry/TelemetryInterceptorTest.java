@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import com.microsoft.azuretools.telemetry.metrics.HttpMetricKey;
+import com.microsoft.azuretools.telemetry.metrics.HttpMetrics;
+import com.microsoft.azuretools.telemetry.metrics.HttpRequestStats;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TelemetryInterceptorTest {
+    private static final String SITE_CONFIG = "/subscriptions/sub/resourceGroups/rg/providers/Microsoft.Web/sites/app/config/web";
+    private static final byte[] BODY = "{\"name\":\"web\"}".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private OkHttpClient client;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        HttpMetrics.getInstance().reset();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            final boolean throttled = exchange.getRequestURI().getQuery() != null;
+            exchange.sendResponseHeaders(throttled ? 429 : 200, BODY.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        });
+        server.start();
+        baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+        client = new OkHttpClient.Builder().addInterceptor(new TelemetryInterceptor()).build();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        HttpMetrics.getInstance().reset();
+    }
+
+    @Test
+    public void testRecordLatencyPerProviderAndResourceType() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            execute(new Request.Builder().url(baseUrl + SITE_CONFIG).get().build());
+        }
+        execute(new Request.Builder().url(baseUrl + SITE_CONFIG + "?throttle=true")
+                .put(RequestBody.create(MediaType.parse("application/json"), "{}")).build());
+
+        final Map<HttpMetricKey, HttpRequestStats> stats = HttpMetrics.getInstance().getStats();
+        final HttpRequestStats gets = stats.get(new HttpMetricKey("Microsoft.Web", "sites/config", "GET", "2xx"));
+        assertNotNull(stats.toString(), gets);
+        assertEquals(3, gets.getLatency().getCount());
+        assertEquals(3 * BODY.length, gets.getBytesReceived());
+        assertTrue(gets.getLatency().getMaxMicros() > 0);
+
+        final HttpRequestStats puts = stats.get(new HttpMetricKey("Microsoft.Web", "sites/config", "PUT", "4xx"));
+        assertNotNull(stats.toString(), puts);
+        assertEquals(1, puts.getThrottled());
+        assertEquals(2, puts.getBytesSent());
+
+        final StringWriter snapshot = new StringWriter();
+        HttpMetrics.getInstance().writeSnapshot(snapshot);
+        assertTrue(snapshot.toString(), snapshot.toString().contains("Microsoft.Web/sites/config"));
+    }
+
+    @Test
+    public void testRecordFailedRequest() {
+        server.stop(0);
+        try {
+            execute(new Request.Builder().url(baseUrl + "/subscriptions").get().build());
+            fail("request to a stopped server should fail");
+        } catch (IOException e) {
+            final String host = server.getAddress().getHostString();
+            final HttpRequestStats stats = HttpMetrics.getInstance().getStats()
+                    .get(new HttpMetricKey(host, "subscriptions", "GET", "error"));
+            assertNotNull(HttpMetrics.getInstance().getStats().toString(), stats);
+            assertEquals(1, stats.getLatency().getCount());
+        }
+    }
+
+    private void execute(Request request) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            response.body().bytes();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import com.sun.net.httpserver.HttpServer;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TelemetryPipelineTest {
+    private static final long WAIT_MILLIS = 10_000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<TelemetryPipeline> pipelines = new ArrayList<>();
+    private HttpServer server;
+
+    @After
+    public void tearDown() {
+        pipelines.forEach(TelemetryPipeline::close);
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testBatchesToHttpSinkOffTheCallerThread() throws Exception {
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicInteger requests = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/track", exchange -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                received.addAndGet((int) reader.lines().count());
+            }
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().close();
+        });
+        server.start();
+        final URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/track");
+
+        final int threads = 4;
+        final int eventsPerThread = 5_000;
+        final int total = threads * eventsPerThread;
+        final TelemetryPipeline pipeline = newPipeline(total, 200, 50, folder.newFile().toPath());
+        // The first batch holds the sender until every caller is done, so callers finishing proves they never wait
+        // for the sink.
+        final CountDownLatch sinkEntered = new CountDownLatch(1);
+        final CountDownLatch callersDone = new CountDownLatch(1);
+        pipeline.setSink(batch -> {
+            sinkEntered.countDown();
+            try {
+                callersDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            post(url, batch);
+        });
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> callers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final Thread caller = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < eventsPerThread; i++) {
+                    pipeline.enqueue(TelemetryEvent.of("event", Collections.singletonMap("i", String.valueOf(i)),
+                            null));
+                }
+            });
+            callers.add(caller);
+            caller.start();
+        }
+        start.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        assertTrue(sinkEntered.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(0, received.get());
+        callersDone.countDown();
+
+        waitFor(() -> received.get() == total && pipeline.getSentCount() == total);
+        assertEquals(total, received.get());
+        assertEquals(total, pipeline.getSentCount());
+        assertEquals(0, pipeline.getDroppedCount());
+        // Events travel in batches, not one request each.
+        assertTrue("requests: " + requests.get(), requests.get() <= total / 50);
+    }
+
+    @Test
+    public void testDropsOldestWhenFull() throws Exception {
+        final TelemetryPipeline pipeline = newPipeline(10, 100, 10, folder.newFile().toPath());
+        for (int i = 0; i < 15; i++) {
+            pipeline.enqueue(TelemetryEvent.of(String.valueOf(i), null, null));
+        }
+        assertEquals(10, pipeline.getQueuedCount());
+        assertEquals(5, pipeline.getDroppedCount());
+
+        final List<String> names = new CopyOnWriteArrayList<>();
+        pipeline.setSink(batch -> batch.forEach(event -> names.add(event.getName())));
+        waitFor(() -> names.size() == 10);
+        assertEquals(Arrays.asList("5", "6", "7", "8", "9", "10", "11", "12", "13", "14"), names);
+    }
+
+    @Test
+    public void testSpoolsUnsentEventsAndReplaysThemInTheNextSession() throws Exception {
+        final Path spool = folder.getRoot().toPath().resolve("spool.jsonl");
+        final TelemetryPipeline offline = newPipeline(100, 10, 10, spool);
+        offline.enqueue(TelemetryEvent.withPendingPrefix("a", Collections.singletonMap("k", "v"), null));
+        offline.enqueue(TelemetryEvent.of("b", null, Collections.singletonMap("m", 1.0)));
+        offline.close();
+
+        final List<String> lines = Files.readAllLines(spool, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        final TelemetryEvent first = MAPPER.readValue(lines.get(0), TelemetryEvent.class);
+        assertTrue(first.isPrefixPending());
+        assertEquals("v", first.getProperties().get("k"));
+
+        final TelemetryPipeline next = newPipeline(100, 10, 10, spool);
+        final List<TelemetryEvent> sent = new CopyOnWriteArrayList<>();
+        next.setSink(sent::addAll);
+        waitFor(() -> sent.size() == 2);
+        assertEquals("a", sent.get(0).getName());
+        assertEquals(Double.valueOf(1.0), sent.get(1).getMetrics().get("m"));
+        waitFor(() -> !Files.exists(spool));
+    }
+
+    @Test
+    public void testReplayKeepsTheSpoolUntilEachBatchIsSent() throws Exception {
+        final Path spool = folder.getRoot().toPath().resolve("spool.jsonl");
+        final TelemetryPipeline offline = newPipeline(100, 10, 10, spool);
+        for (int i = 0; i < 25; i++) {
+            offline.enqueue(TelemetryEvent.of(String.valueOf(i), null, null));
+        }
+        offline.close();
+
+        final TelemetryPipeline next = newPipeline(100, 10, 10, spool);
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<Boolean> spooledWhileSending = new CopyOnWriteArrayList<>();
+        next.setSink(batch -> {
+            spooledWhileSending.add(Files.exists(spool));
+            if (attempts.incrementAndGet() > 1) {
+                throw new IOException("offline");
+            }
+        });
+        waitFor(() -> attempts.get() >= 3);
+        next.close();
+
+        assertFalse(spooledWhileSending.contains(false));
+        final List<String> lines = Files.readAllLines(spool, StandardCharsets.UTF_8);
+        assertEquals(15, lines.size());
+        assertEquals("10", MAPPER.readValue(lines.get(0), TelemetryEvent.class).getName());
+        assertEquals(10, next.getSentCount());
+    }
+
+    @Test
+    public void testSpoolsBatchesTheSinkRejects() throws Exception {
+        final Path spool = folder.getRoot().toPath().resolve("spool.jsonl");
+        final TelemetryPipeline pipeline = newPipeline(100, 10, 10, spool);
+        final AtomicInteger attempts = new AtomicInteger();
+        pipeline.setSink(batch -> {
+            attempts.incrementAndGet();
+            throw new IOException("offline");
+        });
+        pipeline.enqueue(TelemetryEvent.of("a", null, null));
+        waitFor(() -> Files.exists(spool));
+
+        final List<TelemetryEvent> sent = new CopyOnWriteArrayList<>();
+        pipeline.setSink(sent::addAll);
+        waitFor(() -> sent.size() == 1);
+        assertTrue(attempts.get() > 0);
+        assertEquals("a", sent.get(0).getName());
+    }
+
+    @Test
+    public void testDoesNotSpoolBeforeTelemetryIsAllowed() throws Exception {
+        final Path spool = folder.getRoot().toPath().resolve("spool.jsonl");
+        final TelemetryPipeline pipeline = new TelemetryPipeline(100, 10, 10, () -> spool);
+        pipeline.start();
+        pipelines.add(pipeline);
+        pipeline.enqueue(TelemetryEvent.of("a", null, null));
+        pipeline.close();
+
+        assertFalse(Files.exists(spool));
+        assertEquals(1, pipeline.getDroppedCount());
+    }
+
+    @Test
+    public void testOptOutDeletesTheSpoolInsteadOfReplayingIt() throws Exception {
+        final Path spool = folder.getRoot().toPath().resolve("spool.jsonl");
+        final TelemetryPipeline offline = newPipeline(100, 10, 10, spool);
+        offline.enqueue(TelemetryEvent.of("a", null, null));
+        offline.close();
+        assertTrue(Files.exists(spool));
+
+        final TelemetryPipeline next = new TelemetryPipeline(100, 10, 10, () -> spool);
+        next.start();
+        pipelines.add(next);
+        final List<TelemetryEvent> sent = new CopyOnWriteArrayList<>();
+        next.setSink(sent::addAll);
+        next.setSpoolEnabled(false);
+        next.enqueue(TelemetryEvent.of("b", null, null));
+        waitFor(() -> sent.size() == 1);
+        assertEquals("b", sent.get(0).getName());
+        assertFalse(Files.exists(spool));
+    }
+
+    @Test
+    public void testSpoolIsTrimmedOnlyWhenFull() throws Exception {
+        final Path spool = folder.getRoot().toPath().resolve("spool.jsonl");
+        final TelemetryPipeline offline = newPipeline(TelemetryPipeline.MAX_SPOOLED_EVENTS + 1, 10, 10, spool);
+        for (int i = 0; i < TelemetryPipeline.MAX_SPOOLED_EVENTS; i++) {
+            offline.enqueue(TelemetryEvent.of(String.valueOf(i), null, null));
+        }
+        offline.close();
+        assertEquals(TelemetryPipeline.MAX_SPOOLED_EVENTS, Files.readAllLines(spool, StandardCharsets.UTF_8).size());
+
+        final TelemetryPipeline next = newPipeline(100, 10, 10, spool);
+        next.enqueue(TelemetryEvent.of("last", null, null));
+        next.close();
+        final List<String> lines = Files.readAllLines(spool, StandardCharsets.UTF_8);
+        assertEquals(TelemetryPipeline.TRIMMED_SPOOLED_EVENTS, lines.size());
+        assertEquals("last", MAPPER.readValue(lines.get(lines.size() - 1), TelemetryEvent.class).getName());
+        assertEquals(TelemetryPipeline.MAX_SPOOLED_EVENTS + 1 - TelemetryPipeline.TRIMMED_SPOOLED_EVENTS,
+                next.getDroppedCount());
+    }
+
+    private TelemetryPipeline newPipeline(int capacity, int batchSize, long delayMillis, Path spool) {
+        final TelemetryPipeline pipeline = new TelemetryPipeline(capacity, batchSize, delayMillis, () -> spool);
+        pipeline.setSpoolEnabled(true);
+        pipeline.start();
+        pipelines.add(pipeline);
+        return pipeline;
+    }
+
+    private static void post(URL url, List<TelemetryEvent> batch) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        final StringBuilder body = new StringBuilder();
+        for (TelemetryEvent event : batch) {
+            body.append(MAPPER.writeValueAsString(event)).append('\n');
+        }
+        final byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(bytes.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(bytes);
+        }
+        if (connection.getResponseCode() != 200) {
+            throw new IOException("HTTP " + connection.getResponseCode());
+        }
+    }
+
+    private static void waitFor(Condition condition) throws Exception {
+        final long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.met() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("condition not met in time", condition.met());
+    }
+
+    private interface Condition {
+        boolean met() throws Exception;
+    }
+}
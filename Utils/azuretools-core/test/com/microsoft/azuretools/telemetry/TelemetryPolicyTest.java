@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class TelemetryPolicyTest {
+    private static final String GET = "Azure.Microsoft.Web.GET";
+    private static final String PUT = "Azure.Microsoft.Web.PUT";
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void testRateLimitPerEventName() {
+        final TelemetryPolicy policy = new TelemetryPolicy(1, 10, 20, 60_000, now::get);
+        int refresh = 0;
+        int deploy = 0;
+        for (int i = 0; i < 10_000; i++) {
+            refresh += policy.admit(armResponse(GET, "sites/app" + i, "request")) ? 1 : 0;
+            deploy += policy.admit(armResponse(PUT, "sites/app" + i, "request")) ? 1 : 0;
+        }
+        assertEquals(20, refresh);
+        assertEquals(20, deploy);
+        assertEquals(2 * (10_000 - 20), policy.getRateLimitedCount());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        int admitted = 0;
+        for (int i = 0; i < 10_000; i++) {
+            admitted += policy.admit(armResponse(GET, "sites/other" + i, "request")) ? 1 : 0;
+        }
+        assertEquals("refilled at 10 events per second", 10, admitted);
+    }
+
+    @Test
+    public void testConfiguredRateLimit() {
+        final TelemetryPolicy policy = new TelemetryPolicy(1, 10, 20, 60_000, now::get);
+        policy.setRateLimit(TelemetryPolicy.PERFORMANCE, 0, 0);
+        policy.setRateLimit(GET, 1, 1);
+        int histograms = 0;
+        int responses = 0;
+        for (int i = 0; i < 1_000; i++) {
+            histograms += policy.admit(measured(TelemetryPolicy.PERFORMANCE, i)) ? 1 : 0;
+            responses += policy.admit(armResponse(GET, "sites/app" + i, "request")) ? 1 : 0;
+        }
+        assertEquals(1_000, histograms);
+        assertEquals(1, responses);
+    }
+
+    @Test
+    public void testSendSampledOperationsInFull() {
+        final TelemetryPolicy policy = new TelemetryPolicy(1, 1, 1, 60_000, now::get);
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(policy.admit(traced("step", "op")));
+        }
+        assertEquals(0, policy.getRateLimitedCount());
+    }
+
+    @Test
+    public void testSendOrdinaryEventsAsIs() {
+        final TelemetryPolicy policy = new TelemetryPolicy(1, 1, 1, 60_000, now::get);
+        final Map<String, String> properties = new HashMap<>();
+        properties.put("name", "refresh");
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(policy.admit(TelemetryEvent.of("Plugin.Load", properties, null)));
+            assertTrue(policy.admit(TelemetryEvent.ofType(AppInsightsClient.EventType.Action, "Action.Refresh",
+                    properties, null)));
+            assertTrue(policy.admit(measured("step", i)));
+        }
+        assertEquals(0, policy.getAggregatedCount());
+        assertEquals(0, policy.getRateLimitedCount());
+    }
+
+    @Test
+    public void testDoNotAggregateEventsWithMetrics() {
+        final TelemetryPolicy policy = new TelemetryPolicy(1, 0, 0, 60_000, now::get);
+        final Map<String, String> properties = new HashMap<>();
+        properties.put("name", "list apps(***)");
+        for (int i = 0; i < 100; i++) {
+            final Map<String, Double> metrics = new HashMap<>();
+            metrics.put("p50", (double) i);
+            assertTrue(policy.admit(TelemetryEvent.of(TelemetryPolicy.PERFORMANCE, properties, metrics)));
+        }
+        assertEquals(0, policy.getAggregatedCount());
+    }
+
+    @Test
+    public void testSampleWholeOperations() {
+        final TelemetryPolicy policy = new TelemetryPolicy(0.25, 0, 0, 60_000, now::get);
+        final TelemetryPolicy another = new TelemetryPolicy(0.25, 0, 0, 60_000, now::get);
+        final int operations = 4_000;
+        int kept = 0;
+        for (int i = 0; i < operations; i++) {
+            final String operationId = UUID.randomUUID().toString();
+            final boolean first = policy.admit(traced("opStart", operationId));
+            for (String name : new String[]{"step", "error", "opEnd"}) {
+                assertEquals(first, policy.admit(traced(name, operationId)));
+            }
+            assertEquals("same decision in another session", first, another.admit(traced("opStart", operationId)));
+            kept += first ? 1 : 0;
+        }
+        assertEquals(0.25, kept / (double) operations, 0.03);
+        assertEquals(4 * (operations - kept), policy.getSampledOutCount());
+    }
+
+    @Test
+    public void testAggregateRepeatedEvents() {
+        final TelemetryPolicy policy = new TelemetryPolicy(1, 0, 0, 60_000, now::get);
+        int admitted = 0;
+        for (int i = 0; i < 5_000; i++) {
+            admitted += policy.admit(armResponse(GET, "sites/app" + (i % 2), UUID.randomUUID().toString())) ? 1 : 0;
+        }
+        assertEquals("first response of each resource", 2, admitted);
+        assertEquals(4_998, policy.getAggregatedCount());
+
+        final List<TelemetryEvent> flushed = new ArrayList<>();
+        policy.flushIfDue(flushed::add);
+        assertTrue("not due yet", flushed.isEmpty());
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        policy.flushIfDue(flushed::add);
+
+        assertEquals(2, flushed.size());
+        for (TelemetryEvent event : flushed) {
+            assertEquals(GET, event.getName());
+            assertEquals(2_499, event.getMetrics().get(TelemetryPolicy.COUNT), 0);
+            assertEquals("true", event.getProperties().get(TelemetryPolicy.AGGREGATED));
+            assertFalse(event.getProperties().containsKey(TelemetryInterceptor.MS_REQUEST_ID));
+        }
+
+        flushed.clear();
+        policy.flush(flushed::add);
+        assertTrue("nothing repeated since", flushed.isEmpty());
+        assertTrue(policy.admit(armResponse(GET, "sites/app0", "after")));
+    }
+
+    @Test
+    public void testStormThroughPipeline() {
+        final TelemetryPipeline pipeline = new TelemetryPipeline(100_000, 100, 10, () -> null);
+        final TelemetryPolicy policy = new TelemetryPolicy(1, 10, 50, 60_000, now::get);
+        pipeline.setPolicy(policy);
+        for (int i = 0; i < 20_000; i++) {
+            pipeline.enqueue(armResponse(GET, "sites/app" + (i % 10), "request" + i));
+            pipeline.enqueue(measured(TelemetryPolicy.PERFORMANCE, i));
+            pipeline.enqueue(measured("step", i));
+        }
+        assertEquals(10 + 50 + 20_000, pipeline.getQueuedCount());
+        assertEquals(20_000 - 10, policy.getAggregatedCount());
+        assertEquals(20_000 - 50, policy.getRateLimitedCount());
+    }
+
+    private static TelemetryEvent traced(String name, String operationId) {
+        final Map<String, String> properties = new HashMap<>();
+        properties.put("operationId", operationId);
+        properties.put("operationName", "refresh");
+        return TelemetryEvent.withPendingPrefix(name, properties, null);
+    }
+
+    private static TelemetryEvent measured(String name, double duration) {
+        final Map<String, Double> metrics = new HashMap<>();
+        metrics.put("duration", duration);
+        return TelemetryEvent.withPendingPrefix(name, new HashMap<>(), metrics);
+    }
+
+    private static TelemetryEvent armResponse(String name, String resource, String requestId) {
+        final Map<String, String> properties = new HashMap<>();
+        properties.put(TelemetryInterceptor.RESOURCE_PATH, "providers/Microsoft.Web/" + resource);
+        properties.put(TelemetryInterceptor.RESPONSE_CODE, "200");
+        properties.put(TelemetryInterceptor.MS_REQUEST_ID, requestId);
+        return TelemetryEvent.ofType(TelemetryInterceptor.ARM_RESPONSE, name, properties, null);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetry.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentLatencyHistogramTest {
+
+    @Test
+    public void testBucketsStayWithinPrecision() {
+        long previous = -1;
+        for (long micros = 0; micros < TimeUnit.HOURS.toMicros(1); micros = micros * 11 / 10 + 1) {
+            final int index = ConcurrentLatencyHistogram.indexOf(micros);
+            final long upper = ConcurrentLatencyHistogram.upperBoundOf(index);
+            assertTrue(micros + " <= " + upper, micros <= upper);
+            assertTrue(micros + " ~ " + upper, upper - micros <= Math.max(0, micros / 32));
+            assertTrue(index >= previous);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        final ConcurrentLatencyHistogram histogram = new ConcurrentLatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100_000, histogram.getMaxMicros());
+        assertEquals(5_050_000, histogram.getTotalMicros());
+        assertEquals(50_000, histogram.getPercentileMicros(50), 50_000 / 32);
+        assertEquals(99_000, histogram.getPercentileMicros(99), 99_000 / 32);
+        assertEquals(100_000, histogram.getPercentileMicros(100));
+        assertEquals(0, new ConcurrentLatencyHistogram().getPercentileMicros(50));
+    }
+}
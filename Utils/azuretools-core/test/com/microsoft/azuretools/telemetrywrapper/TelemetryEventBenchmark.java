@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.microsoft.azuretools.telemetrywrapper;
+
+import com.microsoft.azuretools.telemetry.TelemetryEvent;
+import org.joda.time.Instant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation benchmark of building 100k telemetry events the way {@link EventUtil#logEvent} does, against the
+ * copying it did before events shared the common properties. The {@code Sent} variants also read the properties
+ * once, as the telemetry client does when the event is sent. Run with {@code -prof gc} to see the bytes allocated
+ * per event, e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.microsoft.azuretools.telemetrywrapper.TelemetryEventBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OperationsPerInvocation(TelemetryEventBenchmark.EVENTS)
+public class TelemetryEventBenchmark {
+    static final int EVENTS = 100_000;
+
+    private Map<String, String> properties;
+
+    @Setup
+    public void setUp() {
+        final Map<String, String> common = new HashMap<>();
+        common.put("SessionId", UUID.randomUUID().toString());
+        common.put("IDE", "IntelliJ IDEA 2020.2");
+        common.put("Plugin Version", "3.43.0");
+        common.put("Installation ID", UUID.randomUUID().toString());
+        common.put("AppVersion", "2020.2");
+        common.put("Machine ID", UUID.randomUUID().toString());
+        TelemetryManager.getInstance().setCommonProperties(common);
+        properties = Collections.singletonMap("subscriptionId", UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    public void copying(Blackhole blackhole) {
+        for (int i = 0; i < EVENTS; i++) {
+            blackhole.consume(copyingEvent());
+        }
+    }
+
+    @Benchmark
+    public void compact(Blackhole blackhole) {
+        for (int i = 0; i < EVENTS; i++) {
+            blackhole.consume(compactEvent());
+        }
+    }
+
+    @Benchmark
+    public void copyingSent(Blackhole blackhole) {
+        for (int i = 0; i < EVENTS; i++) {
+            blackhole.consume(send(copyingEvent()));
+        }
+    }
+
+    @Benchmark
+    public void compactSent(Blackhole blackhole) {
+        for (int i = 0; i < EVENTS; i++) {
+            blackhole.consume(send(compactEvent()));
+        }
+    }
+
+    private TelemetryEvent compactEvent() {
+        final Map<String, String> merged = CommonUtil.mergeProperties(properties);
+        merged.put(CommonUtil.OPERATION_NAME, "deploy");
+        merged.put(CommonUtil.OPERATION_ID, "operation");
+        return CommonUtil.createEvent(EventType.info, "webapp", merged, null);
+    }
+
+    private TelemetryEvent copyingEvent() {
+        final Map<String, String> mutableProps = new HashMap<>(properties);
+        mutableProps.put(CommonUtil.OPERATION_NAME, "deploy");
+        mutableProps.put(CommonUtil.OPERATION_ID, "operation");
+        final Map<String, String> merged = new HashMap<>(TelemetryManager.getInstance().getCommonProperties());
+        merged.putAll(mutableProps);
+        final Map<String, String> sent = new HashMap<>(merged);
+        sent.put(CommonUtil.TIMESTAMP, Instant.now().toString());
+        sent.put(CommonUtil.SERVICE_NAME, "webapp");
+        return TelemetryEvent.withPendingPrefix(EventType.info.name(), sent, null);
+    }
+
+    // What TelemetryClient.trackEvent does with the properties.
+    private static Map<String, String> send(TelemetryEvent event) {
+        final Map<String, String> tracked = new ConcurrentHashMap<>();
+        tracked.putAll(event.getProperties());
+        return tracked;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TelemetryEventBenchmark.class.getSimpleName()).build()).run();
+    }
+}
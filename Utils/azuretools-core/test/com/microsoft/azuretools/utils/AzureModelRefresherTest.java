@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azure.Page;
+import com.microsoft.azure.PagedList;
+import com.microsoft.azure.management.Azure;
+import com.microsoft.azure.management.appservice.AppServicePlan;
+import com.microsoft.azure.management.appservice.AppServicePlans;
+import com.microsoft.azure.management.appservice.WebApp;
+import com.microsoft.azure.management.appservice.WebApps;
+import com.microsoft.azure.management.appservice.implementation.AppServiceManager;
+import com.microsoft.azure.management.resources.ResourceGroup;
+import com.microsoft.azure.management.resources.ResourceGroups;
+import com.microsoft.azure.management.resources.Subscription;
+import com.microsoft.azuretools.authmanage.models.SubscriptionDetail;
+import com.microsoft.azuretools.sdkmanage.AzureManager;
+import com.microsoft.rest.RestException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Azure.class, AppServiceManager.class})
+public class AzureModelRefresherTest {
+    private static final String SID = "00000000-0000-0000-0000-000000000000";
+    private static final String LISTENER_ID = AzureModelRefresherTest.class.getName();
+
+    @Mock
+    private AzureManager azureManagerMock;
+
+    @Mock
+    private Azure azureMock;
+
+    @Mock
+    private ResourceGroups resourceGroupsMock;
+
+    @Mock
+    private WebApps webAppsMock;
+
+    @Mock
+    private AppServiceManager appSrvMgr;
+
+    @Mock
+    private AppServicePlans appSrvPlans;
+
+    private final List<AzureUIRefreshEvent> events = Collections.synchronizedList(new ArrayList<>());
+    private final SubscriptionDetail sd = new SubscriptionDetail(SID, "test", "tenant", true);
+
+    @Before
+    public void setUp() throws IOException {
+        when(azureManagerMock.getAzure(SID)).thenReturn(azureMock);
+        when(azureMock.resourceGroups()).thenReturn(resourceGroupsMock);
+        when(azureMock.webApps()).thenReturn(webAppsMock);
+        when(azureMock.appServices()).thenReturn(appSrvMgr);
+        when(appSrvMgr.appServicePlans()).thenReturn(appSrvPlans);
+        when(appSrvPlans.list()).thenReturn(pagedList());
+        AzureUIRefreshCore.addListener(LISTENER_ID, new AzureUIRefreshListener() {
+            @Override
+            public void run() {
+                events.add(event);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        AzureUIRefreshCore.removeListener(LISTENER_ID);
+    }
+
+    @Test
+    public void testRefreshSubscriptionsKeepsResourceGroupInstances() throws Exception {
+        ResourceGroup rg1 = resourceGroup("rg1");
+        when(resourceGroupsMock.list()).thenReturn(pagedList(rg1));
+        Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = new ConcurrentHashMap<>();
+        Map<String, Subscription> sidMap = new HashMap<>();
+
+        new AzureModelRefresher(azureManagerMock, null).refreshSubscriptions(
+                Collections.singletonList(sd), sidMap, sdrgMap, new ConcurrentHashMap<>());
+        assertEquals(1, sdrgMap.get(sd).size());
+
+        ResourceGroup rg1Again = resourceGroup("RG1");
+        ResourceGroup rg2 = resourceGroup("rg2");
+        when(resourceGroupsMock.list()).thenReturn(pagedList(rg1Again, rg2));
+        new AzureModelRefresher(azureManagerMock, null).refreshSubscriptions(
+                Collections.singletonList(sd), sidMap, sdrgMap, new ConcurrentHashMap<>());
+        List<ResourceGroup> rgList = sdrgMap.get(sd);
+        assertEquals(2, rgList.size());
+        assertSame(rg1, rgList.get(0));
+        assertSame(rg2, rgList.get(1));
+    }
+
+    @Test
+    public void testRefreshResourceGroupsPublishesChanges() throws Exception {
+        ResourceGroup rg = resourceGroup("rg");
+        WebApp app1 = webApp("rg", "app1", "Running");
+        WebApp app2 = webApp("rg", "app2", "Running");
+        when(webAppsMock.list()).thenReturn(pagedList(app1, app2));
+        Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = new ConcurrentHashMap<>();
+        sdrgMap.put(sd, new ArrayList<>(Collections.singletonList(rg)));
+        Map<ResourceGroup, List<WebApp>> rgwaMap = new ConcurrentHashMap<>();
+        Map<ResourceGroup, List<AppServicePlan>> rgspMap = new ConcurrentHashMap<>();
+
+        new AzureModelRefresher(azureManagerMock, null).refreshResourceGroups(sdrgMap, rgwaMap, rgspMap);
+        assertEquals(2, rgwaMap.get(rg).size());
+        assertTrue(rgspMap.containsKey(rg));
+        // the first load is not a change
+        assertEquals(0, events.size());
+
+        WebApp app2Stopped = webApp("rg", "app2", "Stopped");
+        WebApp app3 = webApp("rg", "app3", "Running");
+        when(webAppsMock.list()).thenReturn(pagedList(app2Stopped, app3));
+        new AzureModelRefresher(azureManagerMock, null).refreshResourceGroups(sdrgMap, rgwaMap, rgspMap);
+        assertEquals(2, rgwaMap.get(rg).size());
+        assertEquals(3, events.size());
+        assertEvent(AzureUIRefreshEvent.EventType.UPDATE, app2Stopped);
+        assertEvent(AzureUIRefreshEvent.EventType.ADD, app3);
+        assertEvent(AzureUIRefreshEvent.EventType.REMOVE, app1);
+    }
+
+    @Test
+    public void testResourcesAreListedOncePerSubscription() throws Exception {
+        ResourceGroup rg1 = resourceGroup("rg1");
+        ResourceGroup rg2 = resourceGroup("rg2");
+        ResourceGroup empty = resourceGroup("empty");
+        WebApp app1 = webApp("RG1", "app1", "Running");
+        WebApp app2 = webApp("rg2", "app2", "Running");
+        WebApp app3 = webApp("rg2", "app3", "Running");
+        WebApp elsewhere = webApp("unknown", "app4", "Running");
+        AppServicePlan plan = mock(AppServicePlan.class);
+        when(plan.id()).thenReturn("/subscriptions/" + SID + "/resourceGroups/rg1/providers/Microsoft.Web/serverfarms/p");
+        when(webAppsMock.list()).thenReturn(pagedList(app1, app2, app3, elsewhere));
+        when(appSrvPlans.list()).thenReturn(pagedList(plan));
+        Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = new ConcurrentHashMap<>();
+        sdrgMap.put(sd, new ArrayList<>(Arrays.asList(rg1, rg2, empty)));
+        Map<ResourceGroup, List<WebApp>> rgwaMap = new ConcurrentHashMap<>();
+        Map<ResourceGroup, List<AppServicePlan>> rgspMap = new ConcurrentHashMap<>();
+
+        new AzureModelRefresher(azureManagerMock, null).refreshResourceGroups(sdrgMap, rgwaMap, rgspMap);
+        assertEquals(Collections.singletonList(app1), rgwaMap.get(rg1));
+        assertEquals(Arrays.asList(app2, app3), rgwaMap.get(rg2));
+        assertTrue(rgwaMap.get(empty).isEmpty());
+        assertEquals(Collections.singletonList(plan), rgspMap.get(rg1));
+        assertTrue(rgspMap.get(rg2).isEmpty());
+        verify(webAppsMock, times(1)).list();
+        verify(webAppsMock, never()).listByResourceGroup(anyString());
+        verify(appSrvPlans, never()).listByResourceGroup(anyString());
+    }
+
+    @Test
+    public void testFailedListingKeepsPreviousState() throws Exception {
+        ResourceGroup rg1 = resourceGroup("rg1");
+        ResourceGroup rg2 = resourceGroup("rg2");
+        when(webAppsMock.list()).thenThrow(new RuntimeException("throttled"));
+        Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = new ConcurrentHashMap<>();
+        sdrgMap.put(sd, new ArrayList<>(Arrays.asList(rg1, rg2)));
+        Map<ResourceGroup, List<WebApp>> rgwaMap = new ConcurrentHashMap<>();
+        List<WebApp> previous = new ArrayList<>();
+        rgwaMap.put(rg1, previous);
+        Map<ResourceGroup, List<AppServicePlan>> rgspMap = new ConcurrentHashMap<>();
+
+        new AzureModelRefresher(azureManagerMock, null).refreshResourceGroups(sdrgMap, rgwaMap, rgspMap);
+        assertSame(previous, rgwaMap.get(rg1));
+        assertFalse(rgwaMap.containsKey(rg2));
+        // the app service plans are listed independently
+        assertTrue(rgspMap.containsKey(rg1));
+        assertTrue(rgspMap.containsKey(rg2));
+    }
+
+    @Test
+    public void testRemoveStaleResourceGroups() {
+        ResourceGroup rg1 = resourceGroup("rg1");
+        ResourceGroup gone = resourceGroup("gone");
+        WebApp app = webApp("gone", "app", "Running");
+        Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = new ConcurrentHashMap<>();
+        sdrgMap.put(sd, new ArrayList<>(Collections.singletonList(rg1)));
+        Map<ResourceGroup, List<WebApp>> rgwaMap = new ConcurrentHashMap<>();
+        rgwaMap.put(rg1, new ArrayList<>());
+        rgwaMap.put(gone, new ArrayList<>(Collections.singletonList(app)));
+        Map<ResourceGroup, List<AppServicePlan>> rgspMap = new ConcurrentHashMap<>();
+        rgspMap.put(gone, new ArrayList<>());
+
+        new AzureModelRefresher(azureManagerMock, null).removeStaleResourceGroups(sdrgMap, rgwaMap, rgspMap);
+        assertEquals(Collections.singleton(rg1), rgwaMap.keySet());
+        assertTrue(rgspMap.isEmpty());
+        assertEvent(AzureUIRefreshEvent.EventType.REMOVE, app);
+    }
+
+    @Test
+    public void testCanceledRefreshKeepsModel() throws Exception {
+        ResourceGroup rg = resourceGroup("rg");
+        Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = new ConcurrentHashMap<>();
+        sdrgMap.put(sd, new ArrayList<>(Collections.singletonList(rg)));
+        Map<ResourceGroup, List<WebApp>> rgwaMap = new ConcurrentHashMap<>();
+        List<WebApp> previous = new ArrayList<>();
+        rgwaMap.put(rg, previous);
+        IProgressIndicator canceled = mock(IProgressIndicator.class);
+        when(canceled.isCanceled()).thenReturn(true);
+
+        try {
+            new AzureModelRefresher(azureManagerMock, canceled).refreshResourceGroups(sdrgMap, rgwaMap,
+                    new ConcurrentHashMap<>());
+            fail();
+        } catch (CanceledByUserException expected) {
+            assertSame(previous, rgwaMap.get(rg));
+            assertEquals(1, sdrgMap.size());
+        }
+    }
+
+    private void assertEvent(AzureUIRefreshEvent.EventType type, WebApp app) {
+        synchronized (events) {
+            for (AzureUIRefreshEvent event : events) {
+                if (event.opsType == type && ((WebAppUtils.WebAppDetails) event.object).webApp == app) {
+                    return;
+                }
+            }
+        }
+        fail("missing " + type + " event for " + app.id());
+    }
+
+    private static ResourceGroup resourceGroup(String name) {
+        ResourceGroup rg = mock(ResourceGroup.class);
+        when(rg.name()).thenReturn(name);
+        when(rg.id()).thenReturn("/subscriptions/" + SID + "/resourceGroups/" + name);
+        return rg;
+    }
+
+    private static WebApp webApp(String rgName, String name, String state) {
+        WebApp app = mock(WebApp.class);
+        when(app.id()).thenReturn("/subscriptions/" + SID + "/resourceGroups/" + rgName
+                + "/providers/Microsoft.Web/sites/" + name);
+        when(app.state()).thenReturn(state);
+        return app;
+    }
+
+    @SafeVarargs
+    private static <T> PagedList<T> pagedList(T... items) {
+        PagedList<T> list = new PagedList<T>() {
+            @Override
+            public Page<T> nextPage(String nextPageLink) throws RestException, IOException {
+                return null;
+            }
+        };
+        Collections.addAll(list, items);
+        return list;
+    }
+}
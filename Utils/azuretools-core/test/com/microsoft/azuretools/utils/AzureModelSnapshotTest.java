@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.utils;
+
+import com.microsoft.azure.management.appservice.AppServicePlan;
+import com.microsoft.azure.management.appservice.JavaVersion;
+import com.microsoft.azure.management.appservice.OperatingSystem;
+import com.microsoft.azure.management.appservice.PricingTier;
+import com.microsoft.azure.management.appservice.WebApp;
+import com.microsoft.azure.management.resources.Location;
+import com.microsoft.azure.management.resources.ResourceGroup;
+import com.microsoft.azuretools.authmanage.CommonSettings;
+import com.microsoft.azuretools.authmanage.Environment;
+import com.microsoft.azuretools.authmanage.models.SubscriptionDetail;
+import com.microsoft.azuretools.sdkmanage.AzureManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AzureModelSnapshotTest {
+    private static final String KEY = AzureModelSnapshot.createKey("user@contoso.com", "GLOBAL");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AzureModel azureModel = AzureModel.getInstance();
+    private String settingsBaseDir;
+
+    @Before
+    public void setUp() {
+        settingsBaseDir = CommonSettings.getSettingsBaseDir();
+        CommonSettings.setUpEnvironment(folder.getRoot().getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() {
+        azureModel.setSubscriptionToResourceGroupMap(null);
+        azureModel.setSubscriptionToLocationMap(null);
+        azureModel.setResourceGroupToWebAppMap(null);
+        azureModel.setResourceGroupToAppServicePlanMap(null);
+        azureModel.setSnapshot(null);
+        if (settingsBaseDir != null) {
+            CommonSettings.setUpEnvironment(settingsBaseDir);
+        }
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        SubscriptionDetail selected = new SubscriptionDetail("sid1", "first", "tid", true);
+        SubscriptionDetail unselected = new SubscriptionDetail("sid2", "second", "tid", false);
+        ResourceGroup rg = mock(ResourceGroup.class);
+        when(rg.id()).thenReturn("/subscriptions/sid1/resourceGroups/rg");
+        when(rg.name()).thenReturn("rg");
+        when(rg.regionName()).thenReturn("westus");
+        ResourceGroup notLoaded = mock(ResourceGroup.class);
+        when(notLoaded.id()).thenReturn("/subscriptions/sid1/resourceGroups/other");
+        when(notLoaded.name()).thenReturn("other");
+        Location location = mock(Location.class);
+        when(location.name()).thenReturn("westus");
+        when(location.displayName()).thenReturn("West US");
+        WebApp javaApp = mock(WebApp.class);
+        when(javaApp.id()).thenReturn("/subscriptions/sid1/resourceGroups/rg/providers/Microsoft.Web/sites/java");
+        when(javaApp.name()).thenReturn("java");
+        when(javaApp.state()).thenReturn("Running");
+        when(javaApp.appServicePlanId()).thenReturn("plan-id");
+        when(javaApp.operatingSystem()).thenReturn(OperatingSystem.WINDOWS);
+        when(javaApp.javaVersion()).thenReturn(JavaVersion.JAVA_8_NEWEST);
+        when(javaApp.javaContainer()).thenReturn("TOMCAT");
+        when(javaApp.javaContainerVersion()).thenReturn("8.5");
+        WebApp nodeApp = mock(WebApp.class);
+        when(nodeApp.name()).thenReturn("node");
+        when(nodeApp.operatingSystem()).thenReturn(OperatingSystem.LINUX);
+        when(nodeApp.linuxFxVersion()).thenReturn("NODE|10.14");
+        AppServicePlan plan = mock(AppServicePlan.class);
+        when(plan.id()).thenReturn("plan-id");
+        when(plan.name()).thenReturn("plan");
+        when(plan.pricingTier()).thenReturn(PricingTier.BASIC_B1);
+        when(plan.operatingSystem()).thenReturn(OperatingSystem.WINDOWS);
+
+        Map<SubscriptionDetail, List<ResourceGroup>> sdrgMap = azureModel.createSubscriptionToResourceGroupMap();
+        sdrgMap.put(selected, Arrays.asList(rg, notLoaded));
+        sdrgMap.put(unselected, new ArrayList<>());
+        azureModel.setSubscriptionToResourceGroupMap(sdrgMap);
+        Map<SubscriptionDetail, List<Location>> sdlocMap = azureModel.createSubscriptionToRegionMap();
+        sdlocMap.put(selected, Collections.singletonList(location));
+        azureModel.setSubscriptionToLocationMap(sdlocMap);
+        Map<ResourceGroup, List<WebApp>> rgwaMap = azureModel.createResourceGroupToWebAppMap();
+        rgwaMap.put(rg, Arrays.asList(javaApp, nodeApp));
+        azureModel.setResourceGroupToWebAppMap(rgwaMap);
+        Map<ResourceGroup, List<AppServicePlan>> rgspMap = azureModel.createResourceGroupToAppServicePlanMap();
+        rgspMap.put(rg, Collections.singletonList(plan));
+        azureModel.setResourceGroupToAppServicePlanMap(rgspMap);
+
+        AzureModelSnapshot.capture(KEY, azureModel).save();
+        AzureModelSnapshot snapshot = AzureModelSnapshot.load(KEY);
+
+        assertNotNull(snapshot);
+        assertTrue(snapshot.getSavedAt() > 0);
+        assertEquals(1, snapshot.getSubscriptions().size());
+        AzureModelSnapshot.SubscriptionEntry se = snapshot.getSubscriptions().get(0);
+        assertEquals("sid1", se.getSubscriptionId());
+        assertEquals("West US", se.getLocations().get(0).getDisplayName());
+        assertEquals(2, se.getResourceGroups().size());
+        AzureModelSnapshot.ResourceGroupEntry rge = findResourceGroup(se, "rg");
+        assertEquals("westus", rge.getRegion());
+        assertEquals("plan", rge.getAppServicePlans().get(0).getName());
+        assertEquals(2, rge.getWebApps().size());
+        AzureModelSnapshot.WebAppEntry java = rge.getWebApps().get(0);
+        assertTrue(java.isJava());
+        assertEquals("Running", java.getState());
+        assertEquals(JavaVersion.JAVA_8_NEWEST.toString(), java.getJavaVersion());
+        assertFalse(rge.getWebApps().get(1).isJava());
+        // resource groups whose web apps were not listed stay distinguishable from empty ones
+        assertNull(findResourceGroup(se, "other").getWebApps());
+    }
+
+    @Test
+    public void testLoadIsKeyedByAccount() throws Exception {
+        azureModel.setSubscriptionToResourceGroupMap(azureModel.createSubscriptionToResourceGroupMap());
+        AzureModelSnapshot.capture(KEY, azureModel).save();
+
+        assertNotNull(AzureModelSnapshot.load(KEY));
+        assertNull(AzureModelSnapshot.load(AzureModelSnapshot.createKey("someone@contoso.com", "GLOBAL")));
+        assertNull(AzureModelSnapshot.load(AzureModelSnapshot.createKey("user@contoso.com", "CHINA")));
+
+        AzureModelSnapshot.delete(KEY);
+        assertNull(AzureModelSnapshot.load(KEY));
+    }
+
+    @Test
+    public void testDeleteSnapshotOnSignOut() throws Exception {
+        AzureManager azureManager = mock(AzureManager.class);
+        when(azureManager.getCurrentUserId()).thenReturn("user@contoso.com");
+        when(azureManager.getEnvironment()).thenReturn(Environment.GLOBAL);
+        azureModel.setSubscriptionToResourceGroupMap(azureModel.createSubscriptionToResourceGroupMap());
+        AzureModelSnapshot.capture(KEY, azureModel).save();
+        assertNotNull(azureModel.getSnapshot(KEY));
+
+        AzureModelController.deleteSnapshot(azureManager);
+
+        assertNull(azureModel.getSnapshot(KEY));
+        assertFalse(Files.exists(folder.getRoot().toPath().resolve(AzureModelSnapshot.getFileName(KEY))));
+    }
+
+    @Test
+    public void testCorruptSnapshotIsIgnored() throws Exception {
+        Files.write(folder.getRoot().toPath().resolve(AzureModelSnapshot.getFileName(KEY)),
+                "{\"subscriptions\":".getBytes(StandardCharsets.UTF_8));
+        assertNull(AzureModelSnapshot.load(KEY));
+    }
+
+    private static AzureModelSnapshot.ResourceGroupEntry findResourceGroup(AzureModelSnapshot.SubscriptionEntry se,
+                                                                          String name) {
+        for (AzureModelSnapshot.ResourceGroupEntry rge : se.getResourceGroups()) {
+            if (rge.getName().equals(name)) {
+                return rge;
+            }
+        }
+        fail("missing resource group " + name);
+        return null;
+    }
+}
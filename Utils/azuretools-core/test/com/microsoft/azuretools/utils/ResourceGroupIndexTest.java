@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ *
+ * All rights reserved.
+ *
+ * MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.microsoft.azuretools.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class ResourceGroupIndexTest {
+    private static final String PREFIX = "/subscriptions/00000000-0000-0000-0000-000000000000/resourceGroups/";
+
+    @Test
+    public void testGroupsByResourceGroupIgnoringCase() {
+        List<String> ids = Arrays.asList(
+                PREFIX + "rg1/providers/Microsoft.Web/sites/a",
+                PREFIX + "RG1/providers/Microsoft.Web/sites/b",
+                PREFIX + "rg2/providers/Microsoft.Web/serverfarms/c",
+                "not an arm id",
+                null);
+        ResourceGroupIndex<String> index = ResourceGroupIndex.of(ids, Function.identity());
+
+        assertEquals(3, index.size());
+        assertEquals(new HashSet<>(Arrays.asList("rg1", "rg2")), index.resourceGroupNames());
+        assertEquals(ids.subList(0, 2), index.list("Rg1"));
+        assertEquals(Collections.singletonList(ids.get(2)), index.list("rg2"));
+        assertTrue(index.list("rg3").isEmpty());
+    }
+
+    @Test
+    public void testListIsACopy() {
+        ResourceGroupIndex<String> index = ResourceGroupIndex.of(
+                Collections.singletonList(PREFIX + "rg/providers/Microsoft.Web/sites/a"), Function.identity());
+        index.list("rg").add("added");
+        assertEquals(1, index.list("rg").size());
+    }
+}
@@ -30,6 +30,7 @@ import com.microsoft.azure.hdinsight.sdk.rest.ObjectConvertUtils;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import com.microsoft.azuretools.service.ServiceManager;
+import com.microsoft.azuretools.telemetry.metrics.HttpMetrics;
 import com.microsoft.tooling.msservices.components.DefaultLoader;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
@@ -60,6 +61,7 @@ import rx.exceptions.Exceptions;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.net.URI;
 import java.net.UnknownServiceException;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
@@ -395,10 +397,34 @@ public class HttpObservable implements ILogger {
                 httpRequest.setHeader(entity.getContentType());
             }
 
-            return getHttpClient().execute(httpRequest, getHttpContext());
+            final HttpMetrics.RequestTimer timer = HttpMetrics.getInstance().start();
+            try {
+                final CloseableHttpResponse response = getHttpClient().execute(httpRequest, getHttpContext());
+                recordMetrics(timer, httpRequest, response);
+                return response;
+            } catch (IOException | RuntimeException e) {
+                recordMetrics(timer, httpRequest, null);
+                throw e;
+            }
         });
     }
 
+    private static void recordMetrics(@NotNull final HttpMetrics.RequestTimer timer,
+                                      @NotNull final HttpRequestBase httpRequest,
+                                      @Nullable final CloseableHttpResponse response) {
+        final URI uri = httpRequest.getURI();
+        final String resourceType = Arrays.stream(StringUtils.split(StringUtils.defaultString(uri.getPath()), '/'))
+                .findFirst()
+                .orElse(null);
+        final long requestBytes = httpRequest instanceof HttpEntityEnclosingRequestBase &&
+                ((HttpEntityEnclosingRequestBase) httpRequest).getEntity() != null ?
+                ((HttpEntityEnclosingRequestBase) httpRequest).getEntity().getContentLength() : 0;
+        final int statusCode = response == null ? 0 : response.getStatusLine().getStatusCode();
+        final long responseBytes = response == null || response.getEntity() == null ? 0 : response.getEntity().getContentLength();
+        timer.stop(uri.getHost(), resourceType, httpRequest.getMethod(), uri.getPath(), statusCode, requestBytes,
+                   responseBytes);
+    }
+
     /*
      * RESTful API operations with response conversion for specified type
      */